@@ -0,0 +1,23 @@
+package com.dirscanner.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the directory entries scanned by a benchmark, so that JMH reports entries per second alongside operations per
+ * second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class EntryCounter {
+
+    public long entries;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        entries = 0;
+    }
+}
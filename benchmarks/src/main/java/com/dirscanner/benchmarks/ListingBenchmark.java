@@ -0,0 +1,55 @@
+package com.dirscanner.benchmarks;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.scanner.DirectoryElementScanner;
+import com.dirscanner.scanner.ForkJoinScanEngine;
+import com.dirscanner.scanner.ScanOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of listing a {@link SyntheticTree} on a single worker, with entries stat-ed relative to their open
+ * directory or by their full path, as set by {@link ScanOptions#isDirectoryRelativeStat()}.
+ * <p>
+ * The difference grows with the depth of the entries, since stat-ing by path resolves every directory along it again,
+ * so run with {@code -p shape=DEEP_NARROW} to see it, and with {@code -p shape=DENSE} to check that shallow entries
+ * are no slower.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(1)
+public class ListingBenchmark {
+
+    @Param({"true", "false"})
+    public boolean directoryRelativeStat;
+
+    private DirectoryElementScanner scanner;
+
+    @Setup
+    public void createScanner() {
+        scanner = new DirectoryElementScanner(new ForkJoinScanEngine(1),
+                ScanOptions.builder().directoryRelativeStat(directoryRelativeStat).build());
+    }
+
+    @Benchmark
+    public List<DirectoryElement> scan(final SyntheticTree tree, final EntryCounter counter) throws IOException {
+        counter.entries += tree.generated;
+        return scanner.scan(tree.root);
+    }
+}
@@ -0,0 +1,103 @@
+package com.dirscanner.benchmarks;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.scanner.CachingScanEngine;
+import com.dirscanner.scanner.DirectoryElementScanner;
+import com.dirscanner.scanner.ExecutorScanEngine;
+import com.dirscanner.scanner.ForkJoinScanEngine;
+import com.dirscanner.scanner.ScanCache;
+import com.dirscanner.scanner.TreeWalkScanEngine;
+import com.dirscanner.tree.FileTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a full scan of a {@link SyntheticTree} by each of the {@link com.dirscanner.scanner.ScanEngine}s, and of
+ * {@link DirectoryElementScanner#scanTree(Path)}.
+ * <p>
+ * Run with {@code -prof gc} to also report the allocation rate of each.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@Fork(1)
+public class ScanBenchmark {
+
+    /**
+     * A {@link ScanCache} which is warmed up with a first scan, so that the cached benchmark measures a rescan of an
+     * unchanged tree.
+     */
+    @State(Scope.Benchmark)
+    public static class WarmCache {
+
+        private Path file;
+
+        private ScanCache cache;
+
+        @Setup(Level.Trial)
+        public void warmUp(final SyntheticTree tree) throws IOException {
+            file = Files.createTempFile("dir-scanner-bench", ".cache");
+            cache = ScanCache.load(file);
+            new DirectoryElementScanner(new CachingScanEngine(cache)).scan(tree.root);
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            cache.invalidate();
+        }
+    }
+
+    private final DirectoryElementScanner treeWalk = new DirectoryElementScanner(new TreeWalkScanEngine());
+
+    private final DirectoryElementScanner forkJoin = new DirectoryElementScanner(new ForkJoinScanEngine());
+
+    private final DirectoryElementScanner executor = new DirectoryElementScanner(new ExecutorScanEngine());
+
+    @Benchmark
+    public List<DirectoryElement> treeWalkScan(final SyntheticTree tree, final EntryCounter counter) throws IOException {
+        counter.entries += tree.generated;
+        return treeWalk.scan(tree.root);
+    }
+
+    @Benchmark
+    public List<DirectoryElement> forkJoinScan(final SyntheticTree tree, final EntryCounter counter) throws IOException {
+        counter.entries += tree.generated;
+        return forkJoin.scan(tree.root);
+    }
+
+    @Benchmark
+    public List<DirectoryElement> executorScan(final SyntheticTree tree, final EntryCounter counter) throws IOException {
+        counter.entries += tree.generated;
+        return executor.scan(tree.root);
+    }
+
+    @Benchmark
+    public List<DirectoryElement> cachedRescan(final SyntheticTree tree, final WarmCache cache, final EntryCounter counter) throws IOException {
+        counter.entries += tree.generated;
+        return new DirectoryElementScanner(new CachingScanEngine(cache.cache)).scan(tree.root);
+    }
+
+    @Benchmark
+    public FileTree scanTree(final SyntheticTree tree, final EntryCounter counter) throws IOException {
+        counter.entries += tree.generated;
+        return treeWalk.scanTree(tree.root);
+    }
+}
@@ -0,0 +1,75 @@
+package com.dirscanner.benchmarks;
+
+import com.dirscanner.elem.DirectoryElemSizeComparator;
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.DirectoryElement.Size;
+import com.dirscanner.elem.FileSizeUnit;
+import com.dirscanner.scanner.LargestElements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of ordering scanned {@link DirectoryElement}s: a full sort by {@link DirectoryElemSizeComparator}, as done
+ * by {@link com.dirscanner.scanner.DirectoryElementScanner#scan(java.nio.file.Path)}, against keeping only the 10
+ * largest in {@link LargestElements}.
+ * <p>
+ * Run with {@code -prof gc} to also report the allocation rate of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SortBenchmark {
+
+    private final DirectoryElemSizeComparator comparator = new DirectoryElemSizeComparator();
+
+    @Param({"10000", "1000000"})
+    public int elems;
+
+    private List<DirectoryElement> unsorted;
+
+    @Setup
+    public void generate() {
+
+        final Random random = new Random(42);
+        unsorted = new ArrayList<>(elems);
+
+        for (int i = 0; i < elems; i++) {
+            unsorted.add(DirectoryElement.builder()
+                    .absPath("/bench/elem" + i)
+                    .type(DirectoryElement.Type.FILE)
+                    .size(Size.of(random.nextInt(1 << 30), FileSizeUnit.KB))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<DirectoryElement> comparatorSort() {
+        final List<DirectoryElement> sorted = new ArrayList<>(unsorted);
+        sorted.sort(comparator.reversed());
+        return sorted;
+    }
+
+    @Benchmark
+    public List<DirectoryElement> largest10() {
+        final LargestElements largest = new LargestElements(10);
+        unsorted.forEach(largest);
+        return largest.toList();
+    }
+}
@@ -0,0 +1,144 @@
+package com.dirscanner.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A synthetic directory tree, generated once per trial and deleted afterwards.
+ * <p>
+ * Trees are generated under the directory given by the {@code bench.dir} system property, or else under
+ * {@code /dev/shm} when it exists so that the scanners are measured against tmpfs rather than a disk. Files are sparse,
+ * so that their apparent sizes vary without taking up any memory.
+ */
+@State(Scope.Benchmark)
+public class SyntheticTree {
+
+    public enum Shape {
+        /**
+         * 100 top-level directories, each holding an equal share of the files.
+         */
+        WIDE_FLAT,
+        /**
+         * Chains of 256 nested directories, each level holding 4 files besides the next directory.
+         */
+        DEEP_NARROW,
+        /**
+         * A single directory holding all the files, where the cost of stat-ing each entry dominates.
+         */
+        DENSE
+    }
+
+    private static final int WIDE_FLAT_DIRS = 100;
+
+    private static final int DEEP_NARROW_DEPTH = 256;
+
+    private static final int DEEP_NARROW_FILES_PER_LEVEL = 4;
+
+    @Param({"WIDE_FLAT", "DEEP_NARROW", "DENSE"})
+    public Shape shape;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int entries;
+
+    /**
+     * The root of the generated tree.
+     */
+    public Path root;
+
+    /**
+     * The number of directories and files actually generated, which is close to, but not always exactly,
+     * {@link #entries}.
+     */
+    public long generated;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+
+        root = Files.createTempDirectory(baseDir(), "dir-scanner-bench");
+        generated = 0;
+
+        if (shape == Shape.WIDE_FLAT) {
+            final int filesPerDir = Math.max(1, entries / WIDE_FLAT_DIRS - 1);
+            for (int d = 0; d < WIDE_FLAT_DIRS; d++) {
+                final Path dir = createDirectory(root.resolve("dir" + d));
+                for (int f = 0; f < filesPerDir; f++) {
+                    createFile(dir.resolve("file" + f + ".dat"), (d * 31L + f) % 65536);
+                }
+            }
+        } else if (shape == Shape.DENSE) {
+            for (int f = 0; f < entries; f++) {
+                createFile(root.resolve("file" + f + ".dat"), f % 65536);
+            }
+        } else {
+            final int chains = Math.max(1, entries / (DEEP_NARROW_DEPTH * (DEEP_NARROW_FILES_PER_LEVEL + 1)));
+            for (int c = 0; c < chains; c++) {
+                Path dir = root.resolve("chain" + c);
+                for (int level = 0; level < DEEP_NARROW_DEPTH; level++) {
+                    createDirectory(dir);
+                    for (int f = 0; f < DEEP_NARROW_FILES_PER_LEVEL; f++) {
+                        createFile(dir.resolve("file" + f + ".dat"), (c * 31L + level * 7L + f) % 65536);
+                    }
+                    dir = dir.resolve("d");
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private Path createDirectory(final Path dir) throws IOException {
+        generated++;
+        return Files.createDirectory(dir);
+    }
+
+    private void createFile(final Path file, final long size) throws IOException {
+        generated++;
+        try (final RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size);
+        }
+    }
+
+    private static Path baseDir() {
+
+        final String benchDir = System.getProperty("bench.dir");
+        if (benchDir != null) {
+            return Paths.get(benchDir);
+        }
+
+        final Path shm = Paths.get("/dev/shm");
+        if (Files.isDirectory(shm) && Files.isWritable(shm)) {
+            return shm;
+        }
+
+        return Paths.get(System.getProperty("java.io.tmpdir"));
+    }
+}
@@ -1,34 +1,571 @@
 package com.dirscanner;
 
+import com.dirscanner.elem.DirectoryElemSizeComparator;
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.ElementNode;
+import com.dirscanner.elem.EstimatedElement;
+import com.dirscanner.metrics.ScanListener;
+import com.dirscanner.output.ElementWriter;
+import com.dirscanner.output.OutputFormat;
+import com.dirscanner.metrics.ScanMetrics;
+import com.dirscanner.scanner.Aggregation;
+import com.dirscanner.scanner.CachingScanEngine;
 import com.dirscanner.scanner.DirectoryElementScanner;
+import com.dirscanner.scanner.DistributedScanEngine;
+import com.dirscanner.scanner.DuplicateGroup;
+import com.dirscanner.scanner.ErrorPolicy;
+import com.dirscanner.scanner.ExecutorScanEngine;
+import com.dirscanner.scanner.ForkJoinScanEngine;
+import com.dirscanner.scanner.GroupTotal;
+import com.dirscanner.scanner.ScanCache;
+import com.dirscanner.scanner.ScanEngine;
+import com.dirscanner.scanner.ScanError;
+import com.dirscanner.scanner.ScanOptions;
+import com.dirscanner.scanner.ScanReport;
+import com.dirscanner.scanner.SizeMode;
+import com.dirscanner.scanner.TreeWalkScanEngine;
+import com.dirscanner.server.ScanServer;
+import com.dirscanner.snapshot.SnapshotDelta;
+import com.dirscanner.snapshot.SnapshotDiff;
+import com.dirscanner.tree.FileTree;
+import com.dirscanner.tree.MappedFileTree;
+import com.dirscanner.watch.TreeWatcher;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Created by Sarah Micallef on 13/06/2017.
+ * <p>
+ * The directory to scan is given as {@code --path=DIR}, or as the first argument which is not a flag, or else read
+ * from the standard input.
+ * <p>
+ * Supported flags:
+ * <ul>
+ * <li>{@code --path=DIR} scans {@code DIR} rather than prompting for the directory</li>
+ * <li>{@code --depth=N} prints the totals of the nested elements down to {@code N} levels below the directory, rather
+ * than only the top-level ones, out of a single walk. Each element is followed by its own, in descending order of size,
+ * unless sorted by path</li>
+ * <li>{@code --sort=size|path|none} prints the elements in descending order of size (the default), in order of path,
+ * or in the order they were scanned in</li>
+ * <li>{@code --format=human|tsv|ndjson|binary} prints the elements as in {@link OutputFormat}, in the human-readable
+ * format by default</li>
+ * <li>{@code --parallel} scans on a {@link ForkJoinScanEngine}</li>
+ * <li>{@code --virtual-threads} scans on an {@link ExecutorScanEngine}, meant for high-latency file systems</li>
+ * <li>{@code --workers=N} spreads the scan over {@code N} worker processes on a {@link DistributedScanEngine}</li>
+ * <li>{@code --stream} prints each element as soon as its size is known, rather than sorted once the scan is done</li>
+ * <li>{@code --top=N} prints only the {@code N} largest elements</li>
+ * <li>{@code --cache=FILE} skips directories which did not change since the previous scan cached in {@code FILE}</li>
+ * <li>{@code --on-error=fail|skip|retry} aborts the scan on an unreadable entry (the default, except with
+ * {@code --serve}), or skips it, possibly after retrying, and lists the skipped entries once done</li>
+ * <li>{@code --disk-usage} reports the disk space used, counting hard-linked files once, rather than apparent sizes</li>
+ * <li>{@code --follow-links} follows symbolic links to directories, counting every directory once</li>
+ * <li>{@code --one-file-system} leaves out directories on other file systems than the scanned one</li>
+ * <li>{@code --exclude=PATTERN} leaves out the entries whose name or absolute path matches the glob {@code PATTERN}, and
+ * may be given several times</li>
+ * <li>{@code --snapshot=FILE} saves a snapshot of the whole tree to {@code FILE} rather than printing its elements</li>
+ * <li>{@code --diff=OLD} together with {@code --snapshot=FILE}, prints the entries which changed the most since the
+ * snapshot {@code OLD}, as many as given by {@code --top=N} or else 20</li>
+ * <li>{@code --tree-file=FILE} writes the whole tree to the memory-mapped tree file {@code FILE}, and prints its largest
+ * directories, as many as given by {@code --top=N} or else 20</li>
+ * <li>{@code --estimate=SECONDS} samples wide directories rather than reading them in full, and prints the elements
+ * with the 95% confidence interval of their sizes, as refined within about {@code SECONDS}. The interval is only
+ * printed in the human-readable format, so it cannot be combined with any other {@code --format}</li>
+ * <li>{@code --batch} reads further paths, one per line, up to an empty line, and prints the elements of each, walking
+ * the directories shared by several of them only once</li>
+ * <li>{@code --watch} keeps the totals of the directory current as it changes, and prints its elements every time a
+ * line is entered, until the input ends. Excludes apply, but it cannot be combined with {@code --disk-usage},
+ * {@code --follow-links} or {@code --one-file-system}</li>
+ * <li>{@code --group-by=DIMENSIONS} also rolls the files up by the comma-separated {@code extension}, {@code owner},
+ * {@code group} or {@code age}, and prints the largest groups along each, as many as given by {@code --top=N} or else
+ * 20. It cannot be combined with {@code --cache}, {@code --workers}, {@code --estimate}, {@code --serve} or
+ * {@code --watch}</li>
+ * <li>{@code --serve=PORT} serves JSON queries on the scan over HTTP on {@code PORT} until killed, scanning again every
+ * {@code --refresh=SECONDS}, or else every 60 seconds. Unreadable entries are skipped unless {@code --on-error} says
+ * otherwise, so that a single one neither stops the server from starting nor fails every refresh</li>
+ * <li>{@code --duplicates} prints the groups of files with the same contents, largest waste first, as many as given by
+ * {@code --top=N} or else all of them</li>
+ * <li>{@code --metrics} prints scan metrics once done, and exposes them as a JMX MBean while running</li>
+ * </ul>
  */
 public class DU {
 
+    private static final String PATH_FLAG = "--path=";
+
+    private static final String DEPTH_FLAG = "--depth=";
+
+    private static final String SORT_FLAG = "--sort=";
+
+    private static final String FORMAT_FLAG = "--format=";
+
+    private static final String TOP_FLAG = "--top=";
+
+    private static final String WORKERS_FLAG = "--workers=";
+
+    private static final String CACHE_FLAG = "--cache=";
+
+    private static final String ON_ERROR_FLAG = "--on-error=";
+
+    private static final String EXCLUDE_FLAG = "--exclude=";
+
+    private static final String SNAPSHOT_FLAG = "--snapshot=";
+
+    private static final String DIFF_FLAG = "--diff=";
+
+    private static final String TREE_FILE_FLAG = "--tree-file=";
+
+    private static final String GROUP_BY_FLAG = "--group-by=";
+
+    private static final String ESTIMATE_FLAG = "--estimate=";
+
+    private static final String SERVE_FLAG = "--serve=";
+
+    private static final String REFRESH_FLAG = "--refresh=";
+
+    private static final int DEFAULT_TOP = 20;
+
+    private static final int DEFAULT_REFRESH_SECONDS = 60;
+
     public static void main(final String[] args) {
+        run(Arrays.asList(args), new Scanner(System.in), System.out, System.err);
+    }
+
+    /**
+     * Run with the given flags, reading further input from the given scanner. Elements are written to {@code out} in
+     * the format given by the flags. Any other result, such as duplicates, groups or metrics, is printed to
+     * {@code out} too in the human-readable format, but to {@code err} in the other formats, so that {@code out} only
+     * holds records. Usage errors and failures are printed to {@code err}.
+     */
+    static void run(final List<String> flags, final Scanner scanner, final PrintStream out, final PrintStream err) {
+
+        final Optional<String> usageError = usageError(flags);
+        if (usageError.isPresent()) {
+            err.println(usageError.get());
+            return;
+        }
+
+        final OutputFormat format = valueOf(flags, FORMAT_FLAG)
+                .map(DU::formatOf)
+                .orElse(OutputFormat.HUMAN);
+        final PrintStream text = format == OutputFormat.HUMAN ? out : err;
+
+        final Optional<String> givenPath = Optional.ofNullable(valueOf(flags, PATH_FLAG)
+                .orElse(flags.stream().filter(arg -> !arg.startsWith("--")).findFirst().orElse(null)));
+        if (!givenPath.isPresent()) {
+            text.print("Enter absolute path of directory: ");
+            text.flush();
+        }
+
+        final String absolutePath = givenPath.isPresent() ? givenPath.get() : scanner.nextLine();
+        final String sortKey = valueOf(flags, SORT_FLAG).orElse("size");
 
-        final Scanner scanner = new Scanner(System.in);
+        try (final ElementWriter writer = writerTo(out, format)) {
+            final Output output = new Output(writer, text, sortKey, metrics(flags));
+            final ScanMetrics metrics = output.metrics;
+            final Optional<Integer> top = valueOf(flags, TOP_FLAG).map(Integer::valueOf);
+            final Optional<String> cacheFile = valueOf(flags, CACHE_FLAG);
+            final ScanCache cache = cacheFile.isPresent() ? ScanCache.load(Paths.get(cacheFile.get())) : null;
 
-        System.out.print("Enter absolute path of directory: ");
+            if (metrics != null) {
+                metrics.registerMBean("DU");
+            }
 
-        final String absolutePath = scanner.nextLine();
+            final ErrorPolicy errorPolicy = valueOf(flags, ON_ERROR_FLAG).map(DU::errorPolicyFor)
+                    .orElse(valueOf(flags, SERVE_FLAG).isPresent() ? ErrorPolicy.SKIP : ErrorPolicy.FAIL_FAST);
 
-        try {
-            new DirectoryElementScanner()
-                    .scan(Paths.get(absolutePath))
-                    .forEach(elem -> System.out.println(elem.toString()));
+            final Aggregation aggregation = valueOf(flags, GROUP_BY_FLAG)
+                    .map(value -> new Aggregation(dimensionsOf(value)))
+                    .orElse(null);
+
+            final ScanOptions options = ScanOptions.builder()
+                    .listener(metrics != null ? metrics : ScanListener.NONE)
+                    .errorPolicy(errorPolicy)
+                    .sizeMode(flags.contains("--disk-usage") ? SizeMode.DISK_USAGE : SizeMode.APPARENT)
+                    .followLinks(flags.contains("--follow-links"))
+                    .sameFileSystem(flags.contains("--one-file-system"))
+                    .excludes(valuesOf(flags, EXCLUDE_FLAG))
+                    .aggregation(aggregation)
+                    .build();
+            final DirectoryElementScanner directoryScanner = new DirectoryElementScanner(
+                    cache != null ? new CachingScanEngine(cache) : engineFor(flags), options);
+            final Path path = Paths.get(absolutePath);
+
+            final Optional<String> snapshot = valueOf(flags, SNAPSHOT_FLAG);
+            final Optional<String> treeFile = valueOf(flags, TREE_FILE_FLAG);
+            final Optional<Double> estimate = valueOf(flags, ESTIMATE_FLAG).map(Double::valueOf);
+            final Optional<Integer> port = valueOf(flags, SERVE_FLAG).map(Integer::valueOf);
+            final Optional<Integer> depth = valueOf(flags, DEPTH_FLAG).map(Integer::valueOf);
+            if (port.isPresent()) {
+                final long refreshSeconds = valueOf(flags, REFRESH_FLAG).map(Long::valueOf).orElse((long) DEFAULT_REFRESH_SECONDS);
+                final ScanServer server = ScanServer.start(directoryScanner, path, new InetSocketAddress(port.get()),
+                        TimeUnit.SECONDS.toMillis(refreshSeconds));
+                Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+                output.text(String.format("Serving %s on port %d", path, server.getAddress().getPort()));
+                server.awaitClose();
+            } else if (estimate.isPresent()) {
+                for (final EstimatedElement elem : directoryScanner.estimate(path, (long) (estimate.get() * 1000))) {
+                    output.text(elem.toString());
+                }
+            } else if (flags.contains("--duplicates")) {
+                final List<DuplicateGroup> groups = directoryScanner.findDuplicates(path);
+                for (final DuplicateGroup group : groups.subList(0, Math.min(groups.size(), top.orElse(Integer.MAX_VALUE)))) {
+                    output.text(group.toString());
+                }
+            } else if (flags.contains("--batch")) {
+                final List<Path> paths = new ArrayList<>();
+                paths.add(path);
+                while (scanner.hasNextLine()) {
+                    final String line = scanner.nextLine();
+                    if (line.isEmpty()) {
+                        break;
+                    }
+                    paths.add(Paths.get(line));
+                }
+                for (final Map.Entry<Path, List<DirectoryElement>> batch : directoryScanner.scanBatch(paths).entrySet()) {
+                    output.text(batch.getKey() + ":");
+                    output.print(batch.getValue());
+                }
+            } else if (flags.contains("--watch")) {
+                try (final TreeWatcher watcher = TreeWatcher.watch(path, options)) {
+                    output.print(watcher.getElements());
+                    while (scanner.hasNextLine()) {
+                        scanner.nextLine();
+                        output.print(watcher.getElements());
+                    }
+                }
+            } else if (treeFile.isPresent()) {
+                final MappedFileTree tree = directoryScanner.scanTree(path, Paths.get(treeFile.get()));
+                final List<DirectoryElement> largest = new ArrayList<>();
+                for (final int node : tree.largestDirectories(FileTree.ROOT, top.orElse(DEFAULT_TOP))) {
+                    largest.add(tree.toDirectoryElement(node));
+                }
+                output.print(largest);
+            } else if (snapshot.isPresent()) {
+                directoryScanner.scanSnapshot(path, Paths.get(snapshot.get()));
+                final Optional<String> diff = valueOf(flags, DIFF_FLAG);
+                if (diff.isPresent()) {
+                    for (final SnapshotDelta delta : SnapshotDiff.largest(Paths.get(diff.get()), Paths.get(snapshot.get()), top.orElse(DEFAULT_TOP))) {
+                        output.text(delta.toString());
+                    }
+                }
+            } else if (depth.isPresent()) {
+                final ElementNode root = directoryScanner.scanDepth(path, depth.get());
+                if (top.isPresent()) {
+                    final List<DirectoryElement> elems = root.descendants();
+                    elems.sort(new DirectoryElemSizeComparator().reversed());
+                    output.print(elems.size() > top.get() ? elems.subList(0, top.get()) : elems);
+                } else {
+                    output.printTree(root);
+                }
+            } else if (top.isPresent()) {
+                output.print(directoryScanner.scanLargest(path, top.get()));
+            } else if (flags.contains("--stream")) {
+                output.stream(consumer -> directoryScanner.scan(path, consumer));
+            } else if (errorPolicy != ErrorPolicy.FAIL_FAST) {
+                final ScanReport report = directoryScanner.scanReport(path);
+                output.print(report.getElements());
+                if (!report.isComplete()) {
+                    output.text(String.format("Skipped %d unreadable entries:", report.getErrors().size()));
+                    for (final ScanError error : report.getErrors()) {
+                        output.text(error.toString());
+                    }
+                }
+            } else {
+                output.print(directoryScanner.scan(path));
+            }
+
+            if (aggregation != null) {
+                for (final Aggregation.Dimension dimension : aggregation.getDimensions()) {
+                    for (final GroupTotal group : aggregation.top(dimension, top.orElse(DEFAULT_TOP))) {
+                        output.text(group.toString());
+                    }
+                }
+            }
+
+            if (metrics != null) {
+                output.text(metrics.toString());
+            }
+
+            if (cache != null) {
+                cache.save();
+                output.text(String.format("Cache hits: %d, misses: %d", cache.getHits(), cache.getMisses()));
+            }
         } catch (final NoSuchFileException e) {
-            System.out.println("Given path does not exist. Please enter a valid path.");
-            e.printStackTrace();
+            err.println("Given path does not exist. Please enter a valid path.");
+            e.printStackTrace(err);
         } catch (final NotDirectoryException e) {
-            System.out.println("Please enter a path to a directory, and not a file.");
+            err.println("Please enter a path to a directory, and not a file.");
+        } catch (final IOException e) {
+            err.println("Could not read or write the scan cache, snapshot or tree file.");
+            e.printStackTrace(err);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return a writer of elements to the given stream, which is left open. The standard output is written to
+     * directly, bypassing the line flushing of {@link System#out}.
+     */
+    private static ElementWriter writerTo(final PrintStream out, final OutputFormat format) throws IOException {
+        if (out == System.out) {
+            return ElementWriter.toStandardOutput(format);
+        }
+        out.flush();
+        return new ElementWriter(new FilterOutputStream(out) {
+            @Override
+            public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // The stream outlives the writer.
+                flush();
+            }
+        }, format);
+    }
+
+    /**
+     * @return why the given flags cannot be combined, if they cannot.
+     */
+    private static Optional<String> usageError(final List<String> flags) {
+
+        if (flags.contains("--watch")) {
+            final Optional<String> conflict = firstGiven(flags, "--disk-usage", "--follow-links", "--one-file-system");
+            if (conflict.isPresent()) {
+                return Optional.of(String.format("--watch cannot be combined with %s.", conflict.get()));
+            }
+        }
+
+        final Map<String, Consumer<String>> parsers = new LinkedHashMap<>();
+        parsers.put(FORMAT_FLAG, DU::formatOf);
+        parsers.put(SORT_FLAG, DU::orderFor);
+        parsers.put(GROUP_BY_FLAG, DU::dimensionsOf);
+        parsers.put(ON_ERROR_FLAG, DU::errorPolicyFor);
+        for (final String flag : Arrays.asList(TOP_FLAG, DEPTH_FLAG, WORKERS_FLAG, SERVE_FLAG, REFRESH_FLAG)) {
+            parsers.put(flag, Integer::valueOf);
+        }
+        parsers.put(ESTIMATE_FLAG, Double::valueOf);
+
+        for (final Map.Entry<String, Consumer<String>> parser : parsers.entrySet()) {
+            final Optional<String> value = valueOf(flags, parser.getKey());
+            try {
+                value.ifPresent(parser.getValue());
+            } catch (final IllegalArgumentException e) {
+                return Optional.of(String.format("Invalid value %s for %s.", value.get(), parser.getKey().substring(0, parser.getKey().length() - 1)));
+            }
+        }
+
+        if (valueOf(flags, ESTIMATE_FLAG).isPresent()
+                && valueOf(flags, FORMAT_FLAG).filter(value -> formatOf(value) != OutputFormat.HUMAN).isPresent()) {
+            return Optional.of(String.format("--estimate cannot be combined with --format=%s, which has no room for the "
+                    + "confidence intervals of the estimates.", valueOf(flags, FORMAT_FLAG).get()));
+        }
+
+        if (valueOf(flags, GROUP_BY_FLAG).isPresent()) {
+            final Optional<String> conflict = firstGiven(flags, CACHE_FLAG, WORKERS_FLAG, ESTIMATE_FLAG, SERVE_FLAG, "--watch");
+            if (conflict.isPresent()) {
+                return Optional.of(String.format("--group-by cannot be combined with %s, which does not count files into groups.", conflict.get()));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return the first of the given flags, or flags taking a value, which is given, without its value.
+     */
+    private static Optional<String> firstGiven(final List<String> flags, final String... candidates) {
+        for (final String candidate : candidates) {
+            if (candidate.endsWith("=") ? valueOf(flags, candidate).isPresent() : flags.contains(candidate)) {
+                return Optional.of(candidate.endsWith("=") ? candidate.substring(0, candidate.length() - 1) : candidate);
+            }
         }
+        return Optional.empty();
+    }
+
+    private static OutputFormat formatOf(final String value) {
+        return OutputFormat.valueOf(value.toUpperCase(Locale.ROOT));
+    }
+
+    private static Aggregation.Dimension[] dimensionsOf(final String value) {
+        return Arrays.stream(value.split(","))
+                .map(dimension -> Aggregation.Dimension.valueOf(dimension.trim().toUpperCase(Locale.ROOT)))
+                .toArray(Aggregation.Dimension[]::new);
+    }
+
+    private static ScanMetrics metrics(final List<String> flags) {
+        return flags.contains("--metrics") ? new ScanMetrics() : null;
+    }
+
+    private static Optional<Comparator<DirectoryElement>> orderFor(final String value) {
+        switch (value) {
+            case "size":
+                return Optional.of(new DirectoryElemSizeComparator().reversed());
+            case "path":
+                return Optional.of(Comparator.comparing(DirectoryElement::getAbsPath));
+            case "none":
+                return Optional.empty();
+            default:
+                throw new IllegalArgumentException(String.format("Unknown sort key %s.", value));
+        }
+    }
+
+    /**
+     * Prints elements through an {@link ElementWriter}, in the order and format given by the flags, and any other
+     * result as lines of text.
+     */
+    private static final class Output {
+
+        private final ElementWriter writer;
+
+        private final PrintStream text;
+
+        private final String sortKey;
+
+        private final Optional<Comparator<DirectoryElement>> order;
+
+        private final ScanMetrics metrics;
+
+        Output(final ElementWriter writer, final PrintStream text, final String sortKey, final ScanMetrics metrics) {
+            this.writer = writer;
+            this.text = text;
+            this.sortKey = sortKey;
+            this.order = orderFor(sortKey);
+            this.metrics = metrics;
+        }
+
+        List<DirectoryElement> sorted(final List<DirectoryElement> elems) {
+            if (!order.isPresent()) {
+                return elems;
+            }
+            final List<DirectoryElement> sorted = new ArrayList<>(elems);
+            sorted.sort(order.get());
+            return sorted;
+        }
+
+        void print(final List<DirectoryElement> elems) throws IOException {
+
+            write(sorted(elems));
+        }
+
+        private void write(final List<DirectoryElement> elems) throws IOException {
+
+            final long start = System.nanoTime();
+            for (final DirectoryElement elem : elems) {
+                writer.write(elem);
+            }
+            writer.flush();
+
+            if (metrics != null) {
+                metrics.onPhaseDone(ScanListener.Phase.PRINT, System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Print a line of text, after every element written so far.
+         */
+        void text(final String line) throws IOException {
+            writer.flush();
+            text.println(line);
+            text.flush();
+        }
+
+        /**
+         * Print the elements below the given root, each followed by its own, unless sorted by path, in which case each
+         * level is in order of size rather than of path.
+         */
+        void printTree(final ElementNode root) throws IOException {
+            if ("path".equals(sortKey)) {
+                print(root.descendants());
+            } else {
+                write(root.descendants());
+            }
+        }
+
+        /**
+         * Print the elements passed to the consumer by the given scan as they come, in the order they come in.
+         */
+        void stream(final StreamingScan scan) throws IOException {
+            try {
+                scan.run(elem -> {
+                    try {
+                        writer.write(elem);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        }
+    }
+
+    @FunctionalInterface
+    private interface StreamingScan {
+        void run(Consumer<DirectoryElement> consumer) throws IOException;
+    }
+
+    private static Optional<String> valueOf(final List<String> flags, final String prefix) {
+        return valuesOf(flags, prefix).stream().findFirst();
+    }
+
+    private static List<String> valuesOf(final List<String> flags, final String prefix) {
+        return flags.stream()
+                .filter(flag -> flag.startsWith(prefix))
+                .map(flag -> flag.substring(prefix.length()))
+                .collect(Collectors.toList());
+    }
+
+    private static ErrorPolicy errorPolicyFor(final String value) {
+        switch (value) {
+            case "skip":
+                return ErrorPolicy.SKIP;
+            case "retry":
+                return ErrorPolicy.RETRY;
+            case "fail":
+                return ErrorPolicy.FAIL_FAST;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown error policy %s.", value));
+        }
+    }
+
+    private static ScanEngine engineFor(final List<String> flags) {
+
+        final Optional<Integer> workers = valueOf(flags, WORKERS_FLAG).map(Integer::valueOf);
+        if (workers.isPresent()) {
+            return new DistributedScanEngine(workers.get());
+        }
+
+        if (flags.contains("--virtual-threads")) {
+            return new ExecutorScanEngine();
+        }
+
+        if (flags.contains("--parallel")) {
+            return new ForkJoinScanEngine();
+        }
+
+        return new TreeWalkScanEngine();
     }
 }
@@ -8,7 +8,8 @@ import java.util.Comparator;
 /**
  * A {@link Comparator} that compares two {@link DirectoryElement}s on the basis of their size.
  *
- * Such comparison is not supported if the given elems have different file size units.
+ * Sizes are compared on their exact number of bytes, so elems displayed in different file size units compare correctly,
+ * and no comparison allocates.
  *
  * Also note that this comparator does not support null arguments.
  */
@@ -16,12 +17,6 @@ public class DirectoryElemSizeComparator implements Comparator<DirectoryElement>
 
     @Override
     public int compare(@NonNull final DirectoryElement o1, @NonNull final DirectoryElement o2) {
-
-        if (!o1.getSize().getUnit().equals(o2.getSize().getUnit())) {
-            throw new IllegalStateException(
-                    String.format("Cannot compare directory elements %s and %s due to different file size units.", o1, o2));
-        }
-
-        return Double.compare(o1.getSize().getValue(), o2.getSize().getValue());
+        return Long.compare(o1.getSize().getBytes(), o2.getSize().getBytes());
     }
 }
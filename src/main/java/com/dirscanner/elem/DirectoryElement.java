@@ -2,6 +2,7 @@ package com.dirscanner.elem;
 
 import lombok.Builder;
 import lombok.Getter;
+import lombok.NonNull;
 
 /**
  *
@@ -29,19 +30,41 @@ public class DirectoryElement {
         FILE;
     }
 
+    /**
+     * The size of a {@link DirectoryElement}, kept as an exact number of bytes, together with the {@link FileSizeUnit}
+     * in which it is displayed.
+     */
     @lombok.Builder
     public static class Size {
 
         @Getter
-        private double value;
+        private long bytes;
 
         @Getter
-        private FileSizeUnit unit;
+        @lombok.Builder.Default
+        private FileSizeUnit unit = FileSizeUnit.BYTES;
+
+        /**
+         * @param bytes the exact size in bytes
+         * @param unit  the unit in which the size is displayed
+         * @return a new {@link Size}
+         */
+        public static Size of(final long bytes, @NonNull final FileSizeUnit unit) {
+            return Size.builder().bytes(bytes).unit(unit).build();
+        }
+
+        /**
+         * @return the size in its {@link FileSizeUnit}, which is only exact if the size is a whole number of units
+         * smaller than 2^53.
+         */
+        public double getValue() {
+            return FileSizeUnit.BYTES.convert(bytes, unit);
+        }
 
         @Override
         public String toString() {
-            return String.format("%.0f%s", value, unit);
+            return String.format("%.0f%s", getValue(), unit);
         }
     }
 
-}
\ No newline at end of file
+}
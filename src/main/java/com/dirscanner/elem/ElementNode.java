@@ -0,0 +1,60 @@
+package com.dirscanner.elem;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A {@link DirectoryElement} within a hierarchy of elements, such as the report of a scan down to a given depth.
+ */
+@Builder
+public class ElementNode {
+
+    /**
+     * The element, whose size is the total of all its contents, whether reported as children or not.
+     */
+    @Getter
+    private final DirectoryElement element;
+
+    /**
+     * The reported elements directly within this one, in descending order of size. This is empty for a file, and for a
+     * directory whose contents were not reported.
+     */
+    @Getter
+    @Builder.Default
+    private final List<ElementNode> children = Collections.emptyList();
+
+    /**
+     * @return the elements below this one, excluding this one, in pre-order, so that each element is followed by its
+     * children in descending order of size.
+     */
+    public List<DirectoryElement> descendants() {
+
+        final List<DirectoryElement> elems = new ArrayList<>();
+        final Deque<ElementNode> stack = new ArrayDeque<>();
+        pushChildren(stack, this);
+
+        while (!stack.isEmpty()) {
+            final ElementNode node = stack.pop();
+            elems.add(node.element);
+            pushChildren(stack, node);
+        }
+        return elems;
+    }
+
+    private static void pushChildren(final Deque<ElementNode> stack, final ElementNode node) {
+        for (int i = node.children.size() - 1; i >= 0; i--) {
+            stack.push(node.children.get(i));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d children)", element, children.size());
+    }
+}
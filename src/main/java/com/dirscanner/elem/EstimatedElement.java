@@ -0,0 +1,54 @@
+package com.dirscanner.elem;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A {@link DirectoryElement} whose size was estimated by sampling rather than summed up in full, together with the
+ * confidence interval of the estimate.
+ * <p>
+ * The size of the element is the point estimate. An element whose contents were all read, such as a file, is exact, and
+ * its interval is the size itself.
+ */
+@Builder
+public class EstimatedElement {
+
+    /**
+     * The element, sized with the point estimate.
+     */
+    @Getter
+    private final DirectoryElement element;
+
+    /**
+     * The lower bound of the confidence interval, in bytes.
+     */
+    @Getter
+    private final long lowerBoundInBytes;
+
+    /**
+     * The upper bound of the confidence interval, in bytes.
+     */
+    @Getter
+    private final long upperBoundInBytes;
+
+    /**
+     * @return whether the size of the element is exact, as opposed to estimated.
+     */
+    public boolean isExact() {
+        return lowerBoundInBytes == upperBoundInBytes;
+    }
+
+    /**
+     * @return the distance from the estimate to the upper bound of the confidence interval, relative to the estimate,
+     * such as 0.02 for an estimate within 2%, or 0 if the estimate is 0.
+     */
+    public double getRelativeError() {
+        final long bytes = element.getSize().getBytes();
+        return bytes == 0 ? 0 : (double) (upperBoundInBytes - bytes) / bytes;
+    }
+
+    @Override
+    public String toString() {
+        return isExact() ? element.toString() : String.format("%s +/-%.1f%%", element, getRelativeError() * 100);
+    }
+}
@@ -2,72 +2,56 @@ package com.dirscanner.elem;
 
 import lombok.NonNull;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.stream.Collectors;
-
 /**
- * An enumeration of the supported File Sizes.
+ * An enumeration of the supported File Sizes, each of which is 1024 times as large as the previous one.
+ * <p>
+ * Since every unit is a power of two, conversions are done by shifting or scaling by the difference between the
+ * exponents of the two units, so they are exact and allocate nothing.
  */
 public enum FileSizeUnit {
 
     // IMP: Declare units from smallest to largest.
-    BYTES,
-    KB;
+    BYTES(0),
+    KB(10),
+    MB(20),
+    GB(30),
+    TB(40),
+    PB(50);
+
+    private final int shift;
 
-    private static final Units UNITS = new Units(FileSizeUnit.values());
+    FileSizeUnit(final int shift) {
+        this.shift = shift;
+    }
 
     /**
      * Convert the given {@code value} specified in this {@link FileSizeUnit} to a value specified in the target {@link FileSizeUnit}.
-     * <p>
-     * Note that the only conversion currently supported is that from a small unit to a larger unit.
      *
      * @param value  a value specified in this {@link FileSizeUnit}
      * @param target the target {@link FileSizeUnit} in which the given value is to be converted.
      * @return the value specified in the target {@link FileSizeUnit}.
-     * @throws UnsupportedOperationException if conversion is requested from a large {@link FileSizeUnit} to a smaller {@link FileSizeUnit}.
      */
     public double convert(final double value, @NonNull final FileSizeUnit target) {
-
-        if (this == target) {
-            return value;
-        }
-
-        final List<FileSizeUnit> nextUnits = UNITS.getNextUnitsInAscOrder(this);
-
-        if (!nextUnits.contains(target)) {
-            throw new UnsupportedOperationException(String.format("Conversion from %s to %s not supported.", this, target));
-        }
-
-        double convertedValue = value;
-        for (int i = 0; i <= nextUnits.indexOf(target); i++) {
-            convertedValue /= 1024;
-        }
-
-        return convertedValue;
+        return Math.scalb(value, shift - target.shift);
     }
 
-    private static final class Units {
-
-        private final List<FileSizeUnit> unitsInAscOrder = new ArrayList<>();
-
-        Units(final FileSizeUnit[] unitsInAscOrder) {
-            this.unitsInAscOrder.addAll(Arrays.stream(unitsInAscOrder).collect(Collectors.toList()));
-        }
-
-        /**
-         * @return a list of {@link FileSizeUnit}s, in ascending order, which are larger than the given {@link FileSizeUnit}
-         */
-        List<FileSizeUnit> getNextUnitsInAscOrder(final FileSizeUnit unit) {
-
-            if (!unitsInAscOrder.contains(unit)) {
-                return Collections.emptyList();
-            }
-
-            return Collections.unmodifiableList(unitsInAscOrder.stream().skip(unitsInAscOrder.indexOf(unit) + 1).collect(Collectors.toList()));
+    /**
+     * @param value a whole value specified in this {@link FileSizeUnit}
+     * @return the given value in bytes
+     * @throws ArithmeticException if the value in bytes does not fit in a {@code long}
+     */
+    public long toBytes(final long value) {
+        if (value > Long.MAX_VALUE >> shift || value < Long.MIN_VALUE >> shift) {
+            throw new ArithmeticException(String.format("%d%s does not fit in a long number of bytes.", value, this));
         }
+        return value << shift;
+    }
 
+    /**
+     * @param bytes a number of bytes
+     * @return the number of whole units of this {@link FileSizeUnit} in the given number of bytes, rounded down
+     */
+    public long fromBytes(final long bytes) {
+        return bytes >> shift;
     }
 }
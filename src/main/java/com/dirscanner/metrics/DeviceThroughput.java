@@ -0,0 +1,64 @@
+package com.dirscanner.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput of the listings of a scan on a single device, i.e. mounted file system, as reported by
+ * {@link ScanListener#onDeviceDone(DeviceThroughput)}.
+ */
+@Builder
+public class DeviceThroughput {
+
+    /**
+     * A description of the device, such as its {@code unix:dev} number or its file store.
+     */
+    @Getter
+    private final String device;
+
+    /**
+     * Whether the device was found to be a rotational disk, on which listings were ordered to keep locality.
+     */
+    @Getter
+    private final boolean rotational;
+
+    @Getter
+    private final long directoriesListed;
+
+    @Getter
+    private final long entriesRead;
+
+    /**
+     * The wall time from the start of the first listing on the device to the end of the last one.
+     */
+    @Getter
+    private final long nanos;
+
+    /**
+     * The largest number of listings which were in flight on the device at once.
+     */
+    @Getter
+    private final int peakConcurrency;
+
+    /**
+     * The number of listings allowed in flight at once on the device by the end of the scan.
+     */
+    @Getter
+    private final int finalConcurrency;
+
+    /**
+     * @return the number of directories listed per second of wall time.
+     */
+    public double getDirectoriesPerSecond() {
+        return nanos == 0 ? 0 : directoriesListed * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Device %s%s: %d directories, %d entries in %d ms (%.1f directories/s), concurrency peak/final: %d/%d",
+                device, rotational ? " (rotational)" : "", directoriesListed, entriesRead,
+                TimeUnit.NANOSECONDS.toMillis(nanos), getDirectoriesPerSecond(), peakConcurrency, finalConcurrency);
+    }
+}
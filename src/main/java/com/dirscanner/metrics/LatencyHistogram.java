@@ -0,0 +1,86 @@
+package com.dirscanner.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, with one bucket per power of two nanoseconds.
+ * <p>
+ * Bucket {@code b} counts the latencies {@code l} such that {@code 2^b <= l < 2^(b+1)}, except for bucket 0 which also
+ * counts latencies of 0.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(final long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+    }
+
+    /**
+     * @return the number of latencies recorded.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            count += counts.get(b);
+        }
+        return count;
+    }
+
+    /**
+     * @param fraction the fraction of latencies, between 0 and 1, to be covered
+     * @return the upper bound, in nanoseconds, of the bucket covering the given fraction of latencies, or 0 if none
+     * has been recorded.
+     */
+    public long getPercentileUpperBound(final double fraction) {
+
+        final long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        final long target = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= target) {
+                return upperBoundOf(b);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the non-empty buckets, in ascending order, keyed by their exclusive upper bound such as
+     * {@code "<1024ns"}.
+     */
+    public Map<String, Long> toMap() {
+
+        final Map<String, Long> map = new LinkedHashMap<>();
+        for (int b = 0; b < BUCKETS; b++) {
+            final long count = counts.get(b);
+            if (count > 0) {
+                map.put(b == BUCKETS - 1 ? "<=" + Long.MAX_VALUE + "ns" : "<" + upperBoundOf(b) + "ns", count);
+            }
+        }
+        return map;
+    }
+
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts.set(b, 0);
+        }
+    }
+
+    private static int bucketOf(final long nanos) {
+        return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    private static long upperBoundOf(final int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << (bucket + 1);
+    }
+}
@@ -0,0 +1,88 @@
+package com.dirscanner.metrics;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A listener of the progress of a scan, used to find out where the time of a slow scan goes.
+ * <p>
+ * Listeners may be invoked by several threads at once, depending on the {@link com.dirscanner.scanner.ScanEngine}.
+ * Engines skip any timing altogether when given {@link #NONE}, so that a scan which is not listened to pays nothing.
+ */
+public interface ScanListener {
+
+    /**
+     * A listener which ignores every event.
+     */
+    ScanListener NONE = new ScanListener() {
+    };
+
+    /**
+     * The phases of a scan which are timed.
+     */
+    enum Phase {
+        SCAN,
+        SORT,
+        PRINT
+    }
+
+    /**
+     * A directory has been listed.
+     *
+     * @param dir   the listed directory
+     * @param nanos the time taken to open and read the directory, excluding the time taken to stat its entries
+     */
+    default void onDirectoryListed(@Nonnull final Path dir, final long nanos) {
+    }
+
+    /**
+     * The attributes of a file, or of any other entry which is not a directory, have been read.
+     *
+     * @param file        the stat-ed file
+     * @param sizeInBytes the size the file adds to its ancestors, as counted into the totals of the scan
+     * @param nanos       the time taken to read the attributes of the file, including any further stat taken to
+     *                    account for its size
+     */
+    default void onFileStatted(@Nonnull final Path file, final long sizeInBytes, final long nanos) {
+    }
+
+    /**
+     * A file, or any other entry which is not a directory, has been counted into the totals of the scan.
+     *
+     * @param file          the counted file
+     * @param apparentBytes the apparent size of the file
+     * @param sizeInBytes   the size the file adds to its ancestors under the
+     *                      {@link com.dirscanner.scanner.SizeMode} of the scan, such as 0 for a file already counted
+     *                      through another of its hard links
+     */
+    default void onFileCounted(@Nonnull final Path file, final long apparentBytes, final long sizeInBytes) {
+    }
+
+    /**
+     * An entry could not be read, and has been left out of the scan rather than aborting it.
+     *
+     * @param path the entry which could not be read
+     * @param e    the cause
+     */
+    default void onErrorSkipped(@Nonnull final Path path, @Nonnull final IOException e) {
+    }
+
+    /**
+     * All the listings of the scan on a device are done. Only reported by engines which schedule their listings per
+     * device, such as the {@link com.dirscanner.scanner.ExecutorScanEngine}.
+     *
+     * @param throughput the throughput of the listings on the device
+     */
+    default void onDeviceDone(@Nonnull final DeviceThroughput throughput) {
+    }
+
+    /**
+     * A phase of the scan is done.
+     *
+     * @param phase the phase
+     * @param nanos the wall time taken by the phase
+     */
+    default void onPhaseDone(@Nonnull final Phase phase, final long nanos) {
+    }
+}
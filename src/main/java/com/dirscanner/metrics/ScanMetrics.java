@@ -0,0 +1,171 @@
+package com.dirscanner.metrics;
+
+import javax.annotation.Nonnull;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe {@link ScanListener} which accumulates counters, latency histograms and phase wall times over one or
+ * more scans, and which can be exposed as a JMX MBean.
+ */
+public class ScanMetrics implements ScanListener, ScanMetricsMXBean {
+
+    private final LongAdder directoriesListed = new LongAdder();
+
+    private final LongAdder filesStatted = new LongAdder();
+
+    private final LongAdder bytesSummed = new LongAdder();
+
+    private final LongAdder errorsSkipped = new LongAdder();
+
+    private final LatencyHistogram listingLatencies = new LatencyHistogram();
+
+    private final LatencyHistogram statLatencies = new LatencyHistogram();
+
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+
+    private final Map<String, DeviceThroughput> deviceThroughputs = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void onDirectoryListed(@Nonnull final Path dir, final long nanos) {
+        directoriesListed.increment();
+        listingLatencies.record(nanos);
+    }
+
+    @Override
+    public void onFileStatted(@Nonnull final Path file, final long sizeInBytes, final long nanos) {
+        filesStatted.increment();
+        bytesSummed.add(sizeInBytes);
+        statLatencies.record(nanos);
+    }
+
+    @Override
+    public void onErrorSkipped(@Nonnull final Path path, @Nonnull final IOException e) {
+        errorsSkipped.increment();
+    }
+
+    @Override
+    public void onDeviceDone(@Nonnull final DeviceThroughput throughput) {
+        deviceThroughputs.put(throughput.getDevice(), throughput);
+    }
+
+    @Override
+    public void onPhaseDone(@Nonnull final Phase phase, final long nanos) {
+        phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    @Override
+    public long getDirectoriesListed() {
+        return directoriesListed.sum();
+    }
+
+    @Override
+    public long getFilesStatted() {
+        return filesStatted.sum();
+    }
+
+    @Override
+    public long getBytesSummed() {
+        return bytesSummed.sum();
+    }
+
+    @Override
+    public long getErrorsSkipped() {
+        return errorsSkipped.sum();
+    }
+
+    public LatencyHistogram getListingLatencyHistogram() {
+        return listingLatencies;
+    }
+
+    public LatencyHistogram getStatLatencyHistogram() {
+        return statLatencies;
+    }
+
+    @Override
+    public Map<String, Long> getListingLatencies() {
+        return listingLatencies.toMap();
+    }
+
+    @Override
+    public Map<String, Long> getStatLatencies() {
+        return statLatencies.toMap();
+    }
+
+    /**
+     * @return the throughput of the latest scan on each device, ordered by device.
+     */
+    public List<DeviceThroughput> getDeviceThroughputs() {
+        return new ArrayList<>(deviceThroughputs.values());
+    }
+
+    @Override
+    public Map<String, Double> getDirectoriesPerSecondByDevice() {
+        final Map<String, Double> rates = new LinkedHashMap<>();
+        deviceThroughputs.forEach((device, throughput) -> rates.put(device, throughput.getDirectoriesPerSecond()));
+        return rates;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMillis() {
+        final Map<String, Long> millis = new LinkedHashMap<>();
+        for (final Phase phase : Phase.values()) {
+            millis.put(phase.name(), TimeUnit.NANOSECONDS.toMillis(phaseNanos.get(phase.ordinal())));
+        }
+        return millis;
+    }
+
+    @Override
+    public void reset() {
+        directoriesListed.reset();
+        filesStatted.reset();
+        bytesSummed.reset();
+        errorsSkipped.reset();
+        listingLatencies.reset();
+        statLatencies.reset();
+        for (final Phase phase : Phase.values()) {
+            phaseNanos.set(phase.ordinal(), 0);
+        }
+        deviceThroughputs.clear();
+    }
+
+    /**
+     * Register these metrics with the platform MBean server.
+     *
+     * @param name the value of the {@code name} key of the MBean's {@link ObjectName}
+     * @return the name under which these metrics were registered
+     * @throws IllegalStateException if the MBean could not be registered, such as when the name is already taken
+     */
+    public ObjectName registerMBean(@Nonnull final String name) {
+        try {
+            final ObjectName objectName = new ObjectName("com.dirscanner:type=ScanMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (final JMException e) {
+            throw new IllegalStateException(String.format("Unable to register scan metrics %s as an MBean.", name), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder devices = new StringBuilder();
+        deviceThroughputs.values().forEach(throughput -> devices.append(System.lineSeparator()).append(throughput));
+        return String.format("Directories listed: %d, files statted: %d, bytes summed: %d, errors skipped: %d, "
+                        + "listing p50/p99: %dns/%dns, stat p50/p99: %dns/%dns, phases (ms): %s%s",
+                getDirectoriesListed(), getFilesStatted(), getBytesSummed(), getErrorsSkipped(),
+                listingLatencies.getPercentileUpperBound(0.5), listingLatencies.getPercentileUpperBound(0.99),
+                statLatencies.getPercentileUpperBound(0.5), statLatencies.getPercentileUpperBound(0.99),
+                getPhaseMillis(), devices);
+    }
+}
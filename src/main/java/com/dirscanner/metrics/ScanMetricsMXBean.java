@@ -0,0 +1,39 @@
+package com.dirscanner.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of {@link ScanMetrics}.
+ */
+public interface ScanMetricsMXBean {
+
+    long getDirectoriesListed();
+
+    long getFilesStatted();
+
+    long getBytesSummed();
+
+    long getErrorsSkipped();
+
+    /**
+     * @return the listing latency histogram, keyed by the upper bound of each bucket.
+     */
+    Map<String, Long> getListingLatencies();
+
+    /**
+     * @return the stat latency histogram, keyed by the upper bound of each bucket.
+     */
+    Map<String, Long> getStatLatencies();
+
+    /**
+     * @return the wall time, in milliseconds, taken by each {@link ScanListener.Phase}.
+     */
+    Map<String, Long> getPhaseMillis();
+
+    /**
+     * @return the number of directories listed per second of wall time by the latest scan on each device.
+     */
+    Map<String, Double> getDirectoriesPerSecondByDevice();
+
+    void reset();
+}
@@ -0,0 +1,333 @@
+package com.dirscanner.output;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.FileSizeUnit;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes {@link DirectoryElement}s to an {@link OutputStream} in one of the {@link OutputFormat}s.
+ * <p>
+ * Elements are encoded straight into a large byte buffer, which is only written out once full, on {@link #flush()} or
+ * on {@link #close()}. Numbers are written digit by digit and ASCII paths char by char, so writing an element neither
+ * goes through {@link String#format(String, Object...)} nor allocates, except for paths with non-ASCII characters.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ElementWriter implements Closeable, Flushable {
+
+    /**
+     * The size of the buffer, large enough for the console or a pipe to be written to in few system calls.
+     */
+    static final int BUFFER_SIZE = 1 << 20;
+
+    static final int MAGIC = 0x44534531; // "DSE1"
+
+    static final int END = 0;
+
+    static final int FILE = 1;
+
+    static final int DIR = 2;
+
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+    }
+
+    private static final byte[][] UNIT_NAMES = new byte[FileSizeUnit.values().length][];
+
+    static {
+        for (final FileSizeUnit unit : FileSizeUnit.values()) {
+            UNIT_NAMES[unit.ordinal()] = ascii(unit.toString());
+        }
+    }
+
+    private static final byte[] DIR_NAME = ascii(DirectoryElement.Type.DIR.name());
+
+    private static final byte[] FILE_NAME = ascii(DirectoryElement.Type.FILE.name());
+
+    private static final byte[] JSON_TYPE = ascii("{\"type\":\"");
+
+    private static final byte[] JSON_PATH = ascii("\",\"path\":\"");
+
+    private static final byte[] JSON_SIZE = ascii("\",\"sizeInBytes\":");
+
+    private final OutputStream out;
+
+    private final OutputFormat format;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int position;
+
+    private final byte[] digits = new byte[20];
+
+    /**
+     * @param out    the stream to write to, which is closed along with this writer
+     * @param format the format to write elements in
+     * @throws IOException if the header of the {@link OutputFormat#BINARY} format could not be written
+     */
+    public ElementWriter(@Nonnull final OutputStream out, @Nonnull final OutputFormat format) throws IOException {
+        this.out = out;
+        this.format = format;
+
+        if (format == OutputFormat.BINARY) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                put((byte) (MAGIC >>> shift));
+            }
+        }
+    }
+
+    /**
+     * @param format the format to write elements in
+     * @return a writer to the standard output, bypassing the line flushing of {@link System#out}. Anything printed to
+     * {@link System#out} is flushed first, so the two do not interleave.
+     * @throws IOException if the header of the {@link OutputFormat#BINARY} format could not be written
+     */
+    public static ElementWriter toStandardOutput(@Nonnull final OutputFormat format) throws IOException {
+        System.out.flush();
+        return new ElementWriter(new FileOutputStream(FileDescriptor.out) {
+            @Override
+            public void close() throws IOException {
+                // The standard output outlives the writer.
+                flush();
+            }
+        }, format);
+    }
+
+    /**
+     * @param elem the element to write
+     * @throws IOException if the buffer was full, and could not be written out
+     */
+    public void write(@Nonnull final DirectoryElement elem) throws IOException {
+
+        final boolean directory = elem.getType() == DirectoryElement.Type.DIR;
+        final long bytes = elem.getSize().getBytes();
+
+        switch (format) {
+            case HUMAN:
+                put(directory ? DIR_NAME : FILE_NAME);
+                put((byte) ' ');
+                putPlain(elem.getAbsPath());
+                put((byte) ' ');
+                putRounded(bytes, elem.getSize().getUnit());
+                put(UNIT_NAMES[elem.getSize().getUnit().ordinal()]);
+                put((byte) '\n');
+                break;
+            case TSV:
+                put(directory ? DIR_NAME : FILE_NAME);
+                put((byte) '\t');
+                putDecimal(bytes);
+                put((byte) '\t');
+                putPath(elem.getAbsPath(), false);
+                put((byte) '\n');
+                break;
+            case NDJSON:
+                put(JSON_TYPE);
+                put(directory ? DIR_NAME : FILE_NAME);
+                put(JSON_PATH);
+                putPath(elem.getAbsPath(), true);
+                put(JSON_SIZE);
+                putDecimal(bytes);
+                put((byte) '}');
+                put((byte) '\n');
+                break;
+            case BINARY:
+                final byte[] path = elem.getAbsPath().getBytes(StandardCharsets.UTF_8);
+                put((byte) (directory ? DIR : FILE));
+                putVarLong(bytes);
+                putVarLong(path.length);
+                put(path);
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unsupported output format %s.", format));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+    }
+
+    /**
+     * Write the end marker of the {@link OutputFormat#BINARY} format, if any, flush and close the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (format == OutputFormat.BINARY) {
+                put((byte) END);
+            }
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Write the given size in the given unit, rounded half up to a whole number, as by {@code %.0f}. Unlike
+     * {@link DirectoryElement.Size#toString()}, this is exact for sizes beyond 2^53 bytes too.
+     */
+    private void putRounded(final long bytes, final FileSizeUnit unit) throws IOException {
+        final long units = unit.fromBytes(bytes);
+        final long remainder = bytes - unit.toBytes(units);
+        putDecimal(remainder * 2 >= unit.toBytes(1) ? units + 1 : units);
+    }
+
+    private void putDecimal(final long value) throws IOException {
+
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                put(ascii(Long.toString(value)));
+                return;
+            }
+            put((byte) '-');
+            putDecimal(-value);
+            return;
+        }
+
+        // Digits are produced two at a time, from the least significant, into the end of the scratch array.
+        int index = digits.length;
+        long rest = value;
+        while (rest >= 100) {
+            final int pair = (int) (rest % 100);
+            rest /= 100;
+            digits[--index] = DIGIT_PAIRS[2 * pair + 1];
+            digits[--index] = DIGIT_PAIRS[2 * pair];
+        }
+        if (rest >= 10) {
+            digits[--index] = DIGIT_PAIRS[2 * (int) rest + 1];
+            digits[--index] = DIGIT_PAIRS[2 * (int) rest];
+        } else {
+            digits[--index] = (byte) ('0' + rest);
+        }
+
+        put(digits, index, digits.length - index);
+    }
+
+    private void putVarLong(final long value) throws IOException {
+        long rest = value;
+        while ((rest & ~0x7FL) != 0) {
+            put((byte) ((rest & 0x7F) | 0x80));
+            rest >>>= 7;
+        }
+        put((byte) rest);
+    }
+
+    /**
+     * Write the given path as it is, as {@link DirectoryElement#toString()} does.
+     */
+    private void putPlain(final String path) throws IOException {
+
+        for (int i = 0; i < path.length(); i++) {
+            final char c = path.charAt(i);
+            if (c >= 0x80) {
+                put(path.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            put((byte) c);
+        }
+    }
+
+    /**
+     * Write the given path, escaped for a JSON string or else for a TSV field.
+     */
+    private void putPath(final String path, final boolean json) throws IOException {
+
+        for (int i = 0; i < path.length(); i++) {
+            final char c = path.charAt(i);
+            if (c >= 0x80) {
+                // Fall back on the encoder for the rest of a path with non-ASCII characters.
+                putEscaped(path.substring(i).getBytes(StandardCharsets.UTF_8), json);
+                return;
+            }
+            putEscaped((byte) c, json);
+        }
+    }
+
+    private void putEscaped(final byte[] bytes, final boolean json) throws IOException {
+        for (final byte b : bytes) {
+            putEscaped(b, json);
+        }
+    }
+
+    private void putEscaped(final byte b, final boolean json) throws IOException {
+        switch (b) {
+            case '\\':
+                put((byte) '\\');
+                put((byte) '\\');
+                break;
+            case '\t':
+                put((byte) '\\');
+                put((byte) 't');
+                break;
+            case '\n':
+                put((byte) '\\');
+                put((byte) 'n');
+                break;
+            case '\r':
+                put((byte) '\\');
+                put((byte) 'r');
+                break;
+            case '"':
+                if (json) {
+                    put((byte) '\\');
+                }
+                put(b);
+                break;
+            default:
+                if (json && b >= 0 && b < 0x20) {
+                    put((byte) '\\');
+                    put((byte) 'u');
+                    put((byte) '0');
+                    put((byte) '0');
+                    put(DIGIT_PAIRS[2 * (b >> 4) + 1]);
+                    put((byte) "0123456789abcdef".charAt(b & 0xF));
+                } else {
+                    put(b);
+                }
+        }
+    }
+
+    private void put(final byte[] bytes) throws IOException {
+        put(bytes, 0, bytes.length);
+    }
+
+    private void put(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length > buffer.length - position) {
+            out.write(buffer, 0, position);
+            position = 0;
+            if (length > buffer.length) {
+                out.write(bytes, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void put(final byte b) throws IOException {
+        if (position == buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position++] = b;
+    }
+
+    private static byte[] ascii(final String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
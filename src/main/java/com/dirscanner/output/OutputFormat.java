@@ -0,0 +1,33 @@
+package com.dirscanner.output;
+
+import com.dirscanner.elem.DirectoryElement;
+
+/**
+ * The formats in which an {@link ElementWriter} writes {@link DirectoryElement}s.
+ */
+public enum OutputFormat {
+
+    /**
+     * One line per element, as its {@link DirectoryElement#toString()}, such as {@code DIR /home/sam 15KB}.
+     */
+    HUMAN,
+
+    /**
+     * One line per element, of its type, exact size in bytes and absolute path, separated by tabs. Tabs, line breaks
+     * and backslashes in paths are escaped with a backslash.
+     */
+    TSV,
+
+    /**
+     * One JSON object per line, such as {@code {"type":"DIR","path":"/home/sam","sizeInBytes":15360}}.
+     */
+    NDJSON,
+
+    /**
+     * A compact binary stream, made up of the magic number {@code "DSE1"}, followed by one record per element and an
+     * end marker. Each record is the type of the element, {@code 1} for a file or {@code 2} for a directory, followed by
+     * its size in bytes, the length of its UTF-8 encoded absolute path and the path itself. Numbers are unsigned
+     * variable-length integers of 7 bits per byte, least significant first. The end marker is a type of {@code 0}.
+     */
+    BINARY
+}
@@ -0,0 +1,374 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolls the files of a scan up into groups along one or more {@link Dimension}s, such as the number of bytes and of
+ * files with each extension, in the same pass as the scan itself.
+ * <p>
+ * An aggregation is handed to a scan through {@link ScanOptions#getAggregation()}, and is queried once the scan is
+ * done, through {@link #groups(Dimension)} or {@link #top(Dimension, int)}. Several scans with the same aggregation
+ * add up.
+ * <p>
+ * While scanning, each thread counts files into an accumulator of its own, holding its totals in primitive arrays,
+ * so threads never contend and counting a file into a known group allocates nothing besides the name of the file,
+ * which its extension is read from. Owner and group ids are kept as primitive {@code int}s, and extensions are looked
+ * up in place, in lower case, without copying them out of the name. Accumulators are checked out for the listing of a
+ * directory, and returned to a pool afterwards, so there are only ever as many as listings in flight at once, even on
+ * virtual threads. They are merged once queried.
+ * <p>
+ * Owners and groups are counted by their numeric id where the file system has a {@code unix} view, and the id is only
+ * resolved into a name once per group, when queried. The ids come with the attributes read by the listing, so they
+ * take no stat of their own. Elsewhere, owners are counted by name, and groups are unknown.
+ */
+public class Aggregation {
+
+    /**
+     * The dimensions files can be grouped by.
+     */
+    public enum Dimension {
+
+        /**
+         * The extension of the file name, in lower case, or {@code (none)}.
+         */
+        EXTENSION,
+
+        /**
+         * The user owning the file.
+         */
+        OWNER,
+
+        /**
+         * The group owning the file.
+         */
+        GROUP,
+
+        /**
+         * How long ago the file was last modified, relative to when the aggregation was created.
+         */
+        AGE
+    }
+
+    private static final String NO_EXTENSION = "(none)";
+
+    private static final String UNKNOWN = "?";
+
+    private static final long[] AGE_BOUNDS_MILLIS = {
+            TimeUnit.DAYS.toMillis(1),
+            TimeUnit.DAYS.toMillis(7),
+            TimeUnit.DAYS.toMillis(30),
+            TimeUnit.DAYS.toMillis(90),
+            TimeUnit.DAYS.toMillis(365)
+    };
+
+    private static final String[] AGE_LABELS = {"0-1d", "1-7d", "7-30d", "30-90d", "90-365d", "365d+"};
+
+    private static final Comparator<GroupTotal> LARGEST_FIRST = Comparator.comparingLong(GroupTotal::getSizeInBytes).reversed()
+            .thenComparing(GroupTotal::getKey);
+
+    private final Set<Dimension> dimensions;
+
+    private final long nowMillis;
+
+    private final Queue<Accumulator> idle = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Accumulator> all = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param dimensions the dimensions to group files by
+     * @throws IllegalArgumentException if no dimension is given
+     */
+    public Aggregation(@Nonnull final Dimension... dimensions) {
+        if (dimensions.length == 0) {
+            throw new IllegalArgumentException("At least one dimension must be given.");
+        }
+        this.dimensions = Collections.unmodifiableSet(EnumSet.of(dimensions[0], dimensions));
+        this.nowMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the dimensions files are grouped by.
+     */
+    public Set<Dimension> getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @param dimension one of the dimensions of this aggregation
+     * @return the total of every group along the given dimension, in descending order of size.
+     * @throws IllegalArgumentException if files are not grouped by the given dimension
+     */
+    public List<GroupTotal> groups(@Nonnull final Dimension dimension) {
+
+        if (!dimensions.contains(dimension)) {
+            throw new IllegalArgumentException(String.format("Files are not grouped by %s but by %s.", dimension, dimensions));
+        }
+
+        final GroupTable merged = new GroupTable();
+        final IdGroupTable mergedIds = new IdGroupTable();
+        final Map<Integer, Path> samples = new HashMap<>();
+        for (final Accumulator accumulator : all) {
+            synchronized (accumulator) {
+                accumulator.tables.get(dimension).mergeInto(merged);
+                if (accumulator.idTables.containsKey(dimension)) {
+                    accumulator.idTables.get(dimension).mergeInto(mergedIds);
+                    accumulator.samples.get(dimension).forEach(samples::putIfAbsent);
+                }
+            }
+        }
+
+        final List<GroupTotal> groups = new ArrayList<>(merged.size() + mergedIds.size());
+        merged.forEach((key, sizeInBytes, count) -> groups.add(GroupTotal.builder()
+                .dimension(dimension)
+                .key(key.toString())
+                .sizeInBytes(sizeInBytes)
+                .fileCount(count)
+                .build()));
+        mergedIds.forEach((id, sizeInBytes, count) -> groups.add(GroupTotal.builder()
+                .dimension(dimension)
+                .key(nameOf(dimension, id, samples.get(id)))
+                .sizeInBytes(sizeInBytes)
+                .fileCount(count)
+                .build()));
+        groups.sort(LARGEST_FIRST);
+        return groups;
+    }
+
+    /**
+     * @param dimension one of the dimensions of this aggregation
+     * @param k         the number of groups to return
+     * @return the {@code k} largest groups along the given dimension, in descending order of size.
+     * @throws IllegalArgumentException if files are not grouped by the given dimension, or {@code k} is smaller than 1
+     */
+    public List<GroupTotal> top(@Nonnull final Dimension dimension, final int k) {
+
+        if (k < 1) {
+            throw new IllegalArgumentException(String.format("Number of groups must be at least 1 but was %d.", k));
+        }
+
+        final List<GroupTotal> groups = groups(dimension);
+        return groups.size() <= k ? groups : new ArrayList<>(groups.subList(0, k));
+    }
+
+    /**
+     * @return whether files are grouped by owner or group, which {@link ScanContext} then reads along with the other
+     * attributes of each file, as {@link UnixAttributes}, wherever the file system allows.
+     */
+    boolean readsIds() {
+        return dimensions.contains(Dimension.OWNER) || dimensions.contains(Dimension.GROUP);
+    }
+
+    /**
+     * Check out an accumulator to count files into, until it is {@link #release(Accumulator) released}.
+     */
+    Accumulator acquire() {
+        final Accumulator accumulator = idle.poll();
+        if (accumulator != null) {
+            return accumulator;
+        }
+
+        final Accumulator created = new Accumulator();
+        all.add(created);
+        return created;
+    }
+
+    void release(final Accumulator accumulator) {
+        idle.add(accumulator);
+    }
+
+    private static String nameOf(final Dimension dimension, final int id, final Path sample) {
+
+        if (sample == null) {
+            return String.valueOf(id);
+        }
+
+        try {
+            final PosixFileAttributes attrs = Files.readAttributes(sample, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return dimension == Dimension.OWNER ? attrs.owner().getName() : attrs.group().getName();
+        } catch (final IOException | UnsupportedOperationException e) {
+            return String.valueOf(id);
+        }
+    }
+
+    /**
+     * The totals counted by one thread at a time. It is only ever synchronized on when merged, so the lock is never
+     * contended.
+     */
+    final class Accumulator {
+
+        private final Map<Dimension, GroupTable> tables = new EnumMap<>(Dimension.class);
+
+        /**
+         * The owners or groups counted by id, as opposed to by name in {@link #tables}.
+         */
+        private final Map<Dimension, IdGroupTable> idTables = new EnumMap<>(Dimension.class);
+
+        /**
+         * A file of each owner or group counted by id, through which the id is resolved into a name.
+         */
+        private final Map<Dimension, Map<Integer, Path>> samples = new EnumMap<>(Dimension.class);
+
+        private final Extension extension = new Extension();
+
+        Accumulator() {
+            for (final Dimension dimension : dimensions) {
+                tables.put(dimension, new GroupTable());
+                if (dimension == Dimension.OWNER || dimension == Dimension.GROUP) {
+                    idTables.put(dimension, new IdGroupTable());
+                    samples.put(dimension, new HashMap<>());
+                }
+            }
+        }
+
+        /**
+         * Count the given file into its group along every dimension.
+         *
+         * @param file        the file
+         * @param attrs       the attributes of the file
+         * @param sizeInBytes the size the file adds to its ancestors
+         */
+        synchronized void add(final Path file, final BasicFileAttributes attrs, final long sizeInBytes) {
+
+            if (dimensions.contains(Dimension.EXTENSION)) {
+                tables.get(Dimension.EXTENSION).add(extension.of(file), sizeInBytes, 1);
+            }
+
+            if (dimensions.contains(Dimension.AGE)) {
+                tables.get(Dimension.AGE).add(ageOf(attrs), sizeInBytes, 1);
+            }
+
+            if (attrs instanceof UnixAttributes) {
+                add(Dimension.OWNER, ((UnixAttributes) attrs).uid(), file, sizeInBytes);
+                add(Dimension.GROUP, ((UnixAttributes) attrs).gid(), file, sizeInBytes);
+            } else if (readsIds()) {
+                final Object[] ids = idsOf(file);
+                add(Dimension.OWNER, ids[0], file, sizeInBytes);
+                add(Dimension.GROUP, ids[1], file, sizeInBytes);
+            }
+        }
+
+        private void add(final Dimension dimension, final int id, final Path file, final long sizeInBytes) {
+            final IdGroupTable table = idTables.get(dimension);
+            if (table != null && table.add(id, sizeInBytes, 1)) {
+                samples.get(dimension).put(id, file);
+            }
+        }
+
+        private void add(final Dimension dimension, final Object key, final Path file, final long sizeInBytes) {
+            if (key instanceof Integer) {
+                add(dimension, (int) (Integer) key, file, sizeInBytes);
+            } else if (tables.containsKey(dimension)) {
+                tables.get(dimension).add(key, sizeInBytes, 1);
+            }
+        }
+    }
+
+    /**
+     * The extension of a file name, in lower case, looked up in a {@link GroupTable} in place, so that only an
+     * extension seen for the first time is copied out of the name.
+     */
+    private static final class Extension implements GroupTable.Probe {
+
+        private String name;
+
+        private int start;
+
+        private int hash;
+
+        /**
+         * @return this probe, set to the extension of the given file, or {@code (none)} if it has none.
+         */
+        Object of(final Path file) {
+            name = file.getFileName().toString();
+            final int dot = name.lastIndexOf('.');
+            if (dot <= 0 || dot == name.length() - 1) {
+                return NO_EXTENSION;
+            }
+
+            start = dot + 1;
+            int h = 0;
+            for (int i = start; i < name.length(); i++) {
+                h = 31 * h + Character.toLowerCase(name.charAt(i));
+            }
+            hash = h;
+            return this;
+        }
+
+        @Override
+        public Object key() {
+            final char[] chars = new char[name.length() - start];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase(name.charAt(start + i));
+            }
+            return new String(chars);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * @return whether the given key is the extension this probe is set to, as a string in lower case.
+         */
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof String) || ((String) other).length() != name.length() - start) {
+                return false;
+            }
+            final String key = (String) other;
+            for (int i = 0; i < key.length(); i++) {
+                if (Character.toLowerCase(name.charAt(start + i)) != key.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private String ageOf(final BasicFileAttributes attrs) {
+        final long age = nowMillis - attrs.lastModifiedTime().toMillis();
+        int bucket = 0;
+        while (bucket < AGE_BOUNDS_MILLIS.length && age >= AGE_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        return AGE_LABELS[bucket];
+    }
+
+    /**
+     * @return the owner and the group of the given file, by id where possible, for files whose attributes were not
+     * read as {@link UnixAttributes}.
+     */
+    private static Object[] idsOf(final Path file) {
+        try {
+            final Map<String, Object> ids = Files.readAttributes(file, "unix:uid,gid", LinkOption.NOFOLLOW_LINKS);
+            return new Object[]{ids.get("uid"), ids.get("gid")};
+        } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+            try {
+                return new Object[]{Files.getOwner(file, LinkOption.NOFOLLOW_LINKS).getName(), UNKNOWN};
+            } catch (final IOException | UnsupportedOperationException ex) {
+                return new Object[]{UNKNOWN, UNKNOWN};
+            }
+        } catch (final IOException e) {
+            return new Object[]{UNKNOWN, UNKNOWN};
+        }
+    }
+}
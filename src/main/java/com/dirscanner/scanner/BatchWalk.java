@@ -0,0 +1,137 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Walks several, possibly nested, roots on behalf of {@link DirectoryElementScanner#scanBatch(java.util.Collection)},
+ * visiting every directory once however many of the roots contain it.
+ * <p>
+ * Roots are walked in ascending order of path, so that a root is walked before any root nested within it. Each walk
+ * starts from the first root not reached yet, and every root reached on the way has the totals of its entries fanned
+ * out to it as they are summed up, rather than being walked again. A nested root which the walk of its enclosing root
+ * does not descend into, such as one on another file system under {@link ScanOptions#isSameFileSystem()} or one
+ * matching an exclude pattern, is walked on its own afterwards, as a separate scan of it would be.
+ * <p>
+ * The walk keeps an explicit stack of the directories being summed up, each holding the listing of its entries, so
+ * only the listings along the current path are kept in memory. Sizes are accounted for once per walk, so under
+ * {@link SizeMode#DISK_USAGE} a file hard-linked into two nested roots counts towards whichever is reached first.
+ */
+final class BatchWalk {
+
+    private BatchWalk() {
+    }
+
+    /**
+     * @param roots   the absolute, normalized roots to scan
+     * @param options the options of the scan
+     * @return the top-level elements of each root, in no particular order
+     * @throws IOException if an entry could not be read, under {@link ErrorPolicy#FAIL_FAST}
+     */
+    static Map<Path, List<DirectoryElement>> scan(@Nonnull final Iterable<Path> roots, @Nonnull final ScanOptions options) throws IOException {
+
+        final TreeSet<Path> pending = new TreeSet<>();
+        roots.forEach(pending::add);
+
+        final Map<Path, List<DirectoryElement>> elems = new HashMap<>();
+        while (!pending.isEmpty()) {
+            final Path root = pending.pollFirst();
+            walk(root, new ScanContext(root, options), pending, elems);
+        }
+        return elems;
+    }
+
+    /**
+     * Walk the given root, taking every pending root reached on the way off the pending ones.
+     */
+    private static void walk(final Path root, final ScanContext context, final TreeSet<Path> pending,
+                             final Map<Path, List<DirectoryElement>> elems) throws IOException {
+
+        final Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, list(root, context), new ArrayList<>()));
+
+        while (!stack.isEmpty()) {
+            final Frame frame = stack.peek();
+
+            if (frame.next < frame.children.size()) {
+                final Child child = frame.children.get(frame.next++);
+                if (child.directory) {
+                    final boolean reached = pending.remove(child.path);
+                    stack.push(new Frame(child.path, list(child.path, context), reached ? new ArrayList<>() : null));
+                } else {
+                    frame.total += child.size;
+                    if (frame.elems != null) {
+                        frame.elems.add(DirectoryElements.create(child.path, DirectoryElement.Type.FILE, child.size));
+                    }
+                }
+                continue;
+            }
+
+            stack.pop();
+            if (frame.elems != null) {
+                elems.put(frame.dir, frame.elems);
+            }
+            final Frame parent = stack.peek();
+            if (parent != null) {
+                parent.total += frame.total;
+                if (parent.elems != null) {
+                    parent.elems.add(DirectoryElements.create(frame.dir, DirectoryElement.Type.DIR, frame.total));
+                }
+            }
+        }
+    }
+
+    private static List<Child> list(final Path dir, final ScanContext context) throws IOException {
+        final List<Child> children = new ArrayList<>();
+        DirectoryReader.read(dir, context, (entry, attrs, size) -> children.add(new Child(entry, attrs.isDirectory(), size)));
+        return children;
+    }
+
+    private static final class Child {
+
+        private final Path path;
+
+        private final boolean directory;
+
+        private final long size;
+
+        Child(final Path path, final boolean directory, final long size) {
+            this.path = path;
+            this.directory = directory;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A directory on the stack of the walk, whose entries up to {@code next} have been summed up. Its elements are
+     * collected only if it is one of the roots.
+     */
+    private static final class Frame {
+
+        private final Path dir;
+
+        private final List<Child> children;
+
+        private final List<DirectoryElement> elems;
+
+        private int next;
+
+        private long total;
+
+        Frame(final Path dir, final List<Child> children, final List<DirectoryElement> elems) {
+            this.dir = dir;
+            this.children = children;
+            this.elems = elems;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ScanEngine} which uses a {@link ScanCache} to avoid re-reading directories which did not change since the
+ * previous scan of the same tree.
+ * <p>
+ * A directory's modification time only changes when entries are added to, removed from or renamed within it. Hence,
+ * for an unchanged directory, the engine reuses the cached total of the files directly within it and the cached list
+ * of its sub-directories, without listing it or stat-ing its files. Every sub-directory is still checked against the
+ * cache in turn, since a change deep down a tree does not alter the modification time of its ancestors. Note that a
+ * file which grows or shrinks in place does not alter the modification time of its directory either, so such a change
+ * is only picked up once the cache is {@link ScanCache#invalidate() invalidated}.
+ * <p>
+ * The cache is updated with every directory read in full, but is only written to disk by {@link ScanCache#save()}.
+ * Directories with entries which could not be read are not cached, so that they are read again by the next scan.
+ * Neither are directories modified within {@link #CLOCK_TICK_NANOS} of being read: a change made right after the
+ * read could leave their modification time as it was, at the resolution of the file system, and would then go
+ * unnoticed by later scans.
+ * <p>
+ * Only {@link SizeMode#APPARENT} sizes are supported, since hard links cannot be told apart within cached totals, and
+ * symbolic links are never followed, since cycles cannot be told apart within cached lists of sub-directories. The
+ * exclude patterns and the file system of the scan are applied to cached sub-directories too, but a cache should
+ * still only be reused by scans with the same options, since the cached totals of files reflect those of the scan
+ * which read them.
+ */
+public class CachingScanEngine implements ScanEngine {
+
+    /**
+     * The coarsest resolution of modification times among common file systems, that of FAT, which also covers the
+     * skew between the clock of the scan and that of the file system.
+     */
+    static final long CLOCK_TICK_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final ScanCache cache;
+
+    public CachingScanEngine(@Nonnull final ScanCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void scan(@Nonnull final Path dir, @Nonnull final ScanOptions options, @Nonnull final Consumer<DirectoryElement> sink) throws IOException {
+
+        if (options.getSizeMode() != SizeMode.APPARENT) {
+            throw new UnsupportedOperationException(String.format("Size mode %s not supported by a caching scan.", options.getSizeMode()));
+        }
+        if (options.isFollowLinks()) {
+            throw new UnsupportedOperationException("Following links not supported by a caching scan.");
+        }
+        if (options.getAggregation() != null) {
+            throw new UnsupportedOperationException("Aggregation not supported by a caching scan.");
+        }
+
+        final ScanContext context = new ScanContext(dir, options);
+
+        DirectoryReader.read(dir.toAbsolutePath(), context, (entry, attrs, size) -> {
+            if (attrs.isDirectory()) {
+                sink.accept(DirectoryElements.create(entry, DirectoryElement.Type.DIR, sizeOf(entry, context)));
+            } else {
+                sink.accept(DirectoryElements.create(entry, DirectoryElement.Type.FILE, size));
+            }
+        });
+    }
+
+    /**
+     * Sum up the sizes of all the contents of the given directory, depth-first on an explicit stack of the directories
+     * being summed up, so that the depth of the tree does not bound the stack of the thread.
+     */
+    private long sizeOf(final Path dir, final ScanContext context) throws IOException {
+
+        final Deque<Frame> stack = new ArrayDeque<>();
+        final Frame top = open(dir, context);
+        if (top == null) {
+            return 0;
+        }
+        stack.push(top);
+
+        while (true) {
+            final Frame frame = stack.peek();
+
+            if (frame.next < frame.subDirs.length) {
+                final Path subDir = frame.dir.resolve(frame.subDirs[frame.next++]);
+                final Frame child = context.isExcluded(subDir) ? null : open(subDir, context);
+                if (child != null) {
+                    stack.push(child);
+                }
+                continue;
+            }
+
+            stack.pop();
+            if (frame.cacheable) {
+                cache.put(frame.dir, new ScanCache.Entry(frame.modifiedTime, frame.inode, frame.filesTotal, frame.subDirs));
+            }
+
+            if (stack.isEmpty()) {
+                return frame.total;
+            }
+            stack.peek().total += frame.total;
+        }
+    }
+
+    /**
+     * Look the given directory up in the cache, or read it if it is not there.
+     *
+     * @return the directory, with the total of the files directly within it and the names of its sub-directories, or
+     * {@code null} if it has been skipped
+     */
+    private Frame open(final Path dir, final ScanContext context) throws IOException {
+
+        final ScanOptions options = context.getOptions();
+        final long readTime = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        final Map<String, Object> attrs = ErrorHandling.attempt(dir, options, () -> readDirectoryAttributes(dir));
+        if (attrs == null || (attrs.containsKey("dev") && context.isOtherDevice(attrs.get("dev")))) {
+            return null;
+        }
+        final long modifiedTime = ((FileTime) attrs.get("lastModifiedTime")).to(TimeUnit.NANOSECONDS);
+        final long inode = attrs.containsKey("ino") ? (Long) attrs.get("ino") : 0;
+
+        final ScanCache.Entry entry = cache.lookup(dir, modifiedTime, inode);
+        if (entry != null) {
+            return new Frame(dir, modifiedTime, inode, entry.filesTotal, entry.subDirs, true);
+        }
+
+        final long[] total = new long[1];
+        final List<String> names = new ArrayList<>();
+        final boolean complete = DirectoryReader.read(dir, context, (child, childAttrs, size) -> {
+            if (childAttrs.isDirectory()) {
+                names.add(child.getFileName().toString());
+            } else {
+                total[0] += size;
+            }
+        });
+        final boolean settled = modifiedTime <= readTime - CLOCK_TICK_NANOS;
+        return new Frame(dir, modifiedTime, inode, total[0], names.toArray(new String[0]), complete && settled);
+    }
+
+    /**
+     * @return the modification time and, where supported, the inode and device of the given directory, read in a single
+     * call.
+     */
+    private static Map<String, Object> readDirectoryAttributes(final Path dir) throws IOException {
+        try {
+            return Files.readAttributes(dir, "unix:lastModifiedTime,ino,dev", LinkOption.NOFOLLOW_LINKS);
+        } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+            return Files.readAttributes(dir, "lastModifiedTime", LinkOption.NOFOLLOW_LINKS);
+        }
+    }
+
+    /**
+     * A directory on the stack of {@link #sizeOf(Path, ScanContext)}, whose sub-directories up to {@code next} have
+     * been added to its total.
+     */
+    private static final class Frame {
+
+        private final Path dir;
+
+        private final long modifiedTime;
+
+        private final long inode;
+
+        private final long filesTotal;
+
+        private final String[] subDirs;
+
+        /**
+         * Whether the directory was read in full, and long enough after it was last modified, to be cached.
+         */
+        private final boolean cacheable;
+
+        private int next;
+
+        private long total;
+
+        Frame(final Path dir, final long modifiedTime, final long inode, final long filesTotal, final String[] subDirs,
+              final boolean cacheable) {
+            this.dir = dir;
+            this.modifiedTime = modifiedTime;
+            this.inode = inode;
+            this.filesTotal = filesTotal;
+            this.subDirs = subDirs;
+            this.cacheable = cacheable;
+            this.total = filesTotal;
+        }
+    }
+}
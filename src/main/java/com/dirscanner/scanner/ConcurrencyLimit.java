@@ -0,0 +1,84 @@
+package com.dirscanner.scanner;
+
+/**
+ * The number of listings allowed in flight at once on a device, tuned from their observed latency by additive
+ * increase and multiplicative decrease, as TCP tunes its congestion window.
+ * <p>
+ * Since listing a large directory takes longer than listing a small one, latencies are compared per entry read. Each
+ * sample is folded into a short-term and a long-term moving average. While the short-term average stays within
+ * {@link #TOLERANCE} times the long-term one, the device keeps up, and the limit grows by one per limit's worth of
+ * samples. Once it does not, the device is saturated, and the limit is halved, at most once per limit's worth of
+ * samples, so that a single burst of slow listings does not collapse it.
+ * <p>
+ * Instances are not thread-safe.
+ */
+final class ConcurrencyLimit {
+
+    static final double TOLERANCE = 2.0;
+
+    private static final double SHORT_TERM_WEIGHT = 0.3;
+
+    private static final double LONG_TERM_WEIGHT = 0.02;
+
+    private final int max;
+
+    private int limit;
+
+    private double shortTerm = Double.NaN;
+
+    private double longTerm = Double.NaN;
+
+    private int samplesSinceIncrease;
+
+    private int samplesSinceDecrease;
+
+    /**
+     * @param initial the limit to start from
+     * @param max     the limit never to exceed
+     * @throws IllegalArgumentException if the given maximum is smaller than 1
+     */
+    ConcurrencyLimit(final int initial, final int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException(String.format("Maximum concurrency must be at least 1 but was %d.", max));
+        }
+        this.max = max;
+        this.limit = Math.max(1, Math.min(initial, max));
+    }
+
+    /**
+     * @return the number of listings currently allowed in flight at once, between 1 and the maximum.
+     */
+    int get() {
+        return limit;
+    }
+
+    /**
+     * Adjust the limit to the latency of a listing.
+     *
+     * @param nanos   the time taken by the listing
+     * @param entries the number of entries it read
+     */
+    void onSample(final long nanos, final long entries) {
+
+        final double perEntry = (double) nanos / (entries + 1);
+        if (Double.isNaN(longTerm)) {
+            shortTerm = perEntry;
+            longTerm = perEntry;
+        } else {
+            shortTerm += SHORT_TERM_WEIGHT * (perEntry - shortTerm);
+            longTerm += LONG_TERM_WEIGHT * (perEntry - longTerm);
+        }
+
+        samplesSinceDecrease++;
+        if (shortTerm > TOLERANCE * longTerm) {
+            if (samplesSinceDecrease >= limit) {
+                limit = Math.max(1, limit / 2);
+                samplesSinceDecrease = 0;
+                samplesSinceIncrease = 0;
+            }
+        } else if (++samplesSinceIncrease >= limit) {
+            limit = Math.min(max, limit + 1);
+            samplesSinceIncrease = 0;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.ElementNode;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Walks a tree on behalf of {@link DirectoryElementScanner#scanDepth(Path, int)}, keeping the totals of every element
+ * down to a maximum depth.
+ * <p>
+ * The whole tree is walked once, on an explicit stack of the directories being summed up. Each directory holds the
+ * sub-directories it still has to descend into, and, while within the maximum depth, the elements it contains. Below
+ * the maximum depth, entries are only added to the total of their directory, so memory is proportional to the number
+ * of elements reported plus the listings along the current path.
+ */
+final class DepthWalk {
+
+    private static final Comparator<ElementNode> LARGEST_FIRST =
+            Comparator.comparingLong((ElementNode node) -> node.getElement().getSize().getBytes()).reversed();
+
+    private DepthWalk() {
+    }
+
+    /**
+     * @return the root of the tree, with its elements down to the given depth, each level sorted in descending order of
+     * size.
+     */
+    static ElementNode walk(@Nonnull final Path root, @Nonnull final ScanContext context, final int maxDepth) throws IOException {
+
+        final Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(open(root, 0, context, maxDepth));
+
+        while (true) {
+            final Frame frame = stack.peek();
+
+            if (frame.next < frame.subDirectories.size()) {
+                final Path dir = frame.subDirectories.get(frame.next);
+                frame.subDirectories.set(frame.next++, null);
+                stack.push(open(dir, frame.depth + 1, context, maxDepth));
+                continue;
+            }
+
+            stack.pop();
+            final ElementNode node = frame.depth <= maxDepth ? frame.toNode() : null;
+            if (stack.isEmpty()) {
+                return node;
+            }
+
+            final Frame parent = stack.peek();
+            parent.total += frame.total;
+            if (node != null && parent.children != null) {
+                parent.children.add(node);
+            }
+        }
+    }
+
+    private static Frame open(final Path dir, final int depth, final ScanContext context, final int maxDepth) throws IOException {
+
+        final Frame frame = new Frame(dir, depth, depth < maxDepth);
+        DirectoryReader.read(dir, context, (entry, attrs, size) -> {
+            if (attrs.isDirectory()) {
+                frame.subDirectories.add(entry);
+                return;
+            }
+            frame.total += size;
+            if (frame.children != null) {
+                frame.children.add(ElementNode.builder()
+                        .element(DirectoryElements.create(entry, DirectoryElement.Type.FILE, size))
+                        .build());
+            }
+        });
+        return frame;
+    }
+
+    /**
+     * A directory on the stack of the walk, whose sub-directories up to {@code next} have been summed up.
+     */
+    private static final class Frame {
+
+        private final Path dir;
+
+        private final int depth;
+
+        private final List<Path> subDirectories = new ArrayList<>();
+
+        /**
+         * The elements directly within the directory, or {@code null} if they are below the maximum depth.
+         */
+        private final List<ElementNode> children;
+
+        private int next;
+
+        private long total;
+
+        Frame(final Path dir, final int depth, final boolean reportsChildren) {
+            this.dir = dir;
+            this.depth = depth;
+            this.children = reportsChildren ? new ArrayList<>() : null;
+        }
+
+        ElementNode toNode() {
+            final ElementNode.ElementNodeBuilder builder = ElementNode.builder()
+                    .element(DirectoryElements.create(dir, DirectoryElement.Type.DIR, total));
+            if (children != null) {
+                children.sort(LARGEST_FIRST);
+                builder.children(children);
+            }
+            return builder.build();
+        }
+    }
+}
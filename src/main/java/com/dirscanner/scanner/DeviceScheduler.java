@@ -0,0 +1,197 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.metrics.DeviceThroughput;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Schedules the listings of a scan onto an executor, grouped by the device the listed directories reside on.
+ * <p>
+ * Each device has a queue of pending listings of its own, and a {@link ConcurrencyLimit} on how many of them are in
+ * flight at once, tuned from their latency. A device which keeps up, such as an SSD, is given more listings at once,
+ * while one which saturates, such as a spinning disk or a busy NFS server, is given fewer, and neither holds the other
+ * up. On a {@link Devices#isRotational(Object) rotational} device, pending listings are taken in the order of their
+ * paths, so that neighbouring directories are read one after the other rather than seeking back and forth; elsewhere
+ * they are taken in the order they were submitted.
+ * <p>
+ * Listings never block a thread while waiting for their turn, so the executor may be bounded. Listings submitted once
+ * the executor is shut down are dropped, since they are only left over from a scan which already failed.
+ */
+final class DeviceScheduler {
+
+    /**
+     * The number of listings allowed in flight at once on a device, before any latency was observed on it.
+     */
+    static final int INITIAL_CONCURRENCY = 4;
+
+    /**
+     * A listing of a directory.
+     */
+    @FunctionalInterface
+    interface Listing {
+
+        /**
+         * @return the number of entries read
+         */
+        long read();
+    }
+
+    private final Executor executor;
+
+    private final int maxConcurrency;
+
+    private final Map<Object, Device> devices = new ConcurrentHashMap<>();
+
+    /**
+     * @param executor       the executor to run listings on
+     * @param maxConcurrency the maximum number of listings in flight at once on any single device
+     */
+    DeviceScheduler(final Executor executor, final int maxConcurrency) {
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Run the given listing once the given device has room for it, and then the given continuation, once the listing
+     * is accounted for. The continuation is run even if the listing fails, but neither is run if the listing is dropped
+     * since the executor was shut down.
+     */
+    void submit(final Object device, final Path dir, final Listing listing, final Runnable then) {
+        devices.computeIfAbsent(device, Device::new).submit(new Pending(dir, listing, then));
+    }
+
+    /**
+     * @return the throughput of the listings run so far on each device.
+     */
+    List<DeviceThroughput> getThroughputs() {
+        final List<DeviceThroughput> throughputs = new ArrayList<>();
+        devices.values().forEach(device -> throughputs.add(device.getThroughput()));
+        return throughputs;
+    }
+
+    private static final class Pending {
+
+        private final Path dir;
+
+        private final Listing listing;
+
+        private final Runnable then;
+
+        Pending(final Path dir, final Listing listing, final Runnable then) {
+            this.dir = dir;
+            this.listing = listing;
+            this.then = then;
+        }
+    }
+
+    /**
+     * The pending and in-flight listings on a single device.
+     */
+    private final class Device {
+
+        private final Object key;
+
+        private final boolean rotational;
+
+        private final Queue<Pending> pending;
+
+        private final ConcurrencyLimit limit;
+
+        private int inFlight;
+
+        private int peakInFlight;
+
+        private long directoriesListed;
+
+        private long entriesRead;
+
+        private long firstStart = Long.MAX_VALUE;
+
+        private long lastEnd = Long.MIN_VALUE;
+
+        Device(final Object key) {
+            this.key = key;
+            this.rotational = Devices.isRotational(key);
+            this.pending = rotational ? new PriorityQueue<>(Comparator.comparing(p -> p.dir)) : new ArrayDeque<>();
+            this.limit = new ConcurrencyLimit(INITIAL_CONCURRENCY, maxConcurrency);
+        }
+
+        void submit(final Pending listing) {
+            synchronized (this) {
+                pending.add(listing);
+            }
+            dispatch();
+        }
+
+        /**
+         * Hand pending listings to the executor, as long as the limit allows. Once the executor rejects a listing, as
+         * it does after being shut down on a failed scan, the listings still pending are dropped.
+         */
+        private void dispatch() {
+            final List<Pending> ready = new ArrayList<>();
+            synchronized (this) {
+                while (inFlight < limit.get() && !pending.isEmpty()) {
+                    ready.add(pending.poll());
+                    inFlight++;
+                }
+                peakInFlight = Math.max(peakInFlight, inFlight);
+            }
+
+            for (int i = 0; i < ready.size(); i++) {
+                final Pending listing = ready.get(i);
+                try {
+                    executor.execute(() -> run(listing));
+                } catch (final RejectedExecutionException e) {
+                    synchronized (this) {
+                        inFlight -= ready.size() - i;
+                        pending.clear();
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void run(final Pending listing) {
+
+            final long start = System.nanoTime();
+            long entries = 0;
+            try {
+                entries = listing.listing.read();
+            } finally {
+                final long end = System.nanoTime();
+                synchronized (this) {
+                    inFlight--;
+                    directoriesListed++;
+                    entriesRead += entries;
+                    firstStart = Math.min(firstStart, start);
+                    lastEnd = Math.max(lastEnd, end);
+                    limit.onSample(end - start, entries);
+                }
+                dispatch();
+                listing.then.run();
+            }
+        }
+
+        synchronized DeviceThroughput getThroughput() {
+            return DeviceThroughput.builder()
+                    .device(key.toString())
+                    .rotational(rotational)
+                    .directoriesListed(directoriesListed)
+                    .entriesRead(entriesRead)
+                    .nanos(directoriesListed == 0 ? 0 : lastEnd - firstStart)
+                    .peakConcurrency(peakInFlight)
+                    .finalConcurrency(limit.get())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Resolves the device, i.e. the mounted file system, on which a path resides.
+ */
+final class Devices {
+
+    private Devices() {
+    }
+
+    /**
+     * @param path    the path
+     * @param options whether to follow the path, if it is a symbolic link
+     * @return a key which is equal for all the paths residing on the same device. On Unix this is the {@code unix:dev}
+     * attribute of the path, and elsewhere its {@link java.nio.file.FileStore}.
+     * @throws IOException if the attributes of the path could not be read
+     */
+    static Object deviceOf(@Nonnull final Path path, @Nonnull final LinkOption... options) throws IOException {
+        try {
+            return Files.getAttribute(path, "unix:dev", options);
+        } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+            return Files.getFileStore(path);
+        }
+    }
+
+    /**
+     * @param attrs the attributes of an entry, as read by the listing of its directory
+     * @return the device of the entry, as returned by {@link #deviceOf(Path, LinkOption...)}, if the given attributes
+     * carry it, as {@link UnixAttributes} do, or {@code null} otherwise.
+     */
+    static Object deviceOf(@Nonnull final BasicFileAttributes attrs) {
+        return attrs instanceof UnixAttributes ? Long.valueOf(((UnixAttributes) attrs).dev()) : null;
+    }
+
+    /**
+     * Find out whether the given device is a rotational disk, on which reads are cheaper the closer they are to each
+     * other. This is only known on Linux, from {@code /sys/dev/block/MAJOR:MINOR/queue/rotational} of the disk, or of the
+     * disk holding the partition; any other device, including network and virtual file systems, is taken not to be.
+     *
+     * @param device a key returned by {@link #deviceOf(Path, LinkOption...)}
+     * @return whether the device is known to be a rotational disk
+     */
+    static boolean isRotational(@Nonnull final Object device) {
+
+        if (!(device instanceof Long)) {
+            return false;
+        }
+
+        // The encoding of dev_t by glibc: the major number in bits 8-19 and 32-43, the minor one in the rest.
+        final long dev = (Long) device;
+        final long major = ((dev >>> 8) & 0xfff) | ((dev >>> 32) & ~0xfffL);
+        final long minor = (dev & 0xff) | ((dev >>> 12) & ~0xffL);
+
+        try {
+            final Path block = Paths.get("/sys/dev/block", major + ":" + minor).toRealPath();
+            for (final Path queue : new Path[]{block.resolve("queue"), block.resolveSibling("queue")}) {
+                final Path rotational = queue.resolve("rotational");
+                if (Files.isReadable(rotational)) {
+                    return new String(Files.readAllBytes(rotational), StandardCharsets.US_ASCII).trim().equals("1");
+                }
+            }
+        } catch (final IOException e) {
+            // Not a block device, or not on Linux.
+        }
+        return false;
+    }
+}
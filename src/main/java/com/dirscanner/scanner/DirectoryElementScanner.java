@@ -2,19 +2,33 @@ package com.dirscanner.scanner;
 
 import com.dirscanner.elem.DirectoryElemSizeComparator;
 import com.dirscanner.elem.DirectoryElement;
-import com.dirscanner.elem.DirectoryElement.Size;
-import com.dirscanner.elem.FileSizeUnit;
+import com.dirscanner.elem.ElementNode;
+import com.dirscanner.elem.EstimatedElement;
+import com.dirscanner.metrics.DeviceThroughput;
+import com.dirscanner.metrics.ScanListener;
+import com.dirscanner.snapshot.SnapshotWriter;
+import com.dirscanner.tree.FileTree;
+import com.dirscanner.tree.FileTreeBuilder;
+import com.dirscanner.tree.FileTreeWriter;
+import com.dirscanner.tree.MappedFileTree;
 
 import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * A {@link DirectoryElement} scanner which, given a {@link Path} will return a list of its {@link DirectoryElement}s.
@@ -24,11 +38,31 @@ import java.util.stream.Stream;
  * <p>
  * This scanner scans the top-level elements of the given path. However, in case such an element is another direcotyr,
  * then the size of this directory is actually the summation of the sizes of all its contents.
+ * <p>
+ * The actual walking of the directory is delegated to a {@link ScanEngine}, which defaults to a
+ * {@link TreeWalkScanEngine}.
  */
 public class DirectoryElementScanner {
 
     private final DirectoryElemSizeComparator fileSizeComparator = new DirectoryElemSizeComparator();
 
+    private final ScanEngine engine;
+
+    private final ScanOptions options;
+
+    public DirectoryElementScanner() {
+        this(new TreeWalkScanEngine());
+    }
+
+    public DirectoryElementScanner(@Nonnull final ScanEngine engine) {
+        this(engine, ScanOptions.DEFAULTS);
+    }
+
+    public DirectoryElementScanner(@Nonnull final ScanEngine engine, @Nonnull final ScanOptions options) {
+        this.engine = engine;
+        this.options = options;
+    }
+
     /**
      * Scan the given path and return a list of {@link DirectoryElement}s sorted in descending order of their size.
      * <p>
@@ -41,61 +75,419 @@ public class DirectoryElementScanner {
      * @throws NotDirectoryException if the given path points to a file as opposed to a directory.
      */
     public List<DirectoryElement> scan(@Nonnull final Path path) throws NoSuchFileException, NotDirectoryException {
+        return scan(path, options);
+    }
 
-        final File file = path.toFile();
+    /**
+     * Scan the given path like {@link #scan(Path)}, but report the entries which could not be read, rather than abort
+     * the scan because of them.
+     * <p>
+     * Unless the {@link ErrorPolicy} of this scanner is {@link ErrorPolicy#RETRY}, unreadable entries are skipped
+     * straight away.
+     *
+     * @param path the path to scan for elements. This must point to a directory
+     * @return the top-level {@link DirectoryElement}s, sized with whatever could be read, and the skipped entries.
+     * @throws NoSuchFileException   if the given path is not valid
+     * @throws NotDirectoryException if the given path points to a file as opposed to a directory.
+     */
+    public ScanReport scanReport(@Nonnull final Path path) throws NoSuchFileException, NotDirectoryException {
 
-        if (!file.exists()) {
-            throw new NoSuchFileException(file.getAbsolutePath());
+        final List<ScanError> errors = Collections.synchronizedList(new ArrayList<>());
+        final LongAdder uncountedBytes = new LongAdder();
+
+        final List<DirectoryElement> elems = scan(path, options.toBuilder()
+                .errorPolicy(options.getErrorPolicy() == ErrorPolicy.RETRY ? ErrorPolicy.RETRY : ErrorPolicy.SKIP)
+                .listener(new ErrorCollectingListener(options.getListener(), errors, uncountedBytes))
+                .build());
+
+        final long sizeInBytes = elems.stream().mapToLong(elem -> elem.getSize().getBytes()).sum();
+        return ScanReport.builder()
+                .elements(elems)
+                .errors(new ArrayList<>(errors))
+                .apparentSizeInBytes(sizeInBytes + uncountedBytes.sum())
+                .build();
+    }
+
+    /**
+     * Scan the given path and pass each of its top-level {@link DirectoryElement}s to the given consumer as soon as
+     * its size is final, rather than once the whole path has been scanned.
+     * <p>
+     * Elements are passed in no particular order, by one thread at a time.
+     *
+     * @param path     the path to scan for elements. This must point to a directory
+     * @param consumer the consumer of the top-level {@link DirectoryElement}s
+     * @throws NoSuchFileException   if the given path is not valid
+     * @throws NotDirectoryException if the given path points to a file as opposed to a directory.
+     */
+    public void scan(@Nonnull final Path path, @Nonnull final Consumer<DirectoryElement> consumer) throws NoSuchFileException, NotDirectoryException {
+        scan(path, options, consumer);
+    }
+
+    /**
+     * Scan the given path and return only its {@code n} largest top-level {@link DirectoryElement}s, sorted in
+     * descending order of their size.
+     * <p>
+     * Unlike {@link #scan(Path)}, this never holds or sorts more than {@code n} elements.
+     *
+     * @param path the path to scan for elements. This must point to a directory
+     * @param n    the number of elements to return
+     * @return the {@code n} largest top-level {@link DirectoryElement}s.
+     * @throws NoSuchFileException   if the given path is not valid
+     * @throws NotDirectoryException if the given path points to a file as opposed to a directory.
+     */
+    public List<DirectoryElement> scanLargest(@Nonnull final Path path, final int n) throws NoSuchFileException, NotDirectoryException {
+
+        final LargestElements largest = new LargestElements(n);
+        scan(path, largest);
+
+        return largest.toList();
+    }
+
+    /**
+     * Estimate the sizes of the top-level elements of the given path within about the given time, by sampling the
+     * contents of wide directories rather than reading all of them.
+     * <p>
+     * Every top-level element is reported, as by {@link #scan(Path)}, but the size of a sub-directory is an estimate,
+     * together with its 95% confidence interval. Estimates are refined over successive passes with larger samples,
+     * until either the time is up or a pass reads every entry, in which case it is exact. The first pass is always
+     * completed, however long it takes. The tree is walked sequentially, regardless of the {@link ScanEngine} of this
+     * scanner.
+     *
+     * @param path         the path to scan for elements. This must point to a directory
+     * @param budgetMillis the time after which estimates are no longer refined
+     * @return the top-level elements estimated by the last completed pass, sorted in descending order of their
+     * estimated size.
+     * @throws NoSuchFileException   if the given path is not valid
+     * @throws NotDirectoryException if the given path points to a file as opposed to a directory.
+     */
+    public List<EstimatedElement> estimate(@Nonnull final Path path, final long budgetMillis) throws NoSuchFileException, NotDirectoryException {
+        return estimate(path, budgetMillis, elems -> { });
+    }
+
+    /**
+     * Estimate the sizes of the top-level elements of the given path like {@link #estimate(Path, long)}, and pass
+     * the elements estimated by every pass to the given consumer as soon as the pass is done, so that the estimates
+     * can be shown as they are refined.
+     *
+     * @param path         the path to scan for elements. This must point to a directory
+     * @param budgetMillis the time after which estimates are no longer refined
+     * @param refinements  the consumer of the elements estimated by every pass, sorted in descending order of their
+     *                     estimated size
+     * @return the top-level elements estimated by the last completed pass.
+     * @throws NoSuchFileException   if the given path is not valid
+     * @throws NotDirectoryException if the given path points to a file as opposed to a directory.
+     */
+    public List<EstimatedElement> estimate(@Nonnull final Path path, final long budgetMillis,
+                                           @Nonnull final Consumer<List<EstimatedElement>> refinements) throws NoSuchFileException, NotDirectoryException {
+
+        final File file = checkIsDirectory(path);
+
+        final long start = System.nanoTime();
+        final List<EstimatedElement> elems;
+        try {
+            elems = new Estimator(options, new Random()).estimate(path, TimeUnit.MILLISECONDS.toNanos(budgetMillis), refinements);
+        } catch (final IOException e) {
+            throw new IllegalStateException(String.format("Unexpected exception occurred when listing contents of file %s", file.getAbsoluteFile()), e);
         }
+        options.getListener().onPhaseDone(ScanListener.Phase.SCAN, System.nanoTime() - start);
 
-        if (file.isFile()) {
-            throw new NotDirectoryException(file.getAbsolutePath());
+        return elems;
+    }
+
+    /**
+     * Scan several paths at once, and return the elements of each like {@link #scan(Path)} would, walking every
+     * directory only once however many of the paths contain it.
+     * <p>
+     * Paths nested within other paths, such as {@code /data} and {@code /data/projects}, are not walked again: the
+     * totals of their entries are taken from the walk of the enclosing path as they are summed up. The whole batch is
+     * walked sequentially, regardless of the {@link ScanEngine} of this scanner.
+     *
+     * @param paths the paths to scan for elements. These must point to directories
+     * @return the top-level {@link DirectoryElement}s of each of the given paths, sorted in descending order of their
+     * size, keyed by the given paths in the order in which they were given.
+     * @throws NoSuchFileException   if any of the given paths is not valid
+     * @throws NotDirectoryException if any of the given paths points to a file as opposed to a directory.
+     */
+    public Map<Path, List<DirectoryElement>> scanBatch(@Nonnull final Collection<Path> paths) throws NoSuchFileException, NotDirectoryException {
+
+        final Map<Path, Path> roots = new LinkedHashMap<>();
+        for (final Path path : paths) {
+            checkIsDirectory(path);
+            roots.put(path, path.toAbsolutePath().normalize());
+        }
+
+        final long start = System.nanoTime();
+        final Map<Path, List<DirectoryElement>> scanned;
+        try {
+            scanned = BatchWalk.scan(new HashSet<>(roots.values()), options);
+        } catch (final IOException e) {
+            throw new IllegalStateException(String.format("Unexpected exception occurred when listing contents of files %s", roots.values()), e);
+        }
+        options.getListener().onPhaseDone(ScanListener.Phase.SCAN, System.nanoTime() - start);
+
+        final long sortStart = System.nanoTime();
+        final Map<Path, List<DirectoryElement>> elems = new LinkedHashMap<>();
+        scanned.values().forEach(list -> list.sort(fileSizeComparator.reversed()));
+        roots.forEach((path, root) -> elems.put(path, scanned.get(root)));
+        options.getListener().onPhaseDone(ScanListener.Phase.SORT, System.nanoTime() - sortStart);
+
+        return elems;
+    }
+
+    /**
+     * Scan the given path and return the totals of all its elements down to the given depth, like {@code du -d}, out of a
+     * single walk of the tree, rather than a scan of each directory in turn.
+     * <p>
+     * A depth of 1 reports the top-level elements, as {@link #scan(Path)} does, a depth of 2 reports their contents too,
+     * and so on. The elements below the given depth are still summed up into the totals of their ancestors, but are
+     * not held on to. The whole tree is walked sequentially, regardless of the {@link ScanEngine} of this scanner.
+     *
+     * @param path     the path to scan. This must point to a directory
+     * @param maxDepth the depth, below the given path, down to which elements are reported
+     * @return the given path, with the elements within it down to the given depth, each level sorted in descending
+     * order of size.
+     * @throws NoSuchFileException      if the given path is not valid
+     * @throws NotDirectoryException    if the given path points to a file as opposed to a directory.
+     * @throws IllegalArgumentException if {@code maxDepth} is smaller than 1
+     */
+    public ElementNode scanDepth(@Nonnull final Path path, final int maxDepth) throws NoSuchFileException, NotDirectoryException {
+
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException(String.format("Depth must be at least 1 but was %d.", maxDepth));
         }
 
+        final File file = checkIsDirectory(path);
+
+        final long start = System.nanoTime();
+        final ElementNode root;
         try {
-            return Files.list(path).map(this::toDirectoryElement).sorted(fileSizeComparator.reversed()).collect(Collectors.toList());
+            root = DepthWalk.walk(path, new ScanContext(path, options), maxDepth);
         } catch (final IOException e) {
             throw new IllegalStateException(String.format("Unexpected exception occurred when listing contents of file %s", file.getAbsoluteFile()), e);
         }
+        options.getListener().onPhaseDone(ScanListener.Phase.SCAN, System.nanoTime() - start);
 
+        return root;
     }
 
-    private DirectoryElement toDirectoryElement(@Nonnull final Path path) {
+    /**
+     * Find the files within the given path with the exact same contents, hashing them on as many threads as there are
+     * available processors.
+     *
+     * @see #findDuplicates(Path, int)
+     */
+    public List<DuplicateGroup> findDuplicates(@Nonnull final Path path) throws NoSuchFileException, NotDirectoryException {
+        return findDuplicates(path, Runtime.getRuntime().availableProcessors());
+    }
 
-        final File file = path.toFile();
+    /**
+     * Find the files within the given path with the exact same contents.
+     * <p>
+     * Files are first grouped by size, so only files sharing their size with another are read at all, and only their
+     * first and last 64 KB at that, before the files still alike are hashed in full. See {@link DuplicateFinder} for
+     * the details. Empty files, and further hard links to the same file, are not reported. The tree is walked
+     * sequentially, regardless of the {@link ScanEngine} of this scanner, and files are hashed on a pool of the given
+     * number of threads, which bounds how many files are read at once.
+     *
+     * @param path        the path to scan. This must point to a directory
+     * @param parallelism the number of files hashed at once
+     * @return the groups of files with the same contents, in descending order of the bytes they waste.
+     * @throws NoSuchFileException      if the given path is not valid
+     * @throws NotDirectoryException    if the given path points to a file as opposed to a directory.
+     * @throws IllegalArgumentException if {@code parallelism} is smaller than 1
+     */
+    public List<DuplicateGroup> findDuplicates(@Nonnull final Path path, final int parallelism) throws NoSuchFileException, NotDirectoryException {
 
-        return DirectoryElement.builder()
-                .absPath(file.getAbsolutePath())
-                .type(file.isFile() ? DirectoryElement.Type.FILE : DirectoryElement.Type.DIR)
-                .size(Size.builder()
-                        .value(FileSizeUnit.BYTES.convert(getSizeInBytes(path), FileSizeUnit.KB))
-                        .unit(FileSizeUnit.KB)
-                        .build())
-                .build();
+        final DuplicateFinder finder = new DuplicateFinder(options, parallelism);
+        final File file = checkIsDirectory(path);
+
+        final long start = System.nanoTime();
+        final List<DuplicateGroup> duplicates;
+        try {
+            duplicates = finder.find(path);
+        } catch (final IOException e) {
+            throw new IllegalStateException(String.format("Unexpected exception occurred when listing contents of file %s", file.getAbsoluteFile()), e);
+        }
+        options.getListener().onPhaseDone(ScanListener.Phase.SCAN, System.nanoTime() - start);
+
+        return duplicates;
     }
 
-    private long getSizeInBytes(@Nonnull final Path path) {
+    /**
+     * Scan the given path and return its full hierarchy, including the sizes of every nested directory and file.
+     * <p>
+     * The whole tree is walked sequentially, regardless of the {@link ScanEngine} of this scanner, but abides by its
+     * {@link ScanOptions} as the engines do: excluded entries are left out of the tree, the contents of skipped
+     * directories too, and files are sized according to the {@link SizeMode} of the scan.
+     *
+     * @param path the path to scan. This must point to a directory
+     * @return the {@link FileTree} rooted at the given path.
+     * @throws NoSuchFileException   if the given path is not valid
+     * @throws NotDirectoryException if the given path points to a file as opposed to a directory.
+     */
+    public FileTree scanTree(@Nonnull final Path path) throws NoSuchFileException, NotDirectoryException {
 
-        final File file = path.toFile();
+        final File file = checkIsDirectory(path);
 
-        final long size;
+        final long start = System.nanoTime();
+        final FileTreeBuilder builder = new FileTreeBuilder();
         try {
-            size = Files.size(path);
+            FileTreeWalk.walk(path, new ScanContext(path, options), builder);
         } catch (final IOException e) {
-            throw new IllegalStateException("Unexpected exception occurred when reading file size", e);
+            throw new IllegalStateException(String.format("Unexpected exception occurred when listing contents of file %s", file.getAbsoluteFile()), e);
         }
+        options.getListener().onPhaseDone(ScanListener.Phase.SCAN, System.nanoTime() - start);
 
-        if (file.isFile()) {
-            return size;
+        return builder.build();
+    }
+
+    /**
+     * Scan the given path and write its full hierarchy to the given tree file, returning a {@link MappedFileTree} view
+     * of it. Unlike {@link #scanTree(Path)}, the tree is written as the walk goes rather than held on the heap, so trees
+     * of any size are scanned and queried in memory proportional to their depth. The walk abides by the
+     * {@link ScanOptions} of this scanner just as {@link #scanTree(Path)} does.
+     *
+     * @param path the path to scan. This must point to a directory
+     * @param file the tree file to write, which is replaced once the scan is done
+     * @throws NoSuchFileException   if the given path does not exist
+     * @throws NotDirectoryException if the given path is not a directory
+     * @throws IOException           if an entry could not be read, under {@link ErrorPolicy#FAIL_FAST}, or the tree file
+     *                               could not be written
+     */
+    public MappedFileTree scanTree(@Nonnull final Path path, @Nonnull final Path file) throws IOException {
+
+        checkIsDirectory(path);
+
+        final long start = System.nanoTime();
+        try (final FileTreeWriter writer = new FileTreeWriter(file)) {
+            FileTreeWalk.walk(path, new ScanContext(path, options), writer);
+            final MappedFileTree tree = writer.finish();
+            options.getListener().onPhaseDone(ScanListener.Phase.SCAN, System.nanoTime() - start);
+            return tree;
         }
+    }
+
+    /**
+     * Scan the given path and save a snapshot of its whole tree, holding the size of every file and the total of every
+     * directory, to the given file. The snapshot is written while the tree is walked, so trees of any size are scanned
+     * in memory proportional to their depth, and two snapshots are compared by
+     * {@link com.dirscanner.snapshot.SnapshotDiff}.
+     * <p>
+     * The snapshot file is only replaced once the scan is done.
+     *
+     * @param path     the path to scan. This must point to a directory
+     * @param snapshot the file to save the snapshot to
+     * @throws NoSuchFileException   if the given path does not exist
+     * @throws NotDirectoryException if the given path is not a directory
+     * @throws IOException           if an entry could not be read, under {@link ErrorPolicy#FAIL_FAST}, or the snapshot
+     *                               could not be written
+     */
+    public void scanSnapshot(@Nonnull final Path path, @Nonnull final Path snapshot) throws IOException {
+
+        checkIsDirectory(path);
 
-        final Stream<Path> nestedPaths;
+        final long start = System.nanoTime();
+        final SnapshotWriter writer = SnapshotWriter.create(snapshot, path.toAbsolutePath().toString());
         try {
-            nestedPaths = Files.list(path);
+            SnapshotWalk.write(path, new ScanContext(path, options), writer);
+        } catch (final IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        writer.close();
+        options.getListener().onPhaseDone(ScanListener.Phase.SCAN, System.nanoTime() - start);
+    }
+
+    private List<DirectoryElement> scan(final Path path, final ScanOptions options) throws NoSuchFileException, NotDirectoryException {
+
+        final List<DirectoryElement> elems = new ArrayList<>();
+        scan(path, options, elems::add);
+
+        final long start = System.nanoTime();
+        elems.sort(fileSizeComparator.reversed());
+        options.getListener().onPhaseDone(ScanListener.Phase.SORT, System.nanoTime() - start);
+
+        return elems;
+    }
+
+    private void scan(final Path path, final ScanOptions options, final Consumer<DirectoryElement> consumer) throws NoSuchFileException, NotDirectoryException {
+
+        final File file = checkIsDirectory(path);
+
+        final long start = System.nanoTime();
+        try {
+            engine.scan(path, options, consumer);
         } catch (final IOException e) {
-            throw new IllegalStateException("Unexpected exception occurred when listing files in path.", e);
+            throw new IllegalStateException(String.format("Unexpected exception occurred when listing contents of file %s", file.getAbsoluteFile()), e);
+        }
+        options.getListener().onPhaseDone(ScanListener.Phase.SCAN, System.nanoTime() - start);
+    }
+
+    private static File checkIsDirectory(final Path path) throws NoSuchFileException, NotDirectoryException {
+
+        final File file = path.toFile();
+
+        if (!file.exists()) {
+            throw new NoSuchFileException(file.getAbsolutePath());
+        }
+
+        if (file.isFile()) {
+            throw new NotDirectoryException(file.getAbsolutePath());
         }
 
-        return nestedPaths.mapToLong(this::getSizeInBytes).sum(); // Size of directory is not added, only its contents'
+        return file;
+    }
+
+    /**
+     * Records every skipped entry, and how much the apparent sizes of the files exceed the sizes they were counted with,
+     * besides passing every event on to the listener of the scan.
+     */
+    private static final class ErrorCollectingListener implements ScanListener {
+
+        private final ScanListener delegate;
+
+        private final List<ScanError> errors;
+
+        private final LongAdder uncountedBytes;
+
+        ErrorCollectingListener(final ScanListener delegate, final List<ScanError> errors, final LongAdder uncountedBytes) {
+            this.delegate = delegate;
+            this.errors = errors;
+            this.uncountedBytes = uncountedBytes;
+        }
+
+        @Override
+        public void onDirectoryListed(@Nonnull final Path dir, final long nanos) {
+            delegate.onDirectoryListed(dir, nanos);
+        }
+
+        @Override
+        public void onFileStatted(@Nonnull final Path file, final long sizeInBytes, final long nanos) {
+            delegate.onFileStatted(file, sizeInBytes, nanos);
+        }
+
+        @Override
+        public void onFileCounted(@Nonnull final Path file, final long apparentBytes, final long sizeInBytes) {
+            if (apparentBytes != sizeInBytes) {
+                uncountedBytes.add(apparentBytes - sizeInBytes);
+            }
+            delegate.onFileCounted(file, apparentBytes, sizeInBytes);
+        }
+
+        @Override
+        public void onErrorSkipped(@Nonnull final Path path, @Nonnull final IOException e) {
+            errors.add(ScanError.builder().path(path).cause(e).build());
+            delegate.onErrorSkipped(path, e);
+        }
+
+        @Override
+        public void onDeviceDone(@Nonnull final DeviceThroughput throughput) {
+            delegate.onDeviceDone(throughput);
+        }
+
+        @Override
+        public void onPhaseDone(@Nonnull final Phase phase, final long nanos) {
+            delegate.onPhaseDone(phase, nanos);
+        }
     }
 }
@@ -0,0 +1,25 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.DirectoryElement.Size;
+import com.dirscanner.elem.FileSizeUnit;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+
+/**
+ * Factory methods for the {@link DirectoryElement}s reported by the {@link ScanEngine}s.
+ */
+final class DirectoryElements {
+
+    private DirectoryElements() {
+    }
+
+    static DirectoryElement create(@Nonnull final Path path, @Nonnull final DirectoryElement.Type type, final long sizeInBytes) {
+        return DirectoryElement.builder()
+                .absPath(path.toAbsolutePath().toString())
+                .type(type)
+                .size(Size.of(sizeInBytes, FileSizeUnit.KB))
+                .build();
+    }
+}
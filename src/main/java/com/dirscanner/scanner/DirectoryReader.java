@@ -0,0 +1,136 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.metrics.ScanListener;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+
+/**
+ * Reads the entries of a single directory, together with their attributes, on behalf of the {@link ScanEngine}s which
+ * schedule directories themselves rather than walk the tree through {@link Files#walkFileTree(Path, java.nio.file.FileVisitor)}.
+ * <p>
+ * The directory stream is always closed before returning, and the {@link ScanListener} of the scan is told about the
+ * listing and about every file stat-ed. Every file is also counted into the {@link Aggregation} of the scan, if any.
+ * Entries which cannot be read are dealt with according to the {@link ErrorPolicy} of the scan.
+ */
+final class DirectoryReader {
+
+    /**
+     * The consumer of the entries read from a directory.
+     */
+    interface EntryHandler {
+
+        /**
+         * @param entry the entry read
+         * @param attrs the attributes of the entry
+         * @param size  the size the entry adds to its ancestors, as worked out by the {@link SizeAccounting} of the
+         *              scan. This is 0 for directories.
+         */
+        void accept(@Nonnull Path entry, @Nonnull BasicFileAttributes attrs, long size) throws IOException;
+    }
+
+    private DirectoryReader() {
+    }
+
+    /**
+     * Read the entries of the given directory and pass each on to the handler, following symbolic links only if the
+     * scan does.
+     * <p>
+     * Entries matching an exclude pattern of the scan are dropped before being stat-ed, and sub-directories which the
+     * {@link ScanContext} does not {@link ScanContext#enter(Path, BasicFileAttributes) enter} are dropped too, so every
+     * directory passed on to the handler is to be descended into.
+     * <p>
+     * Where the directory stream is a {@link SecureDirectoryStream}, as it is on Linux, and the scan allows it, entries
+     * are stat-ed relative to the open directory rather than by their full path. Elsewhere, they fall back to being
+     * stat-ed by path.
+     *
+     * @return whether every entry of the directory was read, as opposed to some having been skipped
+     * @throws IOException if the directory could not be listed, or the attributes of an entry could not be read, under
+     *                     {@link ErrorPolicy#FAIL_FAST}
+     */
+    static boolean read(@Nonnull final Path dir, @Nonnull final ScanContext context, @Nonnull final EntryHandler handler) throws IOException {
+
+        final ScanOptions options = context.getOptions();
+        final ScanListener listener = options.getListener();
+        final boolean timed = listener != ScanListener.NONE;
+
+        long listNanos = 0;
+        long start = timed ? System.nanoTime() : 0;
+        boolean complete = true;
+
+        final DirectoryStream<Path> stream = ErrorHandling.attempt(dir, options, () -> Files.newDirectoryStream(dir));
+        if (stream == null) {
+            return false;
+        }
+
+        final SecureDirectoryStream<Path> secure = options.isDirectoryRelativeStat() && stream instanceof SecureDirectoryStream
+                ? (SecureDirectoryStream<Path>) stream
+                : null;
+
+        final Aggregation aggregation = options.getAggregation();
+        final Aggregation.Accumulator accumulator = aggregation != null ? aggregation.acquire() : null;
+
+        try (final DirectoryStream<Path> entries = stream) {
+            final Iterator<Path> iterator = entries.iterator();
+            while (true) {
+                final Path entry;
+                try {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    entry = iterator.next();
+                } catch (final DirectoryIteratorException e) {
+                    ErrorHandling.skip(dir, e.getCause(), options);
+                    complete = false;
+                    break;
+                }
+
+                final long statStart = timed ? System.nanoTime() : 0;
+                listNanos += statStart - start;
+
+                if (!context.isExcluded(entry)) {
+                    final BasicFileAttributes attrs = ErrorHandling.attempt(entry, options, () -> context.readAttributes(entry, secure));
+                    if (attrs == null) {
+                        complete = false;
+                    } else if (!attrs.isDirectory()) {
+                        final long size = context.getAccounting().sizeOf(entry, attrs);
+                        if (timed) {
+                            listener.onFileStatted(entry, size, System.nanoTime() - statStart);
+                            listener.onFileCounted(entry, attrs.size(), size);
+                        }
+                        if (accumulator != null) {
+                            accumulator.add(entry, attrs, size);
+                        }
+                        handler.accept(entry, attrs, size);
+                    } else {
+                        final Boolean enter = ErrorHandling.attempt(entry, options, () -> context.enter(entry, attrs));
+                        if (enter == null) {
+                            complete = false;
+                        } else if (enter) {
+                            handler.accept(entry, attrs, 0);
+                        }
+                    }
+                }
+
+                start = timed ? System.nanoTime() : 0;
+            }
+            listNanos += (timed ? System.nanoTime() : 0) - start;
+        } finally {
+            if (accumulator != null) {
+                aggregation.release(accumulator);
+            }
+        }
+
+        if (timed) {
+            listener.onDirectoryListed(dir, listNanos);
+        }
+        return complete;
+    }
+}
@@ -0,0 +1,414 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ScanEngine} which spreads a scan over several {@link ScanWorker} processes, for trees too large to be scanned
+ * by a single JVM in time.
+ * <p>
+ * The engine acts as the coordinator of the scan. It lists the scanned directory itself, and hands each top-level
+ * sub-directory to the workers as a unit of work, over a socket on the loopback address. Units are handed out one at a
+ * time, to whichever worker is idle. Once no unit is left to hand out while a worker is idle, every busy worker is
+ * asked to hand part of its unit back, as further units, so that a few large sub-directories do not leave most workers
+ * idle. The totals of all the units within a top-level sub-directory are added up, and the element is passed to the
+ * sink once the last of them is done.
+ * <p>
+ * Workers are started for every scan, as JVMs of their own, and exit once it is done. The entries skipped by workers are
+ * passed on to the listener of the scan, but their listings and stats are not. Only {@link SizeMode#APPARENT} sizes
+ * are supported, since hard links cannot be told apart across workers, symbolic links are never followed, since cycles
+ * cannot be told apart across workers either, and aggregations are not supported, since they are held in memory. A
+ * scan fails if any worker fails to sum up its unit under {@link ErrorPolicy#FAIL_FAST}, or exits before the scan is
+ * done.
+ * <p>
+ * The sink is only ever invoked by one thread at a time.
+ */
+public class DistributedScanEngine implements ScanEngine {
+
+    private static final long CONNECT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * How long a worker which had nothing to hand back is left alone before being asked again.
+     */
+    private static final long STEAL_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int workers;
+
+    private final WorkerLauncher launcher;
+
+    private final AtomicLong donatedUnits = new AtomicLong();
+
+    /**
+     * @param workers the number of worker processes to spread each scan over
+     * @throws IllegalArgumentException if the given number of workers is smaller than 1
+     */
+    public DistributedScanEngine(final int workers) {
+        this(workers, WorkerLauncher.PROCESSES);
+    }
+
+    DistributedScanEngine(final int workers, @Nonnull final WorkerLauncher launcher) {
+        if (workers < 1) {
+            throw new IllegalArgumentException(String.format("Number of workers must be at least 1 but was %d.", workers));
+        }
+        this.workers = workers;
+        this.launcher = launcher;
+    }
+
+    /**
+     * @return the number of units handed back by workers for others to work on, over all the scans of this engine.
+     */
+    long getDonatedUnits() {
+        return donatedUnits.get();
+    }
+
+    @Override
+    public void scan(@Nonnull final Path dir, @Nonnull final ScanOptions options, @Nonnull final Consumer<DirectoryElement> sink) throws IOException {
+
+        if (options.getSizeMode() != SizeMode.APPARENT) {
+            throw new UnsupportedOperationException(String.format("Size mode %s not supported by a distributed scan.", options.getSizeMode()));
+        }
+        if (options.isFollowLinks()) {
+            throw new UnsupportedOperationException("Following links not supported by a distributed scan.");
+        }
+        if (options.getAggregation() != null) {
+            throw new UnsupportedOperationException("Aggregation not supported by a distributed scan.");
+        }
+
+        final List<Path> subDirectories = new ArrayList<>();
+        DirectoryReader.read(dir.toAbsolutePath(), new ScanContext(dir, options), (entry, attrs, size) -> {
+            if (attrs.isDirectory()) {
+                subDirectories.add(entry);
+            } else {
+                sink.accept(DirectoryElements.create(entry, DirectoryElement.Type.FILE, size));
+            }
+        });
+
+        if (!subDirectories.isEmpty()) {
+            new Coordinator(options, sink).run(subDirectories);
+        }
+    }
+
+    /**
+     * The state of a single scan.
+     */
+    private final class Coordinator {
+
+        private final ScanOptions options;
+
+        private final Consumer<DirectoryElement> sink;
+
+        private final BlockingQueue<Message> messages = new LinkedBlockingQueue<>();
+
+        private final Deque<Unit> pending = new ArrayDeque<>();
+
+        private final Map<Long, Unit> outstanding = new HashMap<>();
+
+        private final List<Connection> connections = new ArrayList<>();
+
+        private long nextId;
+
+        Coordinator(final ScanOptions options, final Consumer<DirectoryElement> sink) {
+            this.options = options;
+            this.sink = sink;
+        }
+
+        void run(final List<Path> subDirectories) throws IOException {
+
+            for (final Path subDirectory : subDirectories) {
+                add(new TopLevel(subDirectory), subDirectory);
+            }
+
+            final List<Closeable> launched = new ArrayList<>();
+            try (final ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+                server.setSoTimeout((int) CONNECT_TIMEOUT_MILLIS);
+                for (int i = 0; i < workers; i++) {
+                    launched.add(launcher.launch(new InetSocketAddress(server.getInetAddress(), server.getLocalPort())));
+                }
+                for (int i = 0; i < workers; i++) {
+                    connections.add(accept(server, i));
+                }
+
+                coordinate();
+            } finally {
+                for (final Connection connection : connections) {
+                    connection.close();
+                }
+                for (final Closeable worker : launched) {
+                    worker.close();
+                }
+            }
+        }
+
+        private Connection accept(final ServerSocket server, final int connected) throws IOException {
+            final Socket socket;
+            try {
+                socket = server.accept();
+            } catch (final SocketTimeoutException e) {
+                throw new IOException(String.format("Only %d of %d workers connected within %d ms.", connected, workers, CONNECT_TIMEOUT_MILLIS), e);
+            }
+            socket.setTcpNoDelay(true);
+
+            final Connection connection = new Connection(socket);
+            WorkerProtocol.writeConfig(connection.out, options);
+            connection.out.flush();
+            connection.reader.start();
+            return connection;
+        }
+
+        private void coordinate() throws IOException {
+
+            while (!outstanding.isEmpty()) {
+                for (final Connection connection : connections) {
+                    if (connection.unit == null && !pending.isEmpty()) {
+                        connection.assign(pending.poll());
+                    }
+                }
+
+                final boolean anyIdle = connections.stream().anyMatch(connection -> connection.unit == null);
+                if (anyIdle && pending.isEmpty()) {
+                    for (final Connection connection : connections) {
+                        if (connection.unit != null && !connection.stealing && System.nanoTime() - connection.stealAfter >= 0) {
+                            connection.send(WorkerProtocol.STEAL);
+                            connection.stealing = true;
+                        }
+                    }
+                }
+
+                final Message message;
+                try {
+                    message = messages.poll(STEAL_BACKOFF_NANOS, TimeUnit.NANOSECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for workers.");
+                }
+                if (message != null) {
+                    handle(message);
+                }
+            }
+        }
+
+        private void handle(final Message message) throws IOException {
+
+            final Connection connection = message.connection;
+            switch (message.code) {
+                case WorkerProtocol.RESULT:
+                    connection.unit = null;
+                    connection.stealing = false;
+                    done(outstanding.remove(message.id), message.total);
+                    break;
+                case WorkerProtocol.DONATE:
+                    connection.stealing = false;
+                    if (message.paths.isEmpty()) {
+                        connection.stealAfter = System.nanoTime() + STEAL_BACKOFF_NANOS;
+                    }
+                    final TopLevel topLevel = outstanding.get(message.id).topLevel;
+                    for (final Path donated : message.paths) {
+                        add(topLevel, donated);
+                    }
+                    donatedUnits.addAndGet(message.paths.size());
+                    break;
+                case WorkerProtocol.SKIPPED:
+                    options.getListener().onErrorSkipped(message.path, new IOException(message.error));
+                    break;
+                case WorkerProtocol.FAILED:
+                    throw new IOException(String.format("Worker failed to scan %s: %s", outstanding.get(message.id).dir, message.error));
+                default:
+                    throw new IOException("Worker exited before the scan was done.", message.failure);
+            }
+        }
+
+        private void add(final TopLevel topLevel, final Path dir) {
+            final Unit unit = new Unit(nextId++, dir, topLevel);
+            topLevel.outstanding++;
+            outstanding.put(unit.id, unit);
+            pending.add(unit);
+        }
+
+        private void done(final Unit unit, final long total) {
+            final TopLevel topLevel = unit.topLevel;
+            topLevel.total += total;
+            if (--topLevel.outstanding == 0) {
+                sink.accept(DirectoryElements.create(topLevel.dir, DirectoryElement.Type.DIR, topLevel.total));
+            }
+        }
+
+        /**
+         * A worker, as seen from the coordinator.
+         */
+        private final class Connection implements Closeable {
+
+            private final Socket socket;
+
+            private final DataOutputStream out;
+
+            private final Thread reader;
+
+            private Unit unit;
+
+            private boolean stealing;
+
+            private long stealAfter = System.nanoTime();
+
+            Connection(final Socket socket) throws IOException {
+                this.socket = socket;
+                this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                this.reader = new Thread(() -> read(in), "dir-scanner-coordinator");
+                this.reader.setDaemon(true);
+            }
+
+            void assign(final Unit assigned) throws IOException {
+                unit = assigned;
+                stealAfter = System.nanoTime();
+                out.writeByte(WorkerProtocol.UNIT);
+                out.writeLong(assigned.id);
+                WorkerProtocol.writeString(out, assigned.dir.toString());
+                out.flush();
+            }
+
+            void send(final byte code) throws IOException {
+                out.writeByte(code);
+                out.flush();
+            }
+
+            /**
+             * Pass every message of the worker on to the coordinator, up to the end of the connection.
+             */
+            private void read(final DataInputStream in) {
+                try {
+                    while (true) {
+                        final byte code = in.readByte();
+                        final Message message = new Message(this, code);
+                        if (code == WorkerProtocol.SKIPPED) {
+                            message.path = Paths.get(WorkerProtocol.readString(in));
+                            message.error = WorkerProtocol.readString(in);
+                            messages.add(message);
+                            continue;
+                        }
+
+                        message.id = in.readLong();
+                        switch (code) {
+                            case WorkerProtocol.RESULT:
+                                message.total = in.readLong();
+                                break;
+                            case WorkerProtocol.DONATE:
+                                final int count = in.readInt();
+                                for (int i = 0; i < count; i++) {
+                                    message.paths.add(Paths.get(WorkerProtocol.readString(in)));
+                                }
+                                break;
+                            case WorkerProtocol.FAILED:
+                                message.error = WorkerProtocol.readString(in);
+                                break;
+                            default:
+                                throw new IOException(String.format("Unexpected message %d from worker.", code));
+                        }
+                        messages.add(message);
+                    }
+                } catch (final IOException e) {
+                    final Message lost = new Message(this, (byte) 0);
+                    lost.failure = e;
+                    messages.add(lost);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    send(WorkerProtocol.SHUTDOWN);
+                } catch (final IOException e) {
+                    // The worker is already gone.
+                } finally {
+                    socket.close();
+                }
+            }
+        }
+
+        /**
+         * A message from a worker, or the end of its connection.
+         */
+        private final class Message {
+
+            private final Connection connection;
+
+            private final byte code;
+
+            private long id;
+
+            private long total;
+
+            private final List<Path> paths = new ArrayList<>();
+
+            private Path path;
+
+            private String error;
+
+            private IOException failure;
+
+            Message(final Connection connection, final byte code) {
+                this.connection = connection;
+                this.code = code;
+            }
+        }
+    }
+
+    /**
+     * A top-level sub-directory of the scan, whose total is being summed up by one or more units.
+     */
+    private static final class TopLevel {
+
+        private final Path dir;
+
+        private long total;
+
+        private int outstanding;
+
+        TopLevel(final Path dir) {
+            this.dir = dir;
+        }
+    }
+
+    /**
+     * A directory whose contents are summed up by a single worker, except for those it hands back.
+     */
+    private static final class Unit {
+
+        private final long id;
+
+        private final Path dir;
+
+        private final TopLevel topLevel;
+
+        Unit(final long id, final Path dir, final TopLevel topLevel) {
+            this.id = id;
+            this.dir = dir;
+            this.topLevel = topLevel;
+        }
+    }
+}
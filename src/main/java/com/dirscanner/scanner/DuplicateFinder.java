@@ -0,0 +1,304 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the files of a tree with the exact same contents, on behalf of
+ * {@link DirectoryElementScanner#findDuplicates(Path, int)}, reading as little of them as possible.
+ * <p>
+ * Files are narrowed down in stages, each of which only reads the files left in a group by the previous one:
+ * <ol>
+ * <li>The tree is walked once, and files are grouped by their exact size, which only takes their attributes. Most
+ * files have a size of their own, and are dropped straight away. Empty files are left out, since they waste nothing,
+ * and so are further hard links to a file of the same size already found, since they share its contents rather than
+ * duplicate them. The size each file is grouped by is the one it was walked with, and is carried along with the group
+ * through the later stages.</li>
+ * <li>Files of the same size are grouped by a hash of their first and last {@link #EDGE_BYTES} bytes, which tells
+ * apart most files of the same size, such as those with different headers or trailers, without reading them in full.
+ * For files no larger than both edges together, this hash is of the whole file, so the group is final.</li>
+ * <li>Larger files still of the same group are grouped by a hash of their whole contents, read through memory-mapped
+ * windows rather than copied through buffers.</li>
+ * </ol>
+ * The files of each stage are hashed in parallel, on a fixed number of threads, which bounds the number of files being
+ * read at once. Files are hashed with SHA-256, so files in the same group are taken to have the same contents.
+ */
+final class DuplicateFinder {
+
+    /**
+     * The number of bytes hashed at either end of a file before it is hashed in full.
+     */
+    static final int EDGE_BYTES = 64 * 1024;
+
+    /**
+     * The number of bytes mapped into memory at once when hashing a whole file.
+     */
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private final ScanOptions options;
+
+    private final int parallelism;
+
+    /**
+     * @throws IllegalArgumentException if the given parallelism is smaller than 1
+     */
+    DuplicateFinder(@Nonnull final ScanOptions options, final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism must be at least 1 but was %d.", parallelism));
+        }
+        this.options = options;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the groups of files with the same contents, in descending order of the bytes they waste.
+     * @throws IOException if an entry could not be read, under {@link ErrorPolicy#FAIL_FAST}
+     */
+    List<DuplicateGroup> find(@Nonnull final Path root) throws IOException {
+
+        final List<SameSize> bySize = groupBySize(root);
+
+        final List<DuplicateGroup> duplicates = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            final List<SameSize> toHashInFull = new ArrayList<>();
+            for (final SameSize group : split(bySize, this::hashEdges, executor)) {
+                if (group.size <= 2L * EDGE_BYTES) {
+                    duplicates.add(toGroup(group));
+                } else {
+                    toHashInFull.add(group);
+                }
+            }
+
+            for (final SameSize group : split(toHashInFull, this::hashAll, executor)) {
+                duplicates.add(toGroup(group));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        duplicates.sort(Comparator.comparingLong(DuplicateGroup::getWastedBytes).reversed()
+                .thenComparing(group -> group.getPaths().get(0)));
+        return duplicates;
+    }
+
+    /**
+     * Walk the tree on an explicit stack of the directories still to be read, and group its files by size.
+     *
+     * @return the groups of more than one file of the same size.
+     */
+    private List<SameSize> groupBySize(final Path root) throws IOException {
+
+        final ScanContext context = new ScanContext(root, options);
+        final Map<Long, SameSize> bySize = new HashMap<>();
+
+        final Deque<Path> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            DirectoryReader.read(stack.pop(), context, (entry, attrs, size) -> {
+                if (attrs.isDirectory()) {
+                    stack.push(entry);
+                    return;
+                }
+                if (!attrs.isRegularFile() || attrs.size() == 0) {
+                    return;
+                }
+                bySize.computeIfAbsent(attrs.size(), SameSize::new).add(entry, attrs.fileKey());
+            });
+        }
+
+        return bySize.values().stream()
+                .filter(group -> group.paths.size() > 1)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Hash every file of the given groups in parallel, and split each group by hash.
+     *
+     * @return the groups of more than one file with the same hash.
+     */
+    private List<SameSize> split(final List<SameSize> groups, final Hash hash, final ExecutorService executor) throws IOException {
+
+        final List<List<Future<ByteBuffer>>> hashes = new ArrayList<>(groups.size());
+        for (final SameSize group : groups) {
+            final List<Future<ByteBuffer>> groupHashes = new ArrayList<>(group.paths.size());
+            for (final Path file : group.paths) {
+                final Callable<ByteBuffer> task = () -> ErrorHandling.attempt(file, options, () -> hash.of(file));
+                groupHashes.add(executor.submit(task));
+            }
+            hashes.add(groupHashes);
+        }
+
+        final List<SameSize> split = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++) {
+            final SameSize group = groups.get(i);
+            final Map<ByteBuffer, SameSize> byHash = new LinkedHashMap<>();
+            for (int j = 0; j < group.paths.size(); j++) {
+                final ByteBuffer fileHash = get(hashes.get(i).get(j));
+                if (fileHash != null) {
+                    byHash.computeIfAbsent(fileHash, key -> new SameSize(group.size)).paths.add(group.paths.get(j));
+                }
+            }
+            byHash.values().stream().filter(sameHash -> sameHash.paths.size() > 1).forEach(split::add);
+        }
+        return split;
+    }
+
+    private static ByteBuffer get(final Future<ByteBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while hashing files.");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Unexpected exception occurred when hashing a file.", e.getCause());
+        }
+    }
+
+    /**
+     * Hash the first and last {@link #EDGE_BYTES} bytes of the given file, or the whole of it if no larger than both.
+     */
+    private ByteBuffer hashEdges(final Path file) throws IOException {
+
+        final MessageDigest digest = newDigest();
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, 2L * EDGE_BYTES));
+
+            readFully(channel, buffer, 0, (int) Math.min(size, EDGE_BYTES));
+            if (size > EDGE_BYTES) {
+                final long tail = Math.max(EDGE_BYTES, size - EDGE_BYTES);
+                readFully(channel, buffer, tail, (int) (size - tail));
+            }
+
+            buffer.flip();
+            digest.update(buffer);
+        }
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    /**
+     * Hash the whole of the given file, through windows mapped into memory one at a time.
+     */
+    private ByteBuffer hashAll(final Path file) throws IOException {
+
+        final MessageDigest digest = newDigest();
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long position = 0; position < size; position += WINDOW_BYTES) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position)));
+            }
+        }
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position, final int length) throws IOException {
+        final int end = buffer.position() + length;
+        long read = position;
+        while (buffer.position() < end) {
+            buffer.limit(end);
+            final int n = channel.read(buffer, read);
+            if (n < 0) {
+                // The file shrank since it was stat-ed, which the hash reflects.
+                break;
+            }
+            read += n;
+        }
+        buffer.limit(buffer.capacity());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(String.format("%s is not supported by the running JVM.", ALGORITHM), e);
+        }
+    }
+
+    private static DuplicateGroup toGroup(final SameSize group) {
+        final List<Path> sorted = new ArrayList<>(group.paths);
+        sorted.sort(Comparator.naturalOrder());
+        return DuplicateGroup.builder()
+                .sizeInBytes(group.size)
+                .paths(sorted)
+                .build();
+    }
+
+    /**
+     * Files of the same size, as walked, which may have the same contents.
+     * <p>
+     * The file keys of its files are only kept once a second file of the size is found, so that hard links are told
+     * apart within a group without keeping a key for every file of the tree.
+     */
+    private static final class SameSize {
+
+        private final long size;
+
+        private final List<Path> paths = new ArrayList<>(1);
+
+        private Object firstKey;
+
+        private Set<Object> fileKeys;
+
+        private SameSize(final long size) {
+            this.size = size;
+        }
+
+        /**
+         * Add the given file, unless it is a hard link to a file already added.
+         */
+        private void add(final Path file, final Object fileKey) {
+            if (paths.isEmpty()) {
+                firstKey = fileKey;
+            } else if (fileKey != null) {
+                if (fileKeys == null) {
+                    fileKeys = new HashSet<>();
+                    if (firstKey != null) {
+                        fileKeys.add(firstKey);
+                    }
+                    firstKey = null;
+                }
+                if (!fileKeys.add(fileKey)) {
+                    return;
+                }
+            }
+            paths.add(file);
+        }
+    }
+
+    /**
+     * A hash of (part of) the contents of a file.
+     */
+    @FunctionalInterface
+    private interface Hash {
+        ByteBuffer of(Path file) throws IOException;
+    }
+}
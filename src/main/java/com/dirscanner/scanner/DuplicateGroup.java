@@ -0,0 +1,40 @@
+package com.dirscanner.scanner;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A group of files of a scan with the exact same contents, as found by
+ * {@link DirectoryElementScanner#findDuplicates(Path, int)}.
+ */
+@Builder
+public class DuplicateGroup {
+
+    /**
+     * The size of each of the files, in bytes.
+     */
+    @Getter
+    private final long sizeInBytes;
+
+    /**
+     * The paths of the files, in ascending order.
+     */
+    @Getter
+    private final List<Path> paths;
+
+    /**
+     * @return the number of bytes taken up by all but one of the files, which would be reclaimed by keeping a single
+     * copy.
+     */
+    public long getWastedBytes() {
+        return sizeInBytes * (paths.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d bytes wasted by %d copies of %d bytes: %s", getWastedBytes(), paths.size(), sizeInBytes, paths);
+    }
+}
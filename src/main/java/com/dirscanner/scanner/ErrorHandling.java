@@ -0,0 +1,83 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Applies the {@link ErrorPolicy} of a scan to the reading of an entry.
+ */
+final class ErrorHandling {
+
+    /**
+     * A read of an entry of the scanned tree.
+     */
+    interface Read<T> {
+
+        T get() throws IOException;
+    }
+
+    private ErrorHandling() {
+    }
+
+    /**
+     * Read the given entry according to the {@link ErrorPolicy} of the scan.
+     *
+     * @return the result of the read, or {@code null} if the entry could not be read and was skipped
+     * @throws IOException if the entry could not be read and the policy is {@link ErrorPolicy#FAIL_FAST}
+     */
+    static <T> T attempt(@Nonnull final Path path, @Nonnull final ScanOptions options, @Nonnull final Read<T> read) throws IOException {
+
+        int retries = 0;
+        while (true) {
+            try {
+                return read.get();
+            } catch (final IOException e) {
+                if (options.getErrorPolicy() == ErrorPolicy.FAIL_FAST) {
+                    throw e;
+                }
+
+                if (options.getErrorPolicy() == ErrorPolicy.RETRY && retries < options.getMaxRetries() && isTransient(e)) {
+                    backOff(path, options.getRetryBackoffMillis() << retries++);
+                    continue;
+                }
+
+                skip(path, e, options);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Skip an entry which could not be read, unless the policy is {@link ErrorPolicy#FAIL_FAST}.
+     *
+     * @throws IOException the given exception, if the policy is {@link ErrorPolicy#FAIL_FAST}
+     */
+    static void skip(@Nonnull final Path path, @Nonnull final IOException e, @Nonnull final ScanOptions options) throws IOException {
+
+        if (options.getErrorPolicy() == ErrorPolicy.FAIL_FAST) {
+            throw e;
+        }
+
+        options.getListener().onErrorSkipped(path, e);
+    }
+
+    /**
+     * @return whether the given failure may go away if the read is retried.
+     */
+    static boolean isTransient(@Nonnull final IOException e) {
+        return !(e instanceof NoSuchFileException) && !(e instanceof AccessDeniedException);
+    }
+
+    private static void backOff(final Path path, final long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format("Interrupted while retrying to read %s", path));
+        }
+    }
+}
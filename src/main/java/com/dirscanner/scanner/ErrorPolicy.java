@@ -0,0 +1,25 @@
+package com.dirscanner.scanner;
+
+/**
+ * What a {@link ScanEngine} does when an entry of the scanned tree cannot be read, such as a directory which may not
+ * be listed or a file which is deleted while being scanned.
+ */
+public enum ErrorPolicy {
+
+    /**
+     * Abort the whole scan.
+     */
+    FAIL_FAST,
+
+    /**
+     * Leave the entry out of the scan, and report it to the {@link com.dirscanner.metrics.ScanListener}. The sizes of
+     * its ancestors are made up of whatever else could be read.
+     */
+    SKIP,
+
+    /**
+     * Retry reading the entry, waiting twice as long before each attempt, and {@link #SKIP} it if it still cannot be
+     * read. Entries which no longer exist, or which may not be accessed, are skipped straight away.
+     */
+    RETRY
+}
@@ -0,0 +1,298 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElemSizeComparator;
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.EstimatedElement;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Estimates the sizes of the top-level elements of a directory on behalf of
+ * {@link DirectoryElementScanner#estimate(Path, long, Consumer)}, by sampling the entries of wide directories rather
+ * than reading all of them.
+ * <p>
+ * The scanned directory itself is always read in full, so every top-level element is reported. Below it, a directory
+ * with no more entries than the sample size of the pass is read in full, whereas only a simple random sample of the
+ * entries of a wider one is stat-ed and descended into. Every directory is still listed in full, to count its entries,
+ * but listing is far cheaper than stat-ing and descending. The total of a sampled directory is extrapolated from its
+ * sample, two-stage: with {@code N} entries, of which {@code n} were sampled, summing up to {@code y} with a sample
+ * variance of {@code s^2}, and whose own estimates have variances summing up to {@code v}, the total is estimated as
+ * {@code N/n*y} with a variance of {@code N^2*(1-n/N)*s^2/n + N/n*v}. This estimate is unbiased, and the bounds reported
+ * are those of its 95% confidence interval.
+ * <p>
+ * Estimates are refined over passes, each with twice the sample size of the previous one, until either a pass needs
+ * no sampling at all, and so is exact, or the time budget runs out. A pass still running when the budget runs out is
+ * abandoned, except for the first one, which is always completed.
+ * <p>
+ * Under {@link SizeMode#DISK_USAGE}, a file hard-linked into several sampled directories is only counted the first
+ * time, as in a full scan, which biases the estimates of the others slightly downwards.
+ */
+final class Estimator {
+
+    /**
+     * The sample size of the first pass.
+     */
+    static final int INITIAL_SAMPLE_SIZE = 32;
+
+    /**
+     * The quantile of the standard normal distribution for a two-sided 95% confidence interval.
+     */
+    private static final double Z_95 = 1.96;
+
+    private final DirectoryElemSizeComparator fileSizeComparator = new DirectoryElemSizeComparator();
+
+    private final ScanOptions options;
+
+    private final Random random;
+
+    Estimator(@Nonnull final ScanOptions options, @Nonnull final Random random) {
+        this.options = options;
+        this.random = random;
+    }
+
+    /**
+     * @param root        the directory to estimate the top-level elements of
+     * @param budgetNanos the time after which no further pass is started, and any pass still running is abandoned
+     * @param refinements the consumer of the elements estimated by every pass
+     * @return the elements estimated by the last completed pass, sorted in descending order of their estimated size
+     * @throws IOException if an entry could not be read, under {@link ErrorPolicy#FAIL_FAST}
+     */
+    List<EstimatedElement> estimate(@Nonnull final Path root, final long budgetNanos,
+                                    @Nonnull final Consumer<List<EstimatedElement>> refinements) throws IOException {
+
+        final long deadline = System.nanoTime() + budgetNanos;
+
+        List<EstimatedElement> best = null;
+        for (int sampleSize = INITIAL_SAMPLE_SIZE; ; sampleSize = sampleSize > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : sampleSize * 2) {
+
+            final Pass pass = new Pass(new ScanContext(root, options), sampleSize, deadline, best != null);
+            final List<EstimatedElement> elems = pass.run(root);
+            if (elems == null) {
+                break;
+            }
+
+            best = elems;
+            refinements.accept(best);
+            if (pass.exact || System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A single pass over the tree, with a fixed sample size.
+     */
+    private final class Pass {
+
+        private final ScanContext context;
+
+        private final int sampleSize;
+
+        private final long deadline;
+
+        private final boolean abandonable;
+
+        private boolean exact = true;
+
+        Pass(final ScanContext context, final int sampleSize, final long deadline, final boolean abandonable) {
+            this.context = context;
+            this.sampleSize = sampleSize;
+            this.deadline = deadline;
+            this.abandonable = abandonable;
+        }
+
+        /**
+         * @return the estimated top-level elements, or {@code null} if the pass was abandoned.
+         */
+        List<EstimatedElement> run(final Path root) throws IOException {
+
+            final List<EstimatedElement> elems = new ArrayList<>();
+            for (final Path entry : list(root)) {
+                final BasicFileAttributes attrs = stat(entry);
+                if (attrs == null) {
+                    continue;
+                }
+
+                if (!attrs.isDirectory()) {
+                    final long size = context.getAccounting().sizeOf(entry, attrs);
+                    elems.add(create(entry, DirectoryElement.Type.FILE, size, 0));
+                    continue;
+                }
+
+                final Boolean enter = ErrorHandling.attempt(entry, options, () -> context.enter(entry, attrs));
+                if (enter == null || !enter) {
+                    continue;
+                }
+
+                final double[] estimate = estimateDirectory(entry);
+                if (estimate == null) {
+                    return null;
+                }
+                elems.add(create(entry, DirectoryElement.Type.DIR, estimate[0], estimate[1]));
+            }
+
+            elems.sort((a, b) -> fileSizeComparator.compare(b.getElement(), a.getElement()));
+            return elems;
+        }
+
+        /**
+         * Estimate the total of the given directory, on an explicit stack of the directories being estimated.
+         *
+         * @return the estimate and its variance, or {@code null} if the deadline passed.
+         */
+        private double[] estimateDirectory(final Path dir) throws IOException {
+
+            final Deque<Frame> stack = new ArrayDeque<>();
+            stack.push(open(dir));
+
+            while (true) {
+                final Frame frame = stack.peek();
+
+                if (frame.next < frame.sample.size()) {
+                    if (abandonable && System.nanoTime() - deadline > 0) {
+                        return null;
+                    }
+
+                    final Path entry = frame.sample.get(frame.next++);
+                    final BasicFileAttributes attrs = stat(entry);
+                    if (attrs == null) {
+                        frame.add(0, 0);
+                    } else if (!attrs.isDirectory()) {
+                        frame.add(context.getAccounting().sizeOf(entry, attrs), 0);
+                    } else {
+                        final Boolean enter = ErrorHandling.attempt(entry, options, () -> context.enter(entry, attrs));
+                        if (enter != null && enter) {
+                            stack.push(open(entry));
+                        } else {
+                            frame.add(0, 0);
+                        }
+                    }
+                    continue;
+                }
+
+                stack.pop();
+                final double estimate = frame.estimate();
+                final double variance = frame.variance();
+                if (stack.isEmpty()) {
+                    return new double[]{estimate, variance};
+                }
+                stack.peek().add(estimate, variance);
+            }
+        }
+
+        private Frame open(final Path dir) throws IOException {
+
+            final List<Path> entries = list(dir);
+            if (entries.size() <= sampleSize) {
+                return new Frame(entries.size(), entries);
+            }
+
+            exact = false;
+            // A partial Fisher-Yates shuffle draws a simple random sample into the head of the list.
+            for (int i = 0; i < sampleSize; i++) {
+                Collections.swap(entries, i, i + random.nextInt(entries.size() - i));
+            }
+            return new Frame(entries.size(), entries.subList(0, sampleSize));
+        }
+
+        /**
+         * @return the entries of the given directory which are not excluded, without their attributes.
+         */
+        private List<Path> list(final Path dir) throws IOException {
+
+            final List<Path> entries = new ArrayList<>();
+            final DirectoryStream<Path> stream = ErrorHandling.attempt(dir, options, () -> Files.newDirectoryStream(dir));
+            if (stream == null) {
+                return entries;
+            }
+
+            try (final DirectoryStream<Path> dirEntries = stream) {
+                for (final Path entry : dirEntries) {
+                    if (!context.isExcluded(entry)) {
+                        entries.add(entry);
+                    }
+                }
+            } catch (final DirectoryIteratorException e) {
+                ErrorHandling.skip(dir, e.getCause(), options);
+            }
+            return entries;
+        }
+
+        private BasicFileAttributes stat(final Path entry) throws IOException {
+            return ErrorHandling.attempt(entry, options, () -> context.readAttributes(entry));
+        }
+
+        private EstimatedElement create(final Path path, final DirectoryElement.Type type, final double estimate, final double variance) {
+            final double halfWidth = Z_95 * Math.sqrt(variance);
+            return EstimatedElement.builder()
+                    .element(DirectoryElements.create(path, type, Math.round(estimate)))
+                    .lowerBoundInBytes(Math.max(0, Math.round(estimate - halfWidth)))
+                    .upperBoundInBytes(Math.round(estimate + halfWidth))
+                    .build();
+        }
+    }
+
+    /**
+     * A directory on the stack of a pass, whose sampled entries up to {@code next} have been summed up.
+     */
+    private static final class Frame {
+
+        private final int population;
+
+        private final List<Path> sample;
+
+        private int next;
+
+        private double sum;
+
+        private double sumOfSquares;
+
+        private double sumOfVariances;
+
+        Frame(final int population, final List<Path> sample) {
+            this.population = population;
+            this.sample = sample;
+        }
+
+        void add(final double estimate, final double variance) {
+            sum += estimate;
+            sumOfSquares += estimate * estimate;
+            sumOfVariances += variance;
+        }
+
+        double estimate() {
+            return sample.isEmpty() ? 0 : sum * population / sample.size();
+        }
+
+        double variance() {
+
+            final int n = sample.size();
+            if (n == 0) {
+                return 0;
+            }
+
+            final double expansion = (double) population / n;
+            final double withinSample = expansion * sumOfVariances;
+            if (n == population) {
+                return withinSample;
+            }
+
+            final double sampleVariance = n > 1 ? Math.max(0, (sumOfSquares - sum * sum / n) / (n - 1)) : sum * sum;
+            return (double) population * population * (1 - 1.0 / expansion) * sampleVariance / n + withinSample;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link ScanOptions#getExcludes() exclude patterns} of a scan, compiled for the file system of the scanned
+ * directory, so that anything keeping track of a tree leaves out the same entries as the scan does.
+ */
+public final class Excludes {
+
+    private final List<PathMatcher> matchers;
+
+    /**
+     * @param fileSystem the file system of the scanned directory
+     * @param patterns   the exclude patterns, as given to {@link ScanOptions}
+     */
+    public Excludes(@Nonnull final FileSystem fileSystem, @Nonnull final Collection<String> patterns) {
+        final List<PathMatcher> compiled = new ArrayList<>();
+        for (final String pattern : patterns) {
+            final boolean hasSyntax = pattern.startsWith("glob:") || pattern.startsWith("regex:");
+            compiled.add(fileSystem.getPathMatcher(hasSyntax ? pattern : "glob:" + pattern));
+        }
+        this.matchers = Collections.unmodifiableList(compiled);
+    }
+
+    /**
+     * @return whether the given entry matches any of the patterns, by its name or its absolute path. This does not
+     * touch the file system, so it is checked before an entry is stat-ed.
+     */
+    public boolean matches(@Nonnull final Path entry) {
+
+        if (matchers.isEmpty()) {
+            return false;
+        }
+
+        final Path name = entry.getFileName();
+        final Path absolute = entry.toAbsolutePath();
+        for (final PathMatcher matcher : matchers) {
+            if ((name != null && matcher.matches(name)) || matcher.matches(absolute)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,266 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.metrics.DeviceThroughput;
+import com.dirscanner.metrics.ScanListener;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ScanEngine} meant for high-latency file systems, such as NFS or FUSE mounts, on which throughput is bound by
+ * the time each listing or stat call blocks for rather than by CPU.
+ * <p>
+ * Every directory is listed by a separate task, so that many listings are in flight at once. Tasks run on virtual
+ * threads when the running JVM supports them, and on a bounded pool of platform threads otherwise. In both cases,
+ * listings are scheduled per device: the number of directories being read at once from the same mount is tuned from
+ * the latency of its listings, up to a cap, so as to make the most of fast devices without overwhelming slow ones or
+ * their servers, and the throughput on each device is reported to {@link ScanListener#onDeviceDone(DeviceThroughput)}.
+ * The device of each directory is taken from the attributes read by the listing of its parent, wherever the file
+ * system has a {@code unix} view, so that scheduling takes no stat call of its own.
+ * <p>
+ * The sink is only ever invoked by one thread at a time.
+ */
+public class ExecutorScanEngine implements ScanEngine {
+
+    private static final int DEFAULT_CONCURRENCY_PER_MOUNT = 64;
+
+    private final int concurrencyPerMount;
+
+    private final boolean virtualThreads;
+
+    /**
+     * Create an engine which runs on virtual threads, if available, with the default concurrency cap per mount.
+     */
+    public ExecutorScanEngine() {
+        this(DEFAULT_CONCURRENCY_PER_MOUNT, true);
+    }
+
+    /**
+     * @param concurrencyPerMount the maximum number of directories read at once from the same mount, which is also the
+     *                            number of platform threads run on, when not on virtual threads
+     * @param virtualThreads      whether to run on virtual threads, if the running JVM supports them
+     * @throws IllegalArgumentException if the given concurrency is smaller than 1
+     */
+    public ExecutorScanEngine(final int concurrencyPerMount, final boolean virtualThreads) {
+        if (concurrencyPerMount < 1) {
+            throw new IllegalArgumentException(String.format("Concurrency per mount must be at least 1 but was %d.", concurrencyPerMount));
+        }
+        this.concurrencyPerMount = concurrencyPerMount;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * @return whether the running JVM supports virtual threads.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return newVirtualThreadExecutor() != null;
+    }
+
+    @Override
+    public void scan(@Nonnull final Path dir, @Nonnull final ScanOptions options, @Nonnull final Consumer<DirectoryElement> sink) throws IOException {
+
+        ExecutorService executor = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(concurrencyPerMount);
+        }
+
+        try {
+            new Walk(executor, new ScanContext(dir, options, true), sink).run(dir);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The state of a single scan.
+     */
+    private final class Walk {
+
+        private final ScanOptions options;
+
+        private final ScanContext context;
+
+        private final Consumer<DirectoryElement> sink;
+
+        private final DeviceScheduler scheduler;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        Walk(final ExecutorService executor, final ScanContext context, final Consumer<DirectoryElement> sink) {
+            this.scheduler = new DeviceScheduler(executor, concurrencyPerMount);
+            this.options = context.getOptions();
+            this.context = context;
+            this.sink = sink;
+        }
+
+        void run(final Path dir) throws IOException {
+
+            submit(new DirectoryNode(dir, null), null);
+
+            try {
+                done.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(String.format("Interrupted while scanning %s", dir));
+            }
+
+            final Exception e = failure.get();
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            } else if (e != null) {
+                throw (RuntimeException) e;
+            }
+
+            scheduler.getThroughputs().forEach(options.getListener()::onDeviceDone);
+        }
+
+        /**
+         * Schedule the listing of the given directory on the device it resides on, which is taken from its attributes
+         * where they carry it, and only read separately otherwise.
+         *
+         * @param attrs the attributes of the directory, as read by the listing of its parent, or {@code null} for the
+         *              scanned directory
+         */
+        private void submit(final DirectoryNode node, final BasicFileAttributes attrs) {
+
+            Object device = attrs != null ? Devices.deviceOf(attrs) : null;
+            if (device == null) {
+                try {
+                    device = ErrorHandling.attempt(node.dir, options, () -> Devices.deviceOf(node.dir, context.getLinkOptions()));
+                } catch (final IOException e) {
+                    fail(e);
+                    return;
+                }
+            }
+
+            if (device == null) {
+                complete(node);
+                return;
+            }
+
+            scheduler.submit(device, node.dir, () -> read(node), () -> {
+                if (failure.get() == null) {
+                    try {
+                        complete(node);
+                    } catch (final RuntimeException e) {
+                        fail(e);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Any failure, including one of the sink, fails the scan rather than escaping, so that the scan never waits
+         * for a directory whose listing was cut short.
+         *
+         * @return the number of entries read.
+         */
+        private long read(final DirectoryNode node) {
+
+            if (failure.get() != null) {
+                return 0;
+            }
+
+            try {
+                return list(node);
+            } catch (final IOException | RuntimeException e) {
+                fail(e);
+                return 0;
+            }
+        }
+
+        private long list(final DirectoryNode node) throws IOException {
+
+            final long[] entries = new long[1];
+            DirectoryReader.read(node.dir, context, (entry, attrs, size) -> {
+                entries[0]++;
+                if (attrs.isDirectory()) {
+                    node.pending.incrementAndGet();
+                    submit(new DirectoryNode(entry, node), attrs);
+                } else if (node.parent == null) {
+                    emit(DirectoryElements.create(entry, DirectoryElement.Type.FILE, size));
+                } else {
+                    node.total.addAndGet(size);
+                }
+            });
+            return entries[0];
+        }
+
+        /**
+         * Mark one of the outstanding parts of the given node as done. Once all of them are, its total is final and is
+         * added to that of its parent, which is marked in turn. The chain of ancestors is climbed in a loop, so that the
+         * depth of the tree does not bound the stack.
+         */
+        private void complete(final DirectoryNode node) {
+
+            DirectoryNode current = node;
+            while (current.pending.decrementAndGet() == 0) {
+
+                if (current.parent == null) {
+                    done.countDown();
+                    return;
+                }
+
+                if (current.parent.parent == null) {
+                    emit(DirectoryElements.create(current.dir, DirectoryElement.Type.DIR, current.total.get()));
+                }
+
+                current.parent.total.addAndGet(current.total.get());
+                current = current.parent;
+            }
+        }
+
+        private void emit(final DirectoryElement elem) {
+            synchronized (sink) {
+                sink.accept(elem);
+            }
+        }
+
+        private void fail(final Exception e) {
+            if (failure.compareAndSet(null, e)) {
+                done.countDown();
+            }
+        }
+    }
+
+    /**
+     * A directory being read. Its total is final once the directory itself, and all of its sub-directories, have been
+     * read.
+     */
+    private static final class DirectoryNode {
+
+        private final Path dir;
+
+        private final DirectoryNode parent;
+
+        private final AtomicLong total = new AtomicLong();
+
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        DirectoryNode(final Path dir, final DirectoryNode parent) {
+            this.dir = dir;
+            this.parent = parent;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.tree.TreeSink;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Walks a tree on behalf of {@link DirectoryElementScanner#scanTree(Path)},
+ * {@link DirectoryElementScanner#scanTree(Path, Path)} and {@link TreeWalkScanEngine}, handing every entry to a
+ * {@link TreeSink} in pre-order.
+ * <p>
+ * The entries of each directory are handed over in the order they are listed, descending into each sub-directory as it
+ * comes, as {@link java.nio.file.Files#walkFileTree(Path, java.nio.file.FileVisitor)} does. The walk keeps an explicit
+ * stack of the directories being walked, each holding its listing, so only the listings along the current path are
+ * kept in memory. Entries are read through
+ * {@link DirectoryReader}, so the tree abides by every option of the scan, and the size of each file is the one worked
+ * out by its {@link SizeAccounting}.
+ */
+final class FileTreeWalk {
+
+    private FileTreeWalk() {
+    }
+
+    static void walk(@Nonnull final Path root, @Nonnull final ScanContext context, @Nonnull final TreeSink sink) throws IOException {
+
+        final Deque<Frame> stack = new ArrayDeque<>();
+        sink.enterDirectory(root.toAbsolutePath().toString());
+        stack.push(open(root, context));
+
+        while (!stack.isEmpty()) {
+            final Frame frame = stack.peek();
+
+            if (frame.next < frame.entries.size()) {
+                final Path entry = frame.entries.get(frame.next);
+                final long size = frame.sizes[frame.next];
+                frame.entries.set(frame.next++, null);
+                if (size < 0) {
+                    sink.enterDirectory(entry.getFileName().toString());
+                    stack.push(open(entry, context));
+                } else {
+                    sink.addFile(entry.getFileName().toString(), size);
+                }
+                continue;
+            }
+
+            stack.pop();
+            sink.leaveDirectory();
+        }
+    }
+
+    private static Frame open(final Path dir, final ScanContext context) throws IOException {
+        final Frame frame = new Frame();
+        DirectoryReader.read(dir, context, (entry, attrs, size) -> frame.add(entry, attrs.isDirectory() ? -1 : size));
+        return frame;
+    }
+
+    /**
+     * A directory on the stack of the walk, whose entries up to {@code next} have been handed over. Sub-directories
+     * are held with a size of {@code -1}.
+     */
+    private static final class Frame {
+
+        private final List<Path> entries = new ArrayList<>();
+
+        private long[] sizes = new long[8];
+
+        private int next;
+
+        private void add(final Path entry, final long size) {
+            if (entries.size() == sizes.length) {
+                sizes = Arrays.copyOf(sizes, sizes.length * 2);
+            }
+            sizes[entries.size()] = size;
+            entries.add(entry);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ScanEngine} which walks the tree in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * Every directory in the tree, and not only the top-level ones, is a separate task. Hence idle workers steal
+ * sub-directories from busy ones, and a single large sub-tree is still spread across all the workers.
+ * <p>
+ * The sink is only ever invoked by one thread at a time.
+ */
+public class ForkJoinScanEngine implements ScanEngine {
+
+    private final int parallelism;
+
+    /**
+     * Create an engine which uses as many workers as there are available processors.
+     */
+    public ForkJoinScanEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism the number of workers used for a scan.
+     * @throws IllegalArgumentException if the given parallelism is smaller than 1
+     */
+    public ForkJoinScanEngine(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism must be at least 1 but was %d.", parallelism));
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void scan(@Nonnull final Path dir, @Nonnull final ScanOptions options, @Nonnull final Consumer<DirectoryElement> sink) throws IOException {
+
+        final Consumer<DirectoryElement> synchronizedSink = elem -> {
+            synchronized (sink) {
+                sink.accept(elem);
+            }
+        };
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectorySizeTask(null, dir, 0, new ScanContext(dir, options), synchronizedSink));
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Sums up the sizes of all the contents of a directory, forking a sub-task for each of its sub-directories.
+     * <p>
+     * A task never waits for its sub-tasks. Instead, the last of them to finish completes it in turn, so the stack of a
+     * worker does not grow with the depth of the tree. The task of the scanned directory emits its files straight
+     * away, and the task of each top-level directory emits it once complete.
+     * <p>
+     * Once any task fails, the failure completes the task of the scanned directory, and the tasks still queued skip
+     * their listing, so the walk stops along with the scan rather than going on in the background.
+     */
+    private static final class DirectorySizeTask extends CountedCompleter<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+
+        private final int depth;
+
+        private final ScanContext context;
+
+        private final Consumer<DirectoryElement> sink;
+
+        private final AtomicLong total = new AtomicLong();
+
+        DirectorySizeTask(final DirectorySizeTask parent, final Path dir, final int depth, final ScanContext context,
+                          final Consumer<DirectoryElement> sink) {
+            super(parent);
+            this.dir = dir;
+            this.depth = depth;
+            this.context = context;
+            this.sink = sink;
+        }
+
+        @Override
+        public void compute() {
+
+            if (getRoot().isDone()) {
+                return;
+            }
+
+            try {
+                DirectoryReader.read(dir, context, (entry, attrs, size) -> {
+                    if (attrs.isDirectory()) {
+                        addToPendingCount(1);
+                        new DirectorySizeTask(this, entry, depth + 1, context, sink).fork();
+                    } else if (depth == 0) {
+                        sink.accept(DirectoryElements.create(entry, DirectoryElement.Type.FILE, size));
+                    } else {
+                        total.addAndGet(size);
+                    }
+                });
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            tryComplete();
+        }
+
+        @Override
+        public void onCompletion(final CountedCompleter<?> caller) {
+
+            if (depth == 1) {
+                sink.accept(DirectoryElements.create(dir, DirectoryElement.Type.DIR, total.get()));
+            }
+
+            final DirectorySizeTask parent = (DirectorySizeTask) getCompleter();
+            if (parent != null) {
+                parent.total.addAndGet(total.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dirscanner.scanner;
+
+/**
+ * An open-addressing hash table from the key of a group to its number of bytes and of files, held in primitive arrays,
+ * so that counting a file into a group it was already counted into allocates nothing. Keys which would have to be
+ * allocated per file, such as extensions, are looked up through a reusable {@link Probe} instead.
+ * <p>
+ * Instances are not thread-safe.
+ */
+final class GroupTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] keys = new Object[INITIAL_CAPACITY];
+
+    private long[] bytes = new long[INITIAL_CAPACITY];
+
+    private long[] counts = new long[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * Count a file of the given size into the group of the given key.
+     *
+     * @return whether the key was not in the table yet
+     */
+    boolean add(final Object key, final long sizeInBytes, final long count) {
+
+        int slot = slotOf(key, keys);
+        final boolean added = keys[slot] == null;
+        if (added) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+                slot = slotOf(key, keys);
+            }
+            keys[slot] = key instanceof Probe ? ((Probe) key).key() : key;
+            size++;
+        }
+        bytes[slot] += sizeInBytes;
+        counts[slot] += count;
+        return added;
+    }
+
+    /**
+     * @return the number of groups in the table.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Pass the key, the number of bytes and the number of files of every group to the given consumer.
+     */
+    void forEach(final GroupConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                consumer.accept(keys[i], bytes[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Count every group of this table into the given one.
+     */
+    void mergeInto(final GroupTable target) {
+        forEach(target::add);
+    }
+
+    private void grow() {
+        final Object[] oldKeys = keys;
+        final long[] oldBytes = bytes;
+        final long[] oldCounts = counts;
+
+        keys = new Object[oldKeys.length * 2];
+        bytes = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                final int slot = slotOf(oldKeys[i], keys);
+                keys[slot] = oldKeys[i];
+                bytes[slot] = oldBytes[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slotOf(final Object key, final Object[] keys) {
+        final int mask = keys.length - 1;
+        final int hash = key.hashCode() * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (keys[slot] != null && !key.equals(keys[slot])) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * A key to look a group up by without allocating it, which equals, and hashes like, the key it stands for. The key
+     * itself is only allocated when the group is added.
+     */
+    interface Probe {
+
+        Object key();
+    }
+
+    /**
+     * The consumer of the groups of a table.
+     */
+    @FunctionalInterface
+    interface GroupConsumer {
+
+        void accept(Object key, long sizeInBytes, long count);
+    }
+}
@@ -0,0 +1,41 @@
+package com.dirscanner.scanner;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The total of the files of a scan falling into the same group of an {@link Aggregation}, such as all the files with
+ * the same extension.
+ */
+@Builder
+public class GroupTotal {
+
+    /**
+     * The dimension the files were grouped by.
+     */
+    @Getter
+    private final Aggregation.Dimension dimension;
+
+    /**
+     * The group, such as {@code jpg} for an extension, or {@code 7-30d} for an age bucket.
+     */
+    @Getter
+    private final String key;
+
+    /**
+     * The summation of the sizes of the files of the group, as accounted for by the {@link SizeMode} of the scan.
+     */
+    @Getter
+    private final long sizeInBytes;
+
+    /**
+     * The number of files of the group.
+     */
+    @Getter
+    private final long fileCount;
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %d bytes in %d files", dimension.name(), key, sizeInBytes, fileCount);
+    }
+}
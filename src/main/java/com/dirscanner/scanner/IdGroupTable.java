@@ -0,0 +1,110 @@
+package com.dirscanner.scanner;
+
+/**
+ * A {@link GroupTable} keyed by a numeric owner or group id, held as a primitive {@code int} rather than boxed, so that
+ * counting a file into a group it was already counted into allocates nothing for any id.
+ * <p>
+ * Instances are not thread-safe.
+ */
+final class IdGroupTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+
+    private boolean[] used = new boolean[INITIAL_CAPACITY];
+
+    private long[] bytes = new long[INITIAL_CAPACITY];
+
+    private long[] counts = new long[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * Count a file of the given size into the group of the given id.
+     *
+     * @return whether the id was not in the table yet
+     */
+    boolean add(final int id, final long sizeInBytes, final long count) {
+
+        int slot = slotOf(id, ids, used);
+        final boolean added = !used[slot];
+        if (added) {
+            if ((size + 1) * 4 > ids.length * 3) {
+                grow();
+                slot = slotOf(id, ids, used);
+            }
+            ids[slot] = id;
+            used[slot] = true;
+            size++;
+        }
+        bytes[slot] += sizeInBytes;
+        counts[slot] += count;
+        return added;
+    }
+
+    /**
+     * @return the number of groups in the table.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Pass the id, the number of bytes and the number of files of every group to the given consumer.
+     */
+    void forEach(final IdGroupConsumer consumer) {
+        for (int i = 0; i < ids.length; i++) {
+            if (used[i]) {
+                consumer.accept(ids[i], bytes[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Count every group of this table into the given one.
+     */
+    void mergeInto(final IdGroupTable target) {
+        forEach(target::add);
+    }
+
+    private void grow() {
+        final int[] oldIds = ids;
+        final boolean[] oldUsed = used;
+        final long[] oldBytes = bytes;
+        final long[] oldCounts = counts;
+
+        ids = new int[oldIds.length * 2];
+        used = new boolean[oldIds.length * 2];
+        bytes = new long[oldIds.length * 2];
+        counts = new long[oldIds.length * 2];
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldUsed[i]) {
+                final int slot = slotOf(oldIds[i], ids, used);
+                ids[slot] = oldIds[i];
+                used[slot] = true;
+                bytes[slot] = oldBytes[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slotOf(final int id, final int[] ids, final boolean[] used) {
+        final int mask = ids.length - 1;
+        final int hash = id * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (used[slot] && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * The consumer of the groups of a table.
+     */
+    @FunctionalInterface
+    interface IdGroupConsumer {
+
+        void accept(int id, long sizeInBytes, long count);
+    }
+}
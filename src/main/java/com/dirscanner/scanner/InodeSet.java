@@ -0,0 +1,78 @@
+package com.dirscanner.scanner;
+
+/**
+ * A set of inodes, each identified by its device and inode number, kept in a primitive open-addressing hash table so
+ * that millions of inodes take up about 32 bytes each and no objects.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class InodeSet {
+
+    /**
+     * Pairs of device and inode number. A slot with inode number 0, which no file has, is empty.
+     */
+    private long[] table = new long[2 * 1024];
+
+    private int size;
+
+    private boolean containsZero;
+
+    /**
+     * @return whether the given inode was added, as opposed to being in the set already.
+     */
+    boolean add(final long dev, final long ino) {
+
+        if (ino == 0) {
+            final boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+
+        final int mask = table.length / 2 - 1;
+        int slot = hash(dev, ino) & mask;
+        while (table[2 * slot + 1] != 0) {
+            if (table[2 * slot] == dev && table[2 * slot + 1] == ino) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        table[2 * slot] = dev;
+        table[2 * slot + 1] = ino;
+
+        if (++size * 4 > table.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    int size() {
+        return size + (containsZero ? 1 : 0);
+    }
+
+    private void rehash() {
+
+        final long[] old = table;
+        table = new long[old.length * 2];
+        final int mask = table.length / 2 - 1;
+
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i + 1] != 0) {
+                int slot = hash(old[i], old[i + 1]) & mask;
+                while (table[2 * slot + 1] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[2 * slot] = old[i];
+                table[2 * slot + 1] = old[i + 1];
+            }
+        }
+    }
+
+    private static int hash(final long dev, final long ino) {
+        long h = dev * 0x9E3779B97F4A7C15L ^ ino;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
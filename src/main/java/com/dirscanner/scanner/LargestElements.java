@@ -0,0 +1,56 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElemSizeComparator;
+import com.dirscanner.elem.DirectoryElement;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * A sink of {@link DirectoryElement}s which only retains the {@code n} largest elements it has been given.
+ * <p>
+ * Elements are kept in a bounded min-heap, so that memory is proportional to {@code n} rather than to the number of
+ * elements given, and the full set of elements is never sorted.
+ */
+public class LargestElements implements Consumer<DirectoryElement> {
+
+    private final DirectoryElemSizeComparator fileSizeComparator = new DirectoryElemSizeComparator();
+
+    private final int n;
+
+    private final PriorityQueue<DirectoryElement> heap;
+
+    /**
+     * @param n the number of elements to retain
+     * @throws IllegalArgumentException if the given number is smaller than 1
+     */
+    public LargestElements(final int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("Number of elements to retain must be at least 1 but was %d.", n));
+        }
+        this.n = n;
+        this.heap = new PriorityQueue<>(n + 1, fileSizeComparator);
+    }
+
+    @Override
+    public void accept(@Nonnull final DirectoryElement elem) {
+        if (heap.size() < n) {
+            heap.add(elem);
+        } else if (fileSizeComparator.compare(elem, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(elem);
+        }
+    }
+
+    /**
+     * @return the retained elements, sorted in descending order of their size.
+     */
+    public List<DirectoryElement> toList() {
+        final List<DirectoryElement> elems = new ArrayList<>(heap);
+        elems.sort(fileSizeComparator.reversed());
+        return elems;
+    }
+}
@@ -0,0 +1,185 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An on-disk cache of the directories read by a {@link CachingScanEngine}, so that later scans of the same tree do
+ * not have to list and stat the contents of directories which did not change.
+ * <p>
+ * Each directory is keyed by its path, and is only considered unchanged if both its modification time, at the full
+ * resolution of the file system, and its inode are the same as when it was cached. The cache is kept in a compact
+ * binary index file, holding one record per directory, and is meant to be used for a single scanned tree.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ScanCache {
+
+    private static final int MAGIC = 0x44534331; // "DSC1"
+
+    private static final int VERSION = 2;
+
+    private final Path file;
+
+    private final Map<String, Entry> entries;
+
+    private final Map<String, Entry> visited = new HashMap<>();
+
+    private long hits;
+
+    private long misses;
+
+    private ScanCache(final Path file, final Map<String, Entry> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    /**
+     * Load the cache kept in the given index file. If the file does not exist, or was written by an incompatible
+     * version, the returned cache is empty.
+     *
+     * @param file the index file of the cache
+     * @return the loaded cache
+     * @throws IOException if the index file exists but could not be read
+     */
+    public static ScanCache load(@Nonnull final Path file) throws IOException {
+
+        final Map<String, Entry> entries = new HashMap<>();
+
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return new ScanCache(file, entries);
+            }
+
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final String path = in.readUTF();
+                final long modifiedTime = in.readLong();
+                final long inode = in.readLong();
+                final long filesTotal = in.readLong();
+                final String[] subDirs = new String[in.readInt()];
+                for (int j = 0; j < subDirs.length; j++) {
+                    subDirs[j] = in.readUTF();
+                }
+                entries.put(path, new Entry(modifiedTime, inode, filesTotal, subDirs));
+            }
+        } catch (final NoSuchFileException | EOFException e) {
+            entries.clear();
+        }
+
+        return new ScanCache(file, entries);
+    }
+
+    /**
+     * Write the directories visited since this cache was loaded to its index file, replacing its previous contents.
+     * Directories which were not visited, such as ones which have since been deleted, are dropped.
+     *
+     * @throws IOException if the index file could not be written
+     */
+    public void save() throws IOException {
+
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(visited.size());
+            for (final Map.Entry<String, Entry> mapEntry : visited.entrySet()) {
+                final Entry entry = mapEntry.getValue();
+                out.writeUTF(mapEntry.getKey());
+                out.writeLong(entry.modifiedTime);
+                out.writeLong(entry.inode);
+                out.writeLong(entry.filesTotal);
+                out.writeInt(entry.subDirs.length);
+                for (final String subDir : entry.subDirs) {
+                    out.writeUTF(subDir);
+                }
+            }
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Drop every cached directory and delete the index file, so that the next scan reads the whole tree again.
+     *
+     * @throws IOException if the index file could not be deleted
+     */
+    public void invalidate() throws IOException {
+        entries.clear();
+        visited.clear();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * @return the number of directories which were found unchanged in the cache, since it was loaded.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of directories which had to be read because they were not cached or had changed, since the
+     * cache was loaded.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the cached entry of the given directory, or {@code null} if it is not cached or has changed since.
+     */
+    Entry lookup(final Path dir, final long modifiedTime, final long inode) {
+
+        final Entry entry = entries.get(dir.toString());
+
+        if (entry == null || entry.modifiedTime != modifiedTime || entry.inode != inode) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry;
+    }
+
+    void put(final Path dir, final Entry entry) {
+        entries.put(dir.toString(), entry);
+        visited.put(dir.toString(), entry);
+    }
+
+    /**
+     * The cached state of a directory: its modification time in nanoseconds, its inode, the total size of the files
+     * directly within it and the names of its sub-directories, when it was last scanned.
+     * <p>
+     * The total of its whole sub-tree is not cached, since a change deep down the tree does not alter the modification
+     * time of the directory, so every sub-directory has to be checked anyway.
+     */
+    static final class Entry {
+
+        final long modifiedTime;
+
+        final long inode;
+
+        final long filesTotal;
+
+        final String[] subDirs;
+
+        Entry(final long modifiedTime, final long inode, final long filesTotal, final String[] subDirs) {
+            this.modifiedTime = modifiedTime;
+            this.inode = inode;
+            this.filesTotal = filesTotal;
+            this.subDirs = subDirs;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state shared by all the parts of a single scan: its {@link ScanOptions}, its {@link SizeAccounting}, and the
+ * traversal rules which decide which entries are read and which directories are descended into.
+ * <p>
+ * A new instance is used for every scan. Instances are thread-safe.
+ */
+final class ScanContext {
+
+    private static final LinkOption[] NO_FOLLOW = {LinkOption.NOFOLLOW_LINKS};
+
+    private static final LinkOption[] FOLLOW = {};
+
+    private final ScanOptions options;
+
+    private final SizeAccounting accounting;
+
+    private final LinkOption[] linkOptions;
+
+    private final Excludes excludes;
+
+    private final Object rootDevice;
+
+    private final Set<Object> visitedDirectories;
+
+    private final boolean unixAttributes;
+
+    /**
+     * @param root    the scanned directory
+     * @param options the options of the scan
+     * @throws IOException if the device or the attributes of the scanned directory could not be read, where needed by
+     *                     the options
+     */
+    ScanContext(@Nonnull final Path root, @Nonnull final ScanOptions options) throws IOException {
+        this(root, options, false);
+    }
+
+    /**
+     * @param root    the scanned directory
+     * @param options the options of the scan
+     * @param devices whether the device of every directory read is needed, in which case it is taken from the
+     *                attributes read by the listing of its parent, through {@link Devices#deviceOf(BasicFileAttributes)},
+     *                wherever the file system allows
+     * @throws IOException if the device or the attributes of the scanned directory could not be read, where needed by
+     *                     the options
+     */
+    ScanContext(@Nonnull final Path root, @Nonnull final ScanOptions options, final boolean devices) throws IOException {
+        this.options = options;
+        this.accounting = new SizeAccounting(options);
+        this.linkOptions = options.isFollowLinks() ? FOLLOW : NO_FOLLOW;
+
+        this.excludes = new Excludes(root.getFileSystem(), options.getExcludes());
+
+        this.rootDevice = options.isSameFileSystem() ? Devices.deviceOf(root) : null;
+
+        if (options.isFollowLinks()) {
+            this.visitedDirectories = ConcurrentHashMap.newKeySet();
+            visitedDirectories.add(keyOf(root, Files.readAttributes(root, BasicFileAttributes.class)));
+        } else {
+            this.visitedDirectories = null;
+        }
+
+        final boolean readsIds = options.getAggregation() != null && options.getAggregation().readsIds();
+        this.unixAttributes = (devices || options.isSameFileSystem() || options.getSizeMode() == SizeMode.DISK_USAGE || readsIds)
+                && UnixAttributes.isSupported(root.getFileSystem());
+    }
+
+    /**
+     * @return whether entries are read as {@link UnixAttributes}, so that walks which stat entries themselves should
+     * read them through {@link #readAttributes(Path)} instead.
+     */
+    boolean readsUnixAttributes() {
+        return unixAttributes;
+    }
+
+    ScanOptions getOptions() {
+        return options;
+    }
+
+    SizeAccounting getAccounting() {
+        return accounting;
+    }
+
+    /**
+     * @return the options with which to read the attributes of entries, which follow symbolic links only if the scan
+     * does.
+     */
+    LinkOption[] getLinkOptions() {
+        return linkOptions;
+    }
+
+    /**
+     * @return whether the given entry matches any of the exclude patterns of the scan. This does not touch the file
+     * system, so it is checked before an entry is stat-ed.
+     */
+    boolean isExcluded(@Nonnull final Path entry) {
+        return excludes.matches(entry);
+    }
+
+    /**
+     * @return whether the given device is other than that of the scanned directory, when the scan is confined to a
+     * single file system.
+     */
+    boolean isOtherDevice(final Object device) {
+        return rootDevice != null && !rootDevice.equals(device);
+    }
+
+    /**
+     * Decide whether to descend into the given sub-directory, which is only done if it resides on an allowed device and,
+     * when links are followed, if it has not been reached before through another link. The latter check is a single
+     * set lookup on the file key of the directory, so it also breaks every cycle of links.
+     * <p>
+     * Since a directory is marked as reached by this call, it must be called once per directory found.
+     *
+     * @throws IOException if the device of the directory could not be read
+     */
+    boolean enter(@Nonnull final Path dir, @Nonnull final BasicFileAttributes attrs) throws IOException {
+
+        if (rootDevice != null) {
+            final Object device = Devices.deviceOf(attrs);
+            if (isOtherDevice(device != null ? device : Devices.deviceOf(dir, linkOptions))) {
+                return false;
+            }
+        }
+
+        return visitedDirectories == null || visitedDirectories.add(keyOf(dir, attrs));
+    }
+
+    /**
+     * Read the attributes of the given entry, following symbolic links only if the scan does. A link whose target does
+     * not exist is read as the link itself.
+     * <p>
+     * Where the scan needs the device of its directories, is confined to a single file system, counts disk usage or
+     * groups files by owner, and the file system allows it, the attributes are read as {@link UnixAttributes}, so that
+     * the device, inode, link count and owner ids come with them.
+     */
+    BasicFileAttributes readAttributes(@Nonnull final Path entry) throws IOException {
+        return readAttributes(entry, null);
+    }
+
+    /**
+     * Read the attributes of the given entry as {@link #readAttributes(Path)} does, but relative to the open directory
+     * holding it, if given. On Linux this is a single {@code fstatat} call on the file descriptor of the directory,
+     * which spares the kernel from resolving the full path of every entry again. Attributes read as
+     * {@link UnixAttributes} are always read by path, since directory streams only hand out basic and POSIX views.
+     *
+     * @param entry  the entry, as listed by the given directory stream
+     * @param parent the open directory holding the entry, or {@code null} to read the attributes by path
+     */
+    BasicFileAttributes readAttributes(@Nonnull final Path entry, @Nullable final SecureDirectoryStream<Path> parent) throws IOException {
+        try {
+            return readAttributes(entry, parent, linkOptions);
+        } catch (final NoSuchFileException e) {
+            if (linkOptions == NO_FOLLOW) {
+                throw e;
+            }
+            return readAttributes(entry, parent, NO_FOLLOW);
+        }
+    }
+
+    private BasicFileAttributes readAttributes(final Path entry, final SecureDirectoryStream<Path> parent,
+                                               final LinkOption[] linkOptions) throws IOException {
+        if (unixAttributes) {
+            return UnixAttributes.read(entry, linkOptions);
+        }
+        if (parent == null) {
+            return Files.readAttributes(entry, BasicFileAttributes.class, linkOptions);
+        }
+        return parent.getFileAttributeView(entry.getFileName(), BasicFileAttributeView.class, linkOptions).readAttributes();
+    }
+
+    /**
+     * @return the file key of the given directory, which identifies it no matter which link it is reached through, or
+     * its real path where file keys are not supported.
+     */
+    private static Object keyOf(final Path dir, final BasicFileAttributes attrs) throws IOException {
+        return attrs.fileKey() != null ? attrs.fileKey() : dir.toRealPath();
+    }
+}
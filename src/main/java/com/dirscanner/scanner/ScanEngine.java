@@ -0,0 +1,31 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * A strategy used by {@link DirectoryElementScanner} to walk a directory and compute the size of each of its
+ * top-level {@link DirectoryElement}s.
+ * <p>
+ * The size of a top-level directory is the summation of the sizes of all its contents. The size of the directory
+ * entries themselves is not added.
+ */
+public interface ScanEngine {
+
+    /**
+     * Walk the given directory and pass each of its top-level {@link DirectoryElement}s to the given sink, as soon as
+     * the size of that element is final.
+     * <p>
+     * Elements are passed to the sink in no particular order.
+     *
+     * @param dir     the directory to walk. This must point to an existing directory
+     * @param options the options of the scan
+     * @param sink    the consumer of the top-level {@link DirectoryElement}s
+     * @throws IOException if the contents of the directory could not be read
+     */
+    void scan(@Nonnull Path dir, @Nonnull ScanOptions options, @Nonnull Consumer<DirectoryElement> sink) throws IOException;
+}
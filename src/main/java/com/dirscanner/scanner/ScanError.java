@@ -0,0 +1,25 @@
+package com.dirscanner.scanner;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * An entry which could not be read, and was skipped, during a scan.
+ */
+@Builder
+public class ScanError {
+
+    @Getter
+    private Path path;
+
+    @Getter
+    private IOException cause;
+
+    @Override
+    public String toString() {
+        return String.format("%s %s", path, cause);
+    }
+}
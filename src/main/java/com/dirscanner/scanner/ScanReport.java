@@ -0,0 +1,48 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The outcome of a scan which skips the entries it cannot read: the top-level {@link DirectoryElement}s, sized with
+ * whatever could be read, together with the entries which were skipped.
+ * <p>
+ * Under {@link SizeMode#DISK_USAGE}, the elements are sized with the disk space their files use, and the report also
+ * carries the apparent size of the same files, so that both are known out of a single scan.
+ */
+@Builder
+public class ScanReport {
+
+    /**
+     * The top-level elements, sorted in descending order of their size.
+     */
+    @Getter
+    private List<DirectoryElement> elements;
+
+    @Getter
+    private List<ScanError> errors;
+
+    /**
+     * The apparent size of every file read, counting a file with several hard links once per link, as under
+     * {@link SizeMode#APPARENT}.
+     */
+    @Getter
+    private long apparentSizeInBytes;
+
+    /**
+     * @return the total size of the elements, as accounted for by the {@link SizeMode} of the scan.
+     */
+    public long getSizeInBytes() {
+        return elements.stream().mapToLong(elem -> elem.getSize().getBytes()).sum();
+    }
+
+    /**
+     * @return whether every entry of the scanned tree was read.
+     */
+    public boolean isComplete() {
+        return errors.isEmpty();
+    }
+}
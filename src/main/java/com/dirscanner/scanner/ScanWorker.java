@@ -0,0 +1,268 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.metrics.ScanListener;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A worker process of a {@link DistributedScanEngine}, which sums up the units of work handed to it by the coordinator
+ * of the scan, one at a time, over a socket.
+ * <p>
+ * A unit is summed up depth-first, on an explicit stack of the directories being read, each holding the sub-directories
+ * it still has to descend into. When asked to, the worker hands part of its unit back to the coordinator, to be given
+ * to an idle worker: up to half of the sub-directories still pending in the shallowest directory with more than one,
+ * since those are likely to be the largest. Its own total then excludes them.
+ * <p>
+ * Messages are read by the thread which connected, and units are summed up on another, so that a request to hand work
+ * back is picked up while a unit is being summed up, between two directories.
+ */
+public class ScanWorker {
+
+    private final DataInputStream in;
+
+    private final DataOutputStream out;
+
+    private final AtomicBoolean stealRequested = new AtomicBoolean();
+
+    private final BlockingQueue<Unit> units = new LinkedBlockingQueue<>();
+
+    private ScanOptions options;
+
+    private ScanWorker(final Socket socket) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Connect to the coordinator listening on the given port of the loopback address, and work for it until the scan is
+     * done.
+     *
+     * @param args the port the coordinator listens on
+     */
+    public static void main(final String[] args) throws IOException {
+
+        if (args.length != 1) {
+            System.err.println("Usage: ScanWorker PORT");
+            System.exit(2);
+        }
+
+        run(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0])));
+    }
+
+    /**
+     * Connect to the given coordinator, and work for it until the scan is done.
+     *
+     * @param coordinator the address the coordinator listens on
+     * @throws IOException if the connection to the coordinator failed
+     */
+    static void run(@Nonnull final InetSocketAddress coordinator) throws IOException {
+        try (final Socket socket = new Socket(coordinator.getAddress(), coordinator.getPort())) {
+            socket.setTcpNoDelay(true);
+            new ScanWorker(socket).serve();
+        }
+    }
+
+    private void serve() throws IOException {
+
+        final Thread summing = new Thread(this::sumUnits, "dir-scanner-worker");
+        summing.setDaemon(true);
+        summing.start();
+
+        try {
+            while (true) {
+                final byte code;
+                try {
+                    code = in.readByte();
+                } catch (final EOFException e) {
+                    return;
+                }
+
+                switch (code) {
+                    case WorkerProtocol.CONFIG:
+                        options = WorkerProtocol.readConfig(in).listener(new SkippedEntryReporter()).build();
+                        break;
+                    case WorkerProtocol.UNIT:
+                        units.add(new Unit(in.readLong(), Paths.get(WorkerProtocol.readString(in))));
+                        break;
+                    case WorkerProtocol.STEAL:
+                        stealRequested.set(true);
+                        break;
+                    case WorkerProtocol.SHUTDOWN:
+                        return;
+                    default:
+                        throw new IOException(String.format("Unexpected message %d from coordinator.", code));
+                }
+            }
+        } finally {
+            summing.interrupt();
+        }
+    }
+
+    private void sumUnits() {
+        try {
+            while (true) {
+                final Unit unit = units.take();
+                try {
+                    final long total = sum(unit);
+                    send(WorkerProtocol.RESULT, unit.id, out -> out.writeLong(total));
+                } catch (final IOException | RuntimeException e) {
+                    send(WorkerProtocol.FAILED, unit.id, out -> WorkerProtocol.writeString(out, String.valueOf(e)));
+                }
+            }
+        } catch (final InterruptedException | IOException e) {
+            // The connection is gone, so is the scan.
+        }
+    }
+
+    private long sum(final Unit unit) throws IOException {
+
+        final ScanContext context = new ScanContext(unit.dir, options);
+        final Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(open(unit, unit.dir, context));
+
+        while (!stack.isEmpty()) {
+            if (stealRequested.getAndSet(false)) {
+                donate(unit, stack);
+            }
+
+            final Frame frame = stack.peek();
+            if (frame.next < frame.subDirectories.size()) {
+                stack.push(open(unit, frame.subDirectories.get(frame.next++), context));
+            } else {
+                stack.pop();
+            }
+        }
+        return unit.total;
+    }
+
+    private Frame open(final Unit unit, final Path dir, final ScanContext context) throws IOException {
+        final Frame frame = new Frame();
+        DirectoryReader.read(dir, context, (entry, attrs, size) -> {
+            if (attrs.isDirectory()) {
+                frame.subDirectories.add(entry);
+            } else {
+                unit.total += size;
+            }
+        });
+        return frame;
+    }
+
+    /**
+     * Hand part of the pending sub-directories of the given unit back to the coordinator, possibly none.
+     */
+    private void donate(final Unit unit, final Deque<Frame> stack) throws IOException {
+
+        int pending = 0;
+        Frame from = null;
+        for (final Iterator<Frame> frames = stack.descendingIterator(); frames.hasNext(); ) {
+            final Frame frame = frames.next();
+            final int remaining = frame.subDirectories.size() - frame.next;
+            if (from == null && remaining >= 2) {
+                from = frame;
+            }
+            pending += remaining;
+        }
+        if (from == null && pending >= 2) {
+            for (final Iterator<Frame> frames = stack.descendingIterator(); from == null; ) {
+                final Frame frame = frames.next();
+                from = frame.subDirectories.size() > frame.next ? frame : null;
+            }
+        }
+
+        final List<Path> donated = new ArrayList<>();
+        if (from != null) {
+            final List<Path> tail = from.subDirectories.subList(from.subDirectories.size() - Math.max(1, (from.subDirectories.size() - from.next) / 2),
+                    from.subDirectories.size());
+            donated.addAll(tail);
+            tail.clear();
+        }
+
+        send(WorkerProtocol.DONATE, unit.id, out -> {
+            out.writeInt(donated.size());
+            for (final Path dir : donated) {
+                WorkerProtocol.writeString(out, dir.toString());
+            }
+        });
+    }
+
+    private void send(final byte code, final long id, final Fields fields) throws IOException {
+        synchronized (out) {
+            out.writeByte(code);
+            out.writeLong(id);
+            fields.write(out);
+            out.flush();
+        }
+    }
+
+    /**
+     * The fields of a message following its code and id.
+     */
+    @FunctionalInterface
+    private interface Fields {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reports the entries skipped under {@link ErrorPolicy#SKIP} or {@link ErrorPolicy#RETRY} to the coordinator, which
+     * passes them on to the listener of the scan.
+     */
+    private final class SkippedEntryReporter implements ScanListener {
+
+        @Override
+        public void onErrorSkipped(@Nonnull final Path path, @Nonnull final IOException e) {
+            try {
+                synchronized (out) {
+                    out.writeByte(WorkerProtocol.SKIPPED);
+                    WorkerProtocol.writeString(out, path.toString());
+                    WorkerProtocol.writeString(out, String.valueOf(e.getMessage()));
+                    out.flush();
+                }
+            } catch (final IOException ex) {
+                // The connection is gone, which the unit will find out about when sending its result.
+            }
+        }
+    }
+
+    private static final class Unit {
+
+        private final long id;
+
+        private final Path dir;
+
+        private long total;
+
+        Unit(final long id, final Path dir) {
+            this.id = id;
+            this.dir = dir;
+        }
+    }
+
+    /**
+     * A directory on the stack of a unit, whose sub-directories up to {@code next} have been descended into.
+     */
+    private static final class Frame {
+
+        private final List<Path> subDirectories = new ArrayList<>();
+
+        private int next;
+    }
+}
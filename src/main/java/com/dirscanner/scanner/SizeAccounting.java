@@ -0,0 +1,87 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Works out how much each file contributes to the size of its ancestors, according to the {@link SizeMode} of a scan.
+ * <p>
+ * A new instance is used for every scan, since under {@link SizeMode#DISK_USAGE} it remembers the inodes of the files
+ * with several hard links it has come across. Instances are thread-safe.
+ */
+final class SizeAccounting {
+
+    private final ScanOptions options;
+
+    private final boolean diskUsage;
+
+    private final InodeSet linkedInodes = new InodeSet();
+
+    SizeAccounting(@Nonnull final ScanOptions options) {
+        this.options = options;
+        this.diskUsage = options.getSizeMode() == SizeMode.DISK_USAGE;
+    }
+
+    /**
+     * Under {@link SizeMode#DISK_USAGE}, the link count and inode of a regular file are taken from its attributes when
+     * these were read as {@link UnixAttributes}, as {@link ScanContext} does for such scans wherever the file system
+     * allows. Otherwise they take a stat of their own.
+     *
+     * @param file  a file, or any other entry which is not a directory
+     * @param attrs the attributes of the file
+     * @return the size to add to the ancestors of the file, or 0 if the file has been skipped or has already been
+     * counted through another of its hard links.
+     * @throws IOException if the inode of the file could not be read, under {@link ErrorPolicy#FAIL_FAST}
+     */
+    long sizeOf(@Nonnull final Path file, @Nonnull final BasicFileAttributes attrs) throws IOException {
+
+        if (!diskUsage) {
+            return attrs.size();
+        }
+
+        if (attrs instanceof UnixAttributes) {
+            final UnixAttributes unix = (UnixAttributes) attrs;
+            if (unix.isRegularFile() && unix.nlink() > 1 && !addLinked(unix.dev(), unix.ino())) {
+                return 0;
+            }
+        } else if (attrs.isRegularFile()) {
+            final Map<String, Object> inode = ErrorHandling.attempt(file, options, () -> readInode(file, options.isFollowLinks()));
+            if (inode == null) {
+                return 0;
+            }
+
+            if (inode.containsKey("nlink") && (Integer) inode.get("nlink") > 1
+                    && !addLinked(((Number) inode.get("dev")).longValue(), ((Number) inode.get("ino")).longValue())) {
+                return 0;
+            }
+        }
+
+        final long blockSize = options.getBlockSize();
+        return (attrs.size() + blockSize - 1) / blockSize * blockSize;
+    }
+
+    /**
+     * @return whether the given inode of a file with several hard links is come across for the first time.
+     */
+    private boolean addLinked(final long dev, final long ino) {
+        synchronized (linkedInodes) {
+            return linkedInodes.add(dev, ino);
+        }
+    }
+
+    private static Map<String, Object> readInode(final Path file, final boolean followLinks) throws IOException {
+        try {
+            return followLinks
+                    ? Files.readAttributes(file, "unix:dev,ino,nlink")
+                    : Files.readAttributes(file, "unix:dev,ino,nlink", LinkOption.NOFOLLOW_LINKS);
+        } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+            return Collections.emptyMap();
+        }
+    }
+}
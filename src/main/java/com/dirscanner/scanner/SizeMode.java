@@ -0,0 +1,25 @@
+package com.dirscanner.scanner;
+
+/**
+ * How the size of a file is accounted for by a scan.
+ */
+public enum SizeMode {
+
+    /**
+     * The apparent size of every file, i.e. the number of bytes it holds. A file with several hard links is counted
+     * once per link.
+     */
+    APPARENT,
+
+    /**
+     * An estimate of the disk space used by every file, like {@code du}: its apparent size rounded up to whole blocks of
+     * {@link ScanOptions#getBlockSize()} bytes, where a file with several hard links is only counted the first time one
+     * of its links is come across.
+     * <p>
+     * NIO does not expose the number of blocks actually allocated to a file, nor the block size of its file system, so
+     * the block size is a fixed assumption rather than read from the file system, the holes of sparse files are still
+     * counted, and files packed into partial blocks by the file system are counted as whole blocks. The apparent size
+     * is not lost: {@link DirectoryElementScanner#scanReport(java.nio.file.Path)} reports it alongside.
+     */
+    DISK_USAGE
+}
@@ -0,0 +1,102 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.snapshot.SnapshotWriter;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Walks a tree on behalf of {@link DirectoryElementScanner#scanSnapshot(Path, Path)}, writing every entry to a
+ * {@link SnapshotWriter} in the order of a snapshot.
+ * <p>
+ * The entries of each directory are visited in ascending order of name, and a directory is written once all of its
+ * contents have been, with its total. The walk keeps an explicit stack of the directories being summed up, each
+ * holding the listing of its entries, so only the listings along the current path are kept in memory.
+ */
+final class SnapshotWalk {
+
+    private static final Comparator<Child> BY_NAME = Comparator.comparing(child -> child.name);
+
+    private SnapshotWalk() {
+    }
+
+    static void write(@Nonnull final Path root, @Nonnull final ScanContext context, @Nonnull final SnapshotWriter writer) throws IOException {
+
+        final Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, "", list(root, context)));
+
+        while (!stack.isEmpty()) {
+            final Frame frame = stack.peek();
+
+            if (frame.next < frame.children.size()) {
+                final Child child = frame.children.get(frame.next++);
+                final String path = frame.path.isEmpty() ? child.name : frame.path + '/' + child.name;
+                if (child.directory) {
+                    final Path dir = frame.dir.resolve(child.name);
+                    stack.push(new Frame(dir, path, list(dir, context)));
+                } else {
+                    writer.write(path, false, child.size);
+                    frame.total += child.size;
+                }
+                continue;
+            }
+
+            stack.pop();
+            writer.write(frame.path, true, frame.total);
+            if (!stack.isEmpty()) {
+                stack.peek().total += frame.total;
+            }
+        }
+    }
+
+    private static List<Child> list(final Path dir, final ScanContext context) throws IOException {
+        final List<Child> children = new ArrayList<>();
+        DirectoryReader.read(dir, context, (entry, attrs, size) ->
+                children.add(new Child(entry.getFileName().toString(), attrs.isDirectory(), size)));
+        children.sort(BY_NAME);
+        return children;
+    }
+
+    private static final class Child {
+
+        private final String name;
+
+        private final boolean directory;
+
+        private final long size;
+
+        Child(final String name, final boolean directory, final long size) {
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A directory on the stack of the walk, whose entries up to {@code next} have been written.
+     */
+    private static final class Frame {
+
+        private final Path dir;
+
+        private final String path;
+
+        private final List<Child> children;
+
+        private int next;
+
+        private long total;
+
+        Frame(final Path dir, final String path, final List<Child> children) {
+            this.dir = dir;
+            this.path = path;
+            this.children = children;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.metrics.ScanListener;
+import com.dirscanner.tree.TreeSink;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ScanEngine} which computes the size of every top-level element in a single pass over the tree, by means of
+ * {@link Files#walkFileTree(Path, java.nio.file.FileVisitor)}.
+ * <p>
+ * Each entry is read exactly once, and its size is taken from the {@link BasicFileAttributes} handed out by the walk,
+ * so no further stat calls are issued. Every directory stream opened by the walk is closed before moving on.
+ * <p>
+ * Since the walk reads and stats entries internally, the latencies reported to a {@link ScanListener} are the times
+ * elapsed between consecutive entries: the time before a file is visited is taken as its stat latency, and the time
+ * before a directory is entered, plus that before it is left, as its listing latency.
+ * <p>
+ * Under {@link ErrorPolicy#RETRY}, only the attributes of an entry which failed to be read are retried. A directory
+ * which cannot be opened is skipped once its attributes are read, rather than walked again.
+ * <p>
+ * The walk keeps its own stack of open directories, so the depth of the tree is unbounded. When links are followed,
+ * a link back to an ancestor is detected by the walk itself and skipped, and any other directory reached a second time
+ * is skipped by the {@link ScanContext} of the scan. Excluded entries are still stat-ed by the walk, but are not
+ * counted.
+ * <p>
+ * Where the {@link ScanContext} reads entries as {@link UnixAttributes}, such as under {@link SizeMode#DISK_USAGE},
+ * the basic attributes handed out by the walk would take a second stat per entry. The tree is then walked by
+ * {@link FileTreeWalk} instead, which stats every entry once through {@link DirectoryReader}.
+ */
+public class TreeWalkScanEngine implements ScanEngine {
+
+    @Override
+    public void scan(@Nonnull final Path dir, @Nonnull final ScanOptions options, @Nonnull final Consumer<DirectoryElement> sink) throws IOException {
+        final Set<FileVisitOption> visitOptions = options.isFollowLinks()
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                : EnumSet.noneOf(FileVisitOption.class);
+
+        final ScanContext context = new ScanContext(dir, options);
+        if (context.readsUnixAttributes()) {
+            FileTreeWalk.walk(dir, context, new TopLevelTotalsSink(dir, sink));
+            return;
+        }
+
+        final Aggregation aggregation = options.getAggregation();
+        final Aggregation.Accumulator accumulator = aggregation != null ? aggregation.acquire() : null;
+        try {
+            Files.walkFileTree(dir, visitOptions, Integer.MAX_VALUE, new TopLevelTotalsVisitor(context, accumulator, sink));
+        } finally {
+            if (accumulator != null) {
+                aggregation.release(accumulator);
+            }
+        }
+    }
+
+    /**
+     * Keeps the total of the top-level directory being walked by {@link FileTreeWalk}, and hands over every top-level
+     * element as soon as it is done.
+     */
+    private static final class TopLevelTotalsSink implements TreeSink {
+
+        private final Path root;
+
+        private final Consumer<DirectoryElement> sink;
+
+        private int depth;
+
+        private String topLevelName;
+
+        private long total;
+
+        TopLevelTotalsSink(final Path root, final Consumer<DirectoryElement> sink) {
+            this.root = root;
+            this.sink = sink;
+        }
+
+        @Override
+        public void enterDirectory(@Nonnull final String name) {
+            if (++depth == 2) {
+                topLevelName = name;
+                total = 0;
+            }
+        }
+
+        @Override
+        public void addFile(@Nonnull final String name, final long sizeInBytes) {
+            if (depth == 1) {
+                sink.accept(DirectoryElements.create(root.resolve(name), DirectoryElement.Type.FILE, sizeInBytes));
+            } else {
+                total += sizeInBytes;
+            }
+        }
+
+        @Override
+        public void leaveDirectory() {
+            if (depth-- == 2) {
+                sink.accept(DirectoryElements.create(root.resolve(topLevelName), DirectoryElement.Type.DIR, total));
+            }
+        }
+    }
+
+    /**
+     * Keeps a running total for every directory on the current walk path, indexed by depth, where the scanned
+     * directory is at depth 0. Once a directory is left, its total is added to that of its parent.
+     */
+    private static final class TopLevelTotalsVisitor extends SimpleFileVisitor<Path> {
+
+        private final ScanContext context;
+
+        private final ScanOptions options;
+
+        private final SizeAccounting accounting;
+
+        private final ScanListener listener;
+
+        private final boolean timed;
+
+        private final Aggregation.Accumulator accumulator;
+
+        private final Consumer<DirectoryElement> sink;
+
+        private long[] totals = new long[16];
+
+        private long[] listingNanos = new long[16];
+
+        private int depth = -1;
+
+        private long lastEventNanos;
+
+        TopLevelTotalsVisitor(final ScanContext context, final Aggregation.Accumulator accumulator, final Consumer<DirectoryElement> sink) {
+            this.context = context;
+            this.options = context.getOptions();
+            this.accounting = context.getAccounting();
+            this.listener = options.getListener();
+            this.timed = listener != ScanListener.NONE;
+            this.accumulator = accumulator;
+            this.sink = sink;
+            this.lastEventNanos = timed ? System.nanoTime() : 0;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+            if (depth >= 0 && !enter(dir, attrs)) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            if (++depth == totals.length) {
+                totals = Arrays.copyOf(totals, totals.length * 2);
+                listingNanos = Arrays.copyOf(listingNanos, listingNanos.length * 2);
+            }
+            totals[depth] = 0;
+            listingNanos[depth] = timed ? sinceLastEvent() : 0;
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+            if (context.isExcluded(file)) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            final long size = accounting.sizeOf(file, attrs);
+            if (timed) {
+                listener.onFileStatted(file, size, sinceLastEvent());
+                listener.onFileCounted(file, attrs.size(), size);
+            }
+            if (accumulator != null) {
+                accumulator.add(file, attrs, size);
+            }
+            if (depth == 0) {
+                sink.accept(DirectoryElements.create(file, DirectoryElement.Type.FILE, size));
+            } else {
+                totals[depth] += size;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(final Path file, final IOException exc) throws IOException {
+
+            if (exc instanceof FileSystemLoopException || context.isExcluded(file)) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            if (options.getErrorPolicy() == ErrorPolicy.RETRY && ErrorHandling.isTransient(exc)) {
+                final BasicFileAttributes attrs = ErrorHandling.attempt(file, options, () -> context.readAttributes(file));
+                if (attrs == null) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (!attrs.isDirectory()) {
+                    return visitFile(file, attrs);
+                }
+            }
+
+            ErrorHandling.skip(file, exc, options);
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+            if (exc != null) {
+                ErrorHandling.skip(dir, exc, options);
+            }
+
+            if (timed) {
+                listener.onDirectoryListed(dir, listingNanos[depth] + sinceLastEvent());
+            }
+
+            final long total = totals[depth--];
+            if (depth == 0) {
+                sink.accept(DirectoryElements.create(dir, DirectoryElement.Type.DIR, total));
+            } else if (depth > 0) {
+                totals[depth] += total;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        /**
+         * @return whether to descend into the given sub-directory, which is neither excluded nor rejected by the
+         * {@link ScanContext} of the scan.
+         */
+        private boolean enter(final Path dir, final BasicFileAttributes attrs) throws IOException {
+            if (context.isExcluded(dir)) {
+                return false;
+            }
+            final Boolean enter = ErrorHandling.attempt(dir, options, () -> context.enter(dir, attrs));
+            return enter != null && enter;
+        }
+
+        private long sinceLastEvent() {
+            final long now = System.nanoTime();
+            final long nanos = now - lastEventNanos;
+            lastEventNanos = now;
+            return nanos;
+        }
+    }
+}
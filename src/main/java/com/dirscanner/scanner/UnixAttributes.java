@@ -0,0 +1,154 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+/**
+ * The attributes of an entry read through the {@code unix} attribute view, which carry the device, inode number, link
+ * count and owner ids of the entry on top of its basic attributes, all out of a single stat call.
+ * <p>
+ * {@link ScanContext} reads entries this way when a scan needs any of these, so that none of them takes a further
+ * stat per entry.
+ */
+final class UnixAttributes implements BasicFileAttributes {
+
+    private static final String VIEW = "unix";
+
+    private static final String NAMES = VIEW + ":size,lastModifiedTime,lastAccessTime,creationTime,"
+            + "isRegularFile,isDirectory,isSymbolicLink,isOther,fileKey,dev,ino,nlink,uid,gid";
+
+    private final long size;
+
+    private final FileTime lastModifiedTime;
+
+    private final FileTime lastAccessTime;
+
+    private final FileTime creationTime;
+
+    private final boolean regularFile;
+
+    private final boolean directory;
+
+    private final boolean symbolicLink;
+
+    private final boolean other;
+
+    private final Object fileKey;
+
+    private final long dev;
+
+    private final long ino;
+
+    private final int nlink;
+
+    private final int uid;
+
+    private final int gid;
+
+    private UnixAttributes(final Map<String, Object> attrs) {
+        this.size = (Long) attrs.get("size");
+        this.lastModifiedTime = (FileTime) attrs.get("lastModifiedTime");
+        this.lastAccessTime = (FileTime) attrs.get("lastAccessTime");
+        this.creationTime = (FileTime) attrs.get("creationTime");
+        this.regularFile = (Boolean) attrs.get("isRegularFile");
+        this.directory = (Boolean) attrs.get("isDirectory");
+        this.symbolicLink = (Boolean) attrs.get("isSymbolicLink");
+        this.other = (Boolean) attrs.get("isOther");
+        this.fileKey = attrs.get("fileKey");
+        this.dev = ((Number) attrs.get("dev")).longValue();
+        this.ino = ((Number) attrs.get("ino")).longValue();
+        this.nlink = ((Number) attrs.get("nlink")).intValue();
+        this.uid = ((Number) attrs.get("uid")).intValue();
+        this.gid = ((Number) attrs.get("gid")).intValue();
+    }
+
+    /**
+     * @return whether the given file system has a {@code unix} attribute view.
+     */
+    static boolean isSupported(@Nonnull final FileSystem fileSystem) {
+        return fileSystem.supportedFileAttributeViews().contains(VIEW);
+    }
+
+    /**
+     * Read the attributes of the given entry, which must reside on a file system {@link #isSupported(FileSystem)
+     * supporting} them.
+     */
+    static UnixAttributes read(@Nonnull final Path entry, @Nonnull final LinkOption... options) throws IOException {
+        return new UnixAttributes(Files.readAttributes(entry, NAMES, options));
+    }
+
+    /**
+     * @return the device of the entry, as returned by {@link Devices#deviceOf(Path, LinkOption...)}.
+     */
+    long dev() {
+        return dev;
+    }
+
+    long ino() {
+        return ino;
+    }
+
+    int nlink() {
+        return nlink;
+    }
+
+    int uid() {
+        return uid;
+    }
+
+    int gid() {
+        return gid;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+        return lastAccessTime;
+    }
+
+    @Override
+    public FileTime creationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public boolean isRegularFile() {
+        return regularFile;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+        return symbolicLink;
+    }
+
+    @Override
+    public boolean isOther() {
+        return other;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Object fileKey() {
+        return fileKey;
+    }
+}
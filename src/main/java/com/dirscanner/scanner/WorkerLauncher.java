@@ -0,0 +1,52 @@
+package com.dirscanner.scanner;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the {@link ScanWorker}s of a {@link DistributedScanEngine}.
+ */
+interface WorkerLauncher {
+
+    /**
+     * Starts each worker as a JVM of its own, on the class path of the running JVM, which exits once the scan is done.
+     */
+    WorkerLauncher PROCESSES = new WorkerLauncher() {
+
+        private static final long EXIT_TIMEOUT_SECONDS = 10;
+
+        @Override
+        public Closeable launch(@Nonnull final InetSocketAddress coordinator) throws IOException {
+
+            final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            final Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    ScanWorker.class.getName(), Integer.toString(coordinator.getPort()))
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+
+            return () -> {
+                try {
+                    if (!process.waitFor(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (final InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            };
+        }
+    };
+
+    /**
+     * Start a worker of the coordinator listening on the given address.
+     *
+     * @return a handle on the worker, which waits for it to end once closed.
+     * @throws IOException if the worker could not be started
+     */
+    Closeable launch(@Nonnull InetSocketAddress coordinator) throws IOException;
+}
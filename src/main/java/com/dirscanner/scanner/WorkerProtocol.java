@@ -0,0 +1,114 @@
+package com.dirscanner.scanner;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The messages exchanged between a {@link DistributedScanEngine} and its {@link ScanWorker}s over a socket.
+ * <p>
+ * Every message is a one-byte code followed by its fields, written by a {@link DataOutputStream}. Strings, such as
+ * paths, are written as their length followed by their UTF-8 bytes, so paths of any length can be sent. The coordinator
+ * first sends the {@link #CONFIG} of the scan, then sends units of work one at a time, and the worker answers every
+ * unit with either a {@link #RESULT} or a {@link #FAILED}, optionally preceded by {@link #DONATE}s of part of the unit,
+ * which are only ever sent in answer to a {@link #STEAL}.
+ */
+final class WorkerProtocol {
+
+    // Sent by the coordinator.
+
+    /**
+     * The options of the scan: error policy, retries, retry backoff, whether to stay on the same file system, whether
+     * to stat relative to directories, and the exclude patterns.
+     */
+    static final byte CONFIG = 1;
+
+    /**
+     * A unit of work: its id and the absolute path of the directory whose contents are to be summed up.
+     */
+    static final byte UNIT = 2;
+
+    /**
+     * A request to hand part of the unit being worked on back, to be given to an idle worker.
+     */
+    static final byte STEAL = 3;
+
+    /**
+     * The end of the scan.
+     */
+    static final byte SHUTDOWN = 4;
+
+    // Sent by a worker.
+
+    /**
+     * The total of a unit, excluding the directories donated out of it: its id and the total in bytes.
+     */
+    static final byte RESULT = 10;
+
+    /**
+     * Directories handed back out of a unit, in answer to a {@link #STEAL}: the id of the unit, and the paths of the
+     * directories, of which there may be none.
+     */
+    static final byte DONATE = 11;
+
+    /**
+     * An entry of a unit which could not be read and was skipped: its path and the error message.
+     */
+    static final byte SKIPPED = 12;
+
+    /**
+     * A unit which could not be summed up, under {@link ErrorPolicy#FAIL_FAST}: its id and the error message.
+     */
+    static final byte FAILED = 13;
+
+    private WorkerProtocol() {
+    }
+
+    static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeConfig(final DataOutputStream out, final ScanOptions options) throws IOException {
+        out.writeByte(CONFIG);
+        writeString(out, options.getErrorPolicy().name());
+        out.writeInt(options.getMaxRetries());
+        out.writeLong(options.getRetryBackoffMillis());
+        out.writeBoolean(options.isSameFileSystem());
+        out.writeBoolean(options.isDirectoryRelativeStat());
+        out.writeInt(options.getExcludes().size());
+        for (final String exclude : options.getExcludes()) {
+            writeString(out, exclude);
+        }
+    }
+
+    /**
+     * Read the options of the scan, following a {@link #CONFIG} code.
+     */
+    static ScanOptions.ScanOptionsBuilder readConfig(final DataInputStream in) throws IOException {
+
+        final ScanOptions.ScanOptionsBuilder options = ScanOptions.builder()
+                .errorPolicy(ErrorPolicy.valueOf(readString(in)))
+                .maxRetries(in.readInt())
+                .retryBackoffMillis(in.readLong())
+                .sameFileSystem(in.readBoolean())
+                .directoryRelativeStat(in.readBoolean());
+
+        final int excludes = in.readInt();
+        final List<String> patterns = new ArrayList<>(excludes);
+        for (int i = 0; i < excludes; i++) {
+            patterns.add(readString(in));
+        }
+        return options.excludes(patterns);
+    }
+}
@@ -0,0 +1,104 @@
+package com.dirscanner.server;
+
+/**
+ * A minimal writer of JSON objects into a {@link StringBuilder}, which takes care of commas between members and of
+ * escaping strings, so that responses are written out without going through an intermediate object model.
+ */
+final class Json {
+
+    private final StringBuilder out = new StringBuilder(256);
+
+    /**
+     * Whether the next member or element is the first of its object or array, and so needs no comma.
+     */
+    private boolean first = true;
+
+    Json beginObject() {
+        separate();
+        out.append('{');
+        first = true;
+        return this;
+    }
+
+    Json endObject() {
+        out.append('}');
+        first = false;
+        return this;
+    }
+
+    Json beginArray(final String name) {
+        name(name);
+        out.append('[');
+        first = true;
+        return this;
+    }
+
+    Json endArray() {
+        out.append(']');
+        first = false;
+        return this;
+    }
+
+    Json member(final String name, final String value) {
+        name(name);
+        string(value);
+        first = false;
+        return this;
+    }
+
+    Json member(final String name, final long value) {
+        name(name);
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void name(final String name) {
+        separate();
+        string(name);
+        out.append(':');
+        first = true;
+    }
+
+    private void separate() {
+        if (!first) {
+            out.append(',');
+        }
+    }
+
+    private void string(final String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,367 @@
+package com.dirscanner.server;
+
+import com.dirscanner.scanner.DirectoryElementScanner;
+import com.dirscanner.tree.FileTree;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves queries on the latest scan of a directory over HTTP, as JSON, and keeps the scan current by scanning the
+ * directory again in the background at a fixed interval.
+ * <p>
+ * The scan is held as an immutable {@link FileTree}. A refresh builds a whole new tree aside, and only then swaps it in
+ * with a single volatile write, so queries never wait on a running scan, and each query sees one scan throughout.
+ * Queries only visit the nodes they need: a path is looked up one name at a time, and a search matches each distinct
+ * name once.
+ * <p>
+ * The following {@code GET} endpoints are served:
+ * <ul>
+ * <li>{@code /size?path=P} the size and file count of the file or directory {@code P}</li>
+ * <li>{@code /top?path=P&n=N} the {@code N} largest children of the directory {@code P}, 10 by default</li>
+ * <li>{@code /search?q=TEXT&limit=N} the first {@code N} files and directories whose name contains {@code TEXT}, 100 by
+ * default</li>
+ * <li>{@code /status} the root, the number of nodes and the time of the latest scan, the number of refreshes and of
+ * failed refreshes, and the cause of the latest failure</li>
+ * </ul>
+ * Paths are absolute, or else relative to the scanned directory, which they default to. An unknown path is answered
+ * with {@code 404}, and a malformed query with {@code 400}.
+ * <p>
+ * Entries which cannot be read are dealt with by the {@link com.dirscanner.scanner.ErrorPolicy} of the scanner: under
+ * {@link com.dirscanner.scanner.ErrorPolicy#SKIP} they are left out of the served tree, whereas under
+ * {@link com.dirscanner.scanner.ErrorPolicy#FAIL_FAST} a single unreadable directory fails the scan. A refresh which
+ * fails is counted, and its cause reported by {@code /status}.
+ */
+public class ScanServer implements Closeable {
+
+    private static final int DEFAULT_TOP = 10;
+
+    private static final int DEFAULT_SEARCH_LIMIT = 100;
+
+    private final DirectoryElementScanner scanner;
+
+    private final Path root;
+
+    private final HttpServer server;
+
+    private final ExecutorService handlers;
+
+    private final ScheduledExecutorService refresher;
+
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    private volatile Exception lastRefreshFailure;
+
+    private volatile Index index;
+
+    private ScanServer(final DirectoryElementScanner scanner, final Path root, final InetSocketAddress address) throws IOException {
+        this.scanner = scanner;
+        this.root = root;
+        this.index = scan();
+        this.server = HttpServer.create(address, 0);
+        this.handlers = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), daemon("dir-scanner-server"));
+        this.refresher = Executors.newSingleThreadScheduledExecutor(daemon("dir-scanner-refresh"));
+    }
+
+    /**
+     * Scan the given directory, and serve queries on it until the returned server is closed.
+     *
+     * @param scanner       the scanner to scan the directory with, on every refresh
+     * @param root          the directory to scan
+     * @param address       the address to listen on, with port 0 for any free port
+     * @param refreshMillis the delay between the end of a scan and the start of the next one, or 0 to never refresh
+     * @return the running server
+     * @throws NoSuchFileException      if the given path is not valid
+     * @throws NotDirectoryException    if the given path points to a file as opposed to a directory
+     * @throws IOException              if the server could not listen on the given address
+     * @throws IllegalArgumentException if {@code refreshMillis} is negative
+     */
+    public static ScanServer start(@Nonnull final DirectoryElementScanner scanner, @Nonnull final Path root,
+                                   @Nonnull final InetSocketAddress address, final long refreshMillis) throws IOException {
+
+        if (refreshMillis < 0) {
+            throw new IllegalArgumentException(String.format("Refresh interval must not be negative but was %d ms.", refreshMillis));
+        }
+
+        final ScanServer scanServer = new ScanServer(scanner, root.toAbsolutePath(), address);
+        scanServer.server.createContext("/", scanServer::handle);
+        scanServer.server.setExecutor(scanServer.handlers);
+        scanServer.server.start();
+
+        if (refreshMillis > 0) {
+            scanServer.refresher.scheduleWithFixedDelay(scanServer::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        }
+        return scanServer;
+    }
+
+    /**
+     * @return the address the server listens on.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * @return the number of completed refreshes, excluding the initial scan.
+     */
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    /**
+     * @return the number of refreshes which failed, and so left the previous scan in place.
+     */
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    /**
+     * @return the cause of the latest refresh which failed, or {@code null} if none has failed.
+     */
+    public Exception getLastRefreshFailure() {
+        return lastRefreshFailure;
+    }
+
+    /**
+     * Scan the directory again and swap the new scan in, blocking until done. Queries keep being answered from the
+     * previous scan meanwhile. A scan which fails leaves the previous one in place.
+     */
+    public void refresh() {
+        try {
+            index = scan();
+            refreshes.incrementAndGet();
+        } catch (final IOException | RuntimeException e) {
+            lastRefreshFailure = e;
+            refreshFailures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Block until the server is {@link #close() closed}.
+     */
+    public void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+        server.stop(0);
+        handlers.shutdownNow();
+        closed.countDown();
+    }
+
+    private Index scan() throws IOException {
+        final long start = System.currentTimeMillis();
+        final FileTree tree = scanner.scanTree(root);
+        return new Index(tree, start, System.currentTimeMillis() - start);
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("Only GET is supported."));
+                return;
+            }
+
+            final Map<String, String> params = parameters(exchange.getRequestURI().getRawQuery());
+            final Index current = index;
+            switch (exchange.getRequestURI().getPath()) {
+                case "/size":
+                    respondWithNode(exchange, current, params, node -> size(current.tree, node));
+                    break;
+                case "/top":
+                    final int n = intParameter(params, "n", DEFAULT_TOP);
+                    respondWithNode(exchange, current, params, node -> top(current.tree, node, n));
+                    break;
+                case "/search":
+                    final String text = params.get("q");
+                    if (text == null || text.isEmpty()) {
+                        throw new IllegalArgumentException("Parameter q must be given.");
+                    }
+                    respond(exchange, 200, search(current.tree, text, intParameter(params, "limit", DEFAULT_SEARCH_LIMIT)));
+                    break;
+                case "/status":
+                    respond(exchange, 200, status(current));
+                    break;
+                default:
+                    respond(exchange, 404, error(String.format("No endpoint %s.", exchange.getRequestURI().getPath())));
+            }
+        } catch (final IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respondWithNode(final HttpExchange exchange, final Index current, final Map<String, String> params,
+                                 final NodeQuery query) throws IOException {
+
+        final String path = params.getOrDefault("path", "");
+        final int node = current.tree.find(Paths.get(path));
+        if (node < 0) {
+            respond(exchange, 404, error(String.format("No file or directory %s in %s.", path, root)));
+        } else {
+            respond(exchange, 200, query.answer(node));
+        }
+    }
+
+    private static String size(final FileTree tree, final int node) {
+        return node(new Json(), tree, node).toString();
+    }
+
+    private static String top(final FileTree tree, final int node, final int n) {
+
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("Number of children must be at least 1 but was %d.", n));
+        }
+
+        final Integer[] children = Arrays.stream(tree.getChildren(node)).boxed().toArray(Integer[]::new);
+        Arrays.sort(children, (a, b) -> Long.compare(tree.getSizeInBytes(b), tree.getSizeInBytes(a)));
+
+        final Json json = new Json().beginObject()
+                .member("path", tree.getPath(node).toString())
+                .member("sizeInBytes", tree.getSizeInBytes(node))
+                .beginArray("children");
+        for (int i = 0; i < Math.min(n, children.length); i++) {
+            node(json, tree, children[i]);
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private static String search(final FileTree tree, final String text, final int limit) {
+
+        final Json json = new Json().beginObject()
+                .member("query", text)
+                .beginArray("matches");
+        for (final int node : tree.search(text, limit)) {
+            node(json, tree, node);
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private String status(final Index current) {
+        final Json json = new Json().beginObject()
+                .member("root", root.toString())
+                .member("nodes", current.tree.size())
+                .member("scannedAtMillis", current.scannedAtMillis)
+                .member("scanMillis", current.scanMillis)
+                .member("refreshes", refreshes.get())
+                .member("refreshFailures", refreshFailures.get());
+        final Exception failure = lastRefreshFailure;
+        if (failure != null) {
+            json.member("lastRefreshFailure", String.valueOf(failure.getMessage()));
+        }
+        return json.endObject().toString();
+    }
+
+    private static Json node(final Json json, final FileTree tree, final int node) {
+        return json.beginObject()
+                .member("path", tree.getPath(node).toString())
+                .member("type", tree.isDirectory(node) ? "DIR" : "FILE")
+                .member("sizeInBytes", tree.getSizeInBytes(node))
+                .member("fileCount", tree.getFileCount(node))
+                .endObject();
+    }
+
+    private static String error(final String message) {
+        return new Json().beginObject().member("error", message).endObject().toString();
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parameters(final String query) throws UnsupportedEncodingException {
+
+        final Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+
+        for (final String pair : query.split("&")) {
+            final int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    private static int intParameter(final Map<String, String> params, final String name, final int defaultValue) {
+        final String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Parameter %s must be a number but was %s.", name, value));
+        }
+    }
+
+    private static ThreadFactory daemon(final String name) {
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * An answer to a query on a single node.
+     */
+    @FunctionalInterface
+    private interface NodeQuery {
+        String answer(int node);
+    }
+
+    /**
+     * A completed scan, which is never modified once swapped in.
+     */
+    private static final class Index {
+
+        private final FileTree tree;
+
+        private final long scannedAtMillis;
+
+        private final long scanMillis;
+
+        Index(final FileTree tree, final long scannedAtMillis, final long scanMillis) {
+            this.tree = tree;
+            this.scannedAtMillis = scannedAtMillis;
+            this.scanMillis = scanMillis;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.dirscanner.snapshot;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A change to an entry between two snapshots of the same tree.
+ */
+@Builder
+public class SnapshotDelta {
+
+    public enum Kind {
+        ADDED,
+        REMOVED,
+        GROWN,
+        SHRUNK
+    }
+
+    /**
+     * The kind of change.
+     */
+    @Getter
+    private final Kind kind;
+
+    /**
+     * The path of the entry, relative to the root of the snapshots.
+     */
+    @Getter
+    private final String path;
+
+    /**
+     * Whether the entry is a directory.
+     */
+    @Getter
+    private final boolean directory;
+
+    /**
+     * The size of the entry in the older snapshot, or 0 if it was added.
+     */
+    @Getter
+    private final long oldSize;
+
+    /**
+     * The size of the entry in the newer snapshot, or 0 if it was removed.
+     */
+    @Getter
+    private final long newSize;
+
+    /**
+     * @return by how many bytes the entry grew, which is negative if it shrank.
+     */
+    public long getDelta() {
+        return newSize - oldSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s %+d", kind.name(), directory ? "DIR" : "FILE", path, getDelta());
+    }
+}
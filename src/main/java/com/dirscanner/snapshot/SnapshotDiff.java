@@ -0,0 +1,123 @@
+package com.dirscanner.snapshot;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Compares two snapshots of the same tree, to find out which entries were added, removed, or grew or shrank in the
+ * meantime.
+ * <p>
+ * Since the entries of both snapshots are in the same order, the snapshots are merge-joined, each being read once
+ * from start to end. Neither is loaded into memory, so snapshots of any size are compared in constant memory, other
+ * than that taken by the deltas kept by the caller.
+ */
+public final class SnapshotDiff {
+
+    private static final Comparator<SnapshotDelta> BY_ABSOLUTE_DELTA = Comparator.comparingLong(delta -> Math.abs(delta.getDelta()));
+
+    private SnapshotDiff() {
+    }
+
+    /**
+     * Pass every changed entry on to the given sink, in the order of the snapshots. Entries whose size did not change
+     * are left out, and an entry which changed from a file to a directory, or vice versa, is reported as removed and
+     * added again.
+     *
+     * @param older the reader of the older snapshot, positioned before its first entry
+     * @param newer the reader of the newer snapshot, positioned before its first entry
+     * @param sink  the consumer of the deltas
+     * @throws IOException if either snapshot could not be read
+     */
+    public static void diff(@Nonnull final SnapshotReader older, @Nonnull final SnapshotReader newer,
+                            @Nonnull final Consumer<SnapshotDelta> sink) throws IOException {
+
+        boolean hasOlder = older.next();
+        boolean hasNewer = newer.next();
+
+        while (hasOlder || hasNewer) {
+
+            final int order = !hasOlder ? 1 : !hasNewer ? -1 : SnapshotPaths.compare(older.getPath(), newer.getPath());
+
+            if (order < 0) {
+                sink.accept(removed(older));
+                hasOlder = older.next();
+            } else if (order > 0) {
+                sink.accept(added(newer));
+                hasNewer = newer.next();
+            } else {
+                if (older.isDirectory() != newer.isDirectory()) {
+                    sink.accept(removed(older));
+                    sink.accept(added(newer));
+                } else if (older.getSize() != newer.getSize()) {
+                    sink.accept(SnapshotDelta.builder()
+                            .kind(newer.getSize() > older.getSize() ? SnapshotDelta.Kind.GROWN : SnapshotDelta.Kind.SHRUNK)
+                            .path(newer.getPath())
+                            .directory(newer.isDirectory())
+                            .oldSize(older.getSize())
+                            .newSize(newer.getSize())
+                            .build());
+                }
+                hasOlder = older.next();
+                hasNewer = newer.next();
+            }
+        }
+    }
+
+    /**
+     * @param older the older snapshot file
+     * @param newer the newer snapshot file
+     * @param n     the number of deltas to return
+     * @return the {@code n} deltas which changed the most bytes, whether added, removed, grown or shrunk, in
+     * descending order of the number of bytes changed.
+     * @throws IllegalArgumentException if {@code n} is smaller than 1
+     * @throws IOException              if either snapshot could not be read
+     */
+    public static List<SnapshotDelta> largest(@Nonnull final Path older, @Nonnull final Path newer, final int n) throws IOException {
+
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("Number of deltas must be at least 1 but was %d.", n));
+        }
+
+        final PriorityQueue<SnapshotDelta> heap = new PriorityQueue<>(n + 1, BY_ABSOLUTE_DELTA);
+
+        try (final SnapshotReader olderReader = SnapshotReader.open(older);
+             final SnapshotReader newerReader = SnapshotReader.open(newer)) {
+            diff(olderReader, newerReader, delta -> {
+                if (heap.size() < n) {
+                    heap.add(delta);
+                } else if (BY_ABSOLUTE_DELTA.compare(delta, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.add(delta);
+                }
+            });
+        }
+
+        final List<SnapshotDelta> deltas = new ArrayList<>(heap);
+        deltas.sort(BY_ABSOLUTE_DELTA.reversed());
+        return deltas;
+    }
+
+    private static SnapshotDelta added(final SnapshotReader newer) {
+        return SnapshotDelta.builder()
+                .kind(SnapshotDelta.Kind.ADDED)
+                .path(newer.getPath())
+                .directory(newer.isDirectory())
+                .newSize(newer.getSize())
+                .build();
+    }
+
+    private static SnapshotDelta removed(final SnapshotReader older) {
+        return SnapshotDelta.builder()
+                .kind(SnapshotDelta.Kind.REMOVED)
+                .path(older.getPath())
+                .directory(older.isDirectory())
+                .oldSize(older.getSize())
+                .build();
+    }
+}
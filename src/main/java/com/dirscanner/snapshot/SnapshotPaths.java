@@ -0,0 +1,67 @@
+package com.dirscanner.snapshot;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The order of the entries in a snapshot, which is that of a depth-first walk visiting the entries of every directory
+ * in ascending order of name, and every directory after its contents.
+ * <p>
+ * Paths are relative to the root of the snapshot, with {@code /} separating their names, and the root itself is the
+ * empty path. Two paths are compared name by name, and a path comes after all the paths within it.
+ */
+final class SnapshotPaths {
+
+    private static final char SEPARATOR = '/';
+
+    private SnapshotPaths() {
+    }
+
+    /**
+     * @return a negative number, zero or a positive number as the first path comes before, is equal to or comes after
+     * the second one. No objects are allocated.
+     */
+    static int compare(@Nonnull final String a, @Nonnull final String b) {
+
+        if (a.isEmpty() || b.isEmpty()) {
+            return Boolean.compare(a.isEmpty(), b.isEmpty());
+        }
+
+        int i = 0;
+        int j = 0;
+        while (true) {
+            final int aEnd = endOfName(a, i);
+            final int bEnd = endOfName(b, j);
+
+            final int names = compareNames(a, i, aEnd, b, j, bEnd);
+            if (names != 0) {
+                return names;
+            }
+
+            final boolean aDone = aEnd == a.length();
+            final boolean bDone = bEnd == b.length();
+            if (aDone || bDone) {
+                return Boolean.compare(aDone, bDone);
+            }
+
+            i = aEnd + 1;
+            j = bEnd + 1;
+        }
+    }
+
+    private static int endOfName(final String path, final int start) {
+        final int end = path.indexOf(SEPARATOR, start);
+        return end < 0 ? path.length() : end;
+    }
+
+    private static int compareNames(final String a, final int aStart, final int aEnd, final String b, final int bStart, final int bEnd) {
+        final int length = Math.min(aEnd - aStart, bEnd - bStart);
+        for (int k = 0; k < length; k++) {
+            final char x = a.charAt(aStart + k);
+            final char y = b.charAt(bStart + k);
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return (aEnd - aStart) - (bEnd - bStart);
+    }
+}
@@ -0,0 +1,156 @@
+package com.dirscanner.snapshot;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads a snapshot written by a {@link SnapshotWriter} one entry at a time, in the order in which the entries were
+ * written, so that snapshots of any size are read in constant memory.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class SnapshotReader implements Closeable {
+
+    private final DataInputStream in;
+
+    private final String root;
+
+    private final long createdMillis;
+
+    private byte[] pathBytes = new byte[256];
+
+    private int pathLength;
+
+    private String path;
+
+    private boolean directory;
+
+    private long size;
+
+    private boolean done;
+
+    private SnapshotReader(final DataInputStream in, final String root, final long createdMillis) {
+        this.in = in;
+        this.root = root;
+        this.createdMillis = createdMillis;
+    }
+
+    /**
+     * @param file a snapshot file
+     * @return a reader positioned before the first entry of the snapshot
+     * @throws StreamCorruptedException if the file is not a snapshot, or was written by an incompatible version
+     * @throws IOException              if the file could not be read
+     */
+    public static SnapshotReader open(@Nonnull final Path file) throws IOException {
+
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        try {
+            if (in.readInt() != SnapshotWriter.MAGIC || in.readInt() != SnapshotWriter.VERSION) {
+                throw new StreamCorruptedException(String.format("%s is not a snapshot of a supported version.", file));
+            }
+            return new SnapshotReader(in, in.readUTF(), in.readLong());
+        } catch (final IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the absolute path of the scanned tree.
+     */
+    public String getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the time at which the snapshot was taken, in milliseconds since the epoch.
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Move on to the next entry.
+     *
+     * @return whether there is a next entry, as opposed to the end of the snapshot having been reached
+     * @throws IOException if the entry could not be read
+     */
+    public boolean next() throws IOException {
+
+        if (done) {
+            return false;
+        }
+
+        final int type = in.readUnsignedByte();
+        if (type == SnapshotWriter.END) {
+            done = true;
+            path = null;
+            return false;
+        }
+        if (type != SnapshotWriter.FILE && type != SnapshotWriter.DIR) {
+            throw new StreamCorruptedException(String.format("Unknown entry type %d.", type));
+        }
+
+        final int shared = (int) readVarLong(in);
+        final int suffix = (int) readVarLong(in);
+        if (shared > pathLength) {
+            throw new StreamCorruptedException(String.format("Entry shares %d bytes with a path of %d bytes.", shared, pathLength));
+        }
+        if (shared + suffix > pathBytes.length) {
+            pathBytes = Arrays.copyOf(pathBytes, Math.max(shared + suffix, pathBytes.length * 2));
+        }
+        in.readFully(pathBytes, shared, suffix);
+        pathLength = shared + suffix;
+
+        path = new String(pathBytes, 0, pathLength, StandardCharsets.UTF_8);
+        directory = type == SnapshotWriter.DIR;
+        size = readVarLong(in);
+        return true;
+    }
+
+    /**
+     * @return the path of the current entry, relative to the root of the snapshot, or {@code null} if there is none.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return whether the current entry is a directory.
+     */
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the size of the current entry, which for a directory is the total of all its contents.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Variable-length number longer than 64 bits.");
+    }
+}
@@ -0,0 +1,144 @@
+package com.dirscanner.snapshot;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes a snapshot of a scanned tree, one entry at a time, so that snapshots of any size are written in constant
+ * memory.
+ * <p>
+ * Entries must be written in the order defined by {@link SnapshotPaths}, i.e. in the order of a depth-first walk with
+ * every directory written after its contents, which is the order in which their totals become known. Since consecutive
+ * paths share long prefixes, each path is stored as the length of the prefix it shares with the previous one followed
+ * by the rest of it, and every number is stored as a variable-length integer.
+ * <p>
+ * The snapshot is written to a temporary file, which only replaces the given file once {@link #close() closed}, or is
+ * deleted if the snapshot is {@link #abort() aborted}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class SnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x44535331; // "DSS1"
+
+    static final int VERSION = 1;
+
+    static final int END = 0;
+
+    static final int FILE = 1;
+
+    static final int DIR = 2;
+
+    private final Path file;
+
+    private final Path tmp;
+
+    private final DataOutputStream out;
+
+    private String previousPath;
+
+    private byte[] previous = new byte[0];
+
+    private long count;
+
+    private SnapshotWriter(final Path file, final Path tmp, final DataOutputStream out) {
+        this.file = file;
+        this.tmp = tmp;
+        this.out = out;
+    }
+
+    /**
+     * @param file the snapshot file to write
+     * @param root the absolute path of the scanned tree
+     * @return a writer of the entries of the snapshot
+     * @throws IOException if the snapshot file could not be created
+     */
+    public static SnapshotWriter create(@Nonnull final Path file, @Nonnull final String root) throws IOException {
+
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(root);
+        out.writeLong(System.currentTimeMillis());
+
+        return new SnapshotWriter(file, tmp, out);
+    }
+
+    /**
+     * @param path      the path of the entry, relative to the root of the snapshot
+     * @param directory whether the entry is a directory
+     * @param size      the size of the entry, which for a directory is the total of all its contents
+     * @throws IllegalArgumentException if the entry does not come after the previous one, in the order of a snapshot
+     * @throws IOException              if the entry could not be written
+     */
+    public void write(@Nonnull final String path, final boolean directory, final long size) throws IOException {
+
+        if (previousPath != null && SnapshotPaths.compare(previousPath, path) >= 0) {
+            throw new IllegalArgumentException(String.format("Entry %s written after %s, out of snapshot order.", path, previousPath));
+        }
+
+        final byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        final int shared = sharedPrefix(previous, bytes);
+
+        out.writeByte(directory ? DIR : FILE);
+        writeVarLong(out, shared);
+        writeVarLong(out, bytes.length - shared);
+        out.write(bytes, shared, bytes.length - shared);
+        writeVarLong(out, size);
+
+        previousPath = path;
+        previous = bytes;
+        count++;
+    }
+
+    /**
+     * Write the end of the snapshot, and move it in place of the given file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.writeByte(END);
+            out.writeLong(count);
+        } finally {
+            out.close();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Discard the snapshot written so far, leaving the given file as it was.
+     */
+    public void abort() throws IOException {
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    private static int sharedPrefix(final byte[] a, final byte[] b) {
+        final int length = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < length && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+}
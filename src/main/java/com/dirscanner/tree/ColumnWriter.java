@@ -0,0 +1,136 @@
+package com.dirscanner.tree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A column of a tree file being written, spilled to a temporary file through a buffer.
+ * <p>
+ * Values are appended, but may be patched later on: a value still in the buffer is overwritten in place, and one
+ * already spilled is overwritten by a positional write. This lets a directory be appended when it is entered, and its
+ * totals be filled in once it is left.
+ */
+final class ColumnWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final ByteBuffer patch = ByteBuffer.allocateDirect(8);
+
+    private long spilled;
+
+    ColumnWriter(final Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * @return the number of bytes appended so far.
+     */
+    long position() {
+        return spilled + buffer.position();
+    }
+
+    void putByte(final byte value) throws IOException {
+        ensureRemaining(1);
+        buffer.put(value);
+    }
+
+    void putInt(final int value) throws IOException {
+        ensureRemaining(4);
+        buffer.putInt(value);
+    }
+
+    void putLong(final long value) throws IOException {
+        ensureRemaining(8);
+        buffer.putLong(value);
+    }
+
+    void putBytes(final byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureRemaining(1);
+            final int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    void patchInt(final long position, final int value) throws IOException {
+        if (position >= spilled) {
+            buffer.putInt((int) (position - spilled), value);
+        } else {
+            patch.clear();
+            patch.putInt(value).flip();
+            writeFully(patch, position);
+        }
+    }
+
+    void patchLong(final long position, final long value) throws IOException {
+        if (position >= spilled) {
+            buffer.putLong((int) (position - spilled), value);
+        } else {
+            patch.clear();
+            patch.putLong(value).flip();
+            writeFully(patch, position);
+        }
+    }
+
+    /**
+     * Copy the whole column to the given position of the given channel.
+     *
+     * @return the number of bytes copied
+     */
+    long copyTo(final FileChannel target, final long targetPosition) throws IOException {
+        spill();
+        long copied = 0;
+        while (copied < spilled) {
+            copied += channel.transferTo(copied, spilled - copied, target.position(targetPosition + copied));
+        }
+        return copied;
+    }
+
+    /**
+     * Close and delete the temporary file of the column.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void ensureRemaining(final int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException {
+        buffer.flip();
+        final int length = buffer.remaining();
+        writeFully(buffer, spilled);
+        spilled += length;
+        buffer.clear();
+    }
+
+    private void writeFully(final ByteBuffer source, final long position) throws IOException {
+        long at = position;
+        while (source.hasRemaining()) {
+            at += channel.write(source, at);
+        }
+    }
+}
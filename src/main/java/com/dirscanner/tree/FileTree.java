@@ -0,0 +1,230 @@
+package com.dirscanner.tree;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.DirectoryElement.Size;
+import com.dirscanner.elem.FileSizeUnit;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The full hierarchy of a scanned directory, including every nested directory and file rather than only the
+ * top-level elements.
+ * <p>
+ * Nodes are identified by an {@code int} index, and are stored in pre-order as columns of primitive arrays rather than
+ * as objects: the parent, the end of the sub-tree, the exact size in bytes, the number of files in the sub-tree and an
+ * interned name. This takes about 28 bytes per node, plus one bit for its type and the bytes of its name when not
+ * shared with another node. Since nodes are in pre-order, the sub-tree of node {@code n} is made up of the nodes from
+ * {@code n} up to, but excluding, {@link #getSubTreeEnd(int)}.
+ * <p>
+ * {@link DirectoryElement}s are only created on demand, through {@link #toDirectoryElement(int)}.
+ */
+public class FileTree {
+
+    /**
+     * The index of the scanned directory.
+     */
+    public static final int ROOT = 0;
+
+    private final Path root;
+
+    private final int size;
+
+    private final int[] parents;
+
+    private final int[] subTreeEnds;
+
+    private final long[] sizes;
+
+    private final long[] fileCounts;
+
+    private final int[] nameIds;
+
+    private final long[] directories;
+
+    private final NamePool names;
+
+    FileTree(final Path root, final int size, final int[] parents, final int[] subTreeEnds, final long[] sizes,
+             final long[] fileCounts, final int[] nameIds, final long[] directories, final NamePool names) {
+        this.root = root;
+        this.size = size;
+        this.parents = parents;
+        this.subTreeEnds = subTreeEnds;
+        this.sizes = sizes;
+        this.fileCounts = fileCounts;
+        this.nameIds = nameIds;
+        this.directories = directories;
+        this.names = names;
+    }
+
+    /**
+     * @return the number of nodes in the tree, including the root.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the parent of the given node, or {@code -1} for the {@link #ROOT}.
+     */
+    public int getParent(final int node) {
+        return parents[node];
+    }
+
+    /**
+     * @return the index following the last node in the sub-tree of the given node.
+     */
+    public int getSubTreeEnd(final int node) {
+        return subTreeEnds[node];
+    }
+
+    /**
+     * @return the size of the given file, or the summation of the sizes of all the contents of the given directory.
+     */
+    public long getSizeInBytes(final int node) {
+        return sizes[node];
+    }
+
+    /**
+     * @return 1 for a file, or the number of files anywhere within the given directory.
+     */
+    public long getFileCount(final int node) {
+        return fileCounts[node];
+    }
+
+    public boolean isDirectory(final int node) {
+        return (directories[node >>> 6] & (1L << node)) != 0;
+    }
+
+    /**
+     * @return the file name of the given node, or the absolute path of the {@link #ROOT}.
+     */
+    public String getName(final int node) {
+        return names.name(nameIds[node]);
+    }
+
+    /**
+     * @return the absolute path of the given node.
+     */
+    public Path getPath(final int node) {
+
+        int depth = 0;
+        for (int n = node; n != ROOT; n = parents[n]) {
+            depth++;
+        }
+
+        final String[] segments = new String[depth];
+        for (int n = node; n != ROOT; n = parents[n]) {
+            segments[--depth] = getName(n);
+        }
+
+        return root.getFileSystem().getPath(getName(ROOT), segments);
+    }
+
+    /**
+     * @return the direct children of the given node, in the order in which they were scanned.
+     */
+    public int[] getChildren(final int node) {
+
+        int[] children = new int[8];
+        int count = 0;
+
+        for (int child = node + 1; child < subTreeEnds[node]; child = subTreeEnds[child]) {
+            if (count == children.length) {
+                children = Arrays.copyOf(children, count * 2);
+            }
+            children[count++] = child;
+        }
+
+        return Arrays.copyOf(children, count);
+    }
+
+    /**
+     * Look a node up by its path, by descending from the root one name at a time, so only the children of the
+     * directories along the path are visited.
+     *
+     * @param path a path relative to the root of the tree, or the absolute path of a node within it
+     * @return the node with the given path, or {@code -1} if there is none
+     */
+    public int find(@Nonnull final Path path) {
+
+        final Path rootPath = root.getFileSystem().getPath(getName(ROOT));
+        final Path relative;
+        if (path.isAbsolute()) {
+            if (!path.startsWith(rootPath)) {
+                return -1;
+            }
+            relative = rootPath.relativize(path);
+        } else {
+            relative = path;
+        }
+
+        int node = ROOT;
+        for (final Path name : relative) {
+            if (name.toString().isEmpty()) {
+                continue;
+            }
+
+            int match = -1;
+            for (int child = node + 1; child < subTreeEnds[node]; child = subTreeEnds[child]) {
+                if (getName(child).equals(name.toString())) {
+                    match = child;
+                    break;
+                }
+            }
+            if (match < 0) {
+                return -1;
+            }
+            node = match;
+        }
+
+        return node;
+    }
+
+    /**
+     * Search the tree for the nodes whose file name contains the given text. The text is matched against each distinct
+     * name once, rather than against every node, and nodes are then picked out by the id of their name.
+     *
+     * @param text  the text to look for, case-sensitively
+     * @param limit the maximum number of nodes to return
+     * @return the first {@code limit} matching nodes, excluding the root, in pre-order.
+     * @throws IllegalArgumentException if {@code limit} is smaller than 1
+     */
+    public int[] search(@Nonnull final String text, final int limit) {
+
+        if (limit < 1) {
+            throw new IllegalArgumentException(String.format("Number of nodes must be at least 1 but was %d.", limit));
+        }
+
+        final BitSet matching = names.idsContaining(text);
+        if (matching.isEmpty()) {
+            return new int[0];
+        }
+
+        int[] found = new int[Math.min(limit, 8)];
+        int count = 0;
+        for (int node = ROOT + 1; node < size && count < limit; node++) {
+            if (matching.get(nameIds[node])) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, Math.min(limit, count * 2));
+                }
+                found[count++] = node;
+            }
+        }
+
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * @return a {@link DirectoryElement} view of the given node.
+     */
+    public DirectoryElement toDirectoryElement(final int node) {
+        return DirectoryElement.builder()
+                .absPath(getPath(node).toString())
+                .type(isDirectory(node) ? DirectoryElement.Type.DIR : DirectoryElement.Type.FILE)
+                .size(Size.of(sizes[node], FileSizeUnit.KB))
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.dirscanner.tree;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * A {@link TreeSink} which builds a {@link FileTree} out of the walk of the directory it is first given.
+ * <p>
+ * Sizes and file counts are rolled up from children to parents as each directory is left, so the whole tree is built
+ * in a single pass.
+ */
+public class FileTreeBuilder implements TreeSink {
+
+    private final NamePool names = new NamePool();
+
+    private Path root;
+
+    private int size;
+
+    private int[] parents = new int[1024];
+
+    private int[] subTreeEnds = new int[1024];
+
+    private long[] sizes = new long[1024];
+
+    private long[] fileCounts = new long[1024];
+
+    private int[] nameIds = new int[1024];
+
+    private long[] directories = new long[1024 / 64];
+
+    /**
+     * The directories on the current walk path, from the root down.
+     */
+    private int[] open = new int[16];
+
+    private int depth;
+
+    @Override
+    public void enterDirectory(@Nonnull final String name) {
+
+        final int node;
+        if (root == null) {
+            root = Paths.get(name);
+            node = add(-1, name);
+        } else {
+            node = add(open[depth - 1], name);
+        }
+        directories[node >>> 6] |= 1L << node;
+
+        if (depth == open.length) {
+            open = Arrays.copyOf(open, depth * 2);
+        }
+        open[depth++] = node;
+    }
+
+    @Override
+    public void addFile(@Nonnull final String name, final long sizeInBytes) {
+
+        final int node = add(open[depth - 1], name);
+        sizes[node] = sizeInBytes;
+        fileCounts[node] = 1;
+        subTreeEnds[node] = node + 1;
+
+        final int parent = open[depth - 1];
+        sizes[parent] += sizeInBytes;
+        fileCounts[parent]++;
+    }
+
+    @Override
+    public void leaveDirectory() {
+
+        final int node = open[--depth];
+        subTreeEnds[node] = size;
+
+        if (depth > 0) {
+            final int parent = open[depth - 1];
+            sizes[parent] += sizes[node];
+            fileCounts[parent] += fileCounts[node];
+        }
+    }
+
+    /**
+     * @return the built tree. The builder must not be used afterwards.
+     * @throws IllegalStateException if no directory has been walked, or the walk is not yet done
+     */
+    public FileTree build() {
+
+        if (root == null || depth != 0) {
+            throw new IllegalStateException("Cannot build a file tree before a directory walk is done.");
+        }
+
+        names.trim();
+        return new FileTree(root, size,
+                Arrays.copyOf(parents, size),
+                Arrays.copyOf(subTreeEnds, size),
+                Arrays.copyOf(sizes, size),
+                Arrays.copyOf(fileCounts, size),
+                Arrays.copyOf(nameIds, size),
+                Arrays.copyOf(directories, (size + 63) >>> 6),
+                names);
+    }
+
+    private int add(final int parent, final String name) {
+
+        if (size == parents.length) {
+            final int capacity = size * 2;
+            parents = Arrays.copyOf(parents, capacity);
+            subTreeEnds = Arrays.copyOf(subTreeEnds, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            fileCounts = Arrays.copyOf(fileCounts, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+            directories = Arrays.copyOf(directories, capacity >>> 6);
+        }
+
+        parents[size] = parent;
+        nameIds[size] = names.intern(name);
+        return size++;
+    }
+}
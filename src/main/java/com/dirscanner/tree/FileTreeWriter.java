@@ -0,0 +1,211 @@
+package com.dirscanner.tree;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A {@link TreeSink} which writes the walk of the directory it is first given to a tree file, to be read
+ * by a {@link MappedFileTree}.
+ * <p>
+ * The file holds the same columns as a {@link FileTree}, in the same pre-order, but is written as the walk goes
+ * rather than built on the heap: every column is spilled to a temporary file of its own, and the totals of a directory
+ * are patched into place once it is left. Only the directories on the current walk path are kept in memory. Once the
+ * walk is done, {@link #finish()} concatenates the columns into the tree file.
+ * <p>
+ * The writer must be {@link #close() closed} afterwards, whether finished or not, to delete its temporary files.
+ */
+public class FileTreeWriter implements TreeSink, Closeable {
+
+    static final int MAGIC = 0x44534631; // "DSF1"
+
+    static final int VERSION = 1;
+
+    /**
+     * The magic number, the version, the number of nodes and the offset of each column.
+     */
+    static final int HEADER_SIZE = 4 + 4 + 8 + Column.values().length * 8;
+
+    /**
+     * The columns of a tree file, in the order in which they are laid out.
+     */
+    enum Column {
+        PARENTS,
+        SUB_TREE_ENDS,
+        SIZES,
+        FILE_COUNTS,
+        DIRECTORIES,
+        NAME_OFFSETS,
+        NAMES
+    }
+
+    private final Path file;
+
+    private final ColumnWriter[] columns = new ColumnWriter[Column.values().length];
+
+    private int size;
+
+    private boolean walked;
+
+    private boolean finished;
+
+    /**
+     * The directories on the current walk path, from the root down, with their running totals.
+     */
+    private int[] open = new int[16];
+
+    private long[] openSizes = new long[16];
+
+    private long[] openFileCounts = new long[16];
+
+    private int depth;
+
+    /**
+     * @param file the tree file to write
+     * @throws IOException if the temporary files of the columns could not be created
+     */
+    public FileTreeWriter(@Nonnull final Path file) throws IOException {
+        this.file = file;
+        try {
+            for (final Column column : Column.values()) {
+                columns[column.ordinal()] = new ColumnWriter(file.resolveSibling(file.getFileName() + "." + column.name().toLowerCase() + ".tmp"));
+            }
+        } catch (final IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void enterDirectory(@Nonnull final String name) throws IOException {
+
+        final int node = add(size == 0 ? -1 : open[depth - 1], name, true, 0, 0);
+
+        if (depth == open.length) {
+            open = Arrays.copyOf(open, depth * 2);
+            openSizes = Arrays.copyOf(openSizes, depth * 2);
+            openFileCounts = Arrays.copyOf(openFileCounts, depth * 2);
+        }
+        open[depth] = node;
+        openSizes[depth] = 0;
+        openFileCounts[depth] = 0;
+        depth++;
+    }
+
+    @Override
+    public void addFile(@Nonnull final String name, final long sizeInBytes) throws IOException {
+
+        add(open[depth - 1], name, false, sizeInBytes, 1);
+        openSizes[depth - 1] += sizeInBytes;
+        openFileCounts[depth - 1]++;
+    }
+
+    @Override
+    public void leaveDirectory() throws IOException {
+
+        final int node = open[--depth];
+        columns[Column.SUB_TREE_ENDS.ordinal()].patchInt(node * 4L, size);
+        columns[Column.SIZES.ordinal()].patchLong(node * 8L, openSizes[depth]);
+        columns[Column.FILE_COUNTS.ordinal()].patchLong(node * 8L, openFileCounts[depth]);
+
+        if (depth > 0) {
+            openSizes[depth - 1] += openSizes[depth];
+            openFileCounts[depth - 1] += openFileCounts[depth];
+        } else {
+            walked = true;
+        }
+    }
+
+    /**
+     * Write the tree file out of the columns written so far, replacing any previous file, and map it.
+     *
+     * @return the written tree, mapped from the tree file
+     * @throws IllegalStateException if no directory has been walked, the walk is not yet done, or the writer has
+     *                               already been finished
+     * @throws IOException           if the tree file could not be written
+     */
+    public MappedFileTree finish() throws IOException {
+
+        if (!walked || finished) {
+            throw new IllegalStateException("Cannot write a tree file before a directory walk is done, or more than once.");
+        }
+        finished = true;
+
+        final ColumnWriter nameOffsets = columns[Column.NAME_OFFSETS.ordinal()];
+        nameOffsets.putLong(columns[Column.NAMES.ordinal()].position());
+
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (final FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(size);
+
+            long offset = HEADER_SIZE;
+            for (final ColumnWriter column : columns) {
+                header.putLong(offset);
+                offset = align(offset + column.copyTo(out, offset));
+            }
+
+            header.flip();
+            while (header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return MappedFileTree.open(file);
+    }
+
+    /**
+     * Delete the temporary files of the columns.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (final ColumnWriter column : columns) {
+            if (column == null) {
+                continue;
+            }
+            try {
+                column.close();
+            } catch (final IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int add(final int parent, final String name, final boolean directory, final long sizeInBytes, final long fileCount) throws IOException {
+
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("A tree file cannot hold more than Integer.MAX_VALUE nodes.");
+        }
+
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+
+        columns[Column.PARENTS.ordinal()].putInt(parent);
+        columns[Column.SUB_TREE_ENDS.ordinal()].putInt(size + 1);
+        columns[Column.SIZES.ordinal()].putLong(sizeInBytes);
+        columns[Column.FILE_COUNTS.ordinal()].putLong(fileCount);
+        columns[Column.DIRECTORIES.ordinal()].putByte((byte) (directory ? 1 : 0));
+        columns[Column.NAME_OFFSETS.ordinal()].putLong(columns[Column.NAMES.ordinal()].position());
+        columns[Column.NAMES.ordinal()].putBytes(nameBytes);
+
+        return size++;
+    }
+
+    private static long align(final long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -0,0 +1,51 @@
+package com.dirscanner.tree;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A column of a tree file, mapped into memory by {@link FileChannel#map(FileChannel.MapMode, long, long)}.
+ * <p>
+ * Since a single mapping cannot exceed 2GB, a column is mapped as consecutive chunks of 1GB. Chunks are a multiple of
+ * 8 bytes, so no number stored in a column straddles two of them.
+ */
+final class MappedColumn {
+
+    private static final int CHUNK_SHIFT = 30;
+
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final MappedByteBuffer[] chunks;
+
+    MappedColumn(final FileChannel channel, final long offset, final long length) throws IOException {
+        chunks = new MappedByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            final long start = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(length - start, 1L << CHUNK_SHIFT));
+        }
+    }
+
+    byte getByte(final long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+    }
+
+    int getInt(final long index) {
+        final long position = index << 2;
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    long getLong(final long index) {
+        final long position = index << 3;
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    /**
+     * Copy the bytes from the given position into the given array.
+     */
+    void getBytes(final long position, final byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = getByte(position + i);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.dirscanner.tree;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.DirectoryElement.Size;
+import com.dirscanner.elem.FileSizeUnit;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A {@link FileTree} read from a tree file written by a {@link FileTreeWriter}, whose columns are mapped into memory
+ * rather than loaded onto the heap.
+ * <p>
+ * Nodes are laid out and identified exactly as in a {@link FileTree}, and are only read as they are queried, so
+ * queries on a tree of any size, such as {@link #find(Path)} or {@link #largestDirectories(int, int)}, touch only the
+ * pages of the file they need and allocate next to nothing. Pages are cached by the operating system, so repeated
+ * queries run at memory speed.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class MappedFileTree {
+
+    private final int size;
+
+    private final MappedColumn parents;
+
+    private final MappedColumn subTreeEnds;
+
+    private final MappedColumn sizes;
+
+    private final MappedColumn fileCounts;
+
+    private final MappedColumn directories;
+
+    private final MappedColumn nameOffsets;
+
+    private final MappedColumn names;
+
+    private final String root;
+
+    private MappedFileTree(final int size, final MappedColumn[] columns) {
+        this.size = size;
+        this.parents = columns[FileTreeWriter.Column.PARENTS.ordinal()];
+        this.subTreeEnds = columns[FileTreeWriter.Column.SUB_TREE_ENDS.ordinal()];
+        this.sizes = columns[FileTreeWriter.Column.SIZES.ordinal()];
+        this.fileCounts = columns[FileTreeWriter.Column.FILE_COUNTS.ordinal()];
+        this.directories = columns[FileTreeWriter.Column.DIRECTORIES.ordinal()];
+        this.nameOffsets = columns[FileTreeWriter.Column.NAME_OFFSETS.ordinal()];
+        this.names = columns[FileTreeWriter.Column.NAMES.ordinal()];
+        this.root = getName(FileTree.ROOT);
+    }
+
+    /**
+     * @param file a tree file written by a {@link FileTreeWriter}
+     * @return the tree, mapped from the given file
+     * @throws StreamCorruptedException if the file is not a tree file, or was written by an incompatible version
+     * @throws IOException              if the file could not be read
+     */
+    public static MappedFileTree open(@Nonnull final Path file) throws IOException {
+
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            if (channel.size() < FileTreeWriter.HEADER_SIZE) {
+                throw new StreamCorruptedException(String.format("%s is not a tree file.", file));
+            }
+
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, FileTreeWriter.HEADER_SIZE);
+            if (header.getInt() != FileTreeWriter.MAGIC || header.getInt() != FileTreeWriter.VERSION) {
+                throw new StreamCorruptedException(String.format("%s is not a tree file of a supported version.", file));
+            }
+
+            final long size = header.getLong();
+            final long[] lengths = {size * 4, size * 4, size * 8, size * 8, size, (size + 1) * 8, -1};
+            final MappedColumn[] columns = new MappedColumn[lengths.length];
+            for (int i = 0; i < columns.length; i++) {
+                final long offset = header.getLong();
+                final long length = lengths[i] >= 0 ? lengths[i] : channel.size() - offset;
+                columns[i] = new MappedColumn(channel, offset, length);
+            }
+
+            return new MappedFileTree((int) size, columns);
+        }
+    }
+
+    /**
+     * @return the number of nodes in the tree, including the root.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the parent of the given node, or {@code -1} for the {@link FileTree#ROOT}.
+     */
+    public int getParent(final int node) {
+        return parents.getInt(node);
+    }
+
+    /**
+     * @return the index following the last node in the sub-tree of the given node.
+     */
+    public int getSubTreeEnd(final int node) {
+        return subTreeEnds.getInt(node);
+    }
+
+    /**
+     * @return the size of the given file, or the summation of the sizes of all the contents of the given directory.
+     */
+    public long getSizeInBytes(final int node) {
+        return sizes.getLong(node);
+    }
+
+    /**
+     * @return 1 for a file, or the number of files anywhere within the given directory.
+     */
+    public long getFileCount(final int node) {
+        return fileCounts.getLong(node);
+    }
+
+    public boolean isDirectory(final int node) {
+        return directories.getByte(node) != 0;
+    }
+
+    /**
+     * @return the file name of the given node, or the absolute path of the {@link FileTree#ROOT}.
+     */
+    public String getName(final int node) {
+        final long start = nameOffsets.getLong(node);
+        final byte[] bytes = new byte[(int) (nameOffsets.getLong(node + 1L) - start)];
+        names.getBytes(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the absolute path of the given node.
+     */
+    public Path getPath(final int node) {
+
+        int depth = 0;
+        for (int n = node; n != FileTree.ROOT; n = getParent(n)) {
+            depth++;
+        }
+
+        final String[] segments = new String[depth];
+        for (int n = node; n != FileTree.ROOT; n = getParent(n)) {
+            segments[--depth] = getName(n);
+        }
+
+        return Paths.get(root, segments);
+    }
+
+    /**
+     * @return the direct children of the given node, in the order in which they were scanned.
+     */
+    public int[] getChildren(final int node) {
+
+        int[] children = new int[8];
+        int count = 0;
+        final int end = getSubTreeEnd(node);
+        for (int child = node + 1; child < end; child = getSubTreeEnd(child)) {
+            if (count == children.length) {
+                children = Arrays.copyOf(children, count * 2);
+            }
+            children[count++] = child;
+        }
+
+        return Arrays.copyOf(children, count);
+    }
+
+    /**
+     * Look a node up by its path, by descending from the root one name at a time. Only the children of the directories
+     * along the path are visited, and names are compared as bytes, without being decoded.
+     *
+     * @param path a path relative to the root of the tree, or the absolute path of a node within it
+     * @return the node with the given path, or {@code -1} if there is none
+     */
+    public int find(@Nonnull final Path path) {
+
+        final Path relative = path.isAbsolute() ? Paths.get(root).relativize(path) : path;
+
+        int node = FileTree.ROOT;
+        for (final Path name : relative) {
+            if (name.toString().isEmpty()) {
+                continue;
+            }
+            if (name.toString().equals("..")) {
+                return -1;
+            }
+
+            final byte[] bytes = name.toString().getBytes(StandardCharsets.UTF_8);
+            final int end = getSubTreeEnd(node);
+            int match = -1;
+            for (int child = node + 1; child < end; child = getSubTreeEnd(child)) {
+                if (nameEquals(child, bytes)) {
+                    match = child;
+                    break;
+                }
+            }
+            if (match < 0) {
+                return -1;
+            }
+            node = match;
+        }
+
+        return node;
+    }
+
+    /**
+     * @param node a node of the tree
+     * @param n    the number of directories to return
+     * @return the {@code n} largest directories anywhere within the sub-tree of the given node, excluding the node
+     * itself, in descending order of size.
+     * @throws IllegalArgumentException if {@code n} is smaller than 1
+     */
+    public int[] largestDirectories(final int node, final int n) {
+
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("Number of directories must be at least 1 but was %d.", n));
+        }
+
+        // A min-heap of the largest directories found so far, keyed by size.
+        final int[] heap = new int[n];
+        int count = 0;
+
+        final int end = getSubTreeEnd(node);
+        for (int candidate = node + 1; candidate < end; candidate++) {
+            if (!isDirectory(candidate)) {
+                continue;
+            }
+            if (count < n) {
+                heap[count] = candidate;
+                siftUp(heap, count++);
+            } else if (getSizeInBytes(candidate) > getSizeInBytes(heap[0])) {
+                heap[0] = candidate;
+                siftDown(heap, count);
+            }
+        }
+
+        final int[] largest = new int[count];
+        for (int i = count - 1; i >= 0; i--) {
+            largest[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+        return largest;
+    }
+
+    /**
+     * @return a {@link DirectoryElement} view of the given node.
+     */
+    public DirectoryElement toDirectoryElement(final int node) {
+        return DirectoryElement.builder()
+                .absPath(getPath(node).toString())
+                .type(isDirectory(node) ? DirectoryElement.Type.DIR : DirectoryElement.Type.FILE)
+                .size(Size.of(getSizeInBytes(node), FileSizeUnit.KB))
+                .build();
+    }
+
+    private boolean nameEquals(final int node, final byte[] bytes) {
+        final long start = nameOffsets.getLong(node);
+        if (nameOffsets.getLong(node + 1L) - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (names.getByte(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void siftUp(final int[] heap, final int index) {
+        int child = index;
+        while (child > 0) {
+            final int parent = (child - 1) >>> 1;
+            if (getSizeInBytes(heap[parent]) <= getSizeInBytes(heap[child])) {
+                return;
+            }
+            swap(heap, parent, child);
+            child = parent;
+        }
+    }
+
+    private void siftDown(final int[] heap, final int count) {
+        int parent = 0;
+        while (true) {
+            final int left = 2 * parent + 1;
+            if (left >= count) {
+                return;
+            }
+            final int right = left + 1;
+            final int smallest = right < count && getSizeInBytes(heap[right]) < getSizeInBytes(heap[left]) ? right : left;
+            if (getSizeInBytes(heap[parent]) <= getSizeInBytes(heap[smallest])) {
+                return;
+            }
+            swap(heap, parent, smallest);
+            parent = smallest;
+        }
+    }
+
+    private static void swap(final int[] heap, final int i, final int j) {
+        final int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
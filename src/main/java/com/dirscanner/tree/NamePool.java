@@ -0,0 +1,148 @@
+package com.dirscanner.tree;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An interning pool of file names, which hands out a dense {@code int} id for each distinct name.
+ * <p>
+ * Names are kept back-to-back as UTF-8 in a single {@code byte[]}, and are looked up through an open-addressing hash
+ * table of ids, so that no {@link String} or map entry is retained per name.
+ */
+final class NamePool {
+
+    private byte[] bytes = new byte[1024];
+
+    private int bytesUsed;
+
+    /**
+     * Offset of each name within {@link #bytes}. The name with id {@code i} ends at the offset of name {@code i + 1}.
+     */
+    private int[] offsets = new int[65];
+
+    private int count;
+
+    /**
+     * Open-addressing hash table of name ids, plus one. Zero marks an empty slot.
+     */
+    private int[] table = new int[128];
+
+    /**
+     * @return the id of the given name, adding it to the pool if not already there.
+     */
+    int intern(final String name) {
+
+        final byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        final int hash = hash(encoded, 0, encoded.length);
+
+        int slot = hash & (table.length - 1);
+        while (table[slot] != 0) {
+            final int id = table[slot] - 1;
+            if (equals(id, encoded)) {
+                return id;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+
+        final int id = add(encoded);
+        table[slot] = id + 1;
+
+        if (count * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * @return the name with the given id.
+     */
+    String name(final int id) {
+        return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of distinct names in the pool.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return the ids of the names containing the given text, found by comparing bytes rather than decoding every name.
+     */
+    BitSet idsContaining(final String text) {
+
+        final byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        final BitSet ids = new BitSet(count);
+
+        for (int id = 0; id < count; id++) {
+            final int last = offsets[id + 1] - encoded.length;
+            for (int from = offsets[id]; from <= last; from++) {
+                if (regionEquals(from, encoded)) {
+                    ids.set(id);
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Release the spare capacity of the pool. No further names may be added afterwards.
+     */
+    void trim() {
+        bytes = Arrays.copyOf(bytes, bytesUsed);
+        offsets = Arrays.copyOf(offsets, count + 1);
+    }
+
+    private int add(final byte[] encoded) {
+
+        if (bytesUsed + encoded.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, bytesUsed + encoded.length));
+        }
+        if (count + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+
+        System.arraycopy(encoded, 0, bytes, bytesUsed, encoded.length);
+        bytesUsed += encoded.length;
+        offsets[++count] = bytesUsed;
+
+        return count - 1;
+    }
+
+    private boolean equals(final int id, final byte[] encoded) {
+        return offsets[id + 1] - offsets[id] == encoded.length && regionEquals(offsets[id], encoded);
+    }
+
+    private boolean regionEquals(final int offset, final byte[] encoded) {
+        for (int i = 0; i < encoded.length; i++) {
+            if (bytes[offset + i] != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+
+        table = new int[table.length * 2];
+
+        for (int id = 0; id < count; id++) {
+            int slot = hash(bytes, offsets[id], offsets[id + 1]) & (table.length - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    private static int hash(final byte[] bytes, final int from, final int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
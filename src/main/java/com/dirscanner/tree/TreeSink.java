@@ -0,0 +1,31 @@
+package com.dirscanner.tree;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * The receiver of a scanned tree, one entry at a time, in pre-order: a directory is entered, its files are added and
+ * its sub-directories entered and left in turn, and it is then left. Sizes and file counts are rolled up by the sink.
+ */
+public interface TreeSink {
+
+    /**
+     * Enter a directory, which is the root of the tree if no directory is entered yet.
+     *
+     * @param name the name of the directory, or the absolute path of the root
+     */
+    void enterDirectory(@Nonnull String name) throws IOException;
+
+    /**
+     * Add a file, or any other entry which is not a directory, to the directory entered last.
+     *
+     * @param name        the name of the file
+     * @param sizeInBytes the size of the file
+     */
+    void addFile(@Nonnull String name, long sizeInBytes) throws IOException;
+
+    /**
+     * Leave the directory entered last, whose contents are all added.
+     */
+    void leaveDirectory() throws IOException;
+}
@@ -0,0 +1,461 @@
+package com.dirscanner.watch;
+
+import com.dirscanner.elem.DirectoryElemSizeComparator;
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.DirectoryElement.Size;
+import com.dirscanner.elem.FileSizeUnit;
+import com.dirscanner.scanner.Excludes;
+import com.dirscanner.scanner.ScanOptions;
+import com.dirscanner.scanner.SizeMode;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the totals of a directory tree current, by scanning it once and then applying the changes reported by a
+ * {@link WatchService} as they happen, rather than scanning it again.
+ * <p>
+ * Every directory in the tree is registered with the watch service. On an event for an entry, only that entry is
+ * read again: a file is stat-ed, a new directory is scanned, and a vanished entry is dropped, and the resulting change
+ * in size is added to each of its ancestors in turn. Events are applied idempotently, so an event for an entry which was
+ * already picked up by a scan does not count it twice. When events are lost, which the watch service signals by an
+ * overflow, only the directory it was signalled for is scanned again. So is a directory whose watch is no longer valid,
+ * such as one deleted and created again before the events for it are applied, since its previous contents are gone
+ * and the new directory is not registered yet.
+ * <p>
+ * Entries which cannot be read are left out until a later event for them. Symbolic links are not followed. Entries
+ * matching an exclude pattern of the {@link ScanOptions} given are left out altogether, as a scan would leave them out.
+ * <p>
+ * A directory which cannot be registered with the watch service, typically once the limit of watches per user is
+ * reached, is counted by {@link #getRegisterFailures()} and still scanned, but its totals are only brought up to date
+ * by a rescan of an ancestor. Registering it is tried again then, and on every later event for it from its parent.
+ * <p>
+ * The totals can be queried at any moment from any thread. Events are applied on a daemon thread until the watcher
+ * is {@link #close() closed}.
+ */
+public class TreeWatcher implements Closeable {
+
+    private final DirectoryElemSizeComparator fileSizeComparator = new DirectoryElemSizeComparator();
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Node> watchedDirectories = new HashMap<>();
+
+    private final Excludes excludes;
+
+    private final Node root;
+
+    private final Thread thread;
+
+    private long eventsApplied;
+
+    private long rescans;
+
+    private long registerFailures;
+
+    private TreeWatcher(final Path dir, final ScanOptions options) throws IOException {
+        this.excludes = new Excludes(dir.getFileSystem(), options.getExcludes());
+        this.watchService = dir.getFileSystem().newWatchService();
+        try {
+            this.root = scan(dir, null);
+        } catch (final IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "dir-scanner-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Scan the given directory, and keep its totals current until the returned watcher is closed.
+     *
+     * @see #watch(Path, ScanOptions)
+     */
+    public static TreeWatcher watch(@Nonnull final Path dir) throws IOException {
+        return watch(dir, ScanOptions.DEFAULTS);
+    }
+
+    /**
+     * Scan the given directory, and keep its totals current until the returned watcher is closed, leaving out the
+     * entries excluded by the given options.
+     *
+     * @param dir     the directory to watch
+     * @param options the options of the scan, of which only apparent sizes and links which are not followed are
+     *                supported
+     * @return the watcher of the directory
+     * @throws NoSuchFileException           if the given path does not exist
+     * @throws NotDirectoryException         if the given path is not a directory
+     * @throws IOException                   if the directory could not be watched
+     * @throws UnsupportedOperationException if the options ask for disk usage, for links to be followed or for the
+     *                                       scan to be confined to a single file system
+     */
+    public static TreeWatcher watch(@Nonnull final Path dir, @Nonnull final ScanOptions options) throws IOException {
+
+        if (options.getSizeMode() != SizeMode.APPARENT) {
+            throw new UnsupportedOperationException(String.format("Size mode %s not supported by a watcher.", options.getSizeMode()));
+        }
+        if (options.isFollowLinks()) {
+            throw new UnsupportedOperationException("Following links not supported by a watcher.");
+        }
+        if (options.isSameFileSystem()) {
+            throw new UnsupportedOperationException("Confining to a single file system not supported by a watcher.");
+        }
+
+        if (!Files.exists(dir)) {
+            throw new NoSuchFileException(dir.toString());
+        }
+        if (!Files.isDirectory(dir)) {
+            throw new NotDirectoryException(dir.toString());
+        }
+
+        final TreeWatcher watcher = new TreeWatcher(dir.toAbsolutePath(), options);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    /**
+     * @param path a path within the watched tree
+     * @return the current size of the given file, or total of the given directory, or {@code -1} if the path is not
+     * within the tree or not known to exist.
+     */
+    public synchronized long getSizeInBytes(@Nonnull final Path path) {
+
+        final Path absolute = path.toAbsolutePath();
+        if (!absolute.startsWith(root.path)) {
+            return -1;
+        }
+
+        Node node = root;
+        for (final Path name : root.path.relativize(absolute)) {
+            if (name.toString().isEmpty()) {
+                continue;
+            }
+            node = node.children == null ? null : node.children.get(name.toString());
+            if (node == null) {
+                return -1;
+            }
+        }
+        return node.size;
+    }
+
+    /**
+     * @return the current top-level elements of the watched directory, sorted in descending order of their size, as
+     * {@link com.dirscanner.scanner.DirectoryElementScanner#scan(Path)} would return them.
+     */
+    public List<DirectoryElement> getElements() {
+
+        final List<DirectoryElement> elems = new ArrayList<>();
+        synchronized (this) {
+            for (final Node child : root.children.values()) {
+                elems.add(DirectoryElement.builder()
+                        .absPath(child.path.toString())
+                        .type(child.children != null ? DirectoryElement.Type.DIR : DirectoryElement.Type.FILE)
+                        .size(Size.of(child.size, FileSizeUnit.KB))
+                        .build());
+            }
+        }
+
+        elems.sort(fileSizeComparator.reversed());
+        return elems;
+    }
+
+    /**
+     * @return the number of watch events applied so far.
+     */
+    public synchronized long getEventsApplied() {
+        return eventsApplied;
+    }
+
+    /**
+     * @return the number of directories scanned again so far, after events for them were lost or their watch was no
+     * longer valid.
+     */
+    public synchronized long getRescans() {
+        return rescans;
+    }
+
+    /**
+     * @return the number of times a directory could not be registered with the watch service, so far.
+     */
+    public synchronized long getRegisterFailures() {
+        return registerFailures;
+    }
+
+    /**
+     * Stop applying events, and close the watch service.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                synchronized (this) {
+                    apply(key);
+                    if (!key.reset()) {
+                        drop(key);
+                    }
+                }
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was closed.
+        }
+    }
+
+    private void apply(final WatchKey key) {
+
+        final Node dir = watchedDirectories.get(key);
+        final List<WatchEvent<?>> events = key.pollEvents();
+        if (dir == null) {
+            return;
+        }
+
+        for (final WatchEvent<?> event : events) {
+            eventsApplied++;
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                rescan(dir);
+                return;
+            }
+            refresh(dir, ((Path) event.context()).toString());
+        }
+    }
+
+    /**
+     * Forget the given key, which is no longer valid, and scan its directory again, unless it was cancelled along with
+     * its directory.
+     */
+    private void drop(final WatchKey key) {
+
+        final Node dir = watchedDirectories.remove(key);
+        if (dir != null) {
+            dir.key = null;
+            rescan(dir);
+        }
+    }
+
+    /**
+     * Bring the given entry of the given directory up to date, whichever the event reported for it.
+     */
+    private void refresh(final Node dir, final String name) {
+
+        final Node previous = dir.children.get(name);
+        final Path path = dir.path.resolve(name);
+        if (excludes.matches(path)) {
+            return;
+        }
+
+        final BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (final IOException e) {
+            if (previous != null) {
+                remove(previous);
+            }
+            return;
+        }
+
+        if (attrs.isDirectory()) {
+            if (previous != null && previous.children != null && (previous.key == null || !previous.key.isValid())) {
+                rescan(previous);
+            } else if (previous == null || previous.children == null) {
+                if (previous != null) {
+                    remove(previous);
+                }
+                try {
+                    final Node added = scan(path, dir);
+                    dir.children.put(name, added);
+                    addToAncestors(dir, added.size);
+                } catch (final IOException e) {
+                    // Picked up by a later event for the directory.
+                }
+            }
+        } else if (previous == null || previous.children != null) {
+            if (previous != null) {
+                remove(previous);
+            }
+            dir.children.put(name, new Node(path, dir, null, attrs.size()));
+            addToAncestors(dir, attrs.size());
+        } else {
+            addToAncestors(dir, attrs.size() - previous.size);
+            previous.size = attrs.size();
+        }
+    }
+
+    /**
+     * Scan the given directory again, once events for it were lost.
+     */
+    private void rescan(final Node dir) {
+
+        rescans++;
+        if (dir.parent == null) {
+            unregister(dir);
+            try {
+                final Node fresh = scan(dir.path, null);
+                dir.children.clear();
+                dir.children.putAll(fresh.children);
+                fresh.children.values().forEach(child -> child.parent = dir);
+                watchedDirectories.put(fresh.key, dir);
+                dir.key = fresh.key;
+                dir.size = fresh.size;
+            } catch (final IOException e) {
+                // Picked up by a later event for the directory.
+            }
+        } else {
+            final String name = dir.path.getFileName().toString();
+            final Node parent = dir.parent;
+            remove(dir);
+            refresh(parent, name);
+        }
+    }
+
+    /**
+     * Drop the given entry, and take its size off its ancestors.
+     */
+    private void remove(final Node node) {
+        node.parent.children.remove(node.path.getFileName().toString());
+        addToAncestors(node.parent, -node.size);
+        unregister(node);
+    }
+
+    private static void addToAncestors(final Node dir, final long delta) {
+        for (Node node = dir; node != null; node = node.parent) {
+            node.size += delta;
+        }
+    }
+
+    /**
+     * Stop watching every directory in the sub-tree of the given node.
+     */
+    private void unregister(final Node node) {
+        final Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            final Node current = stack.pop();
+            if (current.key != null) {
+                current.key.cancel();
+                watchedDirectories.remove(current.key);
+            }
+            if (current.children != null) {
+                current.children.values().forEach(stack::push);
+            }
+        }
+    }
+
+    /**
+     * Scan the sub-tree of the given directory, registering each of its directories before it is listed, so that no
+     * entry added in the meantime is missed. A directory which cannot be registered is scanned all the same, unless it
+     * is the watched directory itself.
+     */
+    private Node scan(final Path dir, final Node parent) throws IOException {
+
+        final Deque<Node> open = new ArrayDeque<>();
+        final Node[] top = new Node[1];
+
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(final Path path, final BasicFileAttributes attrs) throws IOException {
+                if (!open.isEmpty() && excludes.matches(path)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                final Node node = new Node(path, open.isEmpty() ? parent : open.peek(), new HashMap<>(), 0);
+                try {
+                    node.key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    watchedDirectories.put(node.key, node);
+                } catch (final IOException e) {
+                    if (open.isEmpty() && parent == null) {
+                        throw e;
+                    }
+                    registerFailures++;
+                }
+                if (open.isEmpty()) {
+                    top[0] = node;
+                } else {
+                    open.peek().children.put(path.getFileName().toString(), node);
+                }
+                open.push(node);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (excludes.matches(file)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                open.peek().children.put(file.getFileName().toString(), new Node(file, open.peek(), null, attrs.size()));
+                open.peek().size += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path path, final IOException exc) {
+                final Node node = open.pop();
+                if (!open.isEmpty()) {
+                    open.peek().size += node.size;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        if (top[0] == null) {
+            throw new NoSuchFileException(dir.toString());
+        }
+        return top[0];
+    }
+
+    /**
+     * A file or a directory of the watched tree, with its current size.
+     */
+    private static final class Node {
+
+        private final Path path;
+
+        private Node parent;
+
+        /**
+         * The entries of a directory by name, or {@code null} for a file.
+         */
+        private final Map<String, Node> children;
+
+        private long size;
+
+        private WatchKey key;
+
+        Node(final Path path, final Node parent, final Map<String, Node> children, final long size) {
+            this.path = path;
+            this.parent = parent;
+            this.children = children;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.dirscanner;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Scanner;
+
+/**
+ * Tests for {@link DU}
+ */
+public class DUTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    public void run_pathFlagOrFirstArgument_shouldPrintSameElements() throws Exception {
+
+        run("--path=" + DIR);
+        final String byFlag = out();
+        out.reset();
+        run(DIR.toString());
+
+        Assertions.assertThat(byFlag).isEqualTo(out()).startsWith("DIR " + DIR.resolve("bar").toAbsolutePath() + " 51KB\n");
+        Assertions.assertThat(err()).isEmpty();
+    }
+
+    @Test
+    public void run_unknownFormat_shouldPrintUsageError() throws Exception {
+
+        run(DIR.toString(), "--format=xml");
+
+        Assertions.assertThat(out()).isEmpty();
+        Assertions.assertThat(err()).isEqualTo("Invalid value xml for --format.\n");
+    }
+
+    @Test
+    public void run_invalidNumber_shouldPrintUsageError() throws Exception {
+
+        run(DIR.toString(), "--top=many");
+
+        Assertions.assertThat(out()).isEmpty();
+        Assertions.assertThat(err()).isEqualTo("Invalid value many for --top.\n");
+    }
+
+    @Test
+    public void run_unknownErrorPolicy_shouldPrintUsageError() throws Exception {
+
+        run(DIR.toString(), "--on-error=skp");
+
+        Assertions.assertThat(out()).isEmpty();
+        Assertions.assertThat(err()).isEqualTo("Invalid value skp for --on-error.\n");
+    }
+
+    @Test
+    public void run_estimateInMachineFormat_shouldPrintUsageError() throws Exception {
+
+        run(DIR.toString(), "--estimate=1", "--format=ndjson");
+
+        Assertions.assertThat(out()).isEmpty();
+        Assertions.assertThat(err()).startsWith("--estimate cannot be combined with --format=ndjson");
+    }
+
+    @Test
+    public void run_groupByWithCache_shouldPrintUsageError() throws Exception {
+
+        run(DIR.toString(), "--group-by=extension", "--cache=scan.cache");
+
+        Assertions.assertThat(out()).isEmpty();
+        Assertions.assertThat(err()).startsWith("--group-by cannot be combined with --cache");
+    }
+
+    @Test
+    public void run_ndjsonWithGroupBy_shouldOnlyWriteRecordsToStandardOutput() throws Exception {
+
+        run(DIR.toString(), "--format=ndjson", "--group-by=extension");
+
+        Assertions.assertThat(out().split("\n")).hasSize(3).allMatch(line -> line.startsWith("{\"type\":") && line.endsWith("}"));
+        Assertions.assertThat(err()).contains("EXTENSION jpg 49477 bytes in 2 files");
+    }
+
+    @Test
+    public void run_humanWithGroupBy_shouldPrintGroupsAfterElements() throws Exception {
+
+        run(DIR.toString(), "--group-by=extension");
+
+        Assertions.assertThat(out()).startsWith("DIR ").contains("\nEXTENSION jpg 49477 bytes in 2 files\n");
+        Assertions.assertThat(out().indexOf("EXTENSION")).isGreaterThan(out().lastIndexOf("somefile.txt"));
+        Assertions.assertThat(err()).isEmpty();
+    }
+
+    private void run(final String... args) throws UnsupportedEncodingException {
+        DU.run(Arrays.asList(args), new Scanner(""), new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+    }
+
+    private String out() {
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private String err() {
+        return new String(err.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -11,6 +11,7 @@ import org.junit.Test;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.NotDirectoryException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -108,4 +109,43 @@ public class DirectoryElementScannerTest {
                 .hasSize((double) 9 / 1024, FileSizeUnit.KB);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void scan_withConsumer_shouldPassEachTopLevelElemToConsumer() throws Exception {
+
+        final List<DirectoryElement> elems = new ArrayList<>();
+        extractor.scan(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-only"), elems::add);
+
+        Assertions.assertThat(elems.stream().filter(IS_NON_OS_FILE).map(DirectoryElement::getAbsPath))
+                .containsExactlyInAnyOrder(
+                        Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-only/large.txt").toFile().getAbsolutePath(),
+                        Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-only/medium.txt").toFile().getAbsolutePath(),
+                        Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-only/small.txt").toFile().getAbsolutePath());
+    }
+
+    @Test
+    public void scan_withConsumerAndPathToFile_shouldThrowNotDirectoryException() {
+        Assertions.assertThatExceptionOfType(NotDirectoryException.class)
+                .isThrownBy(() -> extractor.scan(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/test.txt"), elem -> { }));
+    }
+
+    @Test
+    public void scanLargest_shouldReturnOnlyNLargestElemsSortedBySizeInDescOrder() throws Exception {
+
+        final List<DirectoryElement> elems = extractor.scanLargest(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-and-sub-dirs"), 2);
+
+        Assertions.assertThat(elems).hasSize(2);
+
+        DirectoryElementAssert.assertThat(elems.get(0))
+                .hasAbsPath(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-and-sub-dirs/bar").toFile().getAbsolutePath());
+
+        DirectoryElementAssert.assertThat(elems.get(1))
+                .hasAbsPath(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-and-sub-dirs/foo").toFile().getAbsolutePath());
+    }
+
+    @Test
+    public void scanLargest_nLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> extractor.scanLargest(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-only"), 0));
+    }
+
+}
@@ -29,7 +29,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem2 =
                 directoryElem2Builder
                         .size(Size.builder()
-                                .value(20)
+                                .bytes(20480)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -43,7 +43,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem1 =
                 directoryElem2Builder
                         .size(Size.builder()
-                                .value(20)
+                                .bytes(20480)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -58,7 +58,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem1 =
                 directoryElem1Builder
                         .size(Size.builder()
-                                .value(10)
+                                .bytes(10240)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -66,7 +66,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem2 =
                 directoryElem2Builder
                         .size(Size.builder()
-                                .value(20)
+                                .bytes(20480)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -79,7 +79,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem1 =
                 directoryElem1Builder
                         .size(Size.builder()
-                                .value(10.15)
+                                .bytes(10394)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -87,7 +87,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem2 =
                 directoryElem2Builder
                         .size(Size.builder()
-                                .value(10.15)
+                                .bytes(10394)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -100,7 +100,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem1 =
                 directoryElem1Builder
                         .size(Size.builder()
-                                .value(50.25)
+                                .bytes(51456)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -108,7 +108,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem2 =
                 directoryElem2Builder
                         .size(Size.builder()
-                                .value(20)
+                                .bytes(20480)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -122,7 +122,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem1 =
                 directoryElem1Builder
                         .size(Size.builder()
-                                .value(10.1)
+                                .bytes(10342)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -130,7 +130,7 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem2 =
                 directoryElem2Builder
                         .size(Size.builder()
-                                .value(10.2)
+                                .bytes(10445)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -139,11 +139,11 @@ public class DirectoryElemSizeComparatorTest {
     }
 
     @Test
-    public void compare_elemsWithDifferentSizeUnit_shouldThrowIllegalStateException() {
+    public void compare_elemsWithDifferentSizeUnit_shouldCompareExactBytes() {
         final DirectoryElement elem1 =
                 directoryElem1Builder
                         .size(Size.builder()
-                                .value(50.25)
+                                .bytes(1024)
                                 .unit(FileSizeUnit.KB)
                                 .build())
                         .build();
@@ -151,13 +151,13 @@ public class DirectoryElemSizeComparatorTest {
         final DirectoryElement elem2 =
                 directoryElem2Builder
                         .size(Size.builder()
-                                .value(20)
+                                .bytes(1023)
                                 .unit(FileSizeUnit.BYTES)
                                 .build())
                         .build();
 
-        Assertions.assertThatExceptionOfType(IllegalStateException.class)
-                .isThrownBy(() -> comparator.compare(elem1, elem2));
+        Assertions.assertThat(comparator.compare(elem1, elem2)).isEqualTo(1);
+        Assertions.assertThat(comparator.compare(elem2, elem1)).isEqualTo(-1);
     }
 
 }
\ No newline at end of file
@@ -16,7 +16,7 @@ public class DirectoryElementTest {
                 DirectoryElement.builder()
                         .type(DirectoryElement.Type.DIR)
                         .absPath("C:\\TEST_DU\\FOO")
-                        .size(Size.builder().value(100).unit(FileSizeUnit.KB).build())
+                        .size(Size.of(FileSizeUnit.KB.toBytes(100), FileSizeUnit.KB))
                         .build();
 
         Assertions.assertThat(elem.toString()).isEqualTo("DIR C:\\TEST_DU\\FOO 100KB");
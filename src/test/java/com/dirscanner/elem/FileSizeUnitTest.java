@@ -25,8 +25,8 @@ public class FileSizeUnitTest {
     }
 
     @Test
-    public void convert_kbToBytes_shouldThrowUnsupportedOperationException() {
-        Assertions.assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> FileSizeUnit.KB.convert(1, FileSizeUnit.BYTES));
+    public void convert_kbToBytes_shouldApply1KBIs1024BytesConversion() {
+        Assertions.assertThat(FileSizeUnit.KB.convert(1, FileSizeUnit.BYTES)).isEqualTo(1024);
     }
 
     @Test
@@ -34,4 +34,28 @@ public class FileSizeUnitTest {
         Assertions.assertThat(FileSizeUnit.KB.convert(1, FileSizeUnit.KB)).isEqualTo(1);
     }
 
+    @Test
+    public void convert_acrossLadder_shouldScaleBy1024PerUnit() {
+        Assertions.assertThat(FileSizeUnit.GB.convert(1, FileSizeUnit.MB)).isEqualTo(1024);
+        Assertions.assertThat(FileSizeUnit.MB.convert(512, FileSizeUnit.GB)).isEqualTo(0.5);
+        Assertions.assertThat(FileSizeUnit.PB.convert(1, FileSizeUnit.BYTES)).isEqualTo(Math.pow(2, 50));
+    }
+
+    @Test
+    public void toBytes_shouldShiftByUnit() {
+        Assertions.assertThat(FileSizeUnit.BYTES.toBytes(7)).isEqualTo(7);
+        Assertions.assertThat(FileSizeUnit.TB.toBytes(3)).isEqualTo(3L << 40);
+    }
+
+    @Test
+    public void toBytes_overflow_shouldThrowArithmeticException() {
+        Assertions.assertThatExceptionOfType(ArithmeticException.class).isThrownBy(() -> FileSizeUnit.PB.toBytes(1L << 13));
+    }
+
+    @Test
+    public void fromBytes_shouldRoundDown() {
+        Assertions.assertThat(FileSizeUnit.KB.fromBytes(2047)).isEqualTo(1);
+        Assertions.assertThat(FileSizeUnit.GB.fromBytes(3L << 30)).isEqualTo(3);
+    }
+
 }
\ No newline at end of file
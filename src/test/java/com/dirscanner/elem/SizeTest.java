@@ -12,7 +12,7 @@ public class SizeTest {
     @Test
     public void toString_integerValue_shouldConcatenateValueAndUnits() {
 
-        final Size size = Size.builder().value(100).unit(FileSizeUnit.KB).build();
+        final Size size = Size.builder().bytes(102400).unit(FileSizeUnit.KB).build();
 
         Assertions.assertThat(size.toString()).isEqualTo("100KB");
     }
@@ -20,11 +20,29 @@ public class SizeTest {
     @Test
     public void toString_decimalValue_shouldConcatenateRoundedValueAndunit() {
 
-        final Size sizeToBeRoundedUp = Size.builder().value(100.5).unit(FileSizeUnit.KB).build();
+        final Size sizeToBeRoundedUp = Size.builder().bytes(102912).unit(FileSizeUnit.KB).build();
         Assertions.assertThat(sizeToBeRoundedUp.toString()).isEqualTo("101KB");
 
-        final Size sizeToBeRoundedDown = Size.builder().value(100.3).unit(FileSizeUnit.KB).build();
+        final Size sizeToBeRoundedDown = Size.builder().bytes(102707).unit(FileSizeUnit.KB).build();
         Assertions.assertThat(sizeToBeRoundedDown.toString()).isEqualTo("100KB");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void getValue_shouldConvertBytesToUnit() {
+        Assertions.assertThat(Size.of(1536, FileSizeUnit.KB).getValue()).isEqualTo(1.5);
+        Assertions.assertThat(Size.of(3L << 40, FileSizeUnit.TB).getValue()).isEqualTo(3);
+    }
+
+    @Test
+    public void getBytes_beyondDoublePrecision_shouldBeExact() {
+        final long bytes = (1L << 53) + 1;
+
+        Assertions.assertThat(Size.of(bytes, FileSizeUnit.PB).getBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    public void builder_noUnit_shouldDefaultToBytes() {
+        Assertions.assertThat(Size.builder().bytes(10).build().toString()).isEqualTo("10BYTES");
+    }
+
+}
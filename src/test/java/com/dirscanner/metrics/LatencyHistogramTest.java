@@ -0,0 +1,52 @@
+package com.dirscanner.metrics;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void getPercentileUpperBound_noLatencyRecorded_shouldReturn0() {
+        Assertions.assertThat(new LatencyHistogram().getPercentileUpperBound(0.5)).isEqualTo(0);
+    }
+
+    @Test
+    public void getPercentileUpperBound_shouldReturnUpperBoundOfPowerOfTwoBucket() {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1_000_000);
+
+        Assertions.assertThat(histogram.getCount()).isEqualTo(100);
+        Assertions.assertThat(histogram.getPercentileUpperBound(0.5)).isEqualTo(1024);
+        Assertions.assertThat(histogram.getPercentileUpperBound(1)).isEqualTo(1 << 20);
+    }
+
+    @Test
+    public void toMap_shouldOnlyContainNonEmptyBucketsInAscOrder() {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(5000);
+        histogram.record(5000);
+
+        Assertions.assertThat(histogram.toMap()).containsExactly(
+                Assertions.entry("<2ns", 1L),
+                Assertions.entry("<8192ns", 2L));
+    }
+
+    @Test
+    public void reset_shouldClearAllBuckets() {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000);
+        histogram.reset();
+
+        Assertions.assertThat(histogram.getCount()).isEqualTo(0);
+    }
+}
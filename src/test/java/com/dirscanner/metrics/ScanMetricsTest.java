@@ -0,0 +1,111 @@
+package com.dirscanner.metrics;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.scanner.DirectoryElementScanner;
+import com.dirscanner.scanner.ExecutorScanEngine;
+import com.dirscanner.scanner.ForkJoinScanEngine;
+import com.dirscanner.scanner.ScanEngine;
+import com.dirscanner.scanner.ScanOptions;
+import com.dirscanner.scanner.SizeMode;
+import com.dirscanner.scanner.TreeWalkScanEngine;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Tests for {@link ScanMetrics}
+ */
+public class ScanMetricsTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void scan_withMetrics_shouldCountEveryDirAndFileOfTreeWithEachEngine() throws Exception {
+        for (final ScanEngine engine : new ScanEngine[]{new TreeWalkScanEngine(), new ForkJoinScanEngine(2), new ExecutorScanEngine(2, false)}) {
+
+            final ScanMetrics metrics = new ScanMetrics();
+            new DirectoryElementScanner(engine, ScanOptions.builder().listener(metrics).build()).scan(DIR);
+
+            Assertions.assertThat(metrics.getDirectoriesListed()).as("%s directories", engine).isGreaterThanOrEqualTo(4);
+            Assertions.assertThat(metrics.getFilesStatted()).as("%s files", engine).isGreaterThanOrEqualTo(7);
+            Assertions.assertThat(metrics.getBytesSummed()).as("%s bytes", engine).isGreaterThanOrEqualTo(52216 + 2648 + 9);
+            Assertions.assertThat(metrics.getStatLatencyHistogram().getCount()).isEqualTo(metrics.getFilesStatted());
+            Assertions.assertThat(metrics.getListingLatencyHistogram().getCount()).isEqualTo(metrics.getDirectoriesListed());
+            Assertions.assertThat(metrics.getPhaseMillis()).containsKeys("SCAN", "SORT", "PRINT");
+        }
+    }
+
+    @Test
+    public void scan_diskUsageWithHardLinks_shouldSumBytesAsCountedInTotals() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final Path file = Files.write(Files.createDirectory(dir.resolve("a")).resolve("file"), new byte[10_000]);
+        Files.createLink(Files.createDirectory(dir.resolve("b")).resolve("link"), file);
+        final ScanOptions options = ScanOptions.builder().sizeMode(SizeMode.DISK_USAGE).build();
+
+        for (final ScanEngine engine : new ScanEngine[]{new TreeWalkScanEngine(), new ForkJoinScanEngine(2), new ExecutorScanEngine(2, false)}) {
+
+            final ScanMetrics metrics = new ScanMetrics();
+            final List<DirectoryElement> elems = new DirectoryElementScanner(engine, options.toBuilder().listener(metrics).build()).scan(dir);
+
+            Assertions.assertThat(metrics.getBytesSummed()).as("%s bytes", engine)
+                    .isEqualTo(elems.stream().mapToLong(elem -> elem.getSize().getBytes()).sum())
+                    .isEqualTo(3 * 4096);
+        }
+    }
+
+    @Test
+    public void reset_shouldClearAllCounters() throws Exception {
+
+        final ScanMetrics metrics = new ScanMetrics();
+        new DirectoryElementScanner(new TreeWalkScanEngine(), ScanOptions.builder().listener(metrics).build()).scan(DIR);
+
+        metrics.reset();
+
+        Assertions.assertThat(metrics.getDirectoriesListed()).isEqualTo(0);
+        Assertions.assertThat(metrics.getFilesStatted()).isEqualTo(0);
+        Assertions.assertThat(metrics.getBytesSummed()).isEqualTo(0);
+        Assertions.assertThat(metrics.getStatLatencies()).isEmpty();
+    }
+
+    @Test
+    public void registerMBean_shouldExposeCountersThroughJmx() throws Exception {
+
+        final ScanMetrics metrics = new ScanMetrics();
+        metrics.onFileStatted(DIR, 42, 100);
+
+        final ObjectName name = metrics.registerMBean("test");
+        try {
+            Assertions.assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "BytesSummed")).isEqualTo(42L);
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void registerMBean_nameAlreadyTaken_shouldThrowIllegalStateException() {
+
+        final ObjectName name = new ScanMetrics().registerMBean("taken");
+        try {
+            Assertions.assertThatExceptionOfType(IllegalStateException.class)
+                    .isThrownBy(() -> new ScanMetrics().registerMBean("taken"));
+        } finally {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (final Exception e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.dirscanner.output;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.FileSizeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link ElementWriter}
+ */
+public class ElementWriterTest {
+
+    @Test
+    public void write_human_shouldMatchToStringOfEveryElement() throws Exception {
+
+        final List<DirectoryElement> elems = new ArrayList<>();
+        for (final long bytes : new long[]{0, 1, 9, 511, 512, 513, 1023, 1024, 1535, 1536, 123_456_789, 1L << 52}) {
+            for (final FileSizeUnit unit : FileSizeUnit.values()) {
+                elems.add(elem(DirectoryElement.Type.DIR, "/some/dir", bytes, unit));
+            }
+        }
+        elems.add(elem(DirectoryElement.Type.FILE, "/some/f\u00efl\u00e9", 42, FileSizeUnit.BYTES));
+
+        Assertions.assertThat(write(OutputFormat.HUMAN, elems))
+                .isEqualTo(elems.stream().map(elem -> elem + "\n").collect(Collectors.joining()));
+    }
+
+    @Test
+    public void write_humanPathWithBackslashesAndTabs_shouldMatchToStringUnescaped() throws Exception {
+
+        final List<DirectoryElement> elems = Arrays.asList(
+                elem(DirectoryElement.Type.DIR, "C:\\TEST_DU", 2048, FileSizeUnit.KB),
+                elem(DirectoryElement.Type.FILE, "/a/tab\there\\\u00e9", 7, FileSizeUnit.BYTES));
+
+        Assertions.assertThat(write(OutputFormat.HUMAN, elems))
+                .isEqualTo(elems.stream().map(elem -> elem + "\n").collect(Collectors.joining()))
+                .startsWith("DIR C:\\TEST_DU 2KB\n");
+    }
+
+    @Test
+    public void write_tsv_shouldEscapeSeparatorsInPaths() throws Exception {
+
+        final String actual = write(OutputFormat.TSV, Arrays.asList(
+                elem(DirectoryElement.Type.DIR, "/a/b", 1234567890123L, FileSizeUnit.KB),
+                elem(DirectoryElement.Type.FILE, "/a/tab\there\nnew\\line", 7, FileSizeUnit.KB)));
+
+        Assertions.assertThat(actual).isEqualTo("DIR\t1234567890123\t/a/b\nFILE\t7\t/a/tab\\there\\nnew\\\\line\n");
+    }
+
+    @Test
+    public void write_ndjson_shouldEscapeQuotesAndControlCharacters() throws Exception {
+
+        final String actual = write(OutputFormat.NDJSON, Arrays.asList(
+                elem(DirectoryElement.Type.DIR, "/a/\"quoted\"", 100, FileSizeUnit.KB),
+                elem(DirectoryElement.Type.FILE, "/a/\u0001\u001f/\u00e9", 0, FileSizeUnit.KB)));
+
+        Assertions.assertThat(actual).isEqualTo(
+                "{\"type\":\"DIR\",\"path\":\"/a/\\\"quoted\\\"\",\"sizeInBytes\":100}\n"
+                        + "{\"type\":\"FILE\",\"path\":\"/a/\\u0001\\u001f/\u00e9\",\"sizeInBytes\":0}\n");
+    }
+
+    @Test
+    public void write_binary_shouldBeDecodableRecordByRecord() throws Exception {
+
+        final List<DirectoryElement> elems = Arrays.asList(
+                elem(DirectoryElement.Type.DIR, "/a/b", 300, FileSizeUnit.KB),
+                elem(DirectoryElement.Type.FILE, "/a/\u00e9", Long.MAX_VALUE, FileSizeUnit.KB));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final ElementWriter writer = new ElementWriter(out, OutputFormat.BINARY)) {
+            for (final DirectoryElement elem : elems) {
+                writer.write(elem);
+            }
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        Assertions.assertThat(in.readInt()).isEqualTo(ElementWriter.MAGIC);
+
+        final List<String> actual = new ArrayList<>();
+        for (int type = in.readByte(); type != ElementWriter.END; type = in.readByte()) {
+            final long bytes = readVarLong(in);
+            final byte[] path = new byte[(int) readVarLong(in)];
+            in.readFully(path);
+            actual.add(String.format("%d %d %s", type, bytes, new String(path, StandardCharsets.UTF_8)));
+        }
+
+        Assertions.assertThat(actual).containsExactly("2 300 /a/b", "1 " + Long.MAX_VALUE + " /a/\u00e9");
+        Assertions.assertThat(in.available()).isZero();
+    }
+
+    @Test
+    public void write_moreThanBuffer_shouldWriteEveryElementInOrder() throws Exception {
+
+        final List<DirectoryElement> elems = new ArrayList<>();
+        final char[] longName = new char[ElementWriter.BUFFER_SIZE + 10];
+        Arrays.fill(longName, 'x');
+        elems.add(elem(DirectoryElement.Type.FILE, new String(longName), 1, FileSizeUnit.BYTES));
+        for (int i = 0; i < 100_000; i++) {
+            elems.add(elem(DirectoryElement.Type.FILE, "/dir/file" + i, i, FileSizeUnit.BYTES));
+        }
+
+        Assertions.assertThat(write(OutputFormat.TSV, elems)).isEqualTo(elems.stream()
+                .map(elem -> String.format("FILE\t%d\t%s\n", elem.getSize().getBytes(), elem.getAbsPath()))
+                .collect(Collectors.joining()));
+    }
+
+    private static String write(final OutputFormat format, final List<DirectoryElement> elems) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final ElementWriter writer = new ElementWriter(out, format)) {
+            for (final DirectoryElement elem : elems) {
+                writer.write(elem);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static DirectoryElement elem(final DirectoryElement.Type type, final String path, final long bytes, final FileSizeUnit unit) {
+        return DirectoryElement.builder()
+                .type(type)
+                .absPath(path)
+                .size(DirectoryElement.Size.of(bytes, unit))
+                .build();
+    }
+}
@@ -0,0 +1,167 @@
+package com.dirscanner.scanner;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@link Aggregation}
+ */
+public class AggregationTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void new_noDimensions_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(Aggregation::new);
+    }
+
+    @Test
+    public void scan_byExtension_shouldGroupEveryFileWithEachEngine() throws Exception {
+
+        final Map<String, Long> expected;
+        try (final Stream<Path> files = Files.walk(DIR)) {
+            expected = files.filter(Files::isRegularFile).collect(Collectors.groupingBy(
+                    file -> file.getFileName().toString().substring(file.getFileName().toString().lastIndexOf('.') + 1),
+                    Collectors.summingLong(file -> file.toFile().length())));
+        }
+
+        for (final ScanEngine engine : new ScanEngine[]{new TreeWalkScanEngine(), new ForkJoinScanEngine(2), new ExecutorScanEngine(2, false)}) {
+            final Aggregation aggregation = new Aggregation(Aggregation.Dimension.EXTENSION);
+            new DirectoryElementScanner(engine, ScanOptions.builder().aggregation(aggregation).build()).scan(DIR);
+
+            final Map<String, Long> actual = aggregation.groups(Aggregation.Dimension.EXTENSION).stream()
+                    .collect(Collectors.toMap(GroupTotal::getKey, GroupTotal::getSizeInBytes));
+            Assertions.assertThat(actual).as("%s", engine).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void add_byOwnerWithUnixAttributes_shouldNotStatFileAgain() throws Exception {
+
+        final Path file = Files.write(tmp.getRoot().toPath().resolve("file"), new byte[10]);
+        final Aggregation aggregation = new Aggregation(Aggregation.Dimension.OWNER, Aggregation.Dimension.GROUP);
+        final ScanContext context = new ScanContext(tmp.getRoot().toPath(), ScanOptions.builder().aggregation(aggregation).build());
+        Assume.assumeTrue(context.readsUnixAttributes());
+
+        final BasicFileAttributes attrs = context.readAttributes(file);
+        Files.delete(file);
+        aggregation.acquire().add(file, attrs, 10);
+
+        Assertions.assertThat(aggregation.groups(Aggregation.Dimension.OWNER)).extracting(GroupTotal::getKey)
+                .containsExactly(String.valueOf(((UnixAttributes) attrs).uid()));
+        Assertions.assertThat(aggregation.groups(Aggregation.Dimension.GROUP)).extracting(GroupTotal::getKey)
+                .containsExactly(String.valueOf(((UnixAttributes) attrs).gid()));
+    }
+
+    @Test
+    public void scan_byAge_shouldBucketFilesByModificationTime() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        writeFile(dir.resolve("fresh.txt"), 1, 0);
+        writeFile(dir.resolve("week.txt"), 10, 3);
+        writeFile(dir.resolve("sub").resolve("month.txt"), 100, 45);
+        writeFile(dir.resolve("sub").resolve("old.txt"), 1000, 400);
+        writeFile(dir.resolve("sub").resolve("older.txt"), 2000, 800);
+
+        final Aggregation aggregation = new Aggregation(Aggregation.Dimension.AGE);
+        new DirectoryElementScanner(new ForkJoinScanEngine(2), ScanOptions.builder().aggregation(aggregation).build()).scan(dir);
+
+        Assertions.assertThat(aggregation.groups(Aggregation.Dimension.AGE).stream().map(GroupTotal::toString))
+                .containsExactly("AGE 365d+ 3000 bytes in 2 files", "AGE 30-90d 100 bytes in 1 files",
+                        "AGE 1-7d 10 bytes in 1 files", "AGE 0-1d 1 bytes in 1 files");
+    }
+
+    @Test
+    public void scan_byOwnerAndGroup_shouldResolveNamesOfEveryFile() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        writeFile(dir.resolve("a"), 5, 0);
+        writeFile(dir.resolve("b").resolve("c"), 7, 0);
+
+        final Aggregation aggregation = new Aggregation(Aggregation.Dimension.OWNER, Aggregation.Dimension.GROUP);
+        new DirectoryElementScanner(new TreeWalkScanEngine(), ScanOptions.builder().aggregation(aggregation).build()).scan(dir);
+
+        Assertions.assertThat(aggregation.groups(Aggregation.Dimension.OWNER).stream().map(GroupTotal::toString))
+                .containsExactly(String.format("OWNER %s 12 bytes in 2 files", Files.getOwner(dir).getName()));
+        Assertions.assertThat(aggregation.groups(Aggregation.Dimension.GROUP)).hasSize(1);
+        Assertions.assertThat(aggregation.groups(Aggregation.Dimension.GROUP).get(0).getSizeInBytes()).isEqualTo(12);
+    }
+
+    @Test
+    public void top_manyGroups_shouldReturnLargestInDescendingOrder() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        for (int i = 0; i < 100; i++) {
+            writeFile(dir.resolve("file.ext" + i), i, 0);
+        }
+        writeFile(dir.resolve("noext"), 1, 0);
+
+        final Aggregation aggregation = new Aggregation(Aggregation.Dimension.EXTENSION);
+        new DirectoryElementScanner(new ExecutorScanEngine(4, false), ScanOptions.builder().aggregation(aggregation).build()).scan(dir);
+
+        Assertions.assertThat(aggregation.groups(Aggregation.Dimension.EXTENSION)).hasSize(101);
+        final List<GroupTotal> top = aggregation.top(Aggregation.Dimension.EXTENSION, 3);
+        Assertions.assertThat(top.stream().map(GroupTotal::getKey)).containsExactly("ext99", "ext98", "ext97");
+        Assertions.assertThat(aggregation.groups(Aggregation.Dimension.EXTENSION).stream().map(GroupTotal::getKey))
+                .contains("(none)");
+    }
+
+    @Test
+    public void add_extensionsInMixedCase_shouldCountIntoOneLowerCaseGroup() {
+
+        final Aggregation aggregation = new Aggregation(Aggregation.Dimension.EXTENSION);
+        final Aggregation.Accumulator accumulator = aggregation.acquire();
+        accumulator.add(Paths.get("a.JPG"), null, 1);
+        accumulator.add(Paths.get("b.jpg"), null, 2);
+        accumulator.add(Paths.get("c.Jpg"), null, 4);
+        accumulator.add(Paths.get(".jpg"), null, 8);
+        accumulator.add(Paths.get("d.jpeg"), null, 16);
+
+        Assertions.assertThat(aggregation.groups(Aggregation.Dimension.EXTENSION).stream().map(GroupTotal::toString))
+                .containsExactly("EXTENSION jpeg 16 bytes in 1 files", "EXTENSION (none) 8 bytes in 1 files",
+                        "EXTENSION jpg 7 bytes in 3 files");
+    }
+
+    @Test
+    public void top_kLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new Aggregation(Aggregation.Dimension.AGE).top(Aggregation.Dimension.AGE, 0));
+    }
+
+    @Test
+    public void groups_dimensionNotAggregated_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new Aggregation(Aggregation.Dimension.AGE).groups(Aggregation.Dimension.OWNER));
+    }
+
+    @Test
+    public void scan_cachingEngine_shouldRejectAggregation() {
+        Assertions.assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> new CachingScanEngine(ScanCache.load(tmp.getRoot().toPath().resolve("cache")))
+                        .scan(DIR, ScanOptions.builder().aggregation(new Aggregation(Aggregation.Dimension.AGE)).build(), elem -> { }));
+    }
+
+    private static void writeFile(final Path file, final int size, final int daysOld) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[size]);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(daysOld)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.metrics.ScanMetrics;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link BatchWalk}
+ */
+public class BatchWalkTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    @Test
+    public void scanBatch_nestedRoots_shouldReturnSameElemsAsScanningEachRoot() throws Exception {
+
+        final List<Path> roots = Arrays.asList(DIR.resolve("bar/sam"), DIR, DIR.resolve("bar"), DIR.resolve("foo"));
+
+        final Map<Path, List<DirectoryElement>> actual = new DirectoryElementScanner().scanBatch(roots);
+
+        Assertions.assertThat(actual.keySet()).containsExactlyElementsOf(roots);
+        for (final Path root : roots) {
+            assertSameElems(actual.get(root), new DirectoryElementScanner().scan(root));
+        }
+    }
+
+    @Test
+    public void scanBatch_nestedRoots_shouldListEveryDirectoryOnce() throws Exception {
+
+        final ScanMetrics single = new ScanMetrics();
+        new DirectoryElementScanner(new TreeWalkScanEngine(), ScanOptions.builder().listener(single).build()).scan(DIR);
+
+        final ScanMetrics batch = new ScanMetrics();
+        new DirectoryElementScanner(new TreeWalkScanEngine(), ScanOptions.builder().listener(batch).build())
+                .scanBatch(Arrays.asList(DIR, DIR.resolve("bar"), DIR.resolve("bar/sam"), DIR.resolve("foo/another_dir")));
+
+        Assertions.assertThat(batch.getDirectoriesListed()).isEqualTo(single.getDirectoriesListed());
+        Assertions.assertThat(batch.getFilesStatted()).isEqualTo(single.getFilesStatted());
+    }
+
+    @Test
+    public void scanBatch_samePathGivenTwice_shouldReturnElemsForBoth() throws Exception {
+
+        final Path relative = DIR.resolve("foo");
+        final Path absolute = DIR.resolve("bar/../foo").toAbsolutePath();
+
+        final Map<Path, List<DirectoryElement>> actual = new DirectoryElementScanner().scanBatch(Arrays.asList(relative, absolute));
+
+        assertSameElems(actual.get(relative), new DirectoryElementScanner().scan(relative));
+        assertSameElems(actual.get(absolute), new DirectoryElementScanner().scan(relative));
+    }
+
+    @Test
+    public void scanBatch_nestedRootExcludedFromEnclosingRoot_shouldScanItOnItsOwn() throws Exception {
+
+        final ScanOptions options = ScanOptions.builder().exclude("sam").build();
+        final DirectoryElementScanner scanner = new DirectoryElementScanner(new TreeWalkScanEngine(), options);
+
+        final Map<Path, List<DirectoryElement>> actual = scanner.scanBatch(Arrays.asList(DIR, DIR.resolve("bar/sam")));
+
+        assertSameElems(actual.get(DIR), scanner.scan(DIR));
+        assertSameElems(actual.get(DIR.resolve("bar/sam")), scanner.scan(DIR.resolve("bar/sam")));
+        Assertions.assertThat(actual.get(DIR.resolve("bar/sam"))).hasSize(2);
+    }
+
+    @Test
+    public void scanBatch_fileAmongRoots_shouldThrowNotDirectoryException() {
+        Assertions.assertThatExceptionOfType(NotDirectoryException.class)
+                .isThrownBy(() -> new DirectoryElementScanner().scanBatch(Arrays.asList(DIR, DIR.resolve("somefile.txt"))));
+    }
+
+    @Test
+    public void scanBatch_noRoots_shouldReturnEmptyMap() throws Exception {
+        Assertions.assertThat(new DirectoryElementScanner().scanBatch(Collections.emptyList())).isEmpty();
+    }
+
+    private static void assertSameElems(final List<DirectoryElement> actual, final List<DirectoryElement> expected) {
+        Assertions.assertThat(actual.stream().map(DirectoryElement::toString).collect(Collectors.toList()))
+                .containsExactlyElementsOf(expected.stream().map(DirectoryElement::toString).collect(Collectors.toList()));
+    }
+}
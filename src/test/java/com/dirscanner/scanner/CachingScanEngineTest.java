@@ -0,0 +1,151 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link CachingScanEngine} and {@link ScanCache}
+ */
+public class CachingScanEngineTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path dir;
+
+    private Path cacheFile;
+
+    @Before
+    public void setup() throws Exception {
+        dir = tmp.newFolder("tree").toPath();
+        cacheFile = tmp.getRoot().toPath().resolve("scan.cache");
+
+        Files.write(dir.resolve("top.txt"), new byte[7]);
+        Files.write(Files.createDirectories(dir.resolve("a/b/c")).resolve("c.txt"), new byte[300]);
+        Files.write(Files.createDirectories(dir.resolve("d")).resolve("d.txt"), new byte[400]);
+
+        for (final String sub : new String[]{"", "a", "a/b", "a/b/c", "d"}) {
+            Files.setLastModifiedTime(dir.resolve(sub), FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+        }
+    }
+
+    @Test
+    public void scan_emptyCache_shouldReadEveryDirAndReturnSameElemsAsTreeWalkScanEngine() throws Exception {
+
+        final ScanCache cache = ScanCache.load(cacheFile);
+
+        assertSameAsTreeWalk(cache);
+        Assertions.assertThat(cache.getHits()).isEqualTo(0);
+        Assertions.assertThat(cache.getMisses()).isEqualTo(4);
+    }
+
+    @Test
+    public void scan_savedCacheOfUnchangedTree_shouldReadNoDir() throws Exception {
+
+        final ScanCache first = ScanCache.load(cacheFile);
+        new CachingScanEngine(first).scan(dir, ScanOptions.DEFAULTS, elem -> { });
+        first.save();
+
+        final ScanCache second = ScanCache.load(cacheFile);
+        assertSameAsTreeWalk(second);
+        Assertions.assertThat(second.getHits()).isEqualTo(4);
+        Assertions.assertThat(second.getMisses()).isEqualTo(0);
+    }
+
+    @Test
+    public void scan_nestedDirChangedSinceSave_shouldOnlyReadChangedDir() throws Exception {
+
+        final ScanCache first = ScanCache.load(cacheFile);
+        new CachingScanEngine(first).scan(dir, ScanOptions.DEFAULTS, elem -> { });
+        first.save();
+
+        final Path nested = dir.resolve("a/b/c");
+        Files.write(nested.resolve("new.txt"), new byte[1000]);
+        Files.setLastModifiedTime(nested, FileTime.fromMillis(Files.getLastModifiedTime(nested).toMillis() + 2000));
+
+        final ScanCache second = ScanCache.load(cacheFile);
+        assertSameAsTreeWalk(second);
+        Assertions.assertThat(second.getHits()).isEqualTo(3);
+        Assertions.assertThat(second.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void scan_dirModifiedWithinClockTickOfScan_shouldNotBeCached() throws Exception {
+
+        final Path nested = dir.resolve("a/b/c");
+        Files.setLastModifiedTime(nested, FileTime.fromMillis(System.currentTimeMillis()));
+
+        final ScanCache first = ScanCache.load(cacheFile);
+        new CachingScanEngine(first).scan(dir, ScanOptions.DEFAULTS, elem -> { });
+        first.save();
+
+        final ScanCache second = ScanCache.load(cacheFile);
+        assertSameAsTreeWalk(second);
+        Assertions.assertThat(second.getHits()).isEqualTo(3);
+        Assertions.assertThat(second.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void scan_changeWithinSameMillisecondAsCachedScan_shouldBePickedUp() throws Exception {
+
+        final Path nested = dir.resolve("a/b/c");
+        final FileTime modified = Files.getLastModifiedTime(nested);
+
+        final ScanCache first = ScanCache.load(cacheFile);
+        new CachingScanEngine(first).scan(dir, ScanOptions.DEFAULTS, elem -> { });
+        first.save();
+
+        Files.write(nested.resolve("new.txt"), new byte[1000]);
+        Files.setLastModifiedTime(nested, FileTime.from(modified.to(TimeUnit.NANOSECONDS) + 1000, TimeUnit.NANOSECONDS));
+
+        final ScanCache second = ScanCache.load(cacheFile);
+        assertSameAsTreeWalk(second);
+        Assertions.assertThat(second.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidate_shouldDeleteIndexFileAndDropCachedDirs() throws Exception {
+
+        final ScanCache cache = ScanCache.load(cacheFile);
+        new CachingScanEngine(cache).scan(dir, ScanOptions.DEFAULTS, elem -> { });
+        cache.save();
+        Assertions.assertThat(cacheFile).exists();
+
+        cache.invalidate();
+
+        Assertions.assertThat(cacheFile).doesNotExist();
+        new CachingScanEngine(cache).scan(dir, ScanOptions.DEFAULTS, elem -> { });
+        Assertions.assertThat(cache.getHits()).isEqualTo(0);
+    }
+
+    @Test
+    public void load_corruptIndexFile_shouldReturnEmptyCache() throws Exception {
+
+        Files.write(cacheFile, new byte[]{1, 2, 3});
+
+        final ScanCache cache = ScanCache.load(cacheFile);
+        new CachingScanEngine(cache).scan(dir, ScanOptions.DEFAULTS, elem -> { });
+
+        Assertions.assertThat(cache.getHits()).isEqualTo(0);
+    }
+
+    private void assertSameAsTreeWalk(final ScanCache cache) throws Exception {
+
+        final List<DirectoryElement> expected = new DirectoryElementScanner(new TreeWalkScanEngine()).scan(dir);
+        final List<DirectoryElement> actual = new DirectoryElementScanner(new CachingScanEngine(cache)).scan(dir);
+
+        Assertions.assertThat(actual.stream().map(DirectoryElement::toString).collect(Collectors.toList()))
+                .containsExactlyElementsOf(expected.stream().map(DirectoryElement::toString).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.dirscanner.scanner;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConcurrencyLimit}
+ */
+public class ConcurrencyLimitTest {
+
+    @Test
+    public void new_maxLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new ConcurrencyLimit(1, 0));
+    }
+
+    @Test
+    public void new_initialAboveMax_shouldStartAtMax() {
+        Assertions.assertThat(new ConcurrencyLimit(10, 3).get()).isEqualTo(3);
+    }
+
+    @Test
+    public void onSample_steadyLatency_shouldIncreaseAdditivelyUpToMax() {
+
+        final ConcurrencyLimit limit = new ConcurrencyLimit(4, 16);
+
+        // One more per limit's worth of samples: 4 samples take it to 5, 5 more to 6.
+        for (int i = 0; i < 4; i++) {
+            limit.onSample(1_000, 9);
+        }
+        Assertions.assertThat(limit.get()).isEqualTo(5);
+
+        for (int i = 0; i < 1_000; i++) {
+            limit.onSample(1_000, 9);
+        }
+        Assertions.assertThat(limit.get()).isEqualTo(16);
+    }
+
+    @Test
+    public void onSample_latencySpike_shouldHalveOncePerWindow() {
+
+        final ConcurrencyLimit limit = new ConcurrencyLimit(16, 16);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(1_000, 0);
+        }
+
+        limit.onSample(1_000_000, 0);
+        Assertions.assertThat(limit.get()).isEqualTo(8);
+
+        // Still slow, but within the same window: no further decrease.
+        limit.onSample(1_000_000, 0);
+        Assertions.assertThat(limit.get()).isEqualTo(8);
+    }
+
+    @Test
+    public void onSample_sustainedSaturation_shouldNotGoBelowOne() {
+
+        final ConcurrencyLimit limit = new ConcurrencyLimit(8, 8);
+        limit.onSample(1_000, 0);
+        for (long latency = 2_000; latency < 1L << 50; latency *= 2) {
+            limit.onSample(latency, 0);
+        }
+
+        Assertions.assertThat(limit.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void onSample_largerDirectoryTakingProportionallyLonger_shouldNotDecrease() {
+
+        final ConcurrencyLimit limit = new ConcurrencyLimit(8, 8);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(1_000, 0);
+            limit.onSample(1_000_000, 999);
+        }
+
+        Assertions.assertThat(limit.get()).isEqualTo(8);
+    }
+}
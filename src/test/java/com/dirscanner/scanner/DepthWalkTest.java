@@ -0,0 +1,100 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.ElementNode;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link DepthWalk}
+ */
+public class DepthWalkTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void scanDepth_depthOne_shouldReportSameElemsAsScan() throws Exception {
+
+        final DirectoryElementScanner scanner = new DirectoryElementScanner();
+        final ElementNode root = scanner.scanDepth(DIR, 1);
+
+        Assertions.assertThat(root.getElement().getAbsPath()).isEqualTo(DIR.toAbsolutePath().toString());
+        Assertions.assertThat(root.getChildren()).allMatch(child -> child.getChildren().isEmpty());
+        Assertions.assertThat(toStrings(root.descendants()))
+                .containsExactlyElementsOf(toStrings(scanner.scan(DIR)));
+    }
+
+    @Test
+    public void scanDepth_depthTwo_shouldSortEachLevelBySizeAndSumUpDeeperLevels() throws Exception {
+
+        final ElementNode root = new DirectoryElementScanner().scanDepth(DIR, 2);
+
+        Assertions.assertThat(names(root)).containsExactly("bar", "foo", "somefile.txt");
+
+        final ElementNode bar = root.getChildren().get(0);
+        Assertions.assertThat(names(bar)).containsExactly("ball.jpg", "sam");
+
+        final ElementNode sam = bar.getChildren().get(1);
+        Assertions.assertThat(sam.getChildren()).isEmpty();
+        Assertions.assertThat(sam.getElement().getSize().getBytes()).isEqualTo(15071 + 2739);
+        Assertions.assertThat(root.getElement().getSize().getBytes()).isEqualTo(
+                root.getChildren().stream().mapToLong(child -> child.getElement().getSize().getBytes()).sum());
+
+        final ElementNode foo = root.getChildren().get(1);
+        Assertions.assertThat(names(foo)).containsExactly("a.txt", "b.txt", "another_dir");
+    }
+
+    @Test
+    public void scanDepth_deepTree_shouldOnlyHoldElementsDownToDepth() throws Exception {
+
+        Path dir = tmp.getRoot().toPath();
+        for (int i = 0; i < 2_000; i++) {
+            dir = Files.createDirectory(dir.resolve("d"));
+        }
+        Files.write(dir.resolve("file"), new byte[42]);
+
+        final ElementNode root = new DirectoryElementScanner().scanDepth(tmp.getRoot().toPath(), 2);
+
+        final List<DirectoryElement> elems = root.descendants();
+        Assertions.assertThat(elems).hasSize(2);
+        Assertions.assertThat(elems).allMatch(elem -> elem.getSize().getBytes() == 42);
+        Assertions.assertThat(root.getElement().getSize().getBytes()).isEqualTo(42);
+    }
+
+    @Test
+    public void scanDepth_excludes_shouldLeaveOutExcludedEntries() throws Exception {
+
+        final ElementNode root = new DirectoryElementScanner(new TreeWalkScanEngine(),
+                ScanOptions.builder().exclude("*.jpg").build()).scanDepth(DIR, 3);
+
+        Assertions.assertThat(toStrings(root.descendants())).allMatch(elem -> !elem.contains(".jpg"));
+        Assertions.assertThat(root.getChildren().get(0).getElement().getSize().getBytes()).isEqualTo(2739);
+    }
+
+    @Test
+    public void scanDepth_depthLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new DirectoryElementScanner().scanDepth(DIR, 0));
+    }
+
+    private static List<String> names(final ElementNode node) {
+        return node.getChildren().stream()
+                .map(child -> Paths.get(child.getElement().getAbsPath()).getFileName().toString())
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> toStrings(final List<DirectoryElement> elems) {
+        return elems.stream().map(DirectoryElement::toString).collect(Collectors.toList());
+    }
+}
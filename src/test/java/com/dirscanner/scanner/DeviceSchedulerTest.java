@@ -0,0 +1,48 @@
+package com.dirscanner.scanner;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link DeviceScheduler}
+ */
+public class DeviceSchedulerTest {
+
+    @Test
+    public void submit_executorShutDownWithListingsPending_shouldDropThemAndRunContinuation() throws Exception {
+
+        final AtomicReference<Throwable> uncaught = new AtomicReference<>();
+        final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setUncaughtExceptionHandler((t, e) -> uncaught.set(e));
+            return thread;
+        });
+        final DeviceScheduler scheduler = new DeviceScheduler(executor, 1);
+        final AtomicBoolean pendingRead = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        scheduler.submit("dev", Paths.get("a"), () -> {
+            // Queued behind this listing, since the device allows a single one in flight.
+            scheduler.submit("dev", Paths.get("b"), () -> {
+                pendingRead.set(true);
+                return 0;
+            }, () -> { });
+            executor.shutdownNow();
+            return 1;
+        }, done::countDown);
+
+        Assertions.assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(pendingRead).isFalse();
+        Assertions.assertThat(uncaught.get()).isNull();
+        Assertions.assertThat(scheduler.getThroughputs().get(0).getDirectoriesListed()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,107 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link DistributedScanEngine} and {@link ScanWorker}
+ */
+public class DistributedScanEngineTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    /**
+     * Runs workers on threads of the running JVM rather than as processes of their own.
+     */
+    private final static WorkerLauncher THREADS = coordinator -> {
+        final Thread thread = new Thread(() -> {
+            try {
+                ScanWorker.run(coordinator);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.start();
+        return () -> {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    };
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void new_workersLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new DistributedScanEngine(0));
+    }
+
+    @Test
+    public void scan_dirContainingFilesAndSubDirs_shouldReturnSameElemsAsTreeWalkScanEngine() throws Exception {
+        assertSameAsTreeWalk(DIR, new DistributedScanEngine(3, THREADS), ScanOptions.DEFAULTS);
+    }
+
+    @Test
+    public void scan_workerProcesses_shouldReturnSameElemsAsTreeWalkScanEngine() throws Exception {
+        assertSameAsTreeWalk(DIR, new DistributedScanEngine(2), ScanOptions.DEFAULTS);
+    }
+
+    @Test
+    public void scan_skewedTree_shouldStealWorkAndReturnSameElemsAsTreeWalkScanEngine() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        for (int i = 0; i < 300; i++) {
+            final Path sub = Files.createDirectories(dir.resolve("large").resolve("d" + i).resolve("nested"));
+            for (int j = 0; j < 10; j++) {
+                Files.write(sub.resolve("f" + j), new byte[i + j]);
+            }
+        }
+        Files.write(Files.createDirectories(dir.resolve("small")).resolve("f"), new byte[3]);
+
+        final DistributedScanEngine engine = new DistributedScanEngine(4, THREADS);
+        assertSameAsTreeWalk(dir, engine, ScanOptions.DEFAULTS);
+        Assertions.assertThat(engine.getDonatedUnits()).isPositive();
+    }
+
+    @Test
+    public void scan_excludes_shouldBeAppliedByWorkers() throws Exception {
+        assertSameAsTreeWalk(DIR, new DistributedScanEngine(2, THREADS), ScanOptions.builder().exclude("*.jpg").build());
+    }
+
+    @Test
+    public void scan_onlyFiles_shouldNotStartWorkers() throws Exception {
+        assertSameAsTreeWalk(Paths.get("src/test/resources/dir-of-files-only"), new DistributedScanEngine(2, coordinator -> {
+            throw new AssertionError("No worker should be started.");
+        }), ScanOptions.DEFAULTS);
+    }
+
+    @Test
+    public void scan_diskUsage_shouldThrowUnsupportedOperationException() {
+        Assertions.assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> new DistributedScanEngine(2, THREADS).scan(DIR, ScanOptions.builder().sizeMode(SizeMode.DISK_USAGE).build(), elem -> { }));
+    }
+
+    private static void assertSameAsTreeWalk(final Path dir, final ScanEngine engine, final ScanOptions options) throws Exception {
+
+        final List<DirectoryElement> expected = new DirectoryElementScanner(new TreeWalkScanEngine(), options).scan(dir);
+        final List<DirectoryElement> actual = new DirectoryElementScanner(engine, options).scan(dir);
+
+        Assertions.assertThat(actual.stream().map(elem -> elem + " " + elem.getSize().getBytes()).collect(Collectors.toList()))
+                .containsExactlyElementsOf(expected.stream().map(elem -> elem + " " + elem.getSize().getBytes()).collect(Collectors.toList()));
+    }
+}
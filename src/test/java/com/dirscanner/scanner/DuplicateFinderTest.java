@@ -0,0 +1,151 @@
+package com.dirscanner.scanner;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link DuplicateFinder}
+ */
+public class DuplicateFinderTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void findDuplicates_sameContents_shouldGroupFiles() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final byte[] contents = randomBytes(1000, 1);
+        final Path a = write(dir.resolve("a"), contents);
+        final Path b = write(dir.resolve("sub").resolve("b"), contents);
+        write(dir.resolve("c"), randomBytes(1000, 2));
+        write(dir.resolve("d"), randomBytes(999, 1));
+
+        final List<DuplicateGroup> duplicates = new DirectoryElementScanner().findDuplicates(dir);
+
+        Assertions.assertThat(duplicates).hasSize(1);
+        Assertions.assertThat(duplicates.get(0).getPaths()).containsExactly(a, b);
+        Assertions.assertThat(duplicates.get(0).getSizeInBytes()).isEqualTo(1000);
+        Assertions.assertThat(duplicates.get(0).getWastedBytes()).isEqualTo(1000);
+    }
+
+    @Test
+    public void findDuplicates_largeFilesDifferingOnlyInTheMiddle_shouldNotGroupFiles() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final byte[] contents = randomBytes(4 * DuplicateFinder.EDGE_BYTES, 1);
+        write(dir.resolve("a"), contents);
+        contents[contents.length / 2]++;
+        write(dir.resolve("b"), contents);
+
+        Assertions.assertThat(new DirectoryElementScanner().findDuplicates(dir, 2)).isEmpty();
+    }
+
+    @Test
+    public void findDuplicates_largeFilesWithSameContents_shouldGroupFiles() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final byte[] contents = randomBytes(4 * DuplicateFinder.EDGE_BYTES + 7, 1);
+        final Path a = write(dir.resolve("a"), contents);
+        final Path b = write(dir.resolve("b"), contents);
+        final Path c = write(dir.resolve("c"), contents);
+
+        final List<DuplicateGroup> duplicates = new DirectoryElementScanner().findDuplicates(dir, 2);
+
+        Assertions.assertThat(duplicates).hasSize(1);
+        Assertions.assertThat(duplicates.get(0).getPaths()).containsExactly(a, b, c);
+        Assertions.assertThat(duplicates.get(0).getWastedBytes()).isEqualTo(2L * contents.length);
+    }
+
+    @Test
+    public void findDuplicates_severalGroups_shouldRankByWastedBytes() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final byte[] small = randomBytes(100, 1);
+        final byte[] large = randomBytes(300, 2);
+        for (int i = 0; i < 5; i++) {
+            write(dir.resolve("small" + i), small);
+        }
+        write(dir.resolve("large0"), large);
+        write(dir.resolve("large1"), large);
+
+        final List<DuplicateGroup> duplicates = new DirectoryElementScanner().findDuplicates(dir);
+
+        Assertions.assertThat(duplicates).extracting(DuplicateGroup::getWastedBytes).containsExactly(400L, 300L);
+    }
+
+    @Test
+    public void findDuplicates_emptyFilesAndHardLinks_shouldNotBeReported() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        write(dir.resolve("empty0"), new byte[0]);
+        write(dir.resolve("empty1"), new byte[0]);
+        final Path file = write(dir.resolve("file"), randomBytes(100, 1));
+        Files.createLink(dir.resolve("link"), file);
+
+        Assertions.assertThat(new DirectoryElementScanner().findDuplicates(dir)).isEmpty();
+    }
+
+    @Test
+    public void findDuplicates_hardLinkAndCopy_shouldReportLinkedFileOnceWithCopy() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final byte[] contents = randomBytes(100, 1);
+        final Path file = write(dir.resolve("a"), contents);
+        Files.createLink(dir.resolve("b"), file);
+        final Path copy = write(dir.resolve("c"), contents);
+
+        final List<DuplicateGroup> duplicates = new DirectoryElementScanner().findDuplicates(dir);
+
+        Assertions.assertThat(duplicates).hasSize(1);
+        Assertions.assertThat(duplicates.get(0).getSizeInBytes()).isEqualTo(100L);
+        Assertions.assertThat(duplicates.get(0).getPaths()).hasSize(2).contains(copy);
+    }
+
+    @Test
+    public void findDuplicates_excludes_shouldBeApplied() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final byte[] contents = randomBytes(100, 1);
+        write(dir.resolve("a.txt"), contents);
+        write(dir.resolve("b.bak"), contents);
+
+        Assertions.assertThat(new DirectoryElementScanner(new TreeWalkScanEngine(), ScanOptions.builder().exclude("*.bak").build())
+                .findDuplicates(dir)).isEmpty();
+    }
+
+    @Test
+    public void findDuplicates_file_shouldThrowNotDirectoryException() throws Exception {
+
+        final Path file = write(tmp.getRoot().toPath().resolve("file"), new byte[1]);
+
+        Assertions.assertThatExceptionOfType(NotDirectoryException.class)
+                .isThrownBy(() -> new DirectoryElementScanner().findDuplicates(file));
+    }
+
+    @Test
+    public void findDuplicates_parallelismLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new DirectoryElementScanner().findDuplicates(tmp.getRoot().toPath(), 0));
+    }
+
+    private static Path write(final Path file, final byte[] contents) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, contents);
+    }
+
+    private static byte[] randomBytes(final int length, final long seed) {
+        final byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
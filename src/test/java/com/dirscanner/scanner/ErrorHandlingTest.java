@@ -0,0 +1,87 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.metrics.ScanMetrics;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link ErrorHandling}
+ */
+public class ErrorHandlingTest {
+
+    private final static Path PATH = Paths.get("/some/entry");
+
+    @Test
+    public void attempt_failFast_shouldRethrowException() {
+
+        final ScanOptions options = ScanOptions.builder().errorPolicy(ErrorPolicy.FAIL_FAST).build();
+
+        Assertions.assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> ErrorHandling.attempt(PATH, options, () -> {
+                    throw new IOException("boom");
+                }));
+    }
+
+    @Test
+    public void attempt_skip_shouldReportErrorAndReturnNull() throws Exception {
+
+        final ScanMetrics metrics = new ScanMetrics();
+        final ScanOptions options = ScanOptions.builder().errorPolicy(ErrorPolicy.SKIP).listener(metrics).build();
+
+        Assertions.assertThat(ErrorHandling.<String>attempt(PATH, options, () -> {
+            throw new IOException("boom");
+        })).isNull();
+        Assertions.assertThat(metrics.getErrorsSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    public void attempt_retryTransientFailure_shouldRetryUntilReadSucceeds() throws Exception {
+
+        final ScanOptions options = ScanOptions.builder().errorPolicy(ErrorPolicy.RETRY).maxRetries(3).retryBackoffMillis(1).build();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final String result = ErrorHandling.attempt(PATH, options, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IOException("busy");
+            }
+            return "read";
+        });
+
+        Assertions.assertThat(result).isEqualTo("read");
+        Assertions.assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void attempt_retryPersistentFailure_shouldSkipAfterMaxRetries() throws Exception {
+
+        final ScanMetrics metrics = new ScanMetrics();
+        final ScanOptions options = ScanOptions.builder().errorPolicy(ErrorPolicy.RETRY).maxRetries(2).retryBackoffMillis(1).listener(metrics).build();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        Assertions.assertThat(ErrorHandling.<String>attempt(PATH, options, () -> {
+            attempts.incrementAndGet();
+            throw new IOException("busy");
+        })).isNull();
+        Assertions.assertThat(attempts.get()).isEqualTo(3);
+        Assertions.assertThat(metrics.getErrorsSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    public void attempt_retryVanishedEntry_shouldSkipWithoutRetrying() throws Exception {
+
+        final ScanOptions options = ScanOptions.builder().errorPolicy(ErrorPolicy.RETRY).retryBackoffMillis(1).build();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        Assertions.assertThat(ErrorHandling.<String>attempt(PATH, options, () -> {
+            attempts.incrementAndGet();
+            throw new NoSuchFileException(PATH.toString());
+        })).isNull();
+        Assertions.assertThat(attempts.get()).isEqualTo(1);
+    }
+}
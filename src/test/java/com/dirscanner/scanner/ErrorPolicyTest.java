@@ -0,0 +1,127 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.metrics.ScanMetrics;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Tests of how the sequential {@link ScanEngine}s abide by the {@link ErrorPolicy} of a scan, when entries vanish
+ * while the scan is running.
+ */
+public class ErrorPolicyTest {
+
+    private final static int TOP_LEVEL_DIRS = 5;
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path dir;
+
+    @Before
+    public void setup() throws Exception {
+        dir = Files.createDirectories(tmp.getRoot().toPath().resolve("tree"));
+        for (int i = 0; i < TOP_LEVEL_DIRS; i++) {
+            Files.write(Files.createDirectories(dir.resolve("dir" + i).resolve("nested")).resolve("file.txt"), new byte[100]);
+        }
+    }
+
+    @Test
+    public void scan_failFastAndEntriesVanish_shouldThrowNoSuchFileException() throws Exception {
+        for (final ScanEngine engine : engines()) {
+            Assertions.assertThatExceptionOfType(NoSuchFileException.class)
+                    .isThrownBy(() -> engine.scan(dir, ScanOptions.DEFAULTS, new DeletingSink(new ArrayList<>())));
+            setup();
+        }
+    }
+
+    @Test
+    public void scan_skipAndEntriesVanish_shouldKeepPartialTotalsAndReportSkippedEntries() throws Exception {
+        for (final ScanEngine engine : engines()) {
+
+            final ScanMetrics metrics = new ScanMetrics();
+            final List<DirectoryElement> elems = new ArrayList<>();
+
+            engine.scan(dir, ScanOptions.builder().errorPolicy(ErrorPolicy.SKIP).listener(metrics).build(), new DeletingSink(elems));
+
+            Assertions.assertThat(elems).as("%s", engine).hasSize(1);
+            Assertions.assertThat(elems.get(0).getSize().getValue()).isEqualTo((double) 100 / 1024);
+            Assertions.assertThat(metrics.getErrorsSkipped()).as("%s", engine).isEqualTo(TOP_LEVEL_DIRS - 1);
+            setup();
+        }
+    }
+
+    @Test
+    public void scanReport_allEntriesReadable_shouldReturnCompleteReport() throws Exception {
+
+        final ScanReport report = new DirectoryElementScanner().scanReport(Paths.get("src/test/resources/dir-of-files-only"));
+
+        Assertions.assertThat(report.isComplete()).isTrue();
+        Assertions.assertThat(report.getElements().size()).isGreaterThanOrEqualTo(3);
+    }
+
+    private ScanEngine[] engines() throws IOException {
+        return new ScanEngine[]{new TreeWalkScanEngine(), new CachingScanEngine(ScanCache.load(tmp.getRoot().toPath().resolve("scan.cache")))};
+    }
+
+    /**
+     * Deletes all the other top-level directories once the first one is passed on, so that they vanish mid-scan.
+     */
+    private final class DeletingSink implements Consumer<DirectoryElement> {
+
+        private final List<DirectoryElement> elems;
+
+        DeletingSink(final List<DirectoryElement> elems) {
+            this.elems = elems;
+        }
+
+        @Override
+        public void accept(final DirectoryElement elem) {
+            elems.add(elem);
+            if (elems.size() == 1) {
+                for (int i = 0; i < TOP_LEVEL_DIRS; i++) {
+                    final Path other = dir.resolve("dir" + i);
+                    if (!other.toAbsolutePath().toString().equals(elem.getAbsPath())) {
+                        delete(other);
+                    }
+                }
+            }
+        }
+
+        private void delete(final Path path) {
+            try {
+                Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                        Files.delete(file);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                        Files.delete(dir);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.EstimatedElement;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link Estimator}
+ */
+public class EstimatorTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void estimate_narrowTree_shouldBeExactInSinglePass() throws Exception {
+
+        final List<List<EstimatedElement>> passes = new ArrayList<>();
+        final List<EstimatedElement> actual = new Estimator(ScanOptions.DEFAULTS, new Random(1))
+                .estimate(DIR, TimeUnit.SECONDS.toNanos(10), passes::add);
+
+        Assertions.assertThat(passes).hasSize(1);
+        Assertions.assertThat(actual).allMatch(EstimatedElement::isExact);
+        Assertions.assertThat(actual.stream().map(EstimatedElement::toString).collect(Collectors.toList()))
+                .containsExactlyElementsOf(new DirectoryElementScanner().scan(DIR).stream().map(DirectoryElement::toString).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void estimate_wideDirectoryWithoutBudget_shouldSampleOnceWithinBounds() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final long total = createWideDirectory(dir.resolve("wide"), 1_000);
+
+        final EstimatedElement wide = new Estimator(ScanOptions.DEFAULTS, new Random(1)).estimate(dir, 0, elems -> { }).get(0);
+
+        Assertions.assertThat(wide.isExact()).isFalse();
+        Assertions.assertThat(wide.getLowerBoundInBytes()).isLessThanOrEqualTo(total);
+        Assertions.assertThat(wide.getUpperBoundInBytes()).isGreaterThanOrEqualTo(total);
+        Assertions.assertThat(wide.getRelativeError()).isBetween(0.0, 0.5);
+        Assertions.assertThat(wide.toString()).contains("+/-");
+    }
+
+    @Test
+    public void estimate_wideDirectoryWithBudget_shouldRefineUntilExact() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final long total = createWideDirectory(dir.resolve("wide"), 300);
+
+        final List<List<EstimatedElement>> passes = new ArrayList<>();
+        final EstimatedElement wide = new Estimator(ScanOptions.DEFAULTS, new Random(1))
+                .estimate(dir, TimeUnit.SECONDS.toNanos(60), passes::add).get(0);
+
+        // Sample sizes of 32, 64, 128 and 256 sample the directory, and 512 reads it in full.
+        Assertions.assertThat(passes).hasSize(5);
+        Assertions.assertThat(passes.get(0).get(0).isExact()).isFalse();
+        Assertions.assertThat(wide.isExact()).isTrue();
+        Assertions.assertThat(wide.getElement().getSize().getBytes()).isEqualTo(total);
+    }
+
+    @Test
+    public void estimate_nestedWideDirectories_shouldCoverTotalMostOfTheTime() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final Random sizes = new Random(7);
+        long total = 0;
+        for (int d = 0; d < 60; d++) {
+            final Path sub = Files.createDirectories(dir.resolve("wide").resolve("d" + d));
+            for (int f = 0; f < 40; f++) {
+                final int size = sizes.nextInt(d * 50 + 1);
+                Files.write(sub.resolve("f" + f), new byte[size]);
+                total += size;
+            }
+        }
+
+        int covered = 0;
+        final int runs = 100;
+        for (int seed = 0; seed < runs; seed++) {
+            final EstimatedElement wide = new Estimator(ScanOptions.DEFAULTS, new Random(seed)).estimate(dir, 0, elems -> { }).get(0);
+            if (wide.getLowerBoundInBytes() <= total && total <= wide.getUpperBoundInBytes()) {
+                covered++;
+            }
+        }
+
+        // A 95% interval, with some slack for the variance being estimated from the samples themselves.
+        Assertions.assertThat(covered).isGreaterThanOrEqualTo(85);
+    }
+
+    /**
+     * @return the total size of the created files.
+     */
+    private static long createWideDirectory(final Path dir, final int files) throws Exception {
+        Files.createDirectories(dir);
+        long total = 0;
+        for (int i = 0; i < files; i++) {
+            Files.write(dir.resolve("f" + i), new byte[i % 100]);
+            total += i % 100;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,111 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.metrics.DeviceThroughput;
+import com.dirscanner.metrics.ScanMetrics;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link ExecutorScanEngine}
+ */
+public class ExecutorScanEngineTest {
+
+    private final static String TEST_RESOURCES_RELATIVE_PATH = "src/test/resources";
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void new_concurrencyPerMountLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new ExecutorScanEngine(0, false));
+    }
+
+    @Test
+    public void scan_pathDoesNotExist_shouldThrowNoSuchFileException() {
+        Assertions.assertThatExceptionOfType(NoSuchFileException.class)
+                .isThrownBy(() -> new ExecutorScanEngine().scan(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/non-existent-path"), ScanOptions.DEFAULTS, elem -> { }));
+    }
+
+    @Test
+    public void scan_dirContainingFilesAndSubDirs_shouldReturnSameElemsAsTreeWalkScanEngine() throws Exception {
+        final Path dir = Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-and-sub-dirs");
+
+        assertSameAsTreeWalk(dir, new ExecutorScanEngine());
+        assertSameAsTreeWalk(dir, new ExecutorScanEngine(2, false));
+    }
+
+    @Test
+    public void scan_concurrencyPerMountOfOne_shouldStillCompleteDeepTree() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        for (int i = 0; i < 20; i++) {
+            Path nested = dir.resolve("top" + i);
+            for (int j = 0; j < 10; j++) {
+                nested = Files.createDirectories(nested.resolve("d" + j));
+                Files.write(nested.resolve("f"), new byte[i + j]);
+            }
+        }
+
+        assertSameAsTreeWalk(dir, new ExecutorScanEngine(1, false));
+        assertSameAsTreeWalk(dir, new ExecutorScanEngine(1, true));
+    }
+
+    @Test
+    public void scan_withMetrics_shouldReportThroughputOfEveryDirectoryPerDevice() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        for (int i = 0; i < 50; i++) {
+            Files.write(Files.createDirectories(dir.resolve("d" + i)).resolve("f"), new byte[i]);
+        }
+
+        final ScanMetrics metrics = new ScanMetrics();
+        new DirectoryElementScanner(new ExecutorScanEngine(8, false), ScanOptions.builder().listener(metrics).build()).scan(dir);
+
+        final List<DeviceThroughput> throughputs = metrics.getDeviceThroughputs();
+        Assertions.assertThat(throughputs).hasSize(1);
+        Assertions.assertThat(throughputs.get(0).getDirectoriesListed()).isEqualTo(51);
+        Assertions.assertThat(throughputs.get(0).getEntriesRead()).isEqualTo(100);
+        Assertions.assertThat(throughputs.get(0).getPeakConcurrency()).isBetween(1, 8);
+        Assertions.assertThat(throughputs.get(0).getFinalConcurrency()).isBetween(1, 8);
+        Assertions.assertThat(metrics.getDirectoriesPerSecondByDevice()).containsOnlyKeys(throughputs.get(0).getDevice());
+    }
+
+    @Test(timeout = 10_000)
+    public void scan_sinkThrows_shouldFailRatherThanHang() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Files.write(dir.resolve("file"), new byte[10]);
+        for (int i = 0; i < 20; i++) {
+            Files.write(Files.createDirectories(dir.resolve("d" + i).resolve("nested")).resolve("f"), new byte[i]);
+        }
+
+        for (final ScanEngine engine : new ScanEngine[]{new ExecutorScanEngine(2, false), new ExecutorScanEngine()}) {
+            Assertions.assertThatExceptionOfType(UncheckedIOException.class)
+                    .isThrownBy(() -> engine.scan(dir, ScanOptions.DEFAULTS, elem -> {
+                        throw new UncheckedIOException(new IOException("Broken pipe"));
+                    }));
+        }
+    }
+
+    private static void assertSameAsTreeWalk(final Path dir, final ScanEngine engine) throws Exception {
+
+        final List<DirectoryElement> expected = new DirectoryElementScanner(new TreeWalkScanEngine()).scan(dir);
+        final List<DirectoryElement> actual = new DirectoryElementScanner(engine).scan(dir);
+
+        Assertions.assertThat(actual.stream().map(DirectoryElement::toString).collect(Collectors.toList()))
+                .containsExactlyElementsOf(expected.stream().map(DirectoryElement::toString).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,112 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.metrics.ScanListener;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link ForkJoinScanEngine}
+ */
+public class ForkJoinScanEngineTest {
+
+    private final static String TEST_RESOURCES_RELATIVE_PATH = "src/test/resources";
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void new_parallelismLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new ForkJoinScanEngine(0));
+    }
+
+    @Test
+    public void scan_pathDoesNotExist_shouldThrowNoSuchFileException() {
+        Assertions.assertThatExceptionOfType(NoSuchFileException.class)
+                .isThrownBy(() -> new ForkJoinScanEngine(2).scan(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/non-existent-path"), ScanOptions.DEFAULTS, elem -> { }));
+    }
+
+    @Test
+    public void scan_dirContainingFilesAndSubDirs_shouldReturnSameElemsAsTreeWalkScanEngine() throws Exception {
+        assertSameAsTreeWalk(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-and-sub-dirs"));
+    }
+
+    @Test
+    public void scan_skewedTree_shouldReturnSameElemsAsTreeWalkScanEngine() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Files.write(dir.resolve("small.txt"), new byte[10]);
+        for (int i = 0; i < 50; i++) {
+            final Path module = Files.createDirectories(dir.resolve("node_modules").resolve("m" + i).resolve("lib"));
+            Files.write(module.resolve("index.js"), new byte[i * 100]);
+        }
+
+        assertSameAsTreeWalk(dir);
+    }
+
+    @Test
+    public void scan_directoryRelativeStatOnOrOff_shouldReturnSameElems() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Files.write(Files.createDirectories(dir.resolve("a").resolve("b")).resolve("file.txt"), new byte[300]);
+        Files.createSymbolicLink(dir.resolve("a").resolve("dangling"), dir.resolve("missing"));
+        Files.createSymbolicLink(dir.resolve("link"), dir.resolve("a"));
+
+        for (final boolean followLinks : new boolean[]{false, true}) {
+            final ScanOptions relative = ScanOptions.builder().followLinks(followLinks).directoryRelativeStat(true).build();
+            final ScanOptions byPath = relative.toBuilder().directoryRelativeStat(false).build();
+
+            Assertions.assertThat(new DirectoryElementScanner(new ForkJoinScanEngine(2), relative).scan(dir).toString())
+                    .isEqualTo(new DirectoryElementScanner(new ForkJoinScanEngine(2), byPath).scan(dir).toString());
+        }
+    }
+
+    @Test
+    public void scan_sinkThrows_shouldStopWalkingTheTree() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Files.createDirectories(dir.resolve("a"));
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 50; j++) {
+                Files.createDirectories(dir.resolve("b").resolve("d" + i).resolve("d" + j));
+            }
+        }
+
+        final AtomicInteger listed = new AtomicInteger();
+        final ScanOptions options = ScanOptions.builder().listener(new ScanListener() {
+            @Override
+            public void onDirectoryListed(@Nonnull final Path dir, final long nanos) {
+                listed.incrementAndGet();
+            }
+        }).build();
+
+        Assertions.assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> new ForkJoinScanEngine(2).scan(dir, options, elem -> {
+                    throw new IllegalStateException("Sink failed");
+                }));
+
+        Thread.sleep(500);
+        Assertions.assertThat(listed.get()).isLessThan(2553);
+    }
+
+    private static void assertSameAsTreeWalk(final Path dir) throws Exception {
+
+        final List<DirectoryElement> expected = new DirectoryElementScanner(new TreeWalkScanEngine()).scan(dir);
+        final List<DirectoryElement> actual = new DirectoryElementScanner(new ForkJoinScanEngine(4)).scan(dir);
+
+        Assertions.assertThat(actual.stream().map(DirectoryElement::toString).collect(Collectors.toList()))
+                .containsExactlyElementsOf(expected.stream().map(DirectoryElement::toString).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,43 @@
+package com.dirscanner.scanner;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+/**
+ * Tests for {@link InodeSet}
+ */
+public class InodeSetTest {
+
+    @Test
+    public void add_sameInodeTwice_shouldOnlyAddItOnce() {
+
+        final InodeSet set = new InodeSet();
+
+        Assertions.assertThat(set.add(2049, 1234)).isTrue();
+        Assertions.assertThat(set.add(2049, 1234)).isFalse();
+        Assertions.assertThat(set.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void add_sameInodeNumberOnDifferentDevices_shouldAddBoth() {
+
+        final InodeSet set = new InodeSet();
+
+        Assertions.assertThat(set.add(1, 1234)).isTrue();
+        Assertions.assertThat(set.add(2, 1234)).isTrue();
+    }
+
+    @Test
+    public void add_manyInodes_shouldRememberEachAcrossRehashes() {
+
+        final InodeSet set = new InodeSet();
+        for (long ino = 0; ino < 100_000; ino++) {
+            Assertions.assertThat(set.add(7, ino)).isTrue();
+        }
+        for (long ino = 0; ino < 100_000; ino++) {
+            Assertions.assertThat(set.add(7, ino)).isFalse();
+        }
+
+        Assertions.assertThat(set.size()).isEqualTo(100_000);
+    }
+}
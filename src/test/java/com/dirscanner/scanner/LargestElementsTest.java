@@ -0,0 +1,45 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.DirectoryElement.Size;
+import com.dirscanner.elem.FileSizeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link LargestElements}
+ */
+public class LargestElementsTest {
+
+    @Test
+    public void new_nLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new LargestElements(0));
+    }
+
+    @Test
+    public void toList_noElemsGiven_shouldReturnEmptyList() {
+        Assertions.assertThat(new LargestElements(3).toList()).isEmpty();
+    }
+
+    @Test
+    public void toList_moreElemsGivenThanN_shouldReturnNLargestSortedBySizeInDescOrder() {
+
+        final LargestElements largest = new LargestElements(3);
+        for (final int value : new int[]{5, 40, 1, 30, 20, 10, 50}) {
+            largest.accept(elem(value));
+        }
+
+        Assertions.assertThat(largest.toList().stream().map(DirectoryElement::getAbsPath).collect(Collectors.toList()))
+                .containsExactly("/50", "/40", "/30");
+    }
+
+    private static DirectoryElement elem(final int value) {
+        return DirectoryElement.builder()
+                .absPath("/" + value)
+                .type(DirectoryElement.Type.FILE)
+                .size(Size.of(FileSizeUnit.KB.toBytes(value), FileSizeUnit.KB))
+                .build();
+    }
+}
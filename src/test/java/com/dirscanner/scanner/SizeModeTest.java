@@ -0,0 +1,105 @@
+package com.dirscanner.scanner;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Tests of how the {@link ScanEngine}s account for file sizes under each {@link SizeMode}.
+ */
+public class SizeModeTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path dir;
+
+    @Before
+    public void setup() throws Exception {
+        dir = tmp.getRoot().toPath();
+
+        final Path original = Files.createDirectories(dir.resolve("snapshot-1")).resolve("big.dat");
+        Files.write(original, new byte[10_000]);
+        Files.createLink(Files.createDirectories(dir.resolve("snapshot-2")).resolve("big.dat"), original);
+        Files.write(dir.resolve("snapshot-2").resolve("small.dat"), new byte[10]);
+    }
+
+    @Test
+    public void scan_apparentSize_shouldCountEveryHardLink() throws Exception {
+        for (final ScanEngine engine : engines()) {
+            Assertions.assertThat(totalBytes(engine, ScanOptions.DEFAULTS)).as("%s", engine).isEqualTo(20_010);
+        }
+    }
+
+    @Test
+    public void scan_diskUsage_shouldCountEachInodeOnceRoundedUpToBlocks() throws Exception {
+
+        final ScanOptions options = ScanOptions.builder().sizeMode(SizeMode.DISK_USAGE).build();
+
+        for (final ScanEngine engine : engines()) {
+            Assertions.assertThat(totalBytes(engine, options)).as("%s", engine).isEqualTo(3 * 4096 + 4096);
+        }
+    }
+
+    @Test
+    public void scanReport_diskUsage_shouldReportApparentSizeAlongside() throws Exception {
+
+        final ScanOptions options = ScanOptions.builder().sizeMode(SizeMode.DISK_USAGE).build();
+
+        for (final ScanEngine engine : engines()) {
+            final ScanReport report = new DirectoryElementScanner(engine, options).scanReport(dir);
+            Assertions.assertThat(report.getSizeInBytes()).as("%s", engine).isEqualTo(3 * 4096 + 4096);
+            Assertions.assertThat(report.getApparentSizeInBytes()).as("%s", engine).isEqualTo(20_010);
+        }
+    }
+
+    @Test
+    public void scanReport_apparentSize_shouldReportSameSizeTwice() throws Exception {
+
+        final ScanReport report = new DirectoryElementScanner(new CachingScanEngine(ScanCache.load(dir.resolve("scan.cache")))).scanReport(dir);
+
+        Assertions.assertThat(report.getSizeInBytes()).isEqualTo(20_010);
+        Assertions.assertThat(report.getApparentSizeInBytes()).isEqualTo(20_010);
+    }
+
+    @Test
+    public void sizeOf_diskUsageAndUnixAttributes_shouldNotStatFileAgain() throws Exception {
+
+        final Path file = dir.resolve("snapshot-1").resolve("big.dat");
+        final ScanOptions options = ScanOptions.builder().sizeMode(SizeMode.DISK_USAGE).build();
+        final ScanContext context = new ScanContext(dir, options);
+        Assume.assumeTrue(context.readsUnixAttributes());
+
+        final BasicFileAttributes attrs = context.readAttributes(file);
+        Files.delete(file);
+
+        Assertions.assertThat(context.getAccounting().sizeOf(file, attrs)).isEqualTo(3 * 4096);
+        Assertions.assertThat(context.getAccounting().sizeOf(file, attrs)).isZero();
+    }
+
+    @Test
+    public void scan_cachingEngineInDiskUsageMode_shouldThrowUnsupportedOperationException() {
+
+        final ScanOptions options = ScanOptions.builder().sizeMode(SizeMode.DISK_USAGE).build();
+
+        Assertions.assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> new CachingScanEngine(ScanCache.load(dir.resolve("scan.cache"))).scan(dir, options, elem -> { }));
+    }
+
+    private static ScanEngine[] engines() {
+        return new ScanEngine[]{new TreeWalkScanEngine(), new ForkJoinScanEngine(2), new ExecutorScanEngine(2, false)};
+    }
+
+    private long totalBytes(final ScanEngine engine, final ScanOptions options) throws Exception {
+        return new DirectoryElementScanner(engine, options).scan(dir).stream()
+                .mapToLong(elem -> elem.getSize().getBytes())
+                .sum();
+    }
+}
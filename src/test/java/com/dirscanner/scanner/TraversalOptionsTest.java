@@ -0,0 +1,129 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.elem.DirectoryElement;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests of how the {@link ScanEngine}s abide by the traversal options of a scan: following links, staying on one file
+ * system and excluding entries.
+ */
+public class TraversalOptionsTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path dir;
+
+    private Path target;
+
+    @Before
+    public void setup() throws Exception {
+        dir = Files.createDirectories(tmp.getRoot().toPath().resolve("tree"));
+        target = Files.createDirectories(tmp.getRoot().toPath().resolve("target"));
+        Files.write(target.resolve("file.txt"), new byte[2048]);
+
+        Files.write(Files.createDirectories(dir.resolve("a")).resolve("file.txt"), new byte[1024]);
+        Files.createSymbolicLink(dir.resolve("a").resolve("loop"), dir);
+        Files.createSymbolicLink(dir.resolve("link"), target);
+    }
+
+    @Test
+    public void scan_defaultOptions_shouldNotFollowLinks() throws Exception {
+        for (final ScanEngine engine : engines()) {
+            final Map<String, DirectoryElement> elems = scan(engine, ScanOptions.DEFAULTS);
+
+            Assertions.assertThat(elems.get("a").getSize().getValue()).as("%s", engine).isGreaterThan(1.0).isLessThan(2.0);
+            Assertions.assertThat(elems.get("link").getType()).as("%s", engine).isEqualTo(DirectoryElement.Type.FILE);
+        }
+    }
+
+    @Test
+    public void scan_followLinksWithCycle_shouldCountEveryDirectoryOnce() throws Exception {
+        for (final ScanEngine engine : linkFollowingEngines()) {
+            final Map<String, DirectoryElement> elems = scan(engine, ScanOptions.builder().followLinks(true).build());
+
+            Assertions.assertThat(elems.get("a").getSize().getValue()).as("%s", engine).isEqualTo(1.0);
+            Assertions.assertThat(elems.get("link").getType()).as("%s", engine).isEqualTo(DirectoryElement.Type.DIR);
+            Assertions.assertThat(elems.get("link").getSize().getValue()).as("%s", engine).isEqualTo(2.0);
+        }
+    }
+
+    @Test
+    public void scan_followLinksOnCachingEngine_shouldThrowUnsupportedOperationException() throws Exception {
+        final ScanEngine engine = new CachingScanEngine(ScanCache.load(tmp.getRoot().toPath().resolve("scan.cache")));
+
+        Assertions.assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> scan(engine, ScanOptions.builder().followLinks(true).build()));
+    }
+
+    @Test
+    public void scan_excludes_shouldLeaveOutMatchingEntries() throws Exception {
+        Files.write(Files.createDirectories(dir.resolve("a").resolve("node_modules")).resolve("lib.js"), new byte[4096]);
+        Files.write(dir.resolve("a").resolve("build.tmp"), new byte[4096]);
+        Files.write(Files.createDirectories(dir.resolve("b")).resolve("file.txt"), new byte[4096]);
+
+        final ScanOptions options = ScanOptions.builder()
+                .exclude("node_modules")
+                .exclude("*.tmp")
+                .exclude(dir.resolve("b").toAbsolutePath().toString())
+                .build();
+
+        for (final ScanEngine engine : engines()) {
+            final Map<String, DirectoryElement> elems = scan(engine, options);
+
+            Assertions.assertThat(elems).as("%s", engine).doesNotContainKey("b");
+            Assertions.assertThat(elems.get("a").getSize().getValue()).as("%s", engine).isLessThan(2.0);
+        }
+    }
+
+    @Test
+    public void scan_sameFileSystemOnSingleFileSystem_shouldCountEverything() throws Exception {
+        for (final ScanEngine engine : engines()) {
+            Assertions.assertThat(scan(engine, ScanOptions.builder().sameFileSystem(true).build()).toString()).as("%s", engine)
+                    .isEqualTo(scan(engine, ScanOptions.DEFAULTS).toString());
+        }
+    }
+
+    @Test
+    public void scan_deepTree_shouldSumUpAllLevels() throws Exception {
+        Path nested = dir.resolve("deep");
+        for (int i = 0; i < 1000; i++) {
+            nested = nested.resolve("d");
+        }
+        Files.write(Files.createDirectories(nested).resolve("file.txt"), new byte[1024]);
+
+        for (final ScanEngine engine : engines()) {
+            Assertions.assertThat(scan(engine, ScanOptions.DEFAULTS).get("deep").getSize().getValue()).as("%s", engine).isEqualTo(1.0);
+        }
+    }
+
+    private Map<String, DirectoryElement> scan(final ScanEngine engine, final ScanOptions options) throws IOException {
+        final Map<String, DirectoryElement> elems = new TreeMap<>();
+        engine.scan(dir, options, elem -> elems.put(Paths.get(elem.getAbsPath()).getFileName().toString(), elem));
+        return elems;
+    }
+
+    private ScanEngine[] linkFollowingEngines() {
+        return new ScanEngine[]{new TreeWalkScanEngine(), new ForkJoinScanEngine(4), new ExecutorScanEngine(4, false)};
+    }
+
+    private ScanEngine[] engines() throws IOException {
+        final List<ScanEngine> engines = new ArrayList<>(Arrays.asList(linkFollowingEngines()));
+        engines.add(new CachingScanEngine(ScanCache.load(tmp.getRoot().toPath().resolve("scan.cache"))));
+        return engines.toArray(new ScanEngine[0]);
+    }
+}
@@ -0,0 +1,84 @@
+package com.dirscanner.scanner;
+
+import com.dirscanner.asserts.DirectoryElementAssert;
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.FileSizeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tests for {@link TreeWalkScanEngine}
+ */
+public class TreeWalkScanEngineTest {
+
+    private final static String TEST_RESOURCES_RELATIVE_PATH = "src/test/resources";
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private final TreeWalkScanEngine engine = new TreeWalkScanEngine();
+
+    @Test
+    public void scan_pathDoesNotExist_shouldThrowNoSuchFileException() {
+        Assertions.assertThatExceptionOfType(NoSuchFileException.class)
+                .isThrownBy(() -> engine.scan(Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/non-existent-path"), ScanOptions.DEFAULTS, elem -> { }));
+    }
+
+    @Test
+    public void scan_dirContainingFilesAndSubDirs_shouldEmitEachTopLevelElemOnceWithTotalOfItsContents() throws Exception {
+
+        final Path dir = Paths.get(TEST_RESOURCES_RELATIVE_PATH + "/dir-of-files-and-sub-dirs");
+        final List<DirectoryElement> elems = new CopyOnWriteArrayList<>();
+
+        engine.scan(dir, ScanOptions.DEFAULTS, elems::add);
+
+        elems.removeIf(elem -> elem.getAbsPath().endsWith("/.DS_Store"));
+        elems.sort(Comparator.comparing(DirectoryElement::getAbsPath));
+
+        Assertions.assertThat(elems).hasSize(3);
+
+        DirectoryElementAssert.assertThat(elems.get(0))
+                .hasType(DirectoryElement.Type.DIR)
+                .hasAbsPath(dir.resolve("bar").toAbsolutePath().toString())
+                .hasSizeAtLeast((double) 52216 / 1024, FileSizeUnit.KB);
+
+        DirectoryElementAssert.assertThat(elems.get(1))
+                .hasType(DirectoryElement.Type.DIR)
+                .hasAbsPath(dir.resolve("foo").toAbsolutePath().toString())
+                .hasSizeAtLeast((double) 2648 / 1024, FileSizeUnit.KB);
+
+        DirectoryElementAssert.assertThat(elems.get(2))
+                .hasType(DirectoryElement.Type.FILE)
+                .hasAbsPath(dir.resolve("somefile.txt").toAbsolutePath().toString())
+                .hasSize((double) 9 / 1024, FileSizeUnit.KB);
+    }
+
+    @Test
+    public void scan_deeplyNestedDir_shouldAddNestedTotalsToTopLevelDir() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Path nested = dir.resolve("top");
+        for (int i = 0; i < 40; i++) {
+            nested = Files.createDirectories(nested.resolve("d" + i));
+            Files.write(nested.resolve("f"), new byte[1024]);
+        }
+
+        final List<DirectoryElement> elems = new CopyOnWriteArrayList<>();
+        engine.scan(dir, ScanOptions.DEFAULTS, elems::add);
+
+        Assertions.assertThat(elems).hasSize(1);
+        DirectoryElementAssert.assertThat(elems.get(0))
+                .hasType(DirectoryElement.Type.DIR)
+                .hasSize(40, FileSizeUnit.KB);
+    }
+}
@@ -0,0 +1,221 @@
+package com.dirscanner.server;
+
+import com.dirscanner.metrics.ScanListener;
+import com.dirscanner.scanner.DirectoryElementScanner;
+import com.dirscanner.scanner.ErrorPolicy;
+import com.dirscanner.scanner.ScanOptions;
+import com.dirscanner.scanner.TreeWalkScanEngine;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@link ScanServer}
+ */
+public class ScanServerTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void size_existingPath_shouldReturnSizeAndFileCount() throws Exception {
+
+        try (final ScanServer server = start(DIR, 0)) {
+            final String body = get(server, "/size?path=bar/sam/sam1.jpg", 200);
+
+            Assertions.assertThat(body).isEqualTo(String.format(
+                    "{\"path\":\"%s\",\"type\":\"FILE\",\"sizeInBytes\":15071,\"fileCount\":1}",
+                    DIR.resolve("bar/sam/sam1.jpg").toAbsolutePath()));
+        }
+    }
+
+    @Test
+    public void size_unknownPath_shouldReturnNotFound() throws Exception {
+        try (final ScanServer server = start(DIR, 0)) {
+            Assertions.assertThat(get(server, "/size?path=nothing", 404)).contains("\"error\"");
+        }
+    }
+
+    @Test
+    public void top_directory_shouldReturnLargestChildrenFirst() throws Exception {
+
+        try (final ScanServer server = start(DIR, 0)) {
+            final String body = get(server, "/top?path=" + DIR.toAbsolutePath() + "&n=2", 200);
+
+            Assertions.assertThat(body).contains("\"children\":[{\"path\":\"" + DIR.resolve("bar").toAbsolutePath());
+            Assertions.assertThat(body).contains("},{\"path\":\"" + DIR.resolve("foo").toAbsolutePath());
+            Assertions.assertThat(body).doesNotContain("somefile.txt");
+        }
+    }
+
+    @Test
+    public void search_text_shouldReturnMatchingPaths() throws Exception {
+
+        try (final ScanServer server = start(DIR, 0)) {
+            final String body = get(server, "/search?q=.txt&limit=10", 200);
+
+            Assertions.assertThat(body).startsWith("{\"query\":\".txt\",\"matches\":[");
+            Assertions.assertThat(body).contains("a.txt", "b.txt", "jim.txt", "somefile.txt");
+            Assertions.assertThat(body).doesNotContain(".jpg");
+        }
+    }
+
+    @Test
+    public void query_malformed_shouldReturnBadRequest() throws Exception {
+        try (final ScanServer server = start(DIR, 0)) {
+            get(server, "/search", 400);
+            get(server, "/top?n=many", 400);
+            get(server, "/top?n=0", 400);
+            get(server, "/nothing", 404);
+        }
+    }
+
+    @Test
+    public void refresh_treeChanged_shouldSwapInNewScan() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Files.write(dir.resolve("a"), new byte[10]);
+
+        try (final ScanServer server = start(dir, 0)) {
+            Assertions.assertThat(get(server, "/size", 200)).contains("\"sizeInBytes\":10,");
+
+            Files.write(dir.resolve("b"), new byte[5]);
+            Assertions.assertThat(get(server, "/size", 200)).contains("\"sizeInBytes\":10,");
+
+            server.refresh();
+            Assertions.assertThat(server.getRefreshes()).isEqualTo(1);
+            Assertions.assertThat(get(server, "/size", 200)).contains("\"sizeInBytes\":15,");
+            Assertions.assertThat(get(server, "/status", 200)).contains("\"nodes\":3,", "\"refreshes\":1,");
+        }
+    }
+
+    @Test
+    public void refresh_scheduled_shouldRefreshInBackground() throws Exception {
+
+        try (final ScanServer server = start(DIR, 10)) {
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (server.getRefreshes() < 2 && System.currentTimeMillis() < deadline) {
+                get(server, "/size", 200);
+            }
+            Assertions.assertThat(server.getRefreshes()).isGreaterThanOrEqualTo(2);
+        }
+    }
+
+    @Test
+    public void start_skipAndUnreadableDirectory_shouldServeRestOfTree() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Files.write(Files.createDirectories(dir.resolve("kept")).resolve("file"), new byte[10]);
+        Files.write(Files.createDirectories(dir.resolve("gone")).resolve("file"), new byte[5]);
+
+        try (final ScanServer server = start(scanner(dir, ErrorPolicy.SKIP), dir, 0)) {
+            Assertions.assertThat(get(server, "/size", 200)).contains("\"sizeInBytes\":10,");
+            get(server, "/size?path=kept/file", 200);
+            Assertions.assertThat(get(server, "/size?path=gone", 200)).contains("\"sizeInBytes\":0,");
+
+            Files.write(Files.createDirectories(dir.resolve("gone")).resolve("file"), new byte[5]);
+            server.refresh();
+            Assertions.assertThat(server.getRefreshes()).isEqualTo(1);
+            Assertions.assertThat(server.getRefreshFailures()).isZero();
+        }
+    }
+
+    @Test
+    public void refresh_failFastAndUnreadableDirectory_shouldKeepPreviousScanAndReportFailure() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Files.write(dir.resolve("a"), new byte[10]);
+
+        try (final ScanServer server = start(scanner(dir, ErrorPolicy.FAIL_FAST), dir, 0)) {
+            Files.createDirectories(dir.resolve("gone"));
+            server.refresh();
+
+            Assertions.assertThat(server.getRefreshes()).isZero();
+            Assertions.assertThat(server.getRefreshFailures()).isEqualTo(1);
+            Assertions.assertThat(server.getLastRefreshFailure()).isInstanceOf(IllegalStateException.class);
+            Assertions.assertThat(get(server, "/size", 200)).contains("\"sizeInBytes\":10,");
+            Assertions.assertThat(get(server, "/status", 200)).contains("\"refreshFailures\":1,", "\"lastRefreshFailure\":");
+        }
+    }
+
+    @Test
+    public void start_file_shouldThrowNotDirectoryException() {
+        Assertions.assertThatExceptionOfType(NotDirectoryException.class)
+                .isThrownBy(() -> start(DIR.resolve("somefile.txt"), 0));
+    }
+
+    private static ScanServer start(final Path dir, final long refreshMillis) throws IOException {
+        return start(new DirectoryElementScanner(), dir, refreshMillis);
+    }
+
+    private static ScanServer start(final DirectoryElementScanner scanner, final Path dir, final long refreshMillis) throws IOException {
+        return ScanServer.start(scanner, dir, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), refreshMillis);
+    }
+
+    /**
+     * A scanner of the given directory whose sub-directory {@code gone}, whenever there is one, can no longer be read
+     * by the time the scan reaches it, being deleted as soon as the directory is listed.
+     */
+    private static DirectoryElementScanner scanner(final Path dir, final ErrorPolicy errorPolicy) {
+        final Path gone = dir.resolve("gone");
+        final ScanListener listener = new ScanListener() {
+            @Override
+            public void onDirectoryListed(@Nonnull final Path listed, final long nanos) {
+                if (!listed.equals(dir) || !Files.isDirectory(gone)) {
+                    return;
+                }
+                try {
+                    try (final Stream<Path> files = Files.list(gone)) {
+                        for (final Path file : (Iterable<Path>) files::iterator) {
+                            Files.delete(file);
+                        }
+                    }
+                    Files.delete(gone);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return new DirectoryElementScanner(new TreeWalkScanEngine(), ScanOptions.builder().errorPolicy(errorPolicy).listener(listener).build());
+    }
+
+    private static String get(final ScanServer server, final String query, final int expectedStatus) throws IOException {
+
+        final URL url = new URL(String.format("http://%s:%d%s", server.getAddress().getHostString(), server.getAddress().getPort(), query));
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            Assertions.assertThat(connection.getResponseCode()).as(query).isEqualTo(expectedStatus);
+            Assertions.assertThat(connection.getContentType()).startsWith("application/json");
+
+            try (final InputStream in = expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    out.write(buffer, 0, read);
+                }
+                return new String(out.toByteArray(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.dirscanner.snapshot;
+
+import com.dirscanner.scanner.DirectoryElementScanner;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link SnapshotDiff}, over snapshots written by {@link DirectoryElementScanner#scanSnapshot(Path, Path)}.
+ */
+public class SnapshotDiffTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path dir;
+
+    private Path older;
+
+    private Path newer;
+
+    @Before
+    public void setup() throws Exception {
+        dir = Files.createDirectories(tmp.getRoot().toPath().resolve("tree"));
+        older = tmp.getRoot().toPath().resolve("older.snapshot");
+        newer = tmp.getRoot().toPath().resolve("newer.snapshot");
+
+        Files.write(Files.createDirectories(dir.resolve("logs")).resolve("app.log"), new byte[100]);
+        Files.write(Files.createDirectories(dir.resolve("tmp")).resolve("scratch"), new byte[50]);
+        Files.write(dir.resolve("readme"), new byte[10]);
+    }
+
+    @Test
+    public void scanSnapshot_shouldWriteEveryEntryInSnapshotOrderWithTotals() throws Exception {
+
+        new DirectoryElementScanner().scanSnapshot(dir, older);
+
+        final List<String> entries = new ArrayList<>();
+        try (final SnapshotReader reader = SnapshotReader.open(older)) {
+            Assertions.assertThat(reader.getRoot()).isEqualTo(dir.toAbsolutePath().toString());
+            while (reader.next()) {
+                entries.add(String.format("%s %s %d", reader.isDirectory() ? "DIR" : "FILE", reader.getPath(), reader.getSize()));
+            }
+        }
+
+        Assertions.assertThat(entries).containsExactly(
+                "FILE logs/app.log 100",
+                "DIR logs 100",
+                "FILE readme 10",
+                "FILE tmp/scratch 50",
+                "DIR tmp 50",
+                "DIR  160");
+    }
+
+    @Test
+    public void largest_shouldRankAddedRemovedAndResizedEntriesByDelta() throws Exception {
+
+        new DirectoryElementScanner().scanSnapshot(dir, older);
+
+        Files.write(dir.resolve("logs").resolve("app.log"), new byte[1000]);
+        Files.delete(dir.resolve("tmp").resolve("scratch"));
+        Files.delete(dir.resolve("tmp"));
+        Files.write(Files.createDirectories(dir.resolve("cache")).resolve("blob"), new byte[300]);
+
+        new DirectoryElementScanner().scanSnapshot(dir, newer);
+
+        final List<String> deltas = SnapshotDiff.largest(older, newer, 4).stream()
+                .map(SnapshotDelta::toString)
+                .collect(Collectors.toList());
+
+        Assertions.assertThat(deltas).containsExactly(
+                "GROWN DIR  +1150",
+                "GROWN DIR logs +900",
+                "GROWN FILE logs/app.log +900",
+                "ADDED DIR cache +300");
+    }
+
+    @Test
+    public void diff_sameTree_shouldReportNothing() throws Exception {
+
+        new DirectoryElementScanner().scanSnapshot(dir, older);
+        new DirectoryElementScanner().scanSnapshot(dir, newer);
+
+        final List<SnapshotDelta> deltas = new ArrayList<>();
+        try (final SnapshotReader olderReader = SnapshotReader.open(older);
+             final SnapshotReader newerReader = SnapshotReader.open(newer)) {
+            SnapshotDiff.diff(olderReader, newerReader, deltas::add);
+        }
+
+        Assertions.assertThat(deltas).isEmpty();
+    }
+
+    @Test
+    public void write_outOfOrder_shouldThrowIllegalArgumentException() throws Exception {
+
+        final SnapshotWriter writer = SnapshotWriter.create(older, "/");
+        writer.write("a", true, 0);
+
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> writer.write("a/b", false, 0));
+        writer.abort();
+
+        Assertions.assertThat(Files.exists(older)).isFalse();
+    }
+}
@@ -0,0 +1,28 @@
+package com.dirscanner.snapshot;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link SnapshotPaths}
+ */
+public class SnapshotPathsTest {
+
+    @Test
+    public void compare_shouldOrderEntriesOfADepthFirstWalkWithDirectoriesAfterTheirContents() {
+
+        final List<String> paths = Arrays.asList("b", "a-b", "a/c", "", "a", "a/b/x", "a/b");
+        paths.sort(SnapshotPaths::compare);
+
+        Assertions.assertThat(paths).containsExactly("a/b/x", "a/b", "a/c", "a", "a-b", "b", "");
+    }
+
+    @Test
+    public void compare_samePath_shouldReturn0() {
+        Assertions.assertThat(SnapshotPaths.compare("a/b", "a/b")).isEqualTo(0);
+        Assertions.assertThat(SnapshotPaths.compare("", "")).isEqualTo(0);
+    }
+}
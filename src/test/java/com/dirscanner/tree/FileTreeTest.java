@@ -0,0 +1,215 @@
+package com.dirscanner.tree;
+
+import com.dirscanner.asserts.DirectoryElementAssert;
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.elem.FileSizeUnit;
+import com.dirscanner.metrics.ScanListener;
+import com.dirscanner.metrics.ScanMetrics;
+import com.dirscanner.scanner.DirectoryElementScanner;
+import com.dirscanner.scanner.ErrorPolicy;
+import com.dirscanner.scanner.ScanOptions;
+import com.dirscanner.scanner.TreeWalkScanEngine;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@link FileTree} and {@link FileTreeBuilder}
+ */
+public class FileTreeTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private FileTree tree;
+
+    @Before
+    public void setup() throws Exception {
+        tree = new DirectoryElementScanner().scanTree(DIR);
+    }
+
+    @Test
+    public void scanTree_shouldHoldEveryNestedDirAndFile() {
+        Assertions.assertThat(tree.size()).isGreaterThanOrEqualTo(12);
+        Assertions.assertThat(tree.getParent(FileTree.ROOT)).isEqualTo(-1);
+        Assertions.assertThat(tree.getSubTreeEnd(FileTree.ROOT)).isEqualTo(tree.size());
+        Assertions.assertThat(tree.getName(FileTree.ROOT)).isEqualTo(DIR.toAbsolutePath().toString());
+    }
+
+    @Test
+    public void getSizeInBytes_root_shouldBeExactSummationOfAllFiles() {
+        Assertions.assertThat(tree.getSizeInBytes(FileTree.ROOT)).isGreaterThanOrEqualTo(52216 + 2648 + 9);
+        Assertions.assertThat(tree.getFileCount(FileTree.ROOT)).isGreaterThanOrEqualTo(7);
+    }
+
+    @Test
+    public void getChildren_nestedDir_shouldReturnItsDirectChildrenWithTheirTotals() {
+
+        final int bar = child(FileTree.ROOT, "bar");
+        final int sam = child(bar, "sam");
+
+        Assertions.assertThat(tree.isDirectory(bar)).isTrue();
+        Assertions.assertThat(tree.getParent(sam)).isEqualTo(bar);
+        Assertions.assertThat(tree.getSizeInBytes(sam)).isGreaterThanOrEqualTo(15071 + 2739);
+
+        final int sam1 = child(sam, "sam1.jpg");
+        Assertions.assertThat(tree.isDirectory(sam1)).isFalse();
+        Assertions.assertThat(tree.getSizeInBytes(sam1)).isEqualTo(15071);
+        Assertions.assertThat(tree.getFileCount(sam1)).isEqualTo(1);
+        Assertions.assertThat(tree.getChildren(sam1)).isEmpty();
+        Assertions.assertThat(tree.getPath(sam1)).isEqualTo(DIR.resolve("bar/sam/sam1.jpg").toAbsolutePath());
+    }
+
+    @Test
+    public void toDirectoryElement_shouldReturnViewOfNode() {
+
+        final int foo = child(FileTree.ROOT, "foo");
+
+        DirectoryElementAssert.assertThat(tree.toDirectoryElement(foo))
+                .hasType(DirectoryElement.Type.DIR)
+                .hasAbsPath(DIR.resolve("foo").toAbsolutePath().toString())
+                .hasSizeAtLeast((double) 2648 / 1024, FileSizeUnit.KB);
+    }
+
+    @Test
+    public void find_relativeAndAbsolutePaths_shouldReturnSameNode() {
+
+        final int sam1 = child(child(child(FileTree.ROOT, "bar"), "sam"), "sam1.jpg");
+
+        Assertions.assertThat(tree.find(Paths.get("bar/sam/sam1.jpg"))).isEqualTo(sam1);
+        Assertions.assertThat(tree.find(DIR.resolve("bar/sam/sam1.jpg").toAbsolutePath())).isEqualTo(sam1);
+        Assertions.assertThat(tree.find(Paths.get(""))).isEqualTo(FileTree.ROOT);
+    }
+
+    @Test
+    public void find_unknownPath_shouldReturnMinusOne() {
+        Assertions.assertThat(tree.find(Paths.get("bar/nothing"))).isEqualTo(-1);
+        Assertions.assertThat(tree.find(Paths.get("/elsewhere/bar"))).isEqualTo(-1);
+    }
+
+    @Test
+    public void search_text_shouldReturnNodesWhoseNameContainsItInPreOrder() {
+
+        final int[] found = tree.search("sam", 10);
+
+        Assertions.assertThat(Arrays.stream(found).mapToObj(tree::getName))
+                .containsExactly("sam", "sam1.jpg", "sam2.gif");
+        Assertions.assertThat(tree.search("sam", 2)).containsExactly(found[0], found[1]);
+        Assertions.assertThat(tree.search("no-such-name", 10)).isEmpty();
+    }
+
+    @Test
+    public void search_limitLessThanOne_shouldThrowIllegalArgumentException() {
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> tree.search("sam", 0));
+    }
+
+    @Test
+    public void scanTree_excludes_shouldLeaveOutExcludedEntries() throws Exception {
+
+        final FileTree excluding = new DirectoryElementScanner(new TreeWalkScanEngine(), ScanOptions.builder().exclude("*.jpg").build())
+                .scanTree(DIR);
+
+        Assertions.assertThat(excluding.search(".jpg", 10)).isEmpty();
+        Assertions.assertThat(excluding.getSizeInBytes(FileTree.ROOT)).isEqualTo(tree.getSizeInBytes(FileTree.ROOT)
+                - Arrays.stream(tree.search(".jpg", 10)).mapToLong(tree::getSizeInBytes).sum());
+    }
+
+    @Test
+    public void scanTree_skipAndDirectoryVanishes_shouldKeepRestOfTree() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Files.write(Files.createDirectories(dir.resolve("kept")).resolve("file"), new byte[100]);
+        Files.write(Files.createDirectories(dir.resolve("gone")).resolve("file"), new byte[200]);
+
+        final ScanMetrics metrics = new ScanMetrics();
+        final ScanOptions options = ScanOptions.builder()
+                .errorPolicy(ErrorPolicy.SKIP)
+                .listener(new DeletingListener(dir, dir.resolve("gone"), metrics))
+                .build();
+        final FileTree vanished = new DirectoryElementScanner(new TreeWalkScanEngine(), options).scanTree(dir);
+
+        Assertions.assertThat(vanished.getSizeInBytes(FileTree.ROOT)).isEqualTo(100);
+        Assertions.assertThat(vanished.find(Paths.get("kept/file"))).isPositive();
+        Assertions.assertThat(metrics.getErrorsSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    public void scanTree_failFastAndDirectoryVanishes_shouldThrowIllegalStateException() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        Files.createDirectories(dir.resolve("gone"));
+
+        final ScanOptions options = ScanOptions.builder().listener(new DeletingListener(dir, dir.resolve("gone"), ScanListener.NONE)).build();
+
+        Assertions.assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> new DirectoryElementScanner(new TreeWalkScanEngine(), options).scanTree(dir));
+    }
+
+    @Test
+    public void build_beforeWalk_shouldThrowIllegalStateException() {
+        Assertions.assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> new FileTreeBuilder().build());
+    }
+
+    /**
+     * Deletes a directory once the scanned directory is listed, so that it vanishes before it is read in turn.
+     */
+    private static final class DeletingListener implements ScanListener {
+
+        private final Path root;
+
+        private final Path victim;
+
+        private final ScanListener delegate;
+
+        DeletingListener(final Path root, final Path victim, final ScanListener delegate) {
+            this.root = root;
+            this.victim = victim;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onDirectoryListed(@Nonnull final Path dir, final long nanos) {
+            if (dir.equals(root)) {
+                try {
+                    try (final Stream<Path> files = Files.list(victim)) {
+                        for (final Path file : (Iterable<Path>) files::iterator) {
+                            Files.delete(file);
+                        }
+                    }
+                    Files.delete(victim);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        @Override
+        public void onErrorSkipped(@Nonnull final Path path, @Nonnull final IOException e) {
+            delegate.onErrorSkipped(path, e);
+        }
+    }
+
+    private int child(final int node, final String name) {
+        return Arrays.stream(tree.getChildren(node))
+                .filter(child -> tree.getName(child).equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(String.format("%s has no child %s: %s", tree.getName(node), name,
+                        Arrays.stream(tree.getChildren(node)).mapToObj(tree::getName).collect(Collectors.toList()))));
+    }
+}
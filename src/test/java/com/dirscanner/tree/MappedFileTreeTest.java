@@ -0,0 +1,146 @@
+package com.dirscanner.tree;
+
+import com.dirscanner.metrics.ScanListener;
+import com.dirscanner.scanner.DirectoryElementScanner;
+import com.dirscanner.scanner.ScanOptions;
+import com.dirscanner.scanner.SizeMode;
+import com.dirscanner.scanner.TreeWalkScanEngine;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link MappedFileTree} and {@link FileTreeWriter}
+ */
+public class MappedFileTreeTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void scanTree_toFile_shouldHoldSameNodesAsFileTree() throws Exception {
+
+        final FileTree expected = new DirectoryElementScanner().scanTree(DIR);
+        final MappedFileTree actual = new DirectoryElementScanner().scanTree(DIR, tmp.getRoot().toPath().resolve("tree.bin"));
+
+        assertSameNodes(expected, actual);
+    }
+
+    @Test
+    public void scanTree_columnsLargerThanWriteBuffer_shouldPatchSpilledTotals() throws Exception {
+
+        final Path dir = tmp.newFolder("large").toPath();
+        for (int d = 0; d < 20; d++) {
+            final Path sub = Files.createDirectories(dir.resolve("d" + d).resolve("nested"));
+            for (int f = 0; f < 500; f++) {
+                Files.write(sub.resolve("f" + f), new byte[d]);
+            }
+        }
+
+        final FileTree expected = new DirectoryElementScanner().scanTree(dir);
+        final MappedFileTree actual = new DirectoryElementScanner().scanTree(dir, tmp.getRoot().toPath().resolve("tree.bin"));
+
+        assertSameNodes(expected, actual);
+        Assertions.assertThat(actual.getSizeInBytes(FileTree.ROOT)).isEqualTo(500L * (19 * 20 / 2));
+    }
+
+    @Test
+    public void scanTree_toFileWithOptions_shouldHoldSameNodesAsFileTree() throws Exception {
+
+        final DirectoryElementScanner scanner = new DirectoryElementScanner(new TreeWalkScanEngine(), ScanOptions.builder()
+                .exclude("*.jpg")
+                .sizeMode(SizeMode.DISK_USAGE)
+                .build());
+
+        final FileTree expected = scanner.scanTree(DIR);
+        final MappedFileTree actual = scanner.scanTree(DIR, tmp.getRoot().toPath().resolve("tree.bin"));
+
+        assertSameNodes(expected, actual);
+        Assertions.assertThat(expected.search(".jpg", 10)).isEmpty();
+    }
+
+    @Test
+    public void scanTree_toFileWithScanListener_shouldReportScanPhase() throws Exception {
+
+        final List<ScanListener.Phase> phases = new ArrayList<>();
+        final ScanListener listener = new ScanListener() {
+            @Override
+            public void onPhaseDone(@Nonnull final Phase phase, final long nanos) {
+                phases.add(phase);
+            }
+        };
+        new DirectoryElementScanner(new TreeWalkScanEngine(), ScanOptions.builder().listener(listener).build())
+                .scanTree(DIR, tmp.getRoot().toPath().resolve("tree.bin"));
+
+        Assertions.assertThat(phases).containsExactly(ScanListener.Phase.SCAN);
+    }
+
+    @Test
+    public void find_shouldResolveRelativeAndAbsolutePaths() throws Exception {
+
+        final MappedFileTree tree = new DirectoryElementScanner().scanTree(DIR, tmp.getRoot().toPath().resolve("tree.bin"));
+
+        final int sam1 = tree.find(Paths.get("bar/sam/sam1.jpg"));
+        Assertions.assertThat(tree.getSizeInBytes(sam1)).isEqualTo(15071);
+        Assertions.assertThat(tree.find(DIR.resolve("bar/sam/sam1.jpg").toAbsolutePath())).isEqualTo(sam1);
+        Assertions.assertThat(tree.find(Paths.get(""))).isEqualTo(FileTree.ROOT);
+        Assertions.assertThat(tree.find(Paths.get("bar/missing"))).isEqualTo(-1);
+    }
+
+    @Test
+    public void largestDirectories_shouldReturnLargestDirectoriesWithinSubTreeInDescendingOrder() throws Exception {
+
+        final MappedFileTree tree = new DirectoryElementScanner().scanTree(DIR, tmp.getRoot().toPath().resolve("tree.bin"));
+
+        final int[] largest = tree.largestDirectories(FileTree.ROOT, 100);
+
+        Assertions.assertThat(largest).isNotEmpty();
+        for (int i = 0; i < largest.length; i++) {
+            Assertions.assertThat(tree.isDirectory(largest[i])).isTrue();
+            Assertions.assertThat(largest[i]).isNotEqualTo(FileTree.ROOT);
+            if (i > 0) {
+                Assertions.assertThat(tree.getSizeInBytes(largest[i])).isLessThanOrEqualTo(tree.getSizeInBytes(largest[i - 1]));
+            }
+        }
+        Assertions.assertThat(tree.largestDirectories(FileTree.ROOT, 1)).containsExactly(largest[0]);
+    }
+
+    @Test
+    public void open_notATreeFile_shouldThrowStreamCorruptedException() throws Exception {
+
+        final Path file = tmp.newFile("not-a-tree").toPath();
+        Files.write(file, new byte[128]);
+
+        Assertions.assertThatExceptionOfType(StreamCorruptedException.class).isThrownBy(() -> MappedFileTree.open(file));
+    }
+
+    @Test
+    public void finish_beforeWalk_shouldThrowIllegalStateException() throws Exception {
+        try (final FileTreeWriter writer = new FileTreeWriter(tmp.getRoot().toPath().resolve("tree.bin"))) {
+            Assertions.assertThatExceptionOfType(IllegalStateException.class).isThrownBy(writer::finish);
+        }
+    }
+
+    private static void assertSameNodes(final FileTree expected, final MappedFileTree actual) {
+        Assertions.assertThat(actual.size()).isEqualTo(expected.size());
+        for (int node = 0; node < expected.size(); node++) {
+            Assertions.assertThat(actual.getParent(node)).isEqualTo(expected.getParent(node));
+            Assertions.assertThat(actual.getSubTreeEnd(node)).isEqualTo(expected.getSubTreeEnd(node));
+            Assertions.assertThat(actual.getSizeInBytes(node)).isEqualTo(expected.getSizeInBytes(node));
+            Assertions.assertThat(actual.getFileCount(node)).isEqualTo(expected.getFileCount(node));
+            Assertions.assertThat(actual.isDirectory(node)).isEqualTo(expected.isDirectory(node));
+            Assertions.assertThat(actual.getName(node)).isEqualTo(expected.getName(node));
+        }
+    }
+}
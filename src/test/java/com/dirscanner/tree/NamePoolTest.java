@@ -0,0 +1,45 @@
+package com.dirscanner.tree;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+/**
+ * Tests for {@link NamePool}
+ */
+public class NamePoolTest {
+
+    @Test
+    public void intern_sameNameTwice_shouldReturnSameId() {
+
+        final NamePool pool = new NamePool();
+
+        final int id = pool.intern("node_modules");
+
+        Assertions.assertThat(pool.intern("node_modules")).isEqualTo(id);
+        Assertions.assertThat(pool.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void name_manyDistinctNames_shouldReturnEachInternedName() {
+
+        final NamePool pool = new NamePool();
+        final int[] ids = new int[10_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pool.intern("file-" + i + "-\u00e9.txt");
+        }
+        pool.trim();
+
+        Assertions.assertThat(pool.size()).isEqualTo(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            Assertions.assertThat(pool.name(ids[i])).isEqualTo("file-" + i + "-\u00e9.txt");
+        }
+    }
+
+    @Test
+    public void name_emptyName_shouldReturnEmptyString() {
+
+        final NamePool pool = new NamePool();
+
+        Assertions.assertThat(pool.name(pool.intern(""))).isEmpty();
+    }
+}
@@ -0,0 +1,173 @@
+package com.dirscanner.watch;
+
+import com.dirscanner.elem.DirectoryElement;
+import com.dirscanner.scanner.DirectoryElementScanner;
+import com.dirscanner.scanner.ScanOptions;
+import com.dirscanner.scanner.SizeMode;
+import com.dirscanner.scanner.TreeWalkScanEngine;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link TreeWatcher}
+ */
+public class TreeWatcherTest {
+
+    private final static Path DIR = Paths.get("src/test/resources/dir-of-files-and-sub-dirs");
+
+    private final static long TIMEOUT_MILLIS = 10_000;
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void watch_noChanges_shouldReturnSameElemsAsScan() throws Exception {
+
+        final List<DirectoryElement> expected = new DirectoryElementScanner().scan(DIR);
+
+        try (final TreeWatcher watcher = TreeWatcher.watch(DIR)) {
+            Assertions.assertThat(watcher.getElements().stream().map(DirectoryElement::toString).collect(Collectors.toList()))
+                    .containsExactlyElementsOf(expected.stream().map(DirectoryElement::toString).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void watch_fileCreatedModifiedAndDeleted_shouldUpdateAncestorTotals() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final Path sub = Files.createDirectories(dir.resolve("a").resolve("b"));
+        Files.write(dir.resolve("a").resolve("existing"), new byte[10]);
+
+        try (final TreeWatcher watcher = TreeWatcher.watch(dir)) {
+            Assertions.assertThat(watcher.getSizeInBytes(dir)).isEqualTo(10);
+
+            final Path file = sub.resolve("file");
+            Files.write(file, new byte[100]);
+            awaitTrue(() -> watcher.getSizeInBytes(dir) == 110);
+            Assertions.assertThat(watcher.getSizeInBytes(sub)).isEqualTo(100);
+            Assertions.assertThat(watcher.getSizeInBytes(dir.resolve("a"))).isEqualTo(110);
+
+            Files.write(file, new byte[40]);
+            awaitTrue(() -> watcher.getSizeInBytes(dir) == 50);
+            Assertions.assertThat(watcher.getSizeInBytes(file)).isEqualTo(40);
+
+            Files.delete(file);
+            awaitTrue(() -> watcher.getSizeInBytes(dir) == 10);
+            Assertions.assertThat(watcher.getSizeInBytes(file)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void watch_directoryTreeCreatedAndDeleted_shouldWatchNewDirectories() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+
+        try (final TreeWatcher watcher = TreeWatcher.watch(dir)) {
+            final Path nested = Files.createDirectories(dir.resolve("x").resolve("y"));
+            Files.write(nested.resolve("early"), new byte[7]);
+            awaitTrue(() -> watcher.getSizeInBytes(dir) == 7);
+
+            Files.write(nested.resolve("late"), new byte[3]);
+            awaitTrue(() -> watcher.getSizeInBytes(dir) == 10);
+            Assertions.assertThat(watcher.getElements()).hasSize(1);
+            Assertions.assertThat(watcher.getElements().get(0).getType()).isEqualTo(DirectoryElement.Type.DIR);
+
+            Files.delete(nested.resolve("early"));
+            Files.delete(nested.resolve("late"));
+            Files.delete(nested);
+            Files.delete(nested.getParent());
+            awaitTrue(() -> watcher.getElements().isEmpty());
+            Assertions.assertThat(watcher.getSizeInBytes(dir)).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void watch_directoryDeletedAndCreatedAgain_shouldRescanAndWatchNewDirectory() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+        final Path sub = Files.createDirectory(dir.resolve("sub"));
+        Files.write(sub.resolve("old"), new byte[5]);
+
+        try (final TreeWatcher watcher = TreeWatcher.watch(dir)) {
+            // Holding the watcher keeps its events from being applied until the directory is back.
+            synchronized (watcher) {
+                Files.delete(sub.resolve("old"));
+                Files.delete(sub);
+                Files.createDirectory(sub);
+                Files.write(sub.resolve("new"), new byte[3]);
+            }
+            awaitTrue(() -> watcher.getSizeInBytes(dir) == 3);
+            Assertions.assertThat(watcher.getSizeInBytes(sub.resolve("old"))).isEqualTo(-1);
+
+            Files.write(sub.resolve("later"), new byte[4]);
+            awaitTrue(() -> watcher.getSizeInBytes(dir) == 7);
+            Assertions.assertThat(watcher.getSizeInBytes(sub)).isEqualTo(7);
+        }
+    }
+
+    @Test
+    public void watch_excludes_shouldLeaveOutExcludedEntries() throws Exception {
+
+        final ScanOptions options = ScanOptions.builder().exclude("*.jpg").exclude("foo").build();
+        final List<DirectoryElement> expected = new DirectoryElementScanner(new TreeWalkScanEngine(), options).scan(DIR);
+
+        try (final TreeWatcher watcher = TreeWatcher.watch(DIR, options)) {
+            Assertions.assertThat(watcher.getElements().stream().map(DirectoryElement::toString).collect(Collectors.toList()))
+                    .containsExactlyElementsOf(expected.stream().map(DirectoryElement::toString).collect(Collectors.toList()));
+            Assertions.assertThat(watcher.getSizeInBytes(DIR.resolve("foo"))).isEqualTo(-1);
+            Assertions.assertThat(watcher.getRegisterFailures()).isZero();
+        }
+    }
+
+    @Test
+    public void watch_excludedFileCreated_shouldNotBeCounted() throws Exception {
+
+        final Path dir = tmp.getRoot().toPath();
+
+        try (final TreeWatcher watcher = TreeWatcher.watch(dir, ScanOptions.builder().exclude("*.tmp").build())) {
+            Files.write(dir.resolve("ignored.tmp"), new byte[100]);
+            Files.write(dir.resolve("counted"), new byte[7]);
+            awaitTrue(() -> watcher.getSizeInBytes(dir) == 7);
+            Assertions.assertThat(watcher.getSizeInBytes(dir.resolve("ignored.tmp"))).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void watch_diskUsage_shouldThrowUnsupportedOperationException() {
+        Assertions.assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> TreeWatcher.watch(DIR, ScanOptions.builder().sizeMode(SizeMode.DISK_USAGE).build()));
+    }
+
+    @Test
+    public void getSizeInBytes_pathOutsideTree_shouldReturnMinusOne() throws Exception {
+
+        try (final TreeWatcher watcher = TreeWatcher.watch(DIR)) {
+            Assertions.assertThat(watcher.getSizeInBytes(Paths.get("src/main"))).isEqualTo(-1);
+        }
+    }
+
+    @Test(expected = NotDirectoryException.class)
+    public void watch_file_shouldThrowException() throws Exception {
+        TreeWatcher.watch(DIR.resolve("somefile.txt"));
+    }
+
+    private static void awaitTrue(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assertions.fail("Condition not met within " + TIMEOUT_MILLIS + " ms.");
+            }
+            Thread.sleep(20);
+        }
+    }
+}